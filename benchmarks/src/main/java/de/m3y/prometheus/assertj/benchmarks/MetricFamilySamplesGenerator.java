@@ -0,0 +1,86 @@
+package de.m3y.prometheus.assertj.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+
+/**
+ * Generates synthetic MFS of given series and label counts, deterministically for comparable runs.
+ * <p>
+ * The last label distinguishes the series, all other labels have a low cardinality such as methods or status codes.
+ */
+public final class MetricFamilySamplesGenerator {
+    private MetricFamilySamplesGenerator() {
+        // No instantiation
+    }
+
+    /**
+     * Generates label names <code>label_0</code> to <code>label_N</code>.
+     *
+     * @param labelCount the number of labels.
+     * @return the label names.
+     */
+    public static List<String> labelNames(int labelCount) {
+        final String[] labelNames = new String[labelCount];
+        for (int i = 0; i < labelCount; i++) {
+            labelNames[i] = "label_" + i;
+        }
+        return Collections.unmodifiableList(Arrays.asList(labelNames));
+    }
+
+    /**
+     * Generates the label values of a series.
+     *
+     * @param labelCount the number of labels.
+     * @param series     the series index.
+     * @return the label values.
+     */
+    public static List<String> labelValues(int labelCount, int series) {
+        final String[] labelValues = new String[labelCount];
+        for (int i = 0; i < labelCount - 1; i++) {
+            labelValues[i] = "value_" + (series % (i + 2));
+        }
+        if (labelCount > 0) {
+            labelValues[labelCount - 1] = "series_" + series;
+        }
+        return Arrays.asList(labelValues);
+    }
+
+    /**
+     * Generates a gauge MFS, with a single sample per series.
+     *
+     * @param name        the MFS name.
+     * @param seriesCount the number of series.
+     * @param labelCount  the number of labels, at least 1 for more than one series.
+     * @return the MFS.
+     */
+    public static Collector.MetricFamilySamples gauge(String name, int seriesCount, int labelCount) {
+        if (labelCount < 1 && seriesCount > 1) {
+            throw new IllegalArgumentException("Expected at least one label for " + seriesCount + " series");
+        }
+        final List<String> labelNames = labelNames(labelCount);
+        final List<Sample> samples = new ArrayList<>(seriesCount);
+        for (int i = 0; i < seriesCount; i++) {
+            samples.add(new Sample(name, labelNames, labelValues(labelCount, i), i));
+        }
+        return new Collector.MetricFamilySamples(name, Collector.Type.GAUGE, "Generated gauge", samples);
+    }
+
+    /**
+     * Generates MFS of distinct names, such as a registry of many collectors.
+     *
+     * @param familyCount the number of MFS.
+     * @return the MFS, named <code>metric_family_0</code> to <code>metric_family_N</code>.
+     */
+    public static List<Collector.MetricFamilySamples> families(int familyCount) {
+        final List<Collector.MetricFamilySamples> families = new ArrayList<>(familyCount);
+        for (int i = 0; i < familyCount; i++) {
+            families.add(gauge("metric_family_" + i, 1, 0));
+        }
+        return families;
+    }
+}
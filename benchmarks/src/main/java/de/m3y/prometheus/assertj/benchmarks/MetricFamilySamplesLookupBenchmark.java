@@ -0,0 +1,63 @@
+package de.m3y.prometheus.assertj.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import de.m3y.prometheus.assertj.MetricFamilySamplesUtils;
+import de.m3y.prometheus.assertj.StringUtils;
+import io.prometheus.client.Collector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks looking up an MFS by name, including finding similar names when not found.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricFamilySamplesLookupBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int familyCount;
+
+    private List<Collector.MetricFamilySamples> families;
+    private String[] names;
+    private String lastName;
+
+    @Setup
+    public void setUp() {
+        families = MetricFamilySamplesGenerator.families(familyCount);
+        names = families.stream().map(mfs -> mfs.name).toArray(String[]::new);
+        lastName = names[names.length - 1];
+    }
+
+    @Benchmark
+    public Collector.MetricFamilySamples getMetricFamilySamplesOfLast() {
+        return MetricFamilySamplesUtils.getMetricFamilySamples(families, lastName);
+    }
+
+    @Benchmark
+    public Object getMetricFamilySamplesNotFound() {
+        try {
+            return MetricFamilySamplesUtils.getMetricFamilySamples(families, "metric_familyy_1");
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Benchmark
+    public String[] similar() {
+        return StringUtils.similar("metric_familyy_1", names, 5);
+    }
+}
@@ -0,0 +1,74 @@
+package de.m3y.prometheus.assertj.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import de.m3y.prometheus.assertj.MetricFamilySamplesAssert;
+import io.prometheus.client.Collector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks sample lookup by label values, label name verification and failure message rendering,
+ * each on a fresh assertion object like in tests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SampleLookupBenchmark {
+    @Param({"10", "1000", "100000", "1000000"})
+    public int seriesCount;
+
+    @Param({"1", "4", "8"})
+    public int labelCount;
+
+    private Collector.MetricFamilySamples mfs;
+    private List<String> lastLabelValues;
+    private List<String> missingLabelValues;
+    private String[] labelNames;
+
+    @Setup
+    public void setUp() {
+        mfs = MetricFamilySamplesGenerator.gauge("benchmark_gauge", seriesCount, labelCount);
+        lastLabelValues = MetricFamilySamplesGenerator.labelValues(labelCount, seriesCount - 1);
+        missingLabelValues = MetricFamilySamplesGenerator.labelValues(labelCount, seriesCount);
+        labelNames = MetricFamilySamplesGenerator.labelNames(labelCount).toArray(new String[0]);
+    }
+
+    @Benchmark
+    public Object hasSampleValueOfLastSeries() {
+        return MetricFamilySamplesAssert.assertThat(mfs)
+                .hasTypeOfGauge()
+                .hasSampleValue(lastLabelValues, seriesCount - 1);
+    }
+
+    @Benchmark
+    public Object hasSampleLabelNames() {
+        return MetricFamilySamplesAssert.assertThat(mfs)
+                .hasSampleLabelNames(labelNames);
+    }
+
+    @Benchmark
+    public Object hasSampleValueFailureMessage() {
+        try {
+            MetricFamilySamplesAssert.assertThat(mfs)
+                    .hasTypeOfGauge()
+                    .hasSampleValue(missingLabelValues, 0);
+            throw new IllegalStateException("Expected assertion to fail");
+        } catch (AssertionError e) {
+            return e.getMessage();
+        }
+    }
+}
@@ -4,10 +4,23 @@ import io.prometheus.client.Collector;
 import io.prometheus.client.Collector.MetricFamilySamples;
 import org.assertj.core.api.AbstractAssert;
 import org.assertj.core.api.DoubleAssert;
+import org.assertj.core.data.Offset;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.DoublePredicate;
+import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * AssertJ generic support for MetricFamilySamples.
@@ -28,6 +41,24 @@ public abstract class AbstractMetricFamilySamplesAssert
         <SELF extends AbstractMetricFamilySamplesAssert<SELF>> extends
         AbstractAssert<SELF, MetricFamilySamples> {
 
+    /**
+     * Default max number of samples rendered in a failure message.
+     */
+    public static final int DEFAULT_MAX_SAMPLES_IN_FAILURE_MESSAGE = 20;
+
+    /**
+     * Min number of samples for evaluating sample predicates in parallel.
+     */
+    public static final int PARALLEL_THRESHOLD = 10_000;
+
+    private static final int MAX_RANKED_EDIT_DISTANCE = 1023;
+
+    private SampleIndex sampleIndex;
+    private LabelIndex labelIndex;
+    private Map<String, LabelMatcher> labelMatchers = new HashMap<>();
+    private final Map<String, String> effectiveSampleNames = new HashMap<>();
+    private int maxSamplesInFailureMessage = DEFAULT_MAX_SAMPLES_IN_FAILURE_MESSAGE;
+
     /**
      * Default constructor. Do not use directly but via {@link de.m3y.prometheus.assertj.MetricFamilySamplesAssert#assertThat }
      *
@@ -38,6 +69,51 @@ public abstract class AbstractMetricFamilySamplesAssert
         super(metricFamilySamples, AbstractMetricFamilySamplesAssert.class);
     }
 
+    /**
+     * Limits the number of samples rendered in failure messages, e.g. for MFS with many samples.
+     * <p>
+     * When asserting a specific sample, the samples closest to the expected label values get rendered.
+     *
+     * @param maxSamplesInFailureMessage the max number of rendered samples.
+     * @return {@code this} assertion object.
+     * @see #DEFAULT_MAX_SAMPLES_IN_FAILURE_MESSAGE
+     */
+    public SELF withMaxSamplesInFailureMessage(int maxSamplesInFailureMessage) {
+        if (maxSamplesInFailureMessage < 0) {
+            throw new IllegalArgumentException("Expected non negative max samples but got " + maxSamplesInFailureMessage);
+        }
+        this.maxSamplesInFailureMessage = maxSamplesInFailureMessage;
+        return myself;
+    }
+
+    /**
+     * Gets the max number of samples rendered in a failure message.
+     *
+     * @return the max number of rendered samples.
+     * @see #withMaxSamplesInFailureMessage(int)
+     */
+    protected int getMaxSamplesInFailureMessage() {
+        return maxSamplesInFailureMessage;
+    }
+
+    /**
+     * Passes on the settings and state of this assertion, such as when upgrading to a type specific assertion.
+     *
+     * @param other the other assertion, for the same MFS.
+     * @param <A>   the other assertion type.
+     * @return the other assertion.
+     */
+    protected <A extends AbstractMetricFamilySamplesAssert<A>> A inherit(A other) {
+        final AbstractMetricFamilySamplesAssert<?> otherAssert = other;
+        otherAssert.maxSamplesInFailureMessage = maxSamplesInFailureMessage;
+        otherAssert.labelMatchers = labelMatchers;
+        if (otherAssert.actual == actual) {
+            otherAssert.sampleIndex = sampleIndex;
+            otherAssert.labelIndex = labelIndex;
+        }
+        return other;
+    }
+
     /**
      * Verifies the Collector Type.
      *
@@ -112,12 +188,10 @@ public abstract class AbstractMetricFamilySamplesAssert
         String sampleName = actual.name;
         if (actual.type == Collector.Type.SUMMARY || actual.type == Collector.Type.HISTOGRAM) {
             sampleName += "_count";
-        } else if (actual.type == Collector.Type.COUNTER) {
-            sampleName += "_total";
-        } else if (actual.type == Collector.Type.INFO) {
-            sampleName += "_info";
+        } else {
+            sampleName = effectiveSampleName(sampleName);
         }
-        final List<String> actualLabelNames = getLabelNames(actual, sampleName);
+        final List<String> actualLabelNames = getLabelNames(sampleName);
         try {
             org.assertj.core.api.Assertions.assertThat(actualLabelNames).containsExactlyInAnyOrder(labelNames);
         } catch (AssertionError ae) {
@@ -133,60 +207,687 @@ public abstract class AbstractMetricFamilySamplesAssert
         return myself;
     }
 
+    /**
+     * Verifies a series budget, counting distinct samples by name and label values.
+     * <p>
+     * Unlike {@link #hasSampleSize(int)} fails only if the budget is exceeded, rendering the label cardinalities.
+     *
+     * @param max the max number of series.
+     * @return {@code this} assertion object.
+     */
+    public SELF hasSeriesCountAtMost(long max) {
+        isNotNull();
+        if (null == actual.samples || actual.samples.size() <= max) {
+            return myself; // Can not have more series than samples
+        }
+        final CardinalityReport.FamilyCardinality cardinality =
+                CardinalityReport.count(actual, CardinalityCounter.DEFAULT_EXACT_THRESHOLD);
+        if (cardinality.getSeriesCount() > max) {
+            failWithMessage("Expected MetricFamilySamples %s to have at most %s series, but has %s%s with label cardinalities %s",
+                    actual.name, max, cardinality.getSeriesCount(), cardinality.isExact() ? "" : " (estimated)",
+                    cardinality.getLabelCardinalities());
+        }
+        return myself;
+    }
+
+    /**
+     * Verifies a label cardinality budget, counting the distinct values of the label over all samples.
+     * <pre>{@code
+     * assertThat(mfs).hasLabelCardinalityAtMost("path", 200);
+     * }</pre>
+     *
+     * @param labelName the label name.
+     * @param max       the max number of distinct label values.
+     * @return {@code this} assertion object.
+     */
+    public SELF hasLabelCardinalityAtMost(String labelName, long max) {
+        isNotNull();
+        final List<MetricFamilySamples.Sample> samples = null == actual.samples
+                ? Collections.emptyList() : actual.samples;
+        final CardinalityCounter counter = new CardinalityCounter();
+        boolean found = false;
+        List<String> lastLabelNames = null;
+        int index = -1;
+        for (MetricFamilySamples.Sample sample : samples) {
+            if (sample.labelNames != lastLabelNames) {
+                lastLabelNames = sample.labelNames;
+                index = lastLabelNames.indexOf(labelName);
+                found |= index >= 0;
+            }
+            if (index >= 0 && index < sample.labelValues.size()) {
+                counter.add(sample.labelValues.get(index));
+            }
+        }
+        if (!found) {
+            final Set<String> labelNames = new LinkedHashSet<>();
+            for (MetricFamilySamples.Sample sample : samples) {
+                labelNames.addAll(sample.labelNames);
+            }
+            failWithMessage("Expected MetricFamilySamples %s to have label %s, but has labels %s",
+                    actual.name, labelName, labelNames);
+        }
+        if (counter.count() > max) {
+            failWithMessage("Expected MetricFamilySamples %s label %s to have at most %s distinct values, but has %s%s",
+                    actual.name, labelName, max, counter.count(), counter.isExact() ? "" : " (estimated)");
+        }
+        return myself;
+    }
+
+    /**
+     * Verifies a memory budget, by the estimated heap retained by the client for holding the series.
+     * <pre>{@code
+     * assertThat(mfs).hasEstimatedFootprintAtMost(1024 * 1024);
+     * }</pre>
+     *
+     * @param maxBytes the max number of estimated bytes.
+     * @return {@code this} assertion object.
+     * @see FootprintReport
+     */
+    public SELF hasEstimatedFootprintAtMost(long maxBytes) {
+        isNotNull();
+        final FootprintReport.FamilyFootprint footprint = FootprintReport.estimate(actual);
+        if (footprint.getEstimatedBytes() > maxBytes) {
+            failWithMessage("Expected MetricFamilySamples %s to have an estimated footprint of at most %s bytes, but has %s bytes for %s series",
+                    actual.name, maxBytes, footprint.getEstimatedBytes(), footprint.getSeriesCount());
+        }
+        return myself;
+    }
+
+    /**
+     * Verifies the uncompressed size of the text format (0.0.4) exposition.
+     * <pre>{@code
+     * assertThat(mfs).hasExpositionSizeAtMost(64 * 1024);
+     * }</pre>
+     *
+     * @param maxBytes the max number of bytes.
+     * @return {@code this} assertion object.
+     * @see ExpositionReport
+     */
+    public SELF hasExpositionSizeAtMost(long maxBytes) {
+        isNotNull();
+        final ExpositionReport report = ExpositionReport.of(Collections.singletonList(actual));
+        if (report.getTotalBytes() > maxBytes) {
+            failWithMessage("Expected MetricFamilySamples %s to have an exposition size of at most %s bytes, but has %s bytes (%s bytes gzip)",
+                    actual.name, maxBytes, report.getTotalBytes(), report.getGzipBytes());
+        }
+        return myself;
+    }
+
+    /**
+     * Verifies that no label looks unbounded, using the default {@link UnboundedLabelDetector} heuristics.
+     *
+     * @return {@code this} assertion object.
+     * @see #hasNoUnboundedLabels(UnboundedLabelDetector)
+     */
+    public SELF hasNoUnboundedLabels() {
+        return hasNoUnboundedLabels(new UnboundedLabelDetector());
+    }
 
+    /**
+     * Verifies that no label looks unbounded, such as UUIDs, IP addresses, IDs or timestamps.
+     * <pre>{@code
+     * assertThat(mfs).hasNoUnboundedLabels(new UnboundedLabelDetector().withIgnoredLabels("instance"));
+     * }</pre>
+     *
+     * @param detector the configured detector.
+     * @return {@code this} assertion object.
+     */
+    public SELF hasNoUnboundedLabels(UnboundedLabelDetector detector) {
+        isNotNull();
+        final List<UnboundedLabelDetector.Finding> findings = detector.detect(actual);
+        if (!findings.isEmpty()) {
+            failWithMessage("Expected MetricFamilySamples %s to have no unbounded labels, but found:%s",
+                    actual.name, findings.stream().map(f -> "\n  " + f).collect(Collectors.joining()));
+        }
+        return myself;
+    }
+
+    protected SELF hasSampleValue(
+            String sampleName,
+            List<String> labelValues,
+            UnaryOperator<? super DoubleAssert> valueAssert) {
+        return hasSampleValue(sampleName, labelValues, null, valueAssert);
+    }
+
+    /**
+     * Verifies the sample value with an AssertJ assertion.
+     *
+     * @param sampleName      the sample name.
+     * @param labelValues     the label values.
+     * @param extraLabelValue an additional last label value such as <code>le</code> or <code>quantile</code>, or null.
+     * @param valueAssert     the value assertion, or null for only verifying existence.
+     * @return {@code this} assertion object.
+     */
     protected SELF hasSampleValue(
             String sampleName,
             List<String> labelValues,
+            String extraLabelValue,
             UnaryOperator<? super DoubleAssert> valueAssert) {
+        final MetricFamilySamples.Sample sample = findSampleOrFail(sampleName, labelValues, extraLabelValue);
+        // Check sample value, if provided
+        if (null != valueAssert) {
+            try {
+                valueAssert.apply(new DoubleAssert(sample.value));
+            } catch (AssertionError ae) {
+                failUnexpectedValue(sample, ae);
+            }
+        }
+        return myself;
+    }
+
+    /**
+     * Verifies the sample value with a primitive predicate, without creating any AssertJ objects unless failing.
+     *
+     * @param sampleName      the sample name.
+     * @param labelValues     the label values.
+     * @param extraLabelValue an additional last label value such as <code>le</code> or <code>quantile</code>, or null.
+     * @param valuePredicate  the value predicate.
+     * @return {@code this} assertion object.
+     */
+    protected SELF hasSampleValueMatching(
+            String sampleName,
+            List<String> labelValues,
+            String extraLabelValue,
+            DoublePredicate valuePredicate) {
+        final MetricFamilySamples.Sample sample = findSampleOrFail(sampleName, labelValues, extraLabelValue);
+        if (!valuePredicate.test(sample.value)) {
+            verifyFailing(sample, da -> da.matches(valuePredicate::test));
+        }
+        return myself;
+    }
+
+    /**
+     * Verifies the sample value within a tolerance, without creating any AssertJ objects unless failing.
+     *
+     * @param sampleName      the sample name.
+     * @param labelValues     the label values.
+     * @param extraLabelValue an additional last label value such as <code>le</code> or <code>quantile</code>, or null.
+     * @param expected        the expected value.
+     * @param tolerance       the max absolute difference, or 0 for an exact match.
+     * @return {@code this} assertion object.
+     */
+    protected SELF hasSampleValueCloseTo(
+            String sampleName,
+            List<String> labelValues,
+            String extraLabelValue,
+            double expected,
+            double tolerance) {
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("Expected non negative tolerance but got " + tolerance);
+        }
+        final MetricFamilySamples.Sample sample = findSampleOrFail(sampleName, labelValues, extraLabelValue);
+        if (sample.value != expected && !(Math.abs(expected - sample.value) <= tolerance)) {
+            verifyFailing(sample, tolerance == 0 ? da -> da.isEqualTo(expected)
+                    : da -> da.isCloseTo(expected, Offset.offset(tolerance)));
+        }
+        return myself;
+    }
+
+    /**
+     * Verifies the sample value is equal like {@link Double#equals(Object)}, without creating any AssertJ objects
+     * unless failing.
+     *
+     * @param sampleName      the sample name.
+     * @param labelValues     the label values.
+     * @param extraLabelValue an additional last label value such as <code>le</code> or <code>quantile</code>, or null.
+     * @param expected        the expected value.
+     * @return {@code this} assertion object.
+     */
+    protected SELF hasSampleValueEqualTo(
+            String sampleName,
+            List<String> labelValues,
+            String extraLabelValue,
+            double expected) {
+        final MetricFamilySamples.Sample sample = findSampleOrFail(sampleName, labelValues, extraLabelValue);
+        if (!isEqual(sample.value, expected)) {
+            verifyFailing(sample, da -> da.isEqualTo(Double.valueOf(expected)));
+        }
+        return myself;
+    }
+
+    /**
+     * Gets the lazily built inverted label index, created once on first selection.
+     *
+     * @return the label index.
+     */
+    LabelIndex labelIndex() {
+        if (null == labelIndex) {
+            labelIndex = new LabelIndex(null == actual.samples ? Collections.emptyList() : actual.samples);
+        }
+        return labelIndex;
+    }
+
+    private MetricFamilySamples.Sample findSampleOrFail(String sampleName, List<String> labelValues,
+                                                        String extraLabelValue) {
         isNotNull();
         hasAnySamples();
 
-        // Counter names have _total postfix
-        String effectiveSampleName = sampleName;
-        if (this.actual.type == Collector.Type.COUNTER) {
-            effectiveSampleName += "_total";
-        } else if (this.actual.type == Collector.Type.INFO) {
-            effectiveSampleName += "_info";
-        }
+        final String effectiveSampleName = effectiveSampleName(sampleName);
 
         // Check if sample exists
-        final List<String> labelNames = getLabelNames(actual, effectiveSampleName);
-        MetricFamilySamples.Sample sample = findSample(effectiveSampleName, labelNames, labelValues);
+        final List<String> labelNames = getLabelNames(effectiveSampleName);
+        final MetricFamilySamples.Sample sample = sampleIndex().find(effectiveSampleName, labelNames, labelValues,
+                extraLabelValue);
         if (null == sample) {
+            final List<String> allLabelValues = withExtraLabelValue(labelValues, extraLabelValue);
             failWithMessage("Expected %s{%s} sample in samples :\n%s",
                     effectiveSampleName,
-                    joinLabelNamesAndValues(labelNames, labelValues),
-                    toPrettyString(actual.samples));
-        } else {
-            // Check sample value, if provided
-            if (null != valueAssert) {
-                try {
-                    valueAssert.apply(new DoubleAssert(sample.value));
-                } catch (AssertionError ae) {
-                    failWithMessage("Unexpected value for %s{%s} : %s",
-                            effectiveSampleName,
-                            joinLabelNamesAndValues(labelNames, labelValues),
-                            ae.getMessage());
+                    joinLabelNamesAndValues(labelNames, allLabelValues),
+                    toPrettyStringClosest(effectiveSampleName, allLabelValues));
+        }
+        return sample;
+    }
+
+    /**
+     * Re-verifies a value failing the primitive check with the equivalent AssertJ assertion,
+     * which is only created now for its rich failure message. AssertJ has the final say on edge cases.
+     */
+    private void verifyFailing(MetricFamilySamples.Sample sample, UnaryOperator<DoubleAssert> valueAssert) {
+        try {
+            valueAssert.apply(new DoubleAssert(sample.value));
+        } catch (AssertionError ae) {
+            failUnexpectedValue(sample, ae);
+        }
+    }
+
+    private void failUnexpectedValue(MetricFamilySamples.Sample sample, AssertionError ae) {
+        failWithMessage("Unexpected value for %s{%s} : %s",
+                sample.name,
+                joinLabelNamesAndValues(sample.labelNames, sample.labelValues),
+                ae.getMessage());
+    }
+
+    private static List<String> withExtraLabelValue(List<String> labelValues, String extraLabelValue) {
+        if (null == labelValues) {
+            return null == extraLabelValue ? Collections.emptyList() : Collections.singletonList(extraLabelValue);
+        }
+        if (null == extraLabelValue) {
+            return labelValues;
+        }
+        final List<String> allLabelValues = new ArrayList<>(labelValues.size() + 1);
+        allLabelValues.addAll(labelValues);
+        allLabelValues.add(extraLabelValue);
+        return allLabelValues;
+    }
+
+    /**
+     * Verifies many sample values at once, in a single pass over all samples.
+     * <p>
+     * Reports all mismatching and missing samples, instead of failing on the first one.
+     * <pre>{@code
+     * Map<List<String>, Double> expected = new HashMap<>();
+     * expected.put(labelValues("GET", "200"), 10d);
+     * expected.put(labelValues("GET", "500"), 1d);
+     * assertThat(mfs).hasTypeOfCounter().hasSampleValues(expected);
+     * }</pre>
+     *
+     * @param expectedValues the expected values by label values.
+     * @return {@code this} assertion object.
+     */
+    public SELF hasSampleValues(Map<List<String>, Double> expectedValues) {
+        isNotNull();
+        return hasSampleValues(actual.name, expectedValues);
+    }
+
+    protected SELF hasSampleValues(String sampleName, Map<List<String>, Double> expectedValues) {
+        isNotNull();
+        hasAnySamples();
+
+        final String effectiveSampleName = effectiveSampleName(sampleName);
+        final List<String> labelNames = sampleIndex().getLabelNames(effectiveSampleName);
+        if (null == labelNames) {
+            failWithMessage("Expected MetricFamilySamples %s to have %s samples, but found none",
+                    actual.name, effectiveSampleName);
+        }
+
+        // Single pass, first sample wins for same label values
+        final Set<List<String>> found = new HashSet<>(Math.max(16, expectedValues.size() * 4 / 3 + 1));
+        final StringBuilder mismatches = new StringBuilder();
+        int mismatchCount = 0;
+        for (MetricFamilySamples.Sample sample : actual.samples) {
+            if (effectiveSampleName.equals(sample.name) && labelNames.equals(sample.labelNames)) {
+                final Double expectedValue = expectedValues.get(sample.labelValues);
+                if (null != expectedValue && found.add(sample.labelValues)
+                        && !isEqual(sample.value, expectedValue)) {
+                    mismatchCount++;
+                    mismatches.append("\n  ").append(effectiveSampleName).append('{')
+                            .append(joinLabelNamesAndValues(labelNames, sample.labelValues))
+                            .append("} expected <").append(expectedValue)
+                            .append("> but was <").append(sample.value).append('>');
+                }
+            }
+        }
+
+        if (mismatchCount > 0 || found.size() < expectedValues.size()) {
+            final StringBuilder missing = new StringBuilder();
+            int missingCount = 0;
+            for (List<String> labelValues : expectedValues.keySet()) {
+                if (!found.contains(labelValues)) {
+                    missingCount++;
+                    missing.append("\n  ").append(effectiveSampleName).append('{')
+                            .append(joinLabelNamesAndValues(labelNames, labelValues)).append('}');
                 }
             }
+            failWithMessage("Expected %s samples to have %s expected values, but found %s mismatching and %s missing samples." +
+                            "\nMismatching samples :%s\nMissing samples :%s",
+                    effectiveSampleName, expectedValues.size(), mismatchCount, missingCount,
+                    mismatches, missing);
+        }
+
+        return myself;
+    }
+
+    /**
+     * Verifies that all samples satisfy the given condition.
+     * <p>
+     * Short-circuits on the first violating sample. MFS with at least {@link #PARALLEL_THRESHOLD}
+     * samples get evaluated in parallel, so the condition must be thread safe.
+     * <pre>{@code
+     * assertThat(mfs).allSamplesSatisfy(withValue(v -> v >= 0));
+     * }</pre>
+     *
+     * @param condition the condition.
+     * @return {@code this} assertion object.
+     * @see MetricFamilySamplesAssert#withValue(java.util.function.DoublePredicate)
+     */
+    public SELF allSamplesSatisfy(Predicate<? super MetricFamilySamples.Sample> condition) {
+        return allSamplesSatisfy(sample -> true, condition);
+    }
+
+    /**
+     * Verifies that all samples matching the filter satisfy the given condition.
+     * <pre>{@code
+     * assertThat(mfs).allSamplesSatisfy(withSampleName("my_metric_sum"), withValue(v -> !Double.isNaN(v)));
+     * }</pre>
+     *
+     * @param filter    the filter selecting the samples, eg by sample name or label.
+     * @param condition the condition.
+     * @return {@code this} assertion object.
+     * @see #allSamplesSatisfy(Predicate)
+     * @see MetricFamilySamplesAssert#withSampleName(String)
+     * @see MetricFamilySamplesAssert#withLabel(String, String)
+     */
+    public SELF allSamplesSatisfy(Predicate<? super MetricFamilySamples.Sample> filter,
+                                  Predicate<? super MetricFamilySamples.Sample> condition) {
+        isNotNull();
+
+        final Predicate<MetricFamilySamples.Sample> violation = sample -> filter.test(sample) && !condition.test(sample);
+        if (samples().anyMatch(violation)) {
+            failWithMessage("Expected all MetricFamilySamples's %s samples to satisfy condition, but violated by samples :\n%s",
+                    actual.name, toPrettyStringMatching(violation));
+        }
+
+        return myself;
+    }
+
+    /**
+     * Verifies that any sample matches the given condition.
+     * <p>
+     * Short-circuits on the first matching sample. MFS with at least {@link #PARALLEL_THRESHOLD}
+     * samples get evaluated in parallel, so the condition must be thread safe.
+     *
+     * @param condition the condition.
+     * @return {@code this} assertion object.
+     */
+    public SELF anySampleMatches(Predicate<? super MetricFamilySamples.Sample> condition) {
+        return anySampleMatches(sample -> true, condition);
+    }
+
+    /**
+     * Verifies that any sample matching the filter matches the given condition.
+     *
+     * @param filter    the filter selecting the samples, eg by sample name or label.
+     * @param condition the condition.
+     * @return {@code this} assertion object.
+     * @see #anySampleMatches(Predicate)
+     */
+    public SELF anySampleMatches(Predicate<? super MetricFamilySamples.Sample> filter,
+                                 Predicate<? super MetricFamilySamples.Sample> condition) {
+        isNotNull();
+
+        if (samples().noneMatch(sample -> filter.test(sample) && condition.test(sample))) {
+            failWithMessage("Expected any MetricFamilySamples's %s sample to match condition, but none of the samples matched :\n%s",
+                    actual.name, toPrettyStringMatching(filter::test));
+        }
+
+        return myself;
+    }
+
+    /**
+     * Verifies that no sample matches the given condition.
+     * <p>
+     * Short-circuits on the first matching sample. MFS with at least {@link #PARALLEL_THRESHOLD}
+     * samples get evaluated in parallel, so the condition must be thread safe.
+     * <pre>{@code
+     * assertThat(mfs).noSampleMatches(withValue(v -> Double.isNaN(v)));
+     * }</pre>
+     *
+     * @param condition the condition.
+     * @return {@code this} assertion object.
+     */
+    public SELF noSampleMatches(Predicate<? super MetricFamilySamples.Sample> condition) {
+        return noSampleMatches(sample -> true, condition);
+    }
+
+    /**
+     * Verifies that no sample matching the filter matches the given condition.
+     *
+     * @param filter    the filter selecting the samples, eg by sample name or label.
+     * @param condition the condition.
+     * @return {@code this} assertion object.
+     * @see #noSampleMatches(Predicate)
+     */
+    public SELF noSampleMatches(Predicate<? super MetricFamilySamples.Sample> filter,
+                                Predicate<? super MetricFamilySamples.Sample> condition) {
+        isNotNull();
+
+        final Predicate<MetricFamilySamples.Sample> match = sample -> filter.test(sample) && condition.test(sample);
+        if (samples().anyMatch(match)) {
+            failWithMessage("Expected no MetricFamilySamples's %s sample to match condition, but matched by samples :\n%s",
+                    actual.name, toPrettyStringMatching(match));
         }
 
         return myself;
     }
 
+    /**
+     * Selects the samples by PromQL style label matchers, for asserting only the selected samples.
+     * <p>
+     * Supports the matchers <code>=</code>, <code>!=</code>, <code>=~</code> and <code>!~</code>,
+     * with fully anchored regular expressions and an absent label matching as empty value.
+     * Selects via an inverted label index, built once per assertion, and caches the parsed matchers.
+     * <pre>{@code
+     * assertThat(mfs)
+     *     .selecting("http_requests", "method=\"GET\"", "path=~\"/api/.*\"", "status!=\"200\"")
+     *     .hasSampleSize(2)
+     *     .allSamplesSatisfy(withValue(v -> v < 10));
+     * }</pre>
+     *
+     * @param sampleName the sample name, e.g. the MFS name or <code>my_histogram_bucket</code>.
+     * @param matchers   the label matchers, such as <code>method="GET"</code>.
+     * @return a new assertion for a MFS containing only the selected samples.
+     * @throws IllegalArgumentException if a matcher can not be parsed.
+     */
+    public MetricFamilySamplesAssert selecting(String sampleName, String... matchers) {
+        isNotNull();
+        final List<LabelMatcher> parsed = new ArrayList<>(matchers.length);
+        for (String matcher : matchers) {
+            parsed.add(labelMatchers.computeIfAbsent(matcher, LabelMatcher::parse));
+        }
+
+        final List<MetricFamilySamples.Sample> samples = null == actual.samples
+                ? Collections.emptyList() : actual.samples;
+        final BitSet selected = labelIndex().select(effectiveSampleName(sampleName), parsed);
+        final List<MetricFamilySamples.Sample> selectedSamples = new ArrayList<>(selected.cardinality());
+        for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+            selectedSamples.add(samples.get(i));
+        }
+        return inherit(MetricFamilySamplesAssert.assertThat(new MetricFamilySamples(actual.name, actual.unit,
+                actual.type, actual.help, selectedSamples)));
+    }
+
+    /**
+     * Aggregates the samples, such as <code>sum by (status) (my_counter_total)</code>.
+     * <p>
+     * Aggregates the samples named like the MFS, such as <code>my_counter_total</code> for a counter.
+     * <pre>{@code
+     * assertThat(mfs).hasTypeOfGauge()
+     *     .aggregate(Aggregation.MAX).by("shard")
+     *     .hasSampleValue(labelValues("shard-1"), v -> v.isLessThan(100));
+     * }</pre>
+     *
+     * @param aggregation the aggregation.
+     * @return the aggregation, for grouping.
+     * @see #aggregate(Aggregation, String)
+     */
+    public MetricFamilySamplesAggregation aggregate(Aggregation aggregation) {
+        return aggregate(aggregation, actual.name);
+    }
+
+    /**
+     * Aggregates the samples of given sample name, such as <code>my_histogram_count</code>.
+     *
+     * @param aggregation the aggregation.
+     * @param sampleName  the sample name, resolved like for {@link #effectiveSampleName(String)}.
+     * @return the aggregation, for grouping.
+     */
+    public MetricFamilySamplesAggregation aggregate(Aggregation aggregation, String sampleName) {
+        isNotNull();
+        return new MetricFamilySamplesAggregation(this, actual, aggregation, effectiveSampleName(sampleName));
+    }
+
+    /**
+     * Converts labels by name into label values ordered like the label names of the samples.
+     *
+     * @param sampleName the sample name.
+     * @param labels     the label values by label name, in any order.
+     * @return the label values.
+     */
+    protected List<String> toLabelValues(String sampleName, Map<String, String> labels) {
+        isNotNull();
+        hasAnySamples();
+        final String effectiveSampleName = effectiveSampleName(sampleName);
+        final List<String> labelNames = getLabelNames(effectiveSampleName);
+        final List<String> labelValues = new ArrayList<>(labelNames.size());
+        for (String labelName : labelNames) {
+            final String labelValue = labels.get(labelName);
+            if (null == labelValue) {
+                break;
+            }
+            labelValues.add(labelValue);
+        }
+        if (labelValues.size() != labelNames.size() || labels.size() != labelNames.size()) {
+            failWithMessage("Expected labels %s to match label names %s of %s samples",
+                    labels, labelNames, effectiveSampleName);
+        }
+        return labelValues;
+    }
+
+    /**
+     * Streams the samples, in parallel for MFS with many samples.
+     *
+     * @return the stream.
+     */
+    private Stream<MetricFamilySamples.Sample> samples() {
+        if (null == actual.samples) {
+            return Stream.empty();
+        }
+        return actual.samples.size() >= PARALLEL_THRESHOLD ? actual.samples.parallelStream() : actual.samples.stream();
+    }
+
+    /**
+     * Compares like {@link Double#equals(Object)}, without boxing.
+     */
+    static boolean isEqual(double actual, double expected) {
+        return Double.compare(actual, expected) == 0;
+    }
+
     private String toPrettyString(List<MetricFamilySamples.Sample> samples) {
+        return toPrettyString(samples, samples.size());
+    }
+
+    private String toPrettyString(List<MetricFamilySamples.Sample> samples, long total) {
         StringBuilder buf = new StringBuilder();
         buf.append('[');
-        for (MetricFamilySamples.Sample sample : samples) {
-            if (buf.length() > 1) {
+        final int rendered = Math.min(samples.size(), maxSamplesInFailureMessage);
+        for (int i = 0; i < rendered; i++) {
+            if (i > 0) {
                 buf.append(",\n");
             }
-            toPrettyString(buf, sample);
+            toPrettyString(buf, samples.get(i));
         }
         buf.append(']');
+        appendOmitted(buf, rendered, total, "first");
         return buf.toString();
     }
 
+    /**
+     * Renders the first matching samples.
+     */
+    private String toPrettyStringMatching(Predicate<? super MetricFamilySamples.Sample> predicate) {
+        final long total = samples().filter(predicate).count();
+        if (0 == total) {
+            return toPrettyString(Collections.emptyList());
+        }
+        final List<MetricFamilySamples.Sample> matching = actual.samples.stream().filter(predicate)
+                .limit(maxSamplesInFailureMessage)
+                .collect(Collectors.toList());
+        return toPrettyString(matching, total);
+    }
+
+    /**
+     * Renders the samples closest to the given sample name and label values.
+     * <p>
+     * Closeness is ranked by the number of differing label values (a different sample name counting as
+     * differing in all label values), and then by the summed edit distance of the label values.
+     */
+    private String toPrettyStringClosest(String sampleName, List<String> labelValues) {
+        final List<MetricFamilySamples.Sample> samples = actual.samples;
+        final StringUtils.TopK topK = new StringUtils.TopK(Math.min(samples.size(), maxSamplesInFailureMessage));
+        final StringUtils.EditDistance editDistance = new StringUtils.EditDistance();
+        if (topK.capacity() > 0) {
+            for (int i = 0; i < samples.size(); i++) {
+                final MetricFamilySamples.Sample sample = samples.get(i);
+                int mismatches = 0;
+                int edits = 0;
+                final int labelCount = Math.max(labelValues.size(), sample.labelValues.size());
+                if (!sampleName.equals(sample.name)) {
+                    mismatches += labelCount + 1;
+                }
+                for (int l = 0; l < labelCount; l++) {
+                    final String expected = l < labelValues.size() ? labelValues.get(l) : "";
+                    final String value = l < sample.labelValues.size() ? sample.labelValues.get(l) : "";
+                    if (!expected.equals(value)) {
+                        mismatches++;
+                        final int distance = editDistance.apply(expected, value, MAX_RANKED_EDIT_DISTANCE);
+                        edits += distance < 0 ? MAX_RANKED_EDIT_DISTANCE : distance;
+                    }
+                }
+                topK.offer(i, mismatches * (MAX_RANKED_EDIT_DISTANCE + 1) + Math.min(edits, MAX_RANKED_EDIT_DISTANCE));
+            }
+        }
+
+        final int[] closest = topK.toSortedIndices();
+        StringBuilder buf = new StringBuilder();
+        buf.append('[');
+        for (int i = 0; i < closest.length; i++) {
+            if (i > 0) {
+                buf.append(",\n");
+            }
+            toPrettyString(buf, samples.get(closest[i]));
+        }
+        buf.append(']');
+        appendOmitted(buf, closest.length, samples.size(), "closest");
+        return buf.toString();
+    }
+
+    private static void appendOmitted(StringBuilder buf, int rendered, long total, String selection) {
+        if (rendered < total) {
+            buf.append("\n(showing ").append(selection).append(' ').append(rendered).append(" of ").append(total)
+                    .append(" samples, omitted ").append(total - rendered).append(')');
+        }
+    }
+
     private void toPrettyString(StringBuilder buf, MetricFamilySamples.Sample sample) {
         buf.append(sample.name).append('{');
         for (int i = 0; i < sample.labelNames.size(); i++) {
@@ -199,23 +900,41 @@ public abstract class AbstractMetricFamilySamplesAssert
     }
 
 
-    private MetricFamilySamples.Sample findSample(String sampleName,
-                                                  List<String> labelNames, List<String> labelValues) {
-        for (MetricFamilySamples.Sample sample : actual.samples) {
-            if (sampleName.equals(sample.name) &&
-                    sample.labelNames.equals(labelNames)) {
-                if (null == labelValues) {
-                    return sample; // First one found, by label name only
-                }
-                if (sample.labelValues.equals(labelValues)) {
-                    return sample;
-                }
+    /**
+     * Resolves the sample name, as counter sample names have a _total and info sample names an _info postfix.
+     *
+     * @param sampleName the sample name, e.g. the MFS name.
+     * @return the effective sample name.
+     */
+    protected String effectiveSampleName(String sampleName) {
+        // No computeIfAbsent, as a lambda capturing this would be allocated per call
+        String effectiveSampleName = effectiveSampleNames.get(sampleName);
+        if (null == effectiveSampleName) {
+            if (actual.type == Collector.Type.COUNTER) {
+                effectiveSampleName = sampleName + "_total";
+            } else if (actual.type == Collector.Type.INFO) {
+                effectiveSampleName = sampleName + "_info";
+            } else {
+                effectiveSampleName = sampleName;
             }
+            effectiveSampleNames.put(sampleName, effectiveSampleName);
         }
-        return null;
+        return effectiveSampleName;
     }
 
-    private String joinLabelNamesAndValues(List<String> labelNames, List<String> labelValues) {
+    /**
+     * Gets the lazily built sample index, created once on first lookup.
+     *
+     * @return the sample index.
+     */
+    SampleIndex sampleIndex() {
+        if (null == sampleIndex) {
+            sampleIndex = new SampleIndex(actual.samples);
+        }
+        return sampleIndex;
+    }
+
+    static String joinLabelNamesAndValues(List<String> labelNames, List<String> labelValues) {
         StringBuilder buf = new StringBuilder();
         for (int i = 0; i < Math.max(labelNames.size(), labelValues.size()); i++) {
             if (buf.length() > 0) {
@@ -228,20 +947,17 @@ public abstract class AbstractMetricFamilySamplesAssert
         return buf.toString();
     }
 
-    private static List<String> getLabelNames(MetricFamilySamples metricFamilySamples, String sampleName) {
-        if (null == metricFamilySamples.samples || metricFamilySamples.samples.isEmpty()) {
-            throw new IllegalArgumentException(metricFamilySamples.name + " has no samples : "
-                    + metricFamilySamples.samples);
+    private List<String> getLabelNames(String sampleName) {
+        if (null == actual.samples || actual.samples.isEmpty()) {
+            throw new IllegalArgumentException(actual.name + " has no samples : " + actual.samples);
         }
-        for (Collector.MetricFamilySamples.Sample sample : metricFamilySamples.samples) {
-            // Extract labels from first sample matched by name
-            if (sampleName.equals(sample.name)) {
-
-                return sample.labelNames;
-            }
+        // Extract labels from first sample matched by name
+        final List<String> labelNames = sampleIndex().getLabelNames(sampleName);
+        if (null == labelNames) {
+            throw new IllegalStateException("Can not extract label names for sample name " + sampleName
+                    + " from " + actual);
         }
-        throw new IllegalStateException("Can not extract label names for sample name " + sampleName
-                + " from " + metricFamilySamples);
+        return labelNames;
     }
 
 }
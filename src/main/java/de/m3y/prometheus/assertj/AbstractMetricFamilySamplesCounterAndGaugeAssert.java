@@ -2,6 +2,8 @@ package de.m3y.prometheus.assertj;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.DoublePredicate;
 import java.util.function.UnaryOperator;
 
 import io.prometheus.client.Collector;
@@ -35,7 +37,7 @@ public abstract class AbstractMetricFamilySamplesCounterAndGaugeAssert
      * @return {@code this} assertion object.
      */
     public SELF hasSampleValue(double value) {
-        return hasSampleValue(Collections.emptyList(), da -> da.isEqualTo(value));
+        return hasSampleValue(Collections.emptyList(), value);
     }
 
     /**
@@ -47,7 +49,7 @@ public abstract class AbstractMetricFamilySamplesCounterAndGaugeAssert
      */
     public SELF hasSampleValue(List<String> labelValues,
                                double value) {
-        return hasSampleValue(labelValues, da -> da.isEqualTo(value));
+        return hasSampleValueCloseTo(actual.name, labelValues, null, value, 0);
     }
 
     /**
@@ -61,4 +63,73 @@ public abstract class AbstractMetricFamilySamplesCounterAndGaugeAssert
                                UnaryOperator<? super DoubleAssert> valueAssert) {
         return hasSampleValue(actual.name, labelValues, valueAssert);
     }
+
+    /**
+     * Verifies the recorded sample value, looking up the labels by name in any order.
+     *
+     * @param labels the expected value labels by label name, eg <code>labels("method", "GET", "status", "200")</code>
+     * @param value  the expected value
+     * @return {@code this} assertion object.
+     * @see MetricFamilySamplesAssert#labels(String...)
+     */
+    public SELF hasSampleValue(Map<String, String> labels, double value) {
+        return hasSampleValueCloseTo(actual.name, toLabelValues(actual.name, labels), null, value, 0);
+    }
+
+    /**
+     * Verifies the recorded sample value, looking up the labels by name in any order.
+     *
+     * @param labels      the expected value labels by label name
+     * @param valueAssert assert for value, eg <code>da-&gt;da.isCloseTo(10.0, withinPercentage(20d))</code>
+     * @return {@code this} assertion object.
+     */
+    public SELF hasSampleValue(Map<String, String> labels, UnaryOperator<? super DoubleAssert> valueAssert) {
+        return hasSampleValue(actual.name, toLabelValues(actual.name, labels), valueAssert);
+    }
+
+    /**
+     * Verifies the recorded sample value, without creating any AssertJ objects unless failing.
+     * <p>
+     * Distinctly named, as a lambda would be ambiguous for {@link #hasSampleValue(UnaryOperator)}.
+     *
+     * @param valuePredicate predicate for value, eg <code>v -&gt; v &gt;= 0</code>
+     * @return {@code this} assertion object.
+     */
+    public SELF hasSampleValueMatching(DoublePredicate valuePredicate) {
+        return hasSampleValueMatching(Collections.emptyList(), valuePredicate);
+    }
+
+    /**
+     * Verifies the recorded sample value, without creating any AssertJ objects unless failing.
+     *
+     * @param labelValues    the expected value labels
+     * @param valuePredicate predicate for value, eg <code>v -&gt; v &gt;= 0</code>
+     * @return {@code this} assertion object.
+     */
+    public SELF hasSampleValueMatching(List<String> labelValues, DoublePredicate valuePredicate) {
+        return hasSampleValueMatching(actual.name, labelValues, null, valuePredicate);
+    }
+
+    /**
+     * Verifies the recorded sample value within a tolerance, without creating any AssertJ objects unless failing.
+     *
+     * @param value     the expected value
+     * @param tolerance the max absolute difference
+     * @return {@code this} assertion object.
+     */
+    public SELF hasSampleValueCloseTo(double value, double tolerance) {
+        return hasSampleValueCloseTo(Collections.emptyList(), value, tolerance);
+    }
+
+    /**
+     * Verifies the recorded sample value within a tolerance, without creating any AssertJ objects unless failing.
+     *
+     * @param labelValues the expected value labels
+     * @param value       the expected value
+     * @param tolerance   the max absolute difference
+     * @return {@code this} assertion object.
+     */
+    public SELF hasSampleValueCloseTo(List<String> labelValues, double value, double tolerance) {
+        return hasSampleValueCloseTo(actual.name, labelValues, null, value, tolerance);
+    }
 }
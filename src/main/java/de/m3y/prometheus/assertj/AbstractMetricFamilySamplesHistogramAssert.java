@@ -2,7 +2,10 @@ package de.m3y.prometheus.assertj;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.DoublePredicate;
 import java.util.function.UnaryOperator;
 
 import io.prometheus.client.Collector;
@@ -25,12 +28,14 @@ import org.assertj.core.api.DoubleAssert;
 public abstract class AbstractMetricFamilySamplesHistogramAssert
         <SELF extends AbstractMetricFamilySamplesHistogramAssert<SELF>> extends
         AbstractMetricFamilySamplesSumAndCountAssert<SELF> {
+    private HistogramBuckets histogramBuckets;
+
     protected AbstractMetricFamilySamplesHistogramAssert(Collector.MetricFamilySamples actual) {
         super(actual);
     }
 
     public SELF hasSampleBucketValue(double le, double value) {
-        return hasSampleBucketValue(le, da -> da.isEqualTo(value));
+        return hasSampleBucketValue(Collections.emptyList(), le, value);
     }
 
     public SELF hasSampleBucketValue(double le,
@@ -39,16 +44,221 @@ public abstract class AbstractMetricFamilySamplesHistogramAssert
     }
 
     public SELF hasSampleBucketValue(List<String> labelValues, double le, double value) {
-        return hasSampleBucketValue(labelValues, le, da -> da.isEqualTo(value));
+        return hasSampleValueCloseTo(actual.name + "_bucket", labelValues, Collector.doubleToGoString(le), value, 0);
     }
 
     public SELF hasSampleBucketValue(List<String> labelValues,
                                      double le,
                                      UnaryOperator<? super DoubleAssert> valueAssert) {
-        List<String> extendedLabelValues = new ArrayList<>(labelValues.size() + 1);
-        extendedLabelValues.addAll(labelValues);
-        extendedLabelValues.add(Collector.doubleToGoString(le));
+        return hasSampleValue(actual.name + "_bucket", labelValues, Collector.doubleToGoString(le), valueAssert);
+    }
+
+    /**
+     * Verifies the bucket value, without creating any AssertJ objects unless failing.
+     *
+     * @param labelValues    the label values, without <code>le</code>.
+     * @param le             the bucket upper bound.
+     * @param valuePredicate predicate for the bucket value.
+     * @return {@code this} assertion object.
+     */
+    public SELF hasSampleBucketValueMatching(List<String> labelValues, double le, DoublePredicate valuePredicate) {
+        return hasSampleValueMatching(actual.name + "_bucket", labelValues, Collector.doubleToGoString(le),
+                valuePredicate);
+    }
+
+    /**
+     * Verifies the bucket value within a tolerance, without creating any AssertJ objects unless failing.
+     *
+     * @param labelValues the label values, without <code>le</code>.
+     * @param le          the bucket upper bound.
+     * @param value       the expected bucket value.
+     * @param tolerance   the max absolute difference.
+     * @return {@code this} assertion object.
+     */
+    public SELF hasSampleBucketValueCloseTo(List<String> labelValues, double le, double value, double tolerance) {
+        return hasSampleValueCloseTo(actual.name + "_bucket", labelValues, Collector.doubleToGoString(le),
+                value, tolerance);
+    }
+
+    /**
+     * Verifies many bucket values for given bucket upper bound, in a single pass.
+     *
+     * @param le             the bucket upper bound.
+     * @param expectedValues the expected bucket values by label values (without <code>le</code>).
+     * @return {@code this} assertion object.
+     * @see #hasSampleValues(Map)
+     */
+    public SELF hasSampleBucketValues(double le, Map<List<String>, Double> expectedValues) {
+        final String leValue = Collector.doubleToGoString(le);
+        Map<List<String>, Double> extendedExpectedValues = new HashMap<>(Math.max(16, expectedValues.size() * 4 / 3 + 1));
+        for (Map.Entry<List<String>, Double> entry : expectedValues.entrySet()) {
+            List<String> extendedLabelValues = new ArrayList<>(entry.getKey().size() + 1);
+            extendedLabelValues.addAll(entry.getKey());
+            extendedLabelValues.add(leValue);
+            extendedExpectedValues.put(extendedLabelValues, entry.getValue());
+        }
+        return hasSampleValues(actual.name + "_bucket", extendedExpectedValues);
+    }
+
+    /**
+     * Verifies the quantile estimated over all series, such as
+     * <code>histogram_quantile(0.99, sum without(...) (my_histogram_bucket))</code>.
+     * <pre>{@code
+     * assertThat(mfs).hasTypeOfHistogram()
+     *     .hasQuantileAtMost(0.99, 0.25); // p99 at most 250ms
+     * }</pre>
+     *
+     * @param quantile the quantile, between 0 and 1.
+     * @param max      the max value of the quantile.
+     * @return {@code this} assertion object.
+     * @see HistogramBuckets#quantile(double, double[], double[], int)
+     */
+    public SELF hasQuantileAtMost(double quantile, double max) {
+        return hasQuantile(quantile, da -> da.isLessThanOrEqualTo(max));
+    }
+
+    /**
+     * Verifies the quantile estimated over all series, summing up the buckets of all label values.
+     *
+     * @param quantile    the quantile, between 0 and 1.
+     * @param valueAssert assert for the estimated quantile value.
+     * @return {@code this} assertion object.
+     */
+    public SELF hasQuantile(double quantile, UnaryOperator<? super DoubleAssert> valueAssert) {
+        isNotNull();
+        final HistogramBuckets buckets = orderedHistogramBuckets();
+        if (buckets.getSeries().isEmpty()) {
+            failWithMessage("Expected MetricFamilySamples %s to have bucket samples, but found none", actual.name);
+        }
+        return hasQuantile(buckets.aggregate(), "", quantile, valueAssert);
+    }
+
+    /**
+     * Verifies the quantile estimated for a single series, such as
+     * <code>histogram_quantile(0.99, my_histogram_bucket{path="/"})</code>.
+     *
+     * @param labelValues the label values, without <code>le</code>.
+     * @param quantile    the quantile, between 0 and 1.
+     * @param max         the max value of the quantile.
+     * @return {@code this} assertion object.
+     */
+    public SELF hasQuantileAtMost(List<String> labelValues, double quantile, double max) {
+        return hasQuantile(labelValues, quantile, da -> da.isLessThanOrEqualTo(max));
+    }
+
+    /**
+     * Verifies the quantile estimated for a single series.
+     *
+     * @param labelValues the label values, without <code>le</code>.
+     * @param quantile    the quantile, between 0 and 1.
+     * @param valueAssert assert for the estimated quantile value.
+     * @return {@code this} assertion object.
+     */
+    public SELF hasQuantile(List<String> labelValues, double quantile, UnaryOperator<? super DoubleAssert> valueAssert) {
+        isNotNull();
+        final HistogramBuckets buckets = orderedHistogramBuckets();
+        final HistogramBuckets.Series series = buckets.getSeries(labelValues);
+        final String labels = joinLabelNamesAndValues(buckets.getLabelNames(), labelValues);
+        if (null == series) {
+            failWithMessage("Expected %s_bucket{%s} samples, but found none", actual.name, labels);
+        }
+        return hasQuantile(series, labels, quantile, valueAssert);
+    }
+
+    /**
+     * Verifies the quantile estimated for each series, reporting every exceeding series.
+     *
+     * @param quantile the quantile, between 0 and 1.
+     * @param max      the max value of the quantile.
+     * @return {@code this} assertion object.
+     */
+    public SELF hasQuantileAtMostForEachSeries(double quantile, double max) {
+        isNotNull();
+        final HistogramBuckets buckets = orderedHistogramBuckets();
+        final StringBuilder buf = new StringBuilder();
+        int exceeding = 0;
+        for (HistogramBuckets.Series series : buckets.getSeries()) {
+            final double value = series.quantile(quantile);
+            if (!(value <= max)) {
+                if (exceeding < getMaxSamplesInFailureMessage()) {
+                    buf.append("\n  {").append(joinLabelNamesAndValues(buckets.getLabelNames(), series.labelValues))
+                            .append("} ").append(value);
+                }
+                exceeding++;
+            }
+        }
+        if (exceeding > 0) {
+            if (exceeding > getMaxSamplesInFailureMessage()) {
+                buf.append("\n(showing first ").append(getMaxSamplesInFailureMessage()).append(" of ").append(exceeding)
+                        .append(" series, omitted ").append(exceeding - getMaxSamplesInFailureMessage()).append(')');
+            }
+            failWithMessage("Expected MetricFamilySamples %s quantile %s of each series to be at most %s, " +
+                            "but found %s of %s series exceeding:%s",
+                    actual.name, quantile, max, exceeding, buckets.getSeries().size(), buf.toString());
+        }
+        return myself;
+    }
+
+    /**
+     * Verifies the structure of every series in a single pass, reporting all inconsistent series:
+     * <ul>
+     * <li>buckets must be cumulative, i.e. not decrease with increasing upper bound</li>
+     * <li>the <code>+Inf</code> bucket must exist and equal <code>_count</code></li>
+     * <li><code>_count</code> and <code>_sum</code> must exist and not be negative</li>
+     * </ul>
+     *
+     * @return {@code this} assertion object.
+     */
+    public SELF isConsistent() {
+        return isConsistent(histogramBuckets(), (series, violations) -> {
+            for (int i = 1; i < series.size; i++) {
+                if (series.counts[i] < series.counts[i - 1]) {
+                    violations.add("non-cumulative bucket le=" + Collector.doubleToGoString(series.upperBounds[i])
+                            + " with " + series.counts[i] + " below " + series.counts[i - 1]);
+                }
+            }
+            if (series.size == 0 || series.upperBounds[series.size - 1] != Double.POSITIVE_INFINITY) {
+                violations.add("missing +Inf bucket");
+            } else if (!Double.isNaN(series.count) && !isEqual(series.counts[series.size - 1], series.count)) {
+                violations.add("+Inf bucket " + series.counts[series.size - 1] + " differs from _count " + series.count);
+            }
+        });
+    }
+
+    private SELF hasQuantile(HistogramBuckets.Series series, String labels, double quantile,
+                             UnaryOperator<? super DoubleAssert> valueAssert) {
+        try {
+            valueAssert.apply(new DoubleAssert(series.quantile(quantile)));
+        } catch (AssertionError ae) {
+            failWithMessage("Unexpected quantile %s for %s_bucket{%s} : %s",
+                    quantile, actual.name, labels, ae.getMessage());
+        }
+        return myself;
+    }
+
+    /**
+     * Gets the grouped buckets for estimating quantiles, failing if an upper bound is not numeric.
+     */
+    private HistogramBuckets orderedHistogramBuckets() {
+        final HistogramBuckets buckets = histogramBuckets();
+        final HistogramBuckets.Series invalid = buckets.getInvalidSeries();
+        if (null != invalid) {
+            failWithMessage("Expected MetricFamilySamples %s to have numeric bucket upper bounds, but found %s_bucket{%s}",
+                    actual.name, actual.name, joinLabelNamesAndValues(buckets.getLabelNames(), invalid.labelValues)
+                            + (invalid.labelValues.isEmpty() ? "" : ", ") + "le=" + invalid.invalidUpperBound);
+        }
+        return buckets;
+    }
 
-        return hasSampleValue(actual.name + "_bucket", extendedLabelValues, valueAssert);
+    /**
+     * Gets the lazily grouped buckets, created once on first quantile estimation.
+     *
+     * @return the buckets.
+     */
+    HistogramBuckets histogramBuckets() {
+        if (null == histogramBuckets) {
+            histogramBuckets = HistogramBuckets.of(actual);
+        }
+        return histogramBuckets;
     }
 }
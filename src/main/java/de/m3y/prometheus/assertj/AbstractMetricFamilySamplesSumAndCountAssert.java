@@ -3,8 +3,12 @@ package de.m3y.prometheus.assertj;
 import io.prometheus.client.Collector;
 import org.assertj.core.api.DoubleAssert;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.DoublePredicate;
 import java.util.function.UnaryOperator;
 
 /**
@@ -25,7 +29,7 @@ public abstract class AbstractMetricFamilySamplesSumAndCountAssert
      * @return {@code this} assertion object.
      */
     public SELF hasSampleSumValue(double value) {
-        return hasSampleSumValue(da -> da.isEqualTo(value));
+        return hasSampleSumValue(Collections.emptyList(), value);
     }
 
     /**
@@ -48,7 +52,7 @@ public abstract class AbstractMetricFamilySamplesSumAndCountAssert
      * @see #hasSampleSumValue(List, UnaryOperator)
      */
     public SELF hasSampleSumValue(List<String> labelValues, double value) {
-        return hasSampleSumValue(labelValues, da -> da.isEqualTo(value));
+        return hasSampleValueCloseTo(actual.name + "_sum", labelValues, null, value, 0);
     }
 
     /**
@@ -64,6 +68,41 @@ public abstract class AbstractMetricFamilySamplesSumAndCountAssert
         return hasSampleValue(actual.name + "_sum", labelValues, valueAssert);
     }
 
+    /**
+     * Verifies the sum value for a Histogram or Summary type metric, without creating any AssertJ objects unless failing.
+     *
+     * @param labelValues    the expected label values.
+     * @param valuePredicate predicate for the sum value.
+     * @return {@code this} assertion object.
+     */
+    public SELF hasSampleSumValueMatching(List<String> labelValues, DoublePredicate valuePredicate) {
+        return hasSampleValueMatching(actual.name + "_sum", labelValues, null, valuePredicate);
+    }
+
+    /**
+     * Verifies the sum value for a Histogram or Summary type metric within a tolerance,
+     * without creating any AssertJ objects unless failing.
+     *
+     * @param labelValues the expected label values.
+     * @param value       the expected sum value.
+     * @param tolerance   the max absolute difference.
+     * @return {@code this} assertion object.
+     */
+    public SELF hasSampleSumValueCloseTo(List<String> labelValues, double value, double tolerance) {
+        return hasSampleValueCloseTo(actual.name + "_sum", labelValues, null, value, tolerance);
+    }
+
+    /**
+     * Verifies many sum values for a Histogram or Summary type metric, in a single pass.
+     *
+     * @param expectedValues the expected sum values by label values.
+     * @return {@code this} assertion object.
+     * @see #hasSampleValues(Map)
+     */
+    public SELF hasSampleSumValues(Map<List<String>, Double> expectedValues) {
+        return hasSampleValues(actual.name + "_sum", expectedValues);
+    }
+
     /**
      * Verifies the count value for a Histogram or Summary type metric.
      *
@@ -72,7 +111,7 @@ public abstract class AbstractMetricFamilySamplesSumAndCountAssert
      * @see #hasSampleCountValue(UnaryOperator)
      */
     public SELF hasSampleCountValue(double value) {
-        return hasSampleCountValue(da -> da.isEqualTo(value));
+        return hasSampleCountValue(Collections.emptyList(), value);
     }
 
     /**
@@ -94,7 +133,7 @@ public abstract class AbstractMetricFamilySamplesSumAndCountAssert
      * @see #hasSampleCountValue(UnaryOperator)
      */
     public SELF hasSampleCountValue(List<String> labelValues, double value) {
-        return hasSampleCountValue(labelValues, da -> da.isEqualTo(value));
+        return hasSampleValueCloseTo(actual.name + "_count", labelValues, null, value, 0);
     }
 
     /**
@@ -111,6 +150,41 @@ public abstract class AbstractMetricFamilySamplesSumAndCountAssert
         return hasSampleValue(actual.name + "_count", labelValues, valueAssert);
     }
 
+    /**
+     * Verifies the count value for a Histogram or Summary type metric, without creating any AssertJ objects unless failing.
+     *
+     * @param labelValues    the expected label values.
+     * @param valuePredicate predicate for the count value.
+     * @return {@code this} assertion object.
+     */
+    public SELF hasSampleCountValueMatching(List<String> labelValues, DoublePredicate valuePredicate) {
+        return hasSampleValueMatching(actual.name + "_count", labelValues, null, valuePredicate);
+    }
+
+    /**
+     * Verifies the count value for a Histogram or Summary type metric within a tolerance,
+     * without creating any AssertJ objects unless failing.
+     *
+     * @param labelValues the expected label values.
+     * @param value       the expected count value.
+     * @param tolerance   the max absolute difference.
+     * @return {@code this} assertion object.
+     */
+    public SELF hasSampleCountValueCloseTo(List<String> labelValues, double value, double tolerance) {
+        return hasSampleValueCloseTo(actual.name + "_count", labelValues, null, value, tolerance);
+    }
+
+    /**
+     * Verifies many count values for a Histogram or Summary type metric, in a single pass.
+     *
+     * @param expectedValues the expected count values by label values.
+     * @return {@code this} assertion object.
+     * @see #hasSampleValues(Map)
+     */
+    public SELF hasSampleCountValues(Map<List<String>, Double> expectedValues) {
+        return hasSampleValues(actual.name + "_count", expectedValues);
+    }
+
     /**
      * Verifies the _created value for a Histogram, Summary or Count type metric.
      *
@@ -118,7 +192,7 @@ public abstract class AbstractMetricFamilySamplesSumAndCountAssert
      * @return {@code this} assertion object.
      */
     public SELF hasSampleCreatedValue(double value) {
-        return hasSampleCreatedValue(da -> da.isEqualTo(value));
+        return hasSampleCreatedValue(Collections.emptyList(), value);
     }
 
     /**
@@ -141,7 +215,7 @@ public abstract class AbstractMetricFamilySamplesSumAndCountAssert
      * @see #hasSampleCreatedValue(UnaryOperator)
      */
     public SELF hasSampleCreatedValue(List<String> labelValues, double value) {
-        return hasSampleCreatedValue(labelValues, da -> da.isEqualTo(value));
+        return hasSampleValueCloseTo(actual.name + "_created", labelValues, null, value, 0);
     }
 
     /**
@@ -155,4 +229,55 @@ public abstract class AbstractMetricFamilySamplesSumAndCountAssert
     public SELF hasSampleCreatedValue(List<String> labelValues, UnaryOperator<? super DoubleAssert> valueAssert) {
         return hasSampleValue(actual.name + "_created", labelValues, valueAssert);
     }
+
+    /**
+     * Validates every series in a single pass, failing with all inconsistent series.
+     * <p>
+     * Checks for each series a non-negative <code>_count</code> and <code>_sum</code>,
+     * plus the type specific checks of the validator.
+     *
+     * @param grouped   the samples grouped by series.
+     * @param validator the type specific validator, adding a violation message per violation.
+     * @return {@code this} assertion object.
+     */
+    SELF isConsistent(HistogramBuckets grouped, BiConsumer<HistogramBuckets.Series, List<String>> validator) {
+        isNotNull();
+        final int maxRendered = getMaxSamplesInFailureMessage();
+        final StringBuilder buf = new StringBuilder();
+        final List<String> violations = new ArrayList<>();
+        int inconsistent = 0;
+        for (HistogramBuckets.Series series : grouped.getSeries()) {
+            violations.clear();
+            if (Double.isNaN(series.count)) {
+                violations.add("missing _count");
+            } else if (series.count < 0) {
+                violations.add("negative _count " + series.count);
+            }
+            if (Double.isNaN(series.sum)) {
+                violations.add("missing _sum");
+            } else if (series.sum < 0) {
+                violations.add("negative _sum " + series.sum);
+            }
+            if (null != series.invalidUpperBound) {
+                violations.add("invalid " + grouped.getPointLabelName() + "=" + series.invalidUpperBound);
+            }
+            validator.accept(series, violations);
+            if (!violations.isEmpty()) {
+                if (inconsistent < maxRendered) {
+                    buf.append("\n  {").append(joinLabelNamesAndValues(grouped.getLabelNames(), series.labelValues))
+                            .append("} ").append(String.join(", ", violations));
+                }
+                inconsistent++;
+            }
+        }
+        if (inconsistent > 0) {
+            if (inconsistent > maxRendered) {
+                buf.append("\n(showing first ").append(maxRendered).append(" of ").append(inconsistent)
+                        .append(" series, omitted ").append(inconsistent - maxRendered).append(')');
+            }
+            failWithMessage("Expected MetricFamilySamples %s to be consistent, but found %s of %s series inconsistent:%s",
+                    actual.name, inconsistent, grouped.getSeries().size(), buf.toString());
+        }
+        return myself;
+    }
 }
@@ -1,8 +1,8 @@
 package de.m3y.prometheus.assertj;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.DoublePredicate;
 import java.util.function.UnaryOperator;
 
 import io.prometheus.client.Collector;
@@ -54,7 +54,7 @@ public abstract class AbstractMetricFamilySamplesSummaryAssert
      * @return {@code this} assertion object.
      */
     public SELF hasSampleValue(double quantile, double value) {
-        return hasSampleValue(Collections.emptyList(), quantile, da -> da.isEqualTo(Double.valueOf(value)));
+        return hasSampleValue(Collections.emptyList(), quantile, value);
     }
 
     /**
@@ -66,7 +66,7 @@ public abstract class AbstractMetricFamilySamplesSummaryAssert
      * @return {@code this} assertion object.
      */
     public SELF hasSampleValue(List<String> labelValues, double quantile, double value) {
-        return hasSampleValue(labelValues, quantile, da -> da.isEqualTo(Double.valueOf(value)));
+        return hasSampleValueEqualTo(actual.name, labelValues, Collector.doubleToGoString(quantile), value);
     }
 
     /**
@@ -80,9 +80,64 @@ public abstract class AbstractMetricFamilySamplesSummaryAssert
     public SELF hasSampleValue(List<String> labelValues,
                                double quantile,
                                UnaryOperator<? super DoubleAssert> valueAssert) {
-        List<String> extendedLabelValues = new ArrayList<>(labelValues.size() + 1);
-        extendedLabelValues.addAll(labelValues);
-        extendedLabelValues.add(Collector.doubleToGoString(quantile));
-        return hasSampleValue(actual.name, extendedLabelValues, valueAssert);
+        return hasSampleValue(actual.name, labelValues, Collector.doubleToGoString(quantile), valueAssert);
+    }
+
+    /**
+     * Verifies the recorded sample value, without creating any AssertJ objects unless failing.
+     *
+     * @param labelValues    the expected value labels
+     * @param quantile       the quantile
+     * @param valuePredicate predicate for value, eg <code>v -&gt; v &lt; 0.25</code>
+     * @return {@code this} assertion object.
+     */
+    public SELF hasSampleValueMatching(List<String> labelValues, double quantile, DoublePredicate valuePredicate) {
+        return hasSampleValueMatching(actual.name, labelValues, Collector.doubleToGoString(quantile), valuePredicate);
+    }
+
+    /**
+     * Verifies the recorded sample value within a tolerance, without creating any AssertJ objects unless failing.
+     *
+     * @param labelValues the expected value labels
+     * @param quantile    the quantile
+     * @param value       the expected value
+     * @param tolerance   the max absolute difference
+     * @return {@code this} assertion object.
+     */
+    public SELF hasSampleValueCloseTo(List<String> labelValues, double quantile, double value, double tolerance) {
+        return hasSampleValueCloseTo(actual.name, labelValues, Collector.doubleToGoString(quantile), value, tolerance);
+    }
+
+    /**
+     * Verifies the structure of every series in a single pass, reporting all inconsistent series:
+     * <ul>
+     * <li>quantiles must be within [0, 1]</li>
+     * <li>quantile values must not decrease with increasing quantile, ignoring NaN values</li>
+     * <li><code>_count</code> and <code>_sum</code> must exist and not be negative</li>
+     * </ul>
+     *
+     * @return {@code this} assertion object.
+     */
+    public SELF isConsistent() {
+        return isConsistent(HistogramBuckets.ofSummary(actual), (series, violations) -> {
+            double previousQuantile = Double.NaN;
+            double previousValue = Double.NaN;
+            for (int i = 0; i < series.size; i++) {
+                final double quantile = series.upperBounds[i];
+                final double value = series.counts[i];
+                if (!(quantile >= 0 && quantile <= 1)) {
+                    violations.add("quantile " + Collector.doubleToGoString(quantile) + " out of range");
+                }
+                if (!Double.isNaN(value)) {
+                    if (value < previousValue) {
+                        violations.add("quantile " + Collector.doubleToGoString(quantile) + " with " + value
+                                + " below quantile " + Collector.doubleToGoString(previousQuantile)
+                                + " with " + previousValue);
+                    }
+                    previousQuantile = quantile;
+                    previousValue = value;
+                }
+            }
+        });
     }
 }
@@ -0,0 +1,29 @@
+package de.m3y.prometheus.assertj;
+
+/**
+ * PromQL style aggregation operators, for aggregating the samples of a MFS.
+ *
+ * @see AbstractMetricFamilySamplesAssert#aggregate(Aggregation)
+ */
+public enum Aggregation {
+    /**
+     * Sum of the values.
+     */
+    SUM,
+    /**
+     * Average of the values.
+     */
+    AVG,
+    /**
+     * Max value, ignoring NaN unless all values are NaN.
+     */
+    MAX,
+    /**
+     * Min value, ignoring NaN unless all values are NaN.
+     */
+    MIN,
+    /**
+     * Number of samples.
+     */
+    COUNT
+}
@@ -0,0 +1,94 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * BK-tree over names, for finding the closest names by Levenshtein distance
+ * without computing the distance to every name.
+ * <p>
+ * Built once, e.g. per {@link MetricsSnapshot}, and queried on lookup failures.
+ * Not thread safe.
+ */
+final class BkTree {
+    private final String[] names;
+    // Tree stored as parallel arrays, node i represents names[i]
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] parentDistance;
+    private final StringUtils.EditDistance editDistance = new StringUtils.EditDistance();
+
+    BkTree(Collection<String> names) {
+        this.names = names.toArray(new String[0]);
+        final int size = this.names.length;
+        firstChild = new int[size];
+        nextSibling = new int[size];
+        parentDistance = new int[size];
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(nextSibling, -1);
+        for (int i = 1; i < size; i++) {
+            insert(i);
+        }
+    }
+
+    private void insert(int node) {
+        int current = 0;
+        while (true) {
+            final int distance = editDistance.apply(names[node], names[current], Integer.MAX_VALUE);
+            if (distance == 0) {
+                return; // Duplicate, stays unreachable
+            }
+            int child = firstChild[current];
+            while (child >= 0 && parentDistance[child] != distance) {
+                child = nextSibling[child];
+            }
+            if (child < 0) {
+                parentDistance[node] = distance;
+                nextSibling[node] = firstChild[current];
+                firstChild[current] = node;
+                return;
+            }
+            current = child;
+        }
+    }
+
+    /**
+     * Finds the n closest names.
+     * <p>
+     * Names with same distance keep their original order.
+     *
+     * @param reference the reference value.
+     * @param n         limit the result to at most n names.
+     * @return the top n closest names.
+     */
+    String[] similar(String reference, int n) {
+        final StringUtils.TopK topK = new StringUtils.TopK(Math.min(names.length, n));
+        if (topK.capacity() == 0) {
+            return new String[0];
+        }
+        int[] pending = new int[16];
+        int pendingSize = 0;
+        pending[pendingSize++] = 0;
+        while (pendingSize > 0) {
+            final int node = pending[--pendingSize];
+            final int distance = editDistance.apply(reference, names[node], Integer.MAX_VALUE);
+            topK.offer(node, distance);
+            // Triangle inequality: children within [distance - radius, distance + radius] may qualify
+            final int radius = topK.isFull() ? topK.worstDistance() : Integer.MAX_VALUE;
+            for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                if (Math.abs(parentDistance[child] - distance) <= radius) {
+                    if (pendingSize == pending.length) {
+                        pending = Arrays.copyOf(pending, pendingSize * 2);
+                    }
+                    pending[pendingSize++] = child;
+                }
+            }
+        }
+        final int[] indices = topK.toSortedIndices();
+        final String[] candidates = new String[indices.length];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = names[indices[i]];
+        }
+        return candidates;
+    }
+}
@@ -0,0 +1,190 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.List;
+
+/**
+ * Counts distinct values, exactly up to a threshold and estimated by a HyperLogLog sketch above.
+ * <p>
+ * Only keeps 64-bit hashes of the values in a primitive open addressing table, instead of references in a hash set.
+ * Above the threshold, the hashes move into a fixed size sketch of 16 KiB with a standard error of about 0.8%,
+ * so that counting a fully loaded registry does not require memory proportional to its size.
+ * <p>
+ * Not thread safe.
+ */
+final class CardinalityCounter {
+    /**
+     * Default max number of distinct values counted exactly.
+     */
+    static final int DEFAULT_EXACT_THRESHOLD = 1 << 16;
+
+    private static final int PRECISION = 14;
+    private static final int REGISTERS = 1 << PRECISION;
+
+    private final int exactThreshold;
+    private long[] table = new long[16]; // 0 marks an empty slot
+    private int size;
+    private byte[] registers; // Non-null once switched to the sketch
+
+    CardinalityCounter() {
+        this(DEFAULT_EXACT_THRESHOLD);
+    }
+
+    CardinalityCounter(int exactThreshold) {
+        this.exactThreshold = exactThreshold;
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param value the value.
+     */
+    void add(CharSequence value) {
+        addHash(hash(value));
+    }
+
+    /**
+     * Adds a value by its hash, e.g. combined via {@link #combine(long, long)}.
+     *
+     * @param hash the 64-bit hash of the value.
+     */
+    void addHash(long hash) {
+        if (null != registers) {
+            addToSketch(hash);
+            return;
+        }
+        if (hash == 0) {
+            hash = 1; // Reserved for empty slots
+        }
+        final int mask = table.length - 1;
+        int slot = (int) hash & mask;
+        long current;
+        while ((current = table[slot]) != 0) {
+            if (current == hash) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = hash;
+        size++;
+        if (size > exactThreshold) {
+            switchToSketch();
+        } else if (size * 2 > table.length) {
+            resize();
+        }
+    }
+
+    /**
+     * @return true, if counted exactly and false if estimated.
+     */
+    boolean isExact() {
+        return null == registers;
+    }
+
+    /**
+     * Gets the number of distinct values.
+     *
+     * @return the exact count, or the estimate if above the threshold.
+     */
+    long count() {
+        if (null == registers) {
+            return size;
+        }
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        final double alpha = 0.7213 / (1 + 1.079 / REGISTERS);
+        double estimate = alpha * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros); // Linear counting for small ranges
+        }
+        return Math.round(estimate);
+    }
+
+    private void resize() {
+        final long[] old = table;
+        table = new long[old.length * 2];
+        final int mask = table.length - 1;
+        for (long hash : old) {
+            if (hash != 0) {
+                int slot = (int) hash & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = hash;
+            }
+        }
+    }
+
+    private void switchToSketch() {
+        registers = new byte[REGISTERS];
+        for (long hash : table) {
+            if (hash != 0) {
+                addToSketch(hash);
+            }
+        }
+        table = null;
+    }
+
+    private void addToSketch(long hash) {
+        final int index = (int) (hash >>> (64 - PRECISION));
+        final byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+        if (registers[index] < rank) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Hashes a value, by 64-bit FNV-1a with a final avalanche mix.
+     *
+     * @param value the value.
+     * @return the hash.
+     */
+    static long hash(CharSequence value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    /**
+     * Hashes a series, combining sample name and label values.
+     *
+     * @param sampleName  the sample name.
+     * @param labelValues the label values.
+     * @return the hash.
+     */
+    static long hash(String sampleName, List<String> labelValues) {
+        long h = hash(sampleName);
+        for (int i = 0; i < labelValues.size(); i++) {
+            h = combine(h, hash(labelValues.get(i)));
+        }
+        return h;
+    }
+
+    /**
+     * Combines two hashes, order dependent.
+     *
+     * @param hash  the hash.
+     * @param other the other hash.
+     * @return the combined hash.
+     */
+    static long combine(long hash, long other) {
+        return mix(hash * 0x9e3779b97f4a7c15L + other);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
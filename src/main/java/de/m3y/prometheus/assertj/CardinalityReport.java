@@ -0,0 +1,226 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+import io.prometheus.client.CollectorRegistry;
+
+/**
+ * Series and label cardinality of MFS, ranking the MFS contributing most series.
+ * <p>
+ * Counts exactly for normal sizes, and switches to an estimating sketch for large cardinalities
+ * so that a fully loaded registry can be checked without doubling the heap.
+ * <p>
+ * Recommended usage:
+ * <pre>{@code
+ * CardinalityReport report = CardinalityReport.of(CollectorRegistry.defaultRegistry);
+ * System.out.println(report.toString(10)); // Top 10 MFS by series
+ * }</pre>
+ *
+ * @see MetricsSnapshotAssert#hasTotalSeriesCountAtMost(long)
+ * @see AbstractMetricFamilySamplesAssert#hasLabelCardinalityAtMost(String, long)
+ */
+public class CardinalityReport {
+    private final List<FamilyCardinality> families;
+    private final long totalSeriesCount;
+
+    /**
+     * Cardinality of a single MFS.
+     */
+    public static final class FamilyCardinality {
+        private final String name;
+        private final Collector.Type type;
+        private final long seriesCount;
+        private final Map<String, Long> labelCardinalities;
+        private final boolean exact;
+
+        FamilyCardinality(String name, Collector.Type type, long seriesCount, Map<String, Long> labelCardinalities,
+                          boolean exact) {
+            this.name = name;
+            this.type = type;
+            this.seriesCount = seriesCount;
+            this.labelCardinalities = Collections.unmodifiableMap(labelCardinalities);
+            this.exact = exact;
+        }
+
+        /**
+         * @return the MFS name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the MFS type.
+         */
+        public Collector.Type getType() {
+            return type;
+        }
+
+        /**
+         * Number of distinct series, i.e. samples by name and label values.
+         *
+         * @return the series count.
+         */
+        public long getSeriesCount() {
+            return seriesCount;
+        }
+
+        /**
+         * Number of distinct values per label name, in order of first occurrence.
+         *
+         * @return the label cardinalities by label name.
+         */
+        public Map<String, Long> getLabelCardinalities() {
+            return labelCardinalities;
+        }
+
+        /**
+         * @return true, if all counts are exact and false if any count is estimated.
+         */
+        public boolean isExact() {
+            return exact;
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + seriesCount + (exact ? "" : " (estimated)") + " series " + labelCardinalities;
+        }
+    }
+
+    private CardinalityReport(List<FamilyCardinality> families) {
+        families.sort(Comparator.comparingLong(FamilyCardinality::getSeriesCount).reversed());
+        this.families = Collections.unmodifiableList(families);
+        long total = 0;
+        for (FamilyCardinality family : families) {
+            total += family.seriesCount;
+        }
+        totalSeriesCount = total;
+    }
+
+    /**
+     * Collects the registry once and counts the cardinality of all MFS.
+     *
+     * @param collectorRegistry the collector registry.
+     * @return the report.
+     */
+    public static CardinalityReport of(CollectorRegistry collectorRegistry) {
+        return of(MetricsSnapshot.of(collectorRegistry));
+    }
+
+    /**
+     * Counts the cardinality of all MFS of the snapshot.
+     *
+     * @param snapshot the snapshot.
+     * @return the report.
+     */
+    public static CardinalityReport of(MetricsSnapshot snapshot) {
+        return of(snapshot.getMetricFamilySamples());
+    }
+
+    /**
+     * Counts the cardinality of all MFS.
+     *
+     * @param metricFamilySamples the MFS.
+     * @return the report.
+     */
+    public static CardinalityReport of(List<Collector.MetricFamilySamples> metricFamilySamples) {
+        final List<FamilyCardinality> families = new ArrayList<>(metricFamilySamples.size());
+        for (Collector.MetricFamilySamples mfs : metricFamilySamples) {
+            families.add(count(mfs, CardinalityCounter.DEFAULT_EXACT_THRESHOLD));
+        }
+        return new CardinalityReport(families);
+    }
+
+    /**
+     * Counts series and label cardinalities of the MFS in a single pass.
+     *
+     * @param mfs            the MFS.
+     * @param exactThreshold the max number of distinct values counted exactly.
+     * @return the cardinality.
+     */
+    static FamilyCardinality count(Collector.MetricFamilySamples mfs, int exactThreshold) {
+        final CardinalityCounter seriesCounter = new CardinalityCounter(exactThreshold);
+        final Map<String, CardinalityCounter> labelCounters = new LinkedHashMap<>();
+        List<String> lastLabelNames = null;
+        CardinalityCounter[] lastCounters = null;
+        for (Sample sample : null == mfs.samples ? Collections.<Sample>emptyList() : mfs.samples) {
+            long seriesHash = CardinalityCounter.hash(sample.name);
+            // Look up counters only when label names change, usually once per sample name
+            if (sample.labelNames != lastLabelNames) {
+                lastLabelNames = sample.labelNames;
+                lastCounters = new CardinalityCounter[lastLabelNames.size()];
+                for (int i = 0; i < lastCounters.length; i++) {
+                    lastCounters[i] = labelCounters.computeIfAbsent(lastLabelNames.get(i),
+                            n -> new CardinalityCounter(exactThreshold));
+                }
+            }
+            for (int i = 0; i < sample.labelValues.size(); i++) {
+                final long valueHash = CardinalityCounter.hash(sample.labelValues.get(i));
+                seriesHash = CardinalityCounter.combine(seriesHash, valueHash);
+                if (i < lastCounters.length) {
+                    lastCounters[i].addHash(valueHash);
+                }
+            }
+            seriesCounter.addHash(seriesHash);
+        }
+
+        boolean exact = seriesCounter.isExact();
+        final Map<String, Long> labelCardinalities = new LinkedHashMap<>(labelCounters.size() * 2);
+        for (Map.Entry<String, CardinalityCounter> entry : labelCounters.entrySet()) {
+            labelCardinalities.put(entry.getKey(), entry.getValue().count());
+            exact &= entry.getValue().isExact();
+        }
+        return new FamilyCardinality(mfs.name, mfs.type, seriesCounter.count(), labelCardinalities, exact);
+    }
+
+    /**
+     * Gets the cardinality of all MFS, ranked by series count, highest first.
+     *
+     * @return the ranked MFS cardinalities.
+     */
+    public List<FamilyCardinality> getFamilies() {
+        return families;
+    }
+
+    /**
+     * Total number of series of all MFS.
+     *
+     * @return the total series count.
+     */
+    public long getTotalSeriesCount() {
+        return totalSeriesCount;
+    }
+
+    /**
+     * Renders the MFS contributing most series.
+     *
+     * @param limit the max number of rendered MFS.
+     * @return the rendered ranking.
+     */
+    public String toString(int limit) {
+        final StringBuilder buf = new StringBuilder();
+        buf.append(totalSeriesCount).append(" series in ").append(families.size()).append(" MFS");
+        final int rendered = Math.min(limit, families.size());
+        for (int i = 0; i < rendered; i++) {
+            final FamilyCardinality family = families.get(i);
+            buf.append("\n  ").append(family);
+        }
+        if (rendered < families.size()) {
+            buf.append("\n(showing top ").append(rendered).append(" of ").append(families.size())
+                    .append(" MFS, omitted ").append(families.size() - rendered).append(')');
+        }
+        return buf.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toString(AbstractMetricFamilySamplesAssert.DEFAULT_MAX_SAMPLES_IN_FAILURE_MESSAGE);
+    }
+}
@@ -0,0 +1,195 @@
+package de.m3y.prometheus.assertj;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.prometheus.client.Collector;
+
+/**
+ * Latency distribution and allocated bytes of repeatedly invoking {@link Collector#collect()}.
+ * <p>
+ * Runs warmup iterations first, letting the JIT compile the collector, followed by the measured iterations.
+ * All iterations run on a dedicated thread, so that a hung collector is detected if a single invocation
+ * exceeds the timeout. Allocated bytes are measured per invocation via the HotSpot {@code ThreadMXBean},
+ * if supported by the JVM.
+ * <p>
+ * Recommended usage:
+ * <pre>{@code
+ * CollectMeasurement measurement = CollectMeasurement.measure(collector, 100, 1000, Duration.ofSeconds(10));
+ * System.out.println(measurement); // Renders percentiles and allocated bytes
+ * }</pre>
+ *
+ * @see CollectorAssert
+ */
+public final class CollectMeasurement {
+    private final long[] sortedLatencyNanos;
+    private final long[] allocatedBytes; // Null if not supported
+
+    private CollectMeasurement(long[] latencyNanos, long[] allocatedBytes) {
+        this.sortedLatencyNanos = latencyNanos;
+        Arrays.sort(sortedLatencyNanos);
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Measures the collector.
+     *
+     * @param collector          the collector.
+     * @param warmupIterations   the number of not measured iterations.
+     * @param measuredIterations the number of measured iterations.
+     * @param timeout            the max duration of a single invocation, before considering the collector hung.
+     * @return the measurement.
+     * @throws IllegalStateException if collecting fails or hangs.
+     */
+    public static CollectMeasurement measure(Collector collector, int warmupIterations, int measuredIterations,
+                                             Duration timeout) {
+        if (warmupIterations < 0 || measuredIterations < 1) {
+            throw new IllegalArgumentException("Expected non negative warmup and positive measured iterations, but got "
+                    + warmupIterations + " and " + measuredIterations);
+        }
+        final AtomicLong progress = new AtomicLong();
+        final AtomicLong iterationStartNanos = new AtomicLong(System.nanoTime());
+        final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+            final Thread thread = new Thread(r, "collect-measurement");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final Future<CollectMeasurement> future = executor.submit(
+                    () -> run(collector, warmupIterations, measuredIterations, progress, iterationStartNanos));
+            final long timeoutNanos = timeout.toNanos();
+            while (true) {
+                // Wait at most until the current iteration exceeds the timeout
+                final long elapsedNanos = System.nanoTime() - iterationStartNanos.get();
+                if (elapsedNanos >= timeoutNanos) {
+                    final long hungIteration = progress.get() + 1; // Before cancelling lets iterations continue
+                    future.cancel(true);
+                    throw new IllegalStateException("Expected collect() of " + collector.getClass().getName()
+                            + " to complete within " + timeout + ", but hung in iteration " + hungIteration
+                            + " of " + (warmupIterations + measuredIterations));
+                }
+                try {
+                    return future.get(timeoutNanos - elapsedNanos, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // Check again, as another iteration might have started meanwhile
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while measuring collect() of " + collector.getClass().getName(), e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Expected collect() of " + collector.getClass().getName()
+                    + " to succeed, but failed with " + e.getCause(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static CollectMeasurement run(Collector collector, int warmupIterations, int measuredIterations,
+                                          AtomicLong progress, AtomicLong iterationStartNanos) {
+        for (int i = 0; i < warmupIterations; i++) {
+            iterationStartNanos.set(System.nanoTime());
+            collector.collect();
+            progress.incrementAndGet();
+        }
+
+        final com.sun.management.ThreadMXBean allocationBean = allocationMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final long[] latencyNanos = new long[measuredIterations];
+        final long[] allocatedBytes = null == allocationBean ? null : new long[measuredIterations];
+        for (int i = 0; i < measuredIterations; i++) {
+            iterationStartNanos.set(System.nanoTime());
+            final long allocatedBefore = null == allocationBean ? 0 : allocationBean.getThreadAllocatedBytes(threadId);
+            final long start = System.nanoTime();
+            collector.collect();
+            latencyNanos[i] = System.nanoTime() - start;
+            if (null != allocationBean) {
+                allocatedBytes[i] = allocationBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            }
+            progress.incrementAndGet();
+        }
+        return new CollectMeasurement(latencyNanos, allocatedBytes);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationMXBean() {
+        try {
+            final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadMXBean;
+                if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                    return bean;
+                }
+            }
+        } catch (LinkageError e) {
+            // Not a HotSpot based JVM
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of measured iterations.
+     */
+    public int getIterations() {
+        return sortedLatencyNanos.length;
+    }
+
+    /**
+     * Gets the latency percentile, by nearest rank.
+     *
+     * @param percentile the percentile, between 0 and 1.
+     * @return the latency.
+     */
+    public Duration getLatencyPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 1)) {
+            throw new IllegalArgumentException("Expected percentile between 0 and 1, but got " + percentile);
+        }
+        final int rank = (int) Math.ceil(percentile * sortedLatencyNanos.length);
+        return Duration.ofNanos(sortedLatencyNanos[Math.max(0, rank - 1)]);
+    }
+
+    /**
+     * @return the max latency.
+     */
+    public Duration getMaxLatency() {
+        return Duration.ofNanos(sortedLatencyNanos[sortedLatencyNanos.length - 1]);
+    }
+
+    /**
+     * @return true, if allocated bytes were measured.
+     */
+    public boolean isAllocationMeasured() {
+        return null != allocatedBytes;
+    }
+
+    /**
+     * Gets the mean allocated bytes per invocation.
+     *
+     * @return the allocated bytes, or -1 if not measured.
+     */
+    public long getAllocatedBytesPerCollect() {
+        if (null == allocatedBytes) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : allocatedBytes) {
+            total += bytes;
+        }
+        return total / allocatedBytes.length;
+    }
+
+    @Override
+    public String toString() {
+        return sortedLatencyNanos.length + " iterations with latency p50=" + getLatencyPercentile(0.5)
+                + ", p99=" + getLatencyPercentile(0.99) + ", max=" + getMaxLatency()
+                + (null == allocatedBytes ? "" : " and " + getAllocatedBytesPerCollect() + " allocated bytes per collect");
+    }
+}
@@ -0,0 +1,52 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+
+/**
+ * Collects visited samples into MFS, e.g. for parsers.
+ */
+final class CollectingVisitor implements MetricFamilySamplesVisitor {
+    private final Map<String, Collector.MetricFamilySamples> mfsByName = new LinkedHashMap<>();
+    private List<Sample> samples;
+
+    @Override
+    public void visitMetricFamily(String name, Collector.Type type, String help) {
+        samples = mfsByName.computeIfAbsent(name,
+                n -> new Collector.MetricFamilySamples(n, type, help, new ArrayList<>())).samples;
+    }
+
+    @Override
+    public void visitSample(Sample sample) {
+        samples.add(sample);
+    }
+
+    /**
+     * Builds the collected MFS.
+     * <p>
+     * Merges <code>_created</code> gauges, written separately by the text format, back into their MFS.
+     *
+     * @return the list of MFS, in visited order.
+     */
+    List<Collector.MetricFamilySamples> getMetricFamilySamples() {
+        for (Iterator<Collector.MetricFamilySamples> iter = mfsByName.values().iterator(); iter.hasNext(); ) {
+            final Collector.MetricFamilySamples mfs = iter.next();
+            if (mfs.type == Collector.Type.GAUGE && mfs.name.endsWith("_created")) {
+                final Collector.MetricFamilySamples base = mfsByName.get(
+                        mfs.name.substring(0, mfs.name.length() - "_created".length()));
+                if (null != base && (base.type == Collector.Type.COUNTER
+                        || base.type == Collector.Type.SUMMARY || base.type == Collector.Type.HISTOGRAM)) {
+                    base.samples.addAll(mfs.samples);
+                    iter.remove();
+                }
+            }
+        }
+        return new ArrayList<>(mfsByName.values());
+    }
+}
@@ -0,0 +1,158 @@
+package de.m3y.prometheus.assertj;
+
+import java.time.Duration;
+
+import io.prometheus.client.Collector;
+import org.assertj.core.api.AbstractAssert;
+
+/**
+ * AssertJ support for the latency and allocations of {@link Collector#collect()}, such as for custom collectors.
+ * <p>
+ * Measures once on first assertion, see {@link CollectMeasurement}. Recommended usage:
+ * <pre>{@code
+ * CollectorAssert.assertThat(new MyCustomCollector())
+ *     .withWarmupIterations(1_000)
+ *     .withMeasuredIterations(10_000)
+ *     .collectP99AtMost(Duration.ofMillis(5))
+ *     .allocatesAtMostPerCollect(64 * 1024);
+ * }</pre>
+ */
+public class CollectorAssert extends AbstractAssert<CollectorAssert, Collector> {
+    /**
+     * Default number of not measured iterations.
+     */
+    public static final int DEFAULT_WARMUP_ITERATIONS = 100;
+    /**
+     * Default number of measured iterations.
+     */
+    public static final int DEFAULT_MEASURED_ITERATIONS = 1_000;
+    /**
+     * Default max duration of a single invocation, before considering the collector hung.
+     */
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+
+    private int warmupIterations = DEFAULT_WARMUP_ITERATIONS;
+    private int measuredIterations = DEFAULT_MEASURED_ITERATIONS;
+    private Duration timeout = DEFAULT_TIMEOUT;
+    private CollectMeasurement measurement;
+
+    /**
+     * Should not be directly instantiated. Use {@link #assertThat(Collector)}.
+     *
+     * @param collector the collector.
+     */
+    protected CollectorAssert(Collector collector) {
+        super(collector, CollectorAssert.class);
+    }
+
+    /**
+     * Creates a new instance of <code>{@link CollectorAssert}</code>.
+     *
+     * @param collector the actual value.
+     * @return the created assertion object.
+     */
+    public static CollectorAssert assertThat(Collector collector) {
+        return new CollectorAssert(collector);
+    }
+
+    /**
+     * Sets the number of not measured iterations.
+     *
+     * @param warmupIterations the number of iterations.
+     * @return {@code this} assertion object.
+     */
+    public CollectorAssert withWarmupIterations(int warmupIterations) {
+        this.warmupIterations = warmupIterations;
+        measurement = null;
+        return myself;
+    }
+
+    /**
+     * Sets the number of measured iterations.
+     *
+     * @param measuredIterations the number of iterations.
+     * @return {@code this} assertion object.
+     */
+    public CollectorAssert withMeasuredIterations(int measuredIterations) {
+        this.measuredIterations = measuredIterations;
+        measurement = null;
+        return myself;
+    }
+
+    /**
+     * Sets the max duration of a single invocation, before considering the collector hung.
+     *
+     * @param timeout the timeout.
+     * @return {@code this} assertion object.
+     */
+    public CollectorAssert withTimeout(Duration timeout) {
+        this.timeout = timeout;
+        measurement = null;
+        return myself;
+    }
+
+    /**
+     * Verifies the 99th latency percentile of collecting.
+     *
+     * @param max the max latency.
+     * @return {@code this} assertion object.
+     */
+    public CollectorAssert collectP99AtMost(Duration max) {
+        return collectLatencyPercentileAtMost(0.99, max);
+    }
+
+    /**
+     * Verifies a latency percentile of collecting.
+     *
+     * @param percentile the percentile, between 0 and 1.
+     * @param max        the max latency.
+     * @return {@code this} assertion object.
+     */
+    public CollectorAssert collectLatencyPercentileAtMost(double percentile, Duration max) {
+        final CollectMeasurement m = measurement();
+        final Duration latency = m.getLatencyPercentile(percentile);
+        if (latency.compareTo(max) > 0) {
+            failWithMessage("Expected collect() of %s to have latency percentile %s of at most %s, but has %s for %s",
+                    actual.getClass().getName(), percentile, max, latency, m);
+        }
+        return myself;
+    }
+
+    /**
+     * Verifies the mean allocated bytes per collecting.
+     * <p>
+     * Fails if the JVM does not support measuring allocated bytes per thread.
+     *
+     * @param maxBytes the max number of allocated bytes.
+     * @return {@code this} assertion object.
+     */
+    public CollectorAssert allocatesAtMostPerCollect(long maxBytes) {
+        final CollectMeasurement m = measurement();
+        if (!m.isAllocationMeasured()) {
+            failWithMessage("Expected allocated bytes of collect() of %s to be measured, but ThreadMXBean"
+                    + " allocated memory measurement is not supported or enabled", actual.getClass().getName());
+        }
+        if (m.getAllocatedBytesPerCollect() > maxBytes) {
+            failWithMessage("Expected collect() of %s to allocate at most %s bytes, but allocates %s bytes for %s",
+                    actual.getClass().getName(), maxBytes, m.getAllocatedBytesPerCollect(), m);
+        }
+        return myself;
+    }
+
+    /**
+     * Gets the measurement, measuring once on first invocation.
+     *
+     * @return the measurement.
+     */
+    public CollectMeasurement measurement() {
+        isNotNull();
+        if (null == measurement) {
+            try {
+                measurement = CollectMeasurement.measure(actual, warmupIterations, measuredIterations, timeout);
+            } catch (IllegalStateException e) {
+                throw new AssertionError(e.getMessage(), e.getCause());
+            }
+        }
+        return measurement;
+    }
+}
@@ -0,0 +1,323 @@
+package de.m3y.prometheus.assertj;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+import io.prometheus.client.CollectorRegistry;
+
+/**
+ * Memory compact snapshot, for keeping several snapshots of large registries around such as for comparisons.
+ * <p>
+ * Instead of a {@link Sample} with own label lists per sample, stores per MFS
+ * <ul>
+ * <li>a dictionary of sample names and label name lists, referenced by <code>int</code> codes</li>
+ * <li>label values interned into a snapshot wide dictionary, referenced by <code>int</code> codes</li>
+ * <li>sample values in a <code>double[]</code></li>
+ * </ul>
+ * Only the stored form is compact. MFS are exposed as views, so that all existing assertions work unchanged,
+ * but a view creates a {@link Sample} per accessed sample: asserting a MFS materializes its samples.
+ * For counters, the simpleclient copies all samples when creating the view, materializing the MFS at once.
+ * <p>
+ * One view per MFS is cached while referenced, such as by an assertion, and can be reclaimed afterwards.
+ * The memory saved is therefore for the MFS kept but not currently asserted, such as the other MFS of
+ * full registry snapshots. Exemplars are not retained.
+ * <p>
+ * Recommended usage:
+ * <pre>{@code
+ * CompactMetricsSnapshot before = CompactMetricsSnapshot.of(CollectorRegistry.defaultRegistry);
+ * ...
+ * CompactMetricsSnapshot after = CompactMetricsSnapshot.of(CollectorRegistry.defaultRegistry);
+ * MetricsDelta.of(before, after).assertThat("my_counter").hasTypeOfCounter().hasSampleValue(1);
+ * }</pre>
+ */
+public class CompactMetricsSnapshot extends MetricsSnapshot {
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private final Map<String, FamilyColumns> familiesByName;
+    private final String[] labelValueDictionary;
+    private final int sampleCount;
+    private final Map<String, WeakReference<Collector.MetricFamilySamples>> views = new HashMap<>();
+
+    /**
+     * Columns of a single MFS.
+     */
+    private static final class FamilyColumns {
+        final String name;
+        final String unit;
+        final Collector.Type type;
+        final String help;
+        final String[] sampleNames;
+        final List<String>[] labelNames;
+        final int[] sampleNameCodes;
+        final int[] labelNamesCodes;
+        final int[] labelValueOffsets; // Per sample, plus end offset
+        final int[] labelValueCodes;
+        final double[] values;
+        final long[] timestampsMs; // Null if no sample has a timestamp
+
+        FamilyColumns(Collector.MetricFamilySamples mfs, Map<String, Integer> labelValueCodesByValue) {
+            name = mfs.name;
+            unit = mfs.unit;
+            type = mfs.type;
+            help = mfs.help;
+            final int size = mfs.samples.size();
+            sampleNameCodes = new int[size];
+            labelNamesCodes = new int[size];
+            labelValueOffsets = new int[size + 1];
+            values = new double[size];
+            long[] timestamps = null;
+
+            final Map<String, Integer> sampleNameCodesByName = new LinkedHashMap<>();
+            final Map<List<String>, Integer> labelNamesCodesByNames = new LinkedHashMap<>();
+            int labelValueCount = 0;
+            for (Sample sample : mfs.samples) {
+                labelValueCount += sample.labelValues.size();
+            }
+            labelValueCodes = new int[labelValueCount];
+
+            int offset = 0;
+            for (int i = 0; i < size; i++) {
+                final Sample sample = mfs.samples.get(i);
+                sampleNameCodes[i] = sampleNameCodesByName.computeIfAbsent(sample.name, n -> sampleNameCodesByName.size());
+                labelNamesCodes[i] = labelNamesCodesByNames.computeIfAbsent(sample.labelNames,
+                        n -> labelNamesCodesByNames.size());
+                labelValueOffsets[i] = offset;
+                for (int j = 0; j < sample.labelValues.size(); j++) {
+                    labelValueCodes[offset++] = labelValueCodesByValue.computeIfAbsent(sample.labelValues.get(j),
+                            v -> labelValueCodesByValue.size());
+                }
+                values[i] = sample.value;
+                if (null != sample.timestampMs) {
+                    if (null == timestamps) {
+                        timestamps = new long[size];
+                        Arrays.fill(timestamps, NO_TIMESTAMP);
+                    }
+                    timestamps[i] = sample.timestampMs;
+                }
+            }
+            labelValueOffsets[size] = offset;
+            timestampsMs = timestamps;
+
+            sampleNames = sampleNameCodesByName.keySet().toArray(new String[0]);
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            final List<String>[] names = new List[labelNamesCodesByNames.size()];
+            int code = 0;
+            for (List<String> labelNameList : labelNamesCodesByNames.keySet()) {
+                names[code++] = Collections.unmodifiableList(new ArrayList<>(labelNameList));
+            }
+            labelNames = names;
+        }
+    }
+
+    /**
+     * Samples of a MFS, created on first access and then reused.
+     */
+    private final class SamplesView extends AbstractList<Sample> implements RandomAccess {
+        private final FamilyColumns columns;
+        private final Sample[] samples;
+
+        SamplesView(FamilyColumns columns) {
+            this.columns = columns;
+            samples = new Sample[columns.values.length];
+        }
+
+        @Override
+        public Sample get(int index) {
+            Sample sample = samples[index];
+            if (null == sample) { // Racing threads create equal samples, safely published as immutable
+                final Long timestampMs = null == columns.timestampsMs || columns.timestampsMs[index] == NO_TIMESTAMP
+                        ? null : columns.timestampsMs[index];
+                sample = new Sample(columns.sampleNames[columns.sampleNameCodes[index]],
+                        columns.labelNames[columns.labelNamesCodes[index]],
+                        new LabelValuesView(columns, index), columns.values[index], timestampMs);
+                samples[index] = sample;
+            }
+            return sample;
+        }
+
+        @Override
+        public int size() {
+            return columns.values.length;
+        }
+    }
+
+    /**
+     * Label values of a sample, resolved on access.
+     */
+    private final class LabelValuesView extends AbstractList<String> implements RandomAccess {
+        private final FamilyColumns columns;
+        private final int offset;
+        private final int size;
+
+        LabelValuesView(FamilyColumns columns, int sampleIndex) {
+            this.columns = columns;
+            offset = columns.labelValueOffsets[sampleIndex];
+            size = columns.labelValueOffsets[sampleIndex + 1] - offset;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+            }
+            return labelValueDictionary[columns.labelValueCodes[offset + index]];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Creates a compact snapshot, converting the MFS one by one.
+     *
+     * @param metricFamilySamples the MFS.
+     */
+    protected CompactMetricsSnapshot(Enumeration<Collector.MetricFamilySamples> metricFamilySamples) {
+        super(Collections.emptyList());
+        final Map<String, Integer> labelValueCodesByValue = new HashMap<>();
+        familiesByName = new LinkedHashMap<>();
+        int samples = 0;
+        while (metricFamilySamples.hasMoreElements()) {
+            final Collector.MetricFamilySamples mfs = metricFamilySamples.nextElement();
+            if (!familiesByName.containsKey(mfs.name)) {
+                familiesByName.put(mfs.name, new FamilyColumns(mfs, labelValueCodesByValue));
+                samples += mfs.samples.size();
+            }
+        }
+        labelValueDictionary = new String[labelValueCodesByValue.size()];
+        for (Map.Entry<String, Integer> entry : labelValueCodesByValue.entrySet()) {
+            labelValueDictionary[entry.getValue()] = entry.getKey();
+        }
+        sampleCount = samples;
+    }
+
+    /**
+     * Collects all MFS of the given registry once, converting each MFS while collecting.
+     *
+     * @param collectorRegistry the collector registry.
+     * @return the snapshot.
+     */
+    public static CompactMetricsSnapshot of(CollectorRegistry collectorRegistry) {
+        return new CompactMetricsSnapshot(collectorRegistry.metricFamilySamples());
+    }
+
+    /**
+     * Collects only the MFS of given names from the given registry.
+     *
+     * @param collectorRegistry the collector registry.
+     * @param names             the MFS names.
+     * @return the snapshot.
+     * @see MetricsSnapshot#of(CollectorRegistry, String...)
+     */
+    public static CompactMetricsSnapshot of(CollectorRegistry collectorRegistry, String... names) {
+        return new CompactMetricsSnapshot(
+                collectorRegistry.filteredMetricFamilySamples(toSampleNames(Arrays.asList(names))));
+    }
+
+    /**
+     * Creates a compact snapshot of the given MFS.
+     *
+     * @param metricFamilySamples a list of MFS.
+     * @return the snapshot.
+     */
+    public static CompactMetricsSnapshot of(List<Collector.MetricFamilySamples> metricFamilySamples) {
+        return new CompactMetricsSnapshot(Collections.enumeration(metricFamilySamples));
+    }
+
+    /**
+     * Creates a compact copy of the given snapshot.
+     *
+     * @param snapshot the snapshot.
+     * @return the snapshot.
+     */
+    public static CompactMetricsSnapshot of(MetricsSnapshot snapshot) {
+        return of(snapshot.getMetricFamilySamples());
+    }
+
+    @Override
+    public boolean contains(String name) {
+        return familiesByName.containsKey(name);
+    }
+
+    /**
+     * Gets the view of the MetricFamilySamples by its name, reused while referenced.
+     *
+     * @param name the name of the MFS.
+     * @return the MFS found, or throws IllegalArgumentException if no MFS found.
+     */
+    @Override
+    public Collector.MetricFamilySamples getMetricFamilySamples(String name) {
+        final FamilyColumns columns = familiesByName.get(name);
+        if (null == columns) {
+            throw MetricFamilySamplesUtils.noMetricFamilySamplesFound(name, similarNames(name));
+        }
+        return view(columns);
+    }
+
+    private synchronized Collector.MetricFamilySamples view(FamilyColumns columns) {
+        final WeakReference<Collector.MetricFamilySamples> cached = views.get(columns.name);
+        Collector.MetricFamilySamples view = null == cached ? null : cached.get();
+        if (null == view) {
+            view = new Collector.MetricFamilySamples(columns.name, columns.unit, columns.type, columns.help,
+                    new SamplesView(columns));
+            views.put(columns.name, new WeakReference<>(view));
+        }
+        return view;
+    }
+
+    /**
+     * Gets views of all MetricFamilySamples of this snapshot, in collected order.
+     *
+     * @return an unmodifiable list of MFS.
+     */
+    @Override
+    public List<Collector.MetricFamilySamples> getMetricFamilySamples() {
+        final List<Collector.MetricFamilySamples> views = new ArrayList<>(familiesByName.size());
+        for (FamilyColumns columns : familiesByName.values()) {
+            views.add(view(columns));
+        }
+        return Collections.unmodifiableList(views);
+    }
+
+    @Override
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(familiesByName.keySet());
+    }
+
+    @Override
+    public int size() {
+        return familiesByName.size();
+    }
+
+    /**
+     * Number of samples of all MFS.
+     *
+     * @return the number of samples.
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Number of distinct label values, interned once for all MFS.
+     *
+     * @return the number of distinct label values.
+     */
+    public int getDistinctLabelValueCount() {
+        return labelValueDictionary.length;
+    }
+}
@@ -0,0 +1,249 @@
+package de.m3y.prometheus.assertj;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+
+/**
+ * Size and serialization time of the text format (0.0.4) exposition of MFS, ranking the MFS dominating the bytes.
+ * <p>
+ * Serializes via {@link TextFormat#write004(Writer, java.util.Enumeration)} into counting sinks,
+ * so that the payload is never held in memory:
+ * <ul>
+ * <li>a timed pass, counting the bytes per MFS</li>
+ * <li>a pass compressing with gzip, counting the compressed bytes</li>
+ * </ul>
+ * The serialization time is a single measurement of the first pass, including JIT warmup,
+ * and therefore suited for generous budgets only.
+ * <p>
+ * Recommended usage:
+ * <pre>{@code
+ * ExpositionReport report = ExpositionReport.of(CollectorRegistry.defaultRegistry);
+ * System.out.println(report.toString(10)); // Top 10 MFS by bytes
+ * }</pre>
+ *
+ * @see MetricsSnapshotAssert#hasExpositionSizeAtMost(long)
+ * @see AbstractMetricFamilySamplesAssert#hasExpositionSizeAtMost(long)
+ */
+public class ExpositionReport {
+    private final List<FamilyExposition> families;
+    private final long totalBytes;
+    private final long gzipBytes;
+    private final Duration serializationTime;
+
+    /**
+     * Exposition size of a single MFS.
+     */
+    public static final class FamilyExposition {
+        private final String name;
+        private final Collector.Type type;
+        private final long bytes;
+
+        FamilyExposition(String name, Collector.Type type, long bytes) {
+            this.name = name;
+            this.type = type;
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return the MFS name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the MFS type.
+         */
+        public Collector.Type getType() {
+            return type;
+        }
+
+        /**
+         * @return the uncompressed exposition bytes.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + bytes + " bytes";
+        }
+    }
+
+    /**
+     * Counts written bytes, optionally forwarding to a delegate.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        private final OutputStream delegate; // Null for discarding
+        long count;
+
+        CountingOutputStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            count++;
+            if (null != delegate) {
+                delegate.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            count += len;
+            if (null != delegate) {
+                delegate.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (null != delegate) {
+                delegate.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (null != delegate) {
+                delegate.close();
+            }
+        }
+    }
+
+    private ExpositionReport(List<FamilyExposition> families, long gzipBytes, Duration serializationTime) {
+        families.sort(Comparator.comparingLong(FamilyExposition::getBytes).reversed());
+        this.families = Collections.unmodifiableList(families);
+        long total = 0;
+        for (FamilyExposition family : families) {
+            total += family.bytes;
+        }
+        this.totalBytes = total;
+        this.gzipBytes = gzipBytes;
+        this.serializationTime = serializationTime;
+    }
+
+    /**
+     * Collects the registry once and measures the exposition of all MFS.
+     *
+     * @param collectorRegistry the collector registry.
+     * @return the report.
+     */
+    public static ExpositionReport of(CollectorRegistry collectorRegistry) {
+        return of(MetricsSnapshot.of(collectorRegistry));
+    }
+
+    /**
+     * Measures the exposition of all MFS of the snapshot.
+     *
+     * @param snapshot the snapshot.
+     * @return the report.
+     */
+    public static ExpositionReport of(MetricsSnapshot snapshot) {
+        return of(snapshot.getMetricFamilySamples());
+    }
+
+    /**
+     * Measures the exposition of all MFS.
+     *
+     * @param metricFamilySamples the MFS.
+     * @return the report.
+     */
+    public static ExpositionReport of(List<Collector.MetricFamilySamples> metricFamilySamples) {
+        try {
+            // Timed pass, counting per MFS
+            final List<FamilyExposition> families = new ArrayList<>(metricFamilySamples.size());
+            final CountingOutputStream counting = new CountingOutputStream(null);
+            final Writer writer = new OutputStreamWriter(counting, StandardCharsets.UTF_8);
+            final long start = System.nanoTime();
+            for (Collector.MetricFamilySamples mfs : metricFamilySamples) {
+                final long before = counting.count;
+                TextFormat.write004(writer, Collections.enumeration(Collections.singletonList(mfs)));
+                writer.flush();
+                families.add(new FamilyExposition(mfs.name, mfs.type, counting.count - before));
+            }
+            final Duration serializationTime = Duration.ofNanos(System.nanoTime() - start);
+
+            // Compressed pass
+            final CountingOutputStream gzipCounting = new CountingOutputStream(null);
+            try (Writer gzipWriter = new OutputStreamWriter(new GZIPOutputStream(gzipCounting), StandardCharsets.UTF_8)) {
+                TextFormat.write004(gzipWriter, Collections.enumeration(metricFamilySamples));
+            }
+            return new ExpositionReport(families, gzipCounting.count, serializationTime);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Not expected for in memory sinks
+        }
+    }
+
+    /**
+     * Gets the exposition size of all MFS, ranked by bytes, highest first.
+     *
+     * @return the ranked MFS exposition sizes.
+     */
+    public List<FamilyExposition> getFamilies() {
+        return families;
+    }
+
+    /**
+     * @return the uncompressed exposition bytes of all MFS.
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return the gzip compressed exposition bytes of all MFS.
+     */
+    public long getGzipBytes() {
+        return gzipBytes;
+    }
+
+    /**
+     * @return the time for serializing all MFS, uncompressed.
+     */
+    public Duration getSerializationTime() {
+        return serializationTime;
+    }
+
+    /**
+     * Renders the MFS dominating the bytes.
+     *
+     * @param limit the max number of rendered MFS.
+     * @return the rendered ranking.
+     */
+    public String toString(int limit) {
+        final StringBuilder buf = new StringBuilder();
+        buf.append(totalBytes).append(" bytes (").append(gzipBytes).append(" bytes gzip) serialized in ")
+                .append(serializationTime).append(" for ").append(families.size()).append(" MFS");
+        final int rendered = Math.min(limit, families.size());
+        for (int i = 0; i < rendered; i++) {
+            buf.append("\n  ").append(families.get(i));
+        }
+        if (rendered < families.size()) {
+            buf.append("\n(showing top ").append(rendered).append(" of ").append(families.size())
+                    .append(" MFS, omitted ").append(families.size() - rendered).append(')');
+        }
+        return buf.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toString(AbstractMetricFamilySamplesAssert.DEFAULT_MAX_SAMPLES_IN_FAILURE_MESSAGE);
+    }
+}
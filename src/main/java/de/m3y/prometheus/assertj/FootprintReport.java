@@ -0,0 +1,258 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+import io.prometheus.client.CollectorRegistry;
+
+/**
+ * Estimated heap retained by the client for holding the series of MFS, ranking the MFS retaining most.
+ * <p>
+ * Estimates from the exposed MFS, by series, label values, histogram buckets and summary quantiles,
+ * assuming the child objects of the simpleclient on a 64-bit JVM with compressed oops and compact strings.
+ * The estimate is an approximation for budgeting and ranking, not a measurement. For example, striped adders
+ * under contention or collectors not retaining their samples are not accounted for.
+ * <p>
+ * Recommended usage:
+ * <pre>{@code
+ * FootprintReport report = FootprintReport.of(CollectorRegistry.defaultRegistry);
+ * System.out.println(report.toString(10)); // Top 10 MFS by estimated bytes
+ * }</pre>
+ *
+ * @see MetricsSnapshotAssert#hasEstimatedFootprintAtMost(long)
+ * @see AbstractMetricFamilySamplesAssert#hasEstimatedFootprintAtMost(long)
+ */
+public class FootprintReport {
+    // Collector, its label names, name and help
+    static final long FAMILY_BYTES = 256;
+    // ConcurrentHashMap node and table slot, plus label value list of children
+    static final long SERIES_BYTES = 32 + 8 + 16 + 16;
+    static final long LABEL_VALUE_REFERENCE_BYTES = 4;
+    static final long DOUBLE_ADDER_BYTES = 32;
+    // Child with value adder and created timestamp, plus exemplar reference for counters
+    static final long GAUGE_CHILD_BYTES = 16 + DOUBLE_ADDER_BYTES;
+    static final long COUNTER_CHILD_BYTES = 24 + DOUBLE_ADDER_BYTES + 16;
+    // Child with bucket adder and exemplar arrays, sum adder and created timestamp
+    static final long HISTOGRAM_CHILD_BYTES = 24 + 16 + 16 + DOUBLE_ADDER_BYTES;
+    // Adder, exemplar reference and array slots per bucket
+    static final long HISTOGRAM_BUCKET_BYTES = DOUBLE_ADDER_BYTES + 16 + 4 + 4;
+    // Child with count and sum adders and created timestamp
+    static final long SUMMARY_CHILD_BYTES = 24 + 2 * DOUBLE_ADDER_BYTES;
+    // Time window of default 5 age buckets, each with a CKMS buffer of 500 doubles and samples
+    static final long SUMMARY_QUANTILES_BYTES = 64 + 5 * (64 + 16 + 500 * 8 + 1024);
+    static final long SUMMARY_QUANTILE_BYTES = 32;
+
+    private final List<FamilyFootprint> families;
+    private final long totalEstimatedBytes;
+
+    /**
+     * Estimated footprint of a single MFS.
+     */
+    public static final class FamilyFootprint {
+        private final String name;
+        private final Collector.Type type;
+        private final long seriesCount;
+        private final long estimatedBytes;
+
+        FamilyFootprint(String name, Collector.Type type, long seriesCount, long estimatedBytes) {
+            this.name = name;
+            this.type = type;
+            this.seriesCount = seriesCount;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        /**
+         * @return the MFS name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the MFS type.
+         */
+        public Collector.Type getType() {
+            return type;
+        }
+
+        /**
+         * Number of series, i.e. children held by the client.
+         *
+         * @return the series count.
+         */
+        public long getSeriesCount() {
+            return seriesCount;
+        }
+
+        /**
+         * @return the estimated retained bytes.
+         */
+        public long getEstimatedBytes() {
+            return estimatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + estimatedBytes + " bytes for " + seriesCount + " series";
+        }
+    }
+
+    private FootprintReport(List<FamilyFootprint> families) {
+        families.sort(Comparator.comparingLong(FamilyFootprint::getEstimatedBytes).reversed());
+        this.families = Collections.unmodifiableList(families);
+        long total = 0;
+        for (FamilyFootprint family : families) {
+            total += family.estimatedBytes;
+        }
+        totalEstimatedBytes = total;
+    }
+
+    /**
+     * Collects the registry once and estimates the footprint of all MFS.
+     *
+     * @param collectorRegistry the collector registry.
+     * @return the report.
+     */
+    public static FootprintReport of(CollectorRegistry collectorRegistry) {
+        return of(MetricsSnapshot.of(collectorRegistry));
+    }
+
+    /**
+     * Estimates the footprint of all MFS of the snapshot.
+     *
+     * @param snapshot the snapshot.
+     * @return the report.
+     */
+    public static FootprintReport of(MetricsSnapshot snapshot) {
+        return of(snapshot.getMetricFamilySamples());
+    }
+
+    /**
+     * Estimates the footprint of all MFS.
+     *
+     * @param metricFamilySamples the MFS.
+     * @return the report.
+     */
+    public static FootprintReport of(List<Collector.MetricFamilySamples> metricFamilySamples) {
+        final List<FamilyFootprint> families = new ArrayList<>(metricFamilySamples.size());
+        for (Collector.MetricFamilySamples mfs : metricFamilySamples) {
+            families.add(estimate(mfs));
+        }
+        return new FootprintReport(families);
+    }
+
+    /**
+     * Estimates the footprint of the MFS.
+     *
+     * @param mfs the MFS.
+     * @return the estimated footprint.
+     */
+    static FamilyFootprint estimate(Collector.MetricFamilySamples mfs) {
+        switch (mfs.type) {
+            case HISTOGRAM:
+                return estimateBuckets(mfs, HistogramBuckets.of(mfs), HISTOGRAM_CHILD_BYTES, HISTOGRAM_BUCKET_BYTES);
+            case GAUGE_HISTOGRAM:
+                return estimateBuckets(mfs, HistogramBuckets.ofGaugeHistogram(mfs), HISTOGRAM_CHILD_BYTES,
+                        HISTOGRAM_BUCKET_BYTES);
+            case SUMMARY:
+                return estimateBuckets(mfs, HistogramBuckets.ofSummary(mfs), SUMMARY_CHILD_BYTES, SUMMARY_QUANTILE_BYTES);
+            default:
+                return estimateValues(mfs);
+        }
+    }
+
+    private static FamilyFootprint estimateValues(Collector.MetricFamilySamples mfs) {
+        final String createdSampleName = mfs.name + "_created";
+        final long childBytes = mfs.type == Collector.Type.COUNTER ? COUNTER_CHILD_BYTES : GAUGE_CHILD_BYTES;
+        long seriesCount = 0;
+        long bytes = FAMILY_BYTES;
+        for (Sample sample : null == mfs.samples ? Collections.<Sample>emptyList() : mfs.samples) {
+            if (!createdSampleName.equals(sample.name)) { // Created is held by the series
+                seriesCount++;
+                bytes += SERIES_BYTES + childBytes + labelValuesBytes(sample.labelValues);
+            }
+        }
+        return new FamilyFootprint(mfs.name, mfs.type, seriesCount, bytes);
+    }
+
+    private static FamilyFootprint estimateBuckets(Collector.MetricFamilySamples mfs, HistogramBuckets buckets,
+                                                   long childBytes, long bytesPerBucket) {
+        long bytes = FAMILY_BYTES;
+        for (HistogramBuckets.Series series : buckets.getSeries()) {
+            bytes += SERIES_BYTES + childBytes + labelValuesBytes(series.labelValues) + series.size * bytesPerBucket;
+            if (mfs.type == Collector.Type.SUMMARY && series.size > 0) {
+                bytes += SUMMARY_QUANTILES_BYTES;
+            }
+        }
+        return new FamilyFootprint(mfs.name, mfs.type, buckets.getSeries().size(), bytes);
+    }
+
+    private static long labelValuesBytes(List<String> labelValues) {
+        long bytes = align(16 + labelValues.size() * LABEL_VALUE_REFERENCE_BYTES);
+        for (int i = 0; i < labelValues.size(); i++) {
+            bytes += stringBytes(labelValues.get(i));
+        }
+        return bytes;
+    }
+
+    /**
+     * Estimates the retained bytes of a string, with header, fields and compact byte array.
+     *
+     * @param value the string.
+     * @return the estimated bytes.
+     */
+    static long stringBytes(String value) {
+        return 24 + align(16 + value.length());
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Gets the footprint of all MFS, ranked by estimated bytes, highest first.
+     *
+     * @return the ranked MFS footprints.
+     */
+    public List<FamilyFootprint> getFamilies() {
+        return families;
+    }
+
+    /**
+     * Total estimated retained bytes of all MFS.
+     *
+     * @return the total estimated bytes.
+     */
+    public long getTotalEstimatedBytes() {
+        return totalEstimatedBytes;
+    }
+
+    /**
+     * Renders the MFS retaining most.
+     *
+     * @param limit the max number of rendered MFS.
+     * @return the rendered ranking.
+     */
+    public String toString(int limit) {
+        final StringBuilder buf = new StringBuilder();
+        buf.append(totalEstimatedBytes).append(" bytes estimated for ").append(families.size()).append(" MFS");
+        final int rendered = Math.min(limit, families.size());
+        for (int i = 0; i < rendered; i++) {
+            buf.append("\n  ").append(families.get(i));
+        }
+        if (rendered < families.size()) {
+            buf.append("\n(showing top ").append(rendered).append(" of ").append(families.size())
+                    .append(" MFS, omitted ").append(families.size() - rendered).append(')');
+        }
+        return buf.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toString(AbstractMetricFamilySamplesAssert.DEFAULT_MAX_SAMPLES_IN_FAILURE_MESSAGE);
+    }
+}
@@ -0,0 +1,323 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+
+/**
+ * Cumulative bucket counts of a histogram MFS, grouped by series (label values without <code>le</code>).
+ * <p>
+ * Parsed once in a single pass over all samples into sorted primitive arrays per series,
+ * so that estimating many quantiles or validating many series stays cheap.
+ * <p>
+ * Also groups the quantiles of a summary MFS, with the quantile as upper bound and the quantile value as count.
+ */
+final class HistogramBuckets {
+    static final String LE = "le";
+    static final String QUANTILE = "quantile";
+
+    private final String pointLabelName;
+    private final List<String> labelNames;
+    private final Map<List<String>, Series> seriesByLabelValues;
+    private final Series invalidSeries;
+    private Series aggregated;
+
+    /**
+     * Buckets of a single series.
+     */
+    static final class Series {
+        final List<String> labelValues;
+        double[] upperBounds = new double[16];
+        double[] counts = new double[16];
+        int size;
+        double count = Double.NaN; // Of _count sample, or NaN if missing
+        double sum = Double.NaN; // Of _sum sample, or NaN if missing
+        String invalidUpperBound; // First not numeric upper bound, skipped, or null if none
+
+        Series(List<String> labelValues) {
+            this.labelValues = labelValues;
+        }
+
+        void add(double upperBound, double count) {
+            if (size == upperBounds.length) {
+                upperBounds = Arrays.copyOf(upperBounds, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            // Insertion sort, as buckets are usually already ordered
+            int i = size++;
+            while (i > 0 && Double.compare(upperBounds[i - 1], upperBound) > 0) {
+                upperBounds[i] = upperBounds[i - 1];
+                counts[i] = counts[i - 1];
+                i--;
+            }
+            upperBounds[i] = upperBound;
+            counts[i] = count;
+        }
+
+        /**
+         * Estimates the quantile, see {@link HistogramBuckets#quantile(double, double[], double[], int)}.
+         *
+         * @param q the quantile, between 0 and 1.
+         * @return the estimated quantile value.
+         */
+        double quantile(double q) {
+            return HistogramBuckets.quantile(q, upperBounds, counts, size);
+        }
+    }
+
+    private HistogramBuckets(String pointLabelName, List<String> labelNames, Map<List<String>, Series> seriesByLabelValues,
+                             Series invalidSeries) {
+        this.pointLabelName = pointLabelName;
+        this.labelNames = labelNames;
+        this.seriesByLabelValues = seriesByLabelValues;
+        this.invalidSeries = invalidSeries;
+    }
+
+    /**
+     * Groups the bucket, count and sum samples of the histogram MFS by series.
+     *
+     * @param mfs the histogram MFS.
+     * @return the buckets.
+     */
+    static HistogramBuckets of(Collector.MetricFamilySamples mfs) {
+        return of(mfs, mfs.name + "_bucket", LE, mfs.name + "_count", mfs.name + "_sum");
+    }
+
+    /**
+     * Groups the bucket, gcount and gsum samples of the gauge histogram MFS by series.
+     *
+     * @param mfs the gauge histogram MFS.
+     * @return the buckets, with <code>_gcount</code> and <code>_gsum</code> as count and sum.
+     */
+    static HistogramBuckets ofGaugeHistogram(Collector.MetricFamilySamples mfs) {
+        return of(mfs, mfs.name + "_bucket", LE, mfs.name + "_gcount", mfs.name + "_gsum");
+    }
+
+    /**
+     * Groups the quantile, count and sum samples of the summary MFS by series.
+     *
+     * @param mfs the summary MFS.
+     * @return the quantiles, as upper bounds and counts.
+     */
+    static HistogramBuckets ofSummary(Collector.MetricFamilySamples mfs) {
+        return of(mfs, mfs.name, QUANTILE, mfs.name + "_count", mfs.name + "_sum");
+    }
+
+    private static HistogramBuckets of(Collector.MetricFamilySamples mfs, String pointSampleName, String pointLabelName,
+                                       String countSampleName, String sumSampleName) {
+        final Map<List<String>, Series> seriesByLabelValues = new LinkedHashMap<>();
+        List<String> labelNames = null;
+        List<String> lastLabelNames = null;
+        int pointIndex = -1;
+        Series invalidSeries = null;
+        for (Sample sample : null == mfs.samples ? Collections.<Sample>emptyList() : mfs.samples) {
+            if (pointSampleName.equals(sample.name)) {
+                if (sample.labelNames != lastLabelNames) {
+                    lastLabelNames = sample.labelNames;
+                    pointIndex = sample.labelNames.indexOf(pointLabelName);
+                    if (null == labelNames) {
+                        labelNames = without(sample.labelNames, pointIndex);
+                    }
+                }
+                if (pointIndex < 0) {
+                    continue; // Invalid bucket or quantile
+                }
+                final List<String> labelValues = without(sample.labelValues, pointIndex);
+                final Series series = seriesByLabelValues.computeIfAbsent(labelValues, Series::new);
+                final String point = sample.labelValues.get(pointIndex);
+                final double upperBound = parseUpperBound(point);
+                if (Double.isNaN(upperBound)) {
+                    if (null == series.invalidUpperBound) {
+                        series.invalidUpperBound = point; // Skipped, as not orderable
+                        if (null == invalidSeries) {
+                            invalidSeries = series;
+                        }
+                    }
+                } else {
+                    series.add(upperBound, sample.value);
+                }
+            } else if (countSampleName.equals(sample.name)) {
+                seriesByLabelValues.computeIfAbsent(sample.labelValues, Series::new).count = sample.value;
+                if (null == labelNames) {
+                    labelNames = sample.labelNames;
+                }
+            } else if (sumSampleName.equals(sample.name)) {
+                seriesByLabelValues.computeIfAbsent(sample.labelValues, Series::new).sum = sample.value;
+            }
+        }
+        return new HistogramBuckets(pointLabelName, null == labelNames ? Collections.emptyList() : labelNames,
+                seriesByLabelValues, invalidSeries);
+    }
+
+    private static List<String> without(List<String> values, int index) {
+        if (index < 0) {
+            return values;
+        }
+        if (index == values.size() - 1) {
+            return values.subList(0, index);
+        }
+        final List<String> copy = new ArrayList<>(values);
+        copy.remove(index);
+        return copy;
+    }
+
+    private static double parseUpperBound(String le) {
+        switch (le) {
+            case "+Inf":
+                return Double.POSITIVE_INFINITY;
+            case "-Inf":
+                return Double.NEGATIVE_INFINITY;
+            default:
+                try {
+                    return Double.parseDouble(le);
+                } catch (NumberFormatException ex) {
+                    return Double.NaN;
+                }
+        }
+    }
+
+    /**
+     * @return the label name of the upper bounds, <code>le</code> or <code>quantile</code>.
+     */
+    String getPointLabelName() {
+        return pointLabelName;
+    }
+
+    /**
+     * @return the label names, without <code>le</code>.
+     */
+    List<String> getLabelNames() {
+        return labelNames;
+    }
+
+    /**
+     * Gets the series by label values.
+     *
+     * @param labelValues the label values, without <code>le</code>.
+     * @return the series, or null if not found.
+     */
+    Series getSeries(List<String> labelValues) {
+        return seriesByLabelValues.get(labelValues);
+    }
+
+    /**
+     * @return the first series with a not numeric upper bound, or null if all upper bounds are numeric.
+     */
+    Series getInvalidSeries() {
+        return invalidSeries;
+    }
+
+    /**
+     * @return all series, in sample order.
+     */
+    Collection<Series> getSeries() {
+        return seriesByLabelValues.values();
+    }
+
+    /**
+     * Aggregates all series by summing up counts of same upper bound, such as <code>sum without(le)</code>.
+     *
+     * @return the aggregated series.
+     */
+    Series aggregate() {
+        if (null == aggregated) {
+            // Union of all upper bounds
+            double[] upperBounds = new double[0];
+            for (Series series : seriesByLabelValues.values()) {
+                upperBounds = union(upperBounds, series.upperBounds, series.size);
+            }
+            final double[] counts = new double[upperBounds.length];
+            for (Series series : seriesByLabelValues.values()) {
+                for (int i = 0; i < series.size; i++) {
+                    counts[Arrays.binarySearch(upperBounds, series.upperBounds[i])] += series.counts[i];
+                }
+            }
+            aggregated = new Series(Collections.emptyList());
+            aggregated.upperBounds = upperBounds;
+            aggregated.counts = counts;
+            aggregated.size = upperBounds.length;
+        }
+        return aggregated;
+    }
+
+    private static double[] union(double[] sorted, double[] other, int otherSize) {
+        final double[] merged = new double[sorted.length + otherSize];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < sorted.length || j < otherSize) {
+            final double next;
+            // Ordered and deduplicated like Arrays.binarySearch, telling 0.0 and -0.0 apart
+            if (j == otherSize || (i < sorted.length && Double.compare(sorted[i], other[j]) <= 0)) {
+                next = sorted[i++];
+            } else {
+                next = other[j++];
+            }
+            if (size == 0 || Double.compare(merged[size - 1], next) != 0) {
+                merged[size++] = next;
+            }
+        }
+        return size == merged.length ? merged : Arrays.copyOf(merged, size);
+    }
+
+    /**
+     * Estimates a quantile by linear interpolation within the bucket, compatible to Prometheus
+     * <code>histogram_quantile</code>.
+     * <ul>
+     * <li>Returns NaN, if there are no observations, less than two buckets or no <code>+Inf</code> bucket</li>
+     * <li>Returns the upper bound of the second-highest bucket, if the quantile falls into the <code>+Inf</code> bucket</li>
+     * <li>Assumes a lower bound of 0 for the first bucket, unless its upper bound is not positive</li>
+     * </ul>
+     *
+     * @param q           the quantile, between 0 and 1.
+     * @param upperBounds the sorted bucket upper bounds.
+     * @param counts      the cumulative bucket counts.
+     * @param size        the number of buckets.
+     * @return the estimated quantile value.
+     */
+    static double quantile(double q, double[] upperBounds, double[] counts, int size) {
+        if (Double.isNaN(q)) {
+            return Double.NaN;
+        }
+        if (q < 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (q > 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (size < 2 || upperBounds[size - 1] != Double.POSITIVE_INFINITY) {
+            return Double.NaN;
+        }
+        final double observations = counts[size - 1];
+        if (observations == 0 || Double.isNaN(observations)) {
+            return Double.NaN;
+        }
+        final double rank = q * observations;
+        // First bucket with cumulative count >= rank, tolerating non-monotonic counts like Prometheus
+        int bucket = 0;
+        double previous = 0;
+        double current = counts[0];
+        while (bucket < size - 1 && current < rank) {
+            previous = current;
+            bucket++;
+            current = Math.max(current, counts[bucket]);
+        }
+        if (bucket == size - 1) {
+            return upperBounds[size - 2];
+        }
+        if (bucket == 0 && upperBounds[0] <= 0) {
+            return upperBounds[0];
+        }
+        final double bucketStart = bucket > 0 ? upperBounds[bucket - 1] : 0;
+        final double count = current - previous;
+        final double bucketRank = rank - previous;
+        return bucketStart + (upperBounds[bucket] - bucketStart) * (bucketRank / count);
+    }
+}
@@ -0,0 +1,103 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+
+/**
+ * Inverted index over the samples of a MetricFamilySamples, mapping each label name and value
+ * to the positions of the samples as posting bitmap.
+ * <p>
+ * Built once in a single pass. Selecting intersects the postings of equality matchers first,
+ * and evaluates other matchers once per distinct label value instead of once per sample.
+ */
+final class LabelIndex {
+    private final int size;
+    private final Map<String, BitSet> postingsBySampleName = new HashMap<>();
+    private final Map<String, Map<String, BitSet>> postingsByLabelName = new HashMap<>();
+    private final Map<String, BitSet> postingsWithLabel = new HashMap<>();
+
+    LabelIndex(List<Sample> samples) {
+        size = samples.size();
+        for (int i = 0; i < size; i++) {
+            final Sample sample = samples.get(i);
+            postingsBySampleName.computeIfAbsent(sample.name, n -> new BitSet()).set(i);
+            for (int l = 0; l < sample.labelNames.size(); l++) {
+                final String labelName = sample.labelNames.get(l);
+                postingsByLabelName.computeIfAbsent(labelName, n -> new HashMap<>())
+                        .computeIfAbsent(sample.labelValues.get(l), v -> new BitSet()).set(i);
+                postingsWithLabel.computeIfAbsent(labelName, n -> new BitSet()).set(i);
+            }
+        }
+    }
+
+    /**
+     * Selects the samples matching the sample name and all label matchers.
+     *
+     * @param sampleName the sample name, or null for any sample name.
+     * @param matchers   the label matchers.
+     * @return the positions of the matching samples.
+     */
+    BitSet select(String sampleName, List<LabelMatcher> matchers) {
+        final BitSet selected;
+        if (null == sampleName) {
+            selected = new BitSet(size);
+            selected.set(0, size);
+        } else {
+            final BitSet postings = postingsBySampleName.get(sampleName);
+            selected = null == postings ? new BitSet() : (BitSet) postings.clone();
+        }
+
+        // Cheap and usually most selective first
+        for (LabelMatcher matcher : matchers) {
+            if (isEqualityOnValue(matcher)) {
+                final BitSet postings = postings(matcher.labelName).get(matcher.value);
+                if (null == postings) {
+                    return new BitSet();
+                }
+                selected.and(postings);
+            }
+        }
+        for (LabelMatcher matcher : matchers) {
+            if (selected.isEmpty()) {
+                break;
+            }
+            if (!isEqualityOnValue(matcher)) {
+                selected.and(matching(matcher));
+            }
+        }
+        return selected;
+    }
+
+    private BitSet matching(LabelMatcher matcher) {
+        final BitSet matching = new BitSet(size);
+        for (Map.Entry<String, BitSet> entry : postings(matcher.labelName).entrySet()) {
+            if (matcher.matches(entry.getKey())) {
+                matching.or(entry.getValue());
+            }
+        }
+        if (matcher.matches("")) {
+            // Absent label matches as empty value
+            final BitSet absent = new BitSet(size);
+            absent.set(0, size);
+            final BitSet withLabel = postingsWithLabel.get(matcher.labelName);
+            if (null != withLabel) {
+                absent.andNot(withLabel);
+            }
+            matching.or(absent);
+        }
+        return matching;
+    }
+
+    private Map<String, BitSet> postings(String labelName) {
+        return postingsByLabelName.getOrDefault(labelName, Collections.emptyMap());
+    }
+
+    private static boolean isEqualityOnValue(LabelMatcher matcher) {
+        return matcher.type == LabelMatcher.Type.EQUAL && !matcher.value.isEmpty();
+    }
+}
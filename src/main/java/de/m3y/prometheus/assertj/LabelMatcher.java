@@ -0,0 +1,149 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * PromQL style label matcher, such as <code>method="GET"</code> or <code>path=~"/api/.*"</code>.
+ * <p>
+ * Like PromQL, regular expressions are fully anchored and an absent label matches as empty value.
+ */
+final class LabelMatcher {
+    enum Type {
+        EQUAL("="),
+        NOT_EQUAL("!="),
+        REGEX("=~"),
+        NOT_REGEX("!~");
+
+        final String operator;
+
+        Type(String operator) {
+            this.operator = operator;
+        }
+    }
+
+    final String labelName;
+    final Type type;
+    final String value;
+    private final Pattern pattern; // Null if not a regex
+
+    LabelMatcher(String labelName, Type type, String value) {
+        this.labelName = labelName;
+        this.type = type;
+        this.value = value;
+        if (type == Type.REGEX || type == Type.NOT_REGEX) {
+            try {
+                pattern = Pattern.compile(value);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid regex in label matcher " + this + " : " + e.getMessage(), e);
+            }
+        } else {
+            pattern = null;
+        }
+    }
+
+    /**
+     * Parses a matcher, such as <code>status!="200"</code>.
+     *
+     * @param matcher the matcher.
+     * @return the parsed matcher.
+     * @throws IllegalArgumentException if not parsable.
+     */
+    static LabelMatcher parse(String matcher) {
+        final String s = matcher.trim();
+        int pos = 0;
+        while (pos < s.length() && isLabelNameChar(s.charAt(pos), pos == 0)) {
+            pos++;
+        }
+        if (pos == 0) {
+            throw invalid(matcher, "expected label name");
+        }
+        final String labelName = s.substring(0, pos);
+        pos = skipWhitespace(s, pos);
+
+        Type type = null;
+        for (Type t : new Type[]{Type.REGEX, Type.NOT_REGEX, Type.NOT_EQUAL, Type.EQUAL}) { // Longest operators first
+            if (s.startsWith(t.operator, pos)) {
+                type = t;
+                pos += t.operator.length();
+                break;
+            }
+        }
+        if (null == type) {
+            throw invalid(matcher, "expected one of =, !=, =~ or !~ after label name");
+        }
+        pos = skipWhitespace(s, pos);
+
+        if (pos >= s.length() || (s.charAt(pos) != '"' && s.charAt(pos) != '\'')) {
+            throw invalid(matcher, "expected quoted label value");
+        }
+        final char quote = s.charAt(pos++);
+        final StringBuilder value = new StringBuilder(s.length() - pos);
+        while (true) {
+            if (pos >= s.length()) {
+                throw invalid(matcher, "unterminated label value");
+            }
+            final char c = s.charAt(pos++);
+            if (c == quote) {
+                break;
+            }
+            if (c == '\\' && pos < s.length()) {
+                final char escaped = s.charAt(pos++);
+                if (escaped == 'n') {
+                    value.append('\n');
+                } else if (escaped == 't') {
+                    value.append('\t');
+                } else if (escaped == '\\' || escaped == '"' || escaped == '\'') {
+                    value.append(escaped);
+                } else {
+                    value.append('\\').append(escaped); // Keep regex escapes such as \d
+                }
+            } else {
+                value.append(c);
+            }
+        }
+        if (pos != s.length()) {
+            throw invalid(matcher, "unexpected trailing '" + s.substring(pos) + "'");
+        }
+        return new LabelMatcher(labelName, type, value.toString());
+    }
+
+    /**
+     * Matches a label value.
+     *
+     * @param labelValue the label value, or an empty string for an absent label.
+     * @return true, if matching.
+     */
+    boolean matches(String labelValue) {
+        switch (type) {
+            case EQUAL:
+                return value.equals(labelValue);
+            case NOT_EQUAL:
+                return !value.equals(labelValue);
+            case REGEX:
+                return pattern.matcher(labelValue).matches();
+            default:
+                return !pattern.matcher(labelValue).matches();
+        }
+    }
+
+    private static boolean isLabelNameChar(char c, boolean first) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || (!first && c >= '0' && c <= '9');
+    }
+
+    private static int skipWhitespace(String s, int pos) {
+        while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static IllegalArgumentException invalid(String matcher, String reason) {
+        return new IllegalArgumentException("Invalid label matcher <" + matcher + "> : " + reason);
+    }
+
+    @Override
+    public String toString() {
+        return labelName + type.operator + '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
@@ -0,0 +1,261 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+
+/**
+ * Aggregates the samples of a MFS into a derived MFS of type Gauge, grouped by labels like
+ * <code>sum by (status) (http_requests_total)</code>.
+ * <p>
+ * Groups in a single pass: label values are encoded as <code>int</code> codes per grouping label,
+ * and groups are found by their codes in an open addressing table with primitive accumulators,
+ * so that no objects get allocated per sample.
+ * <p>
+ * The derived MFS is named after the aggregated sample name, so that it can be asserted with the existing methods:
+ * <pre>{@code
+ * assertThat(mfs).hasTypeOfCounter()
+ *     .aggregate(Aggregation.SUM).by("status")
+ *     .hasSampleValue(labelValues("500"), 3);
+ * }</pre>
+ * An absent grouping label groups as empty value.
+ *
+ * @see AbstractMetricFamilySamplesAssert#aggregate(Aggregation)
+ */
+public class MetricFamilySamplesAggregation {
+    private final AbstractMetricFamilySamplesAssert<?> source;
+    private final Collector.MetricFamilySamples actual;
+    private final Aggregation aggregation;
+    private final String sampleName;
+
+    /**
+     * Groups with accumulators, found by the label value codes of their grouping labels.
+     */
+    private static final class Groups {
+        private final int width;
+        private int size;
+        private int[] keys; // Codes of group i at [i * width, (i + 1) * width)
+        private int[] slots; // Group + 1, or 0 if empty
+        private double[] sums;
+        private double[] mins;
+        private double[] maxs;
+        private long[] counts;
+
+        Groups(int width) {
+            this.width = width;
+            keys = new int[16 * width];
+            slots = new int[32];
+            sums = new double[16];
+            mins = new double[16];
+            maxs = new double[16];
+            counts = new long[16];
+        }
+
+        void add(int[] codes, double value) {
+            final int group = group(codes);
+            sums[group] += value;
+            if (Double.isNaN(mins[group]) || value < mins[group]) {
+                mins[group] = value;
+            }
+            if (Double.isNaN(maxs[group]) || value > maxs[group]) {
+                maxs[group] = value;
+            }
+            counts[group]++;
+        }
+
+        private int group(int[] codes) {
+            int hash = 1;
+            for (int code : codes) {
+                hash = 31 * hash + code;
+            }
+            hash ^= hash >>> 16;
+            int slot = hash & (slots.length - 1);
+            int entry;
+            while ((entry = slots[slot]) != 0) {
+                if (isKey(entry - 1, codes)) {
+                    return entry - 1;
+                }
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            final int group = size++;
+            ensureCapacity();
+            System.arraycopy(codes, 0, keys, group * width, width);
+            mins[group] = Double.NaN;
+            maxs[group] = Double.NaN;
+            if (size * 2 > slots.length) {
+                rehash();
+            } else {
+                slots[slot] = group + 1;
+            }
+            return group;
+        }
+
+        private boolean isKey(int group, int[] codes) {
+            final int offset = group * width;
+            for (int i = 0; i < width; i++) {
+                if (keys[offset + i] != codes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void ensureCapacity() {
+            if (size > sums.length) {
+                final int capacity = sums.length * 2;
+                keys = Arrays.copyOf(keys, capacity * width);
+                sums = Arrays.copyOf(sums, capacity);
+                mins = Arrays.copyOf(mins, capacity);
+                maxs = Arrays.copyOf(maxs, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+            }
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            for (int group = 0; group < size; group++) {
+                int hash = 1;
+                for (int i = 0; i < width; i++) {
+                    hash = 31 * hash + keys[group * width + i];
+                }
+                hash ^= hash >>> 16;
+                int slot = hash & (slots.length - 1);
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & (slots.length - 1);
+                }
+                slots[slot] = group + 1;
+            }
+        }
+
+        double value(int group, Aggregation aggregation) {
+            switch (aggregation) {
+                case SUM:
+                    return sums[group];
+                case AVG:
+                    return sums[group] / counts[group];
+                case MAX:
+                    return maxs[group];
+                case MIN:
+                    return mins[group];
+                default:
+                    return counts[group];
+            }
+        }
+    }
+
+    /**
+     * Should not be directly instantiated. Use {@link AbstractMetricFamilySamplesAssert#aggregate(Aggregation)}.
+     *
+     * @param source      the source assertion.
+     * @param actual      the MFS of the source assertion.
+     * @param aggregation the aggregation.
+     * @param sampleName  the name of the aggregated samples.
+     */
+    protected MetricFamilySamplesAggregation(AbstractMetricFamilySamplesAssert<?> source,
+                                             Collector.MetricFamilySamples actual,
+                                             Aggregation aggregation, String sampleName) {
+        this.source = source;
+        this.actual = actual;
+        this.aggregation = aggregation;
+        this.sampleName = sampleName;
+    }
+
+    /**
+     * Aggregates the samples grouped by the given labels, such as <code>sum by (status)</code>.
+     * <p>
+     * Without any labels, aggregates all samples into a single sample without labels.
+     *
+     * @param labelNames the grouping label names, in the order of the derived label names.
+     * @return a new assertion for the derived MFS.
+     */
+    public MetricFamilySamplesCounterAndGaugeAssert by(String... labelNames) {
+        return aggregate(Arrays.asList(labelNames));
+    }
+
+    /**
+     * Aggregates the samples grouped by all labels except the given ones, such as <code>max without (pod)</code>.
+     * <p>
+     * The grouping labels are the label names of the first aggregated sample, without the given labels.
+     *
+     * @param labelNames the label names to drop.
+     * @return a new assertion for the derived MFS.
+     */
+    public MetricFamilySamplesCounterAndGaugeAssert without(String... labelNames) {
+        final List<String> grouping = new ArrayList<>();
+        if (null != actual.samples) {
+            final List<String> dropped = Arrays.asList(labelNames);
+            for (Sample sample : actual.samples) {
+                if (sampleName.equals(sample.name)) {
+                    for (String labelName : sample.labelNames) {
+                        if (!dropped.contains(labelName)) {
+                            grouping.add(labelName);
+                        }
+                    }
+                    break;
+                }
+            }
+        }
+        return aggregate(grouping);
+    }
+
+    private MetricFamilySamplesCounterAndGaugeAssert aggregate(List<String> groupingLabelNames) {
+        source.isNotNull();
+        final int width = groupingLabelNames.size();
+        final List<Map<String, Integer>> codesByValue = new ArrayList<>(width);
+        final List<List<String>> valuesByCode = new ArrayList<>(width);
+        for (int i = 0; i < width; i++) {
+            codesByValue.add(new HashMap<>());
+            valuesByCode.add(new ArrayList<>());
+        }
+
+        // Single pass
+        final Groups groups = new Groups(width);
+        final int[] codes = new int[width];
+        final int[] labelIndices = new int[width];
+        List<String> lastLabelNames = null;
+        final List<Sample> samples = null == actual.samples ? Collections.emptyList() : actual.samples;
+        for (int s = 0; s < samples.size(); s++) {
+            final Sample sample = samples.get(s);
+            if (!sampleName.equals(sample.name)) {
+                continue;
+            }
+            if (sample.labelNames != lastLabelNames) { // Usually shared by all samples
+                for (int i = 0; i < width; i++) {
+                    labelIndices[i] = sample.labelNames.indexOf(groupingLabelNames.get(i));
+                }
+                lastLabelNames = sample.labelNames;
+            }
+            for (int i = 0; i < width; i++) {
+                final String value = labelIndices[i] < 0 ? "" : sample.labelValues.get(labelIndices[i]);
+                Integer code = codesByValue.get(i).get(value);
+                if (null == code) {
+                    code = valuesByCode.get(i).size();
+                    codesByValue.get(i).put(value, code);
+                    valuesByCode.get(i).add(value);
+                }
+                codes[i] = code;
+            }
+            groups.add(codes, sample.value);
+        }
+
+        final List<String> labelNames = Collections.unmodifiableList(new ArrayList<>(groupingLabelNames));
+        final List<Sample> aggregated = new ArrayList<>(groups.size);
+        for (int group = 0; group < groups.size; group++) {
+            final List<String> labelValues = new ArrayList<>(width);
+            for (int i = 0; i < width; i++) {
+                labelValues.add(valuesByCode.get(i).get(groups.keys[group * width + i]));
+            }
+            aggregated.add(new Sample(sampleName, labelNames, labelValues, groups.value(group, aggregation)));
+        }
+        return source.inherit(new MetricFamilySamplesCounterAndGaugeAssert(new Collector.MetricFamilySamples(
+                sampleName, Collector.Type.GAUGE, aggregation.name().toLowerCase(Locale.ROOT) + " of " + actual.name,
+                aggregated)));
+    }
+}
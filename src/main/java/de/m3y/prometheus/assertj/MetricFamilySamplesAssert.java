@@ -1,9 +1,15 @@
 package de.m3y.prometheus.assertj;
 
 import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
 
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.DoublePredicate;
+import java.util.function.Predicate;
 
 /**
  * AssertJ support for <code>{@link io.prometheus.client.Collector.MetricFamilySamples}</code> metrics.
@@ -35,7 +41,7 @@ public class MetricFamilySamplesAssert extends AbstractMetricFamilySamplesAssert
      * @return SELF
      */
     public MetricFamilySamplesInfoAssert hasTypeOfInfo() {
-        return new MetricFamilySamplesInfoAssert(hasType(Collector.Type.INFO).actual);
+        return inherit(new MetricFamilySamplesInfoAssert(hasType(Collector.Type.INFO).actual));
     }
 
     /**
@@ -46,7 +52,7 @@ public class MetricFamilySamplesAssert extends AbstractMetricFamilySamplesAssert
      * @return SELF
      */
     public MetricFamilySamplesCounterAndGaugeAssert hasTypeOfCounter() {
-        return new MetricFamilySamplesCounterAndGaugeAssert(hasType(Collector.Type.COUNTER).actual);
+        return inherit(new MetricFamilySamplesCounterAndGaugeAssert(hasType(Collector.Type.COUNTER).actual));
     }
 
     /**
@@ -57,7 +63,7 @@ public class MetricFamilySamplesAssert extends AbstractMetricFamilySamplesAssert
      * @return SELF
      */
     public MetricFamilySamplesCounterAndGaugeAssert hasTypeOfGauge() {
-        return new MetricFamilySamplesCounterAndGaugeAssert(hasType(Collector.Type.GAUGE).actual);
+        return inherit(new MetricFamilySamplesCounterAndGaugeAssert(hasType(Collector.Type.GAUGE).actual));
     }
 
     /**
@@ -68,7 +74,7 @@ public class MetricFamilySamplesAssert extends AbstractMetricFamilySamplesAssert
      * @return SELF
      */
     public MetricFamilySamplesSummaryAssert hasTypeOfSummary() {
-        return new MetricFamilySamplesSummaryAssert(hasType(Collector.Type.SUMMARY).actual);
+        return inherit(new MetricFamilySamplesSummaryAssert(hasType(Collector.Type.SUMMARY).actual));
     }
 
     /**
@@ -79,7 +85,7 @@ public class MetricFamilySamplesAssert extends AbstractMetricFamilySamplesAssert
      * @return SELF
      */
     public MetricFamilySamplesHistogramAssert hasTypeOfHistogram() {
-        return new MetricFamilySamplesHistogramAssert(hasType(Collector.Type.HISTOGRAM).actual);
+        return inherit(new MetricFamilySamplesHistogramAssert(hasType(Collector.Type.HISTOGRAM).actual));
     }
 
     /**
@@ -92,6 +98,19 @@ public class MetricFamilySamplesAssert extends AbstractMetricFamilySamplesAssert
         return new MetricFamilySamplesAssert(actual);
     }
 
+    /**
+     * Creates a new polling assertion, for MFS updated asynchronously.
+     *
+     * @param collectorRegistry the collector registry, re-collected for the MFS only.
+     * @param name              the MFS name.
+     * @param timeout           the max duration of polling.
+     * @return new instance.
+     * @see MetricFamilySamplesAwait#untilAsserted(java.util.function.Consumer)
+     */
+    public static MetricFamilySamplesAwait eventually(CollectorRegistry collectorRegistry, String name, Duration timeout) {
+        return new MetricFamilySamplesAwait(collectorRegistry, name, timeout);
+    }
+
     /**
      * Returns vararg label values as list. DSL syntactic sugar.
      *
@@ -101,4 +120,59 @@ public class MetricFamilySamplesAssert extends AbstractMetricFamilySamplesAssert
     public static List<String> labelValues(String... labelValues) {
         return Arrays.asList(labelValues);
     }
+
+    /**
+     * Returns label names and values as map, for order independent lookups. DSL syntactic sugar.
+     *
+     * @param labelNamesAndValues alternating label names and values, such as <code>"method", "GET"</code>
+     * @return the label values by label name.
+     */
+    public static Map<String, String> labels(String... labelNamesAndValues) {
+        if (labelNamesAndValues.length % 2 != 0) {
+            throw new IllegalArgumentException("Expected alternating label names and values, but got "
+                    + Arrays.toString(labelNamesAndValues));
+        }
+        final Map<String, String> labels = new LinkedHashMap<>();
+        for (int i = 0; i < labelNamesAndValues.length; i += 2) {
+            labels.put(labelNamesAndValues[i], labelNamesAndValues[i + 1]);
+        }
+        return labels;
+    }
+
+    /**
+     * Matches samples by sample name. DSL syntactic sugar for sample predicates.
+     *
+     * @param sampleName the sample name, e.g. <code>my_metric_sum</code>.
+     * @return the predicate.
+     * @see #allSamplesSatisfy(Predicate, Predicate)
+     */
+    public static Predicate<Collector.MetricFamilySamples.Sample> withSampleName(String sampleName) {
+        return sample -> sampleName.equals(sample.name);
+    }
+
+    /**
+     * Matches samples by label name and value. DSL syntactic sugar for sample predicates.
+     *
+     * @param labelName  the label name.
+     * @param labelValue the label value.
+     * @return the predicate.
+     * @see #allSamplesSatisfy(Predicate, Predicate)
+     */
+    public static Predicate<Collector.MetricFamilySamples.Sample> withLabel(String labelName, String labelValue) {
+        return sample -> {
+            final int i = sample.labelNames.indexOf(labelName);
+            return i >= 0 && labelValue.equals(sample.labelValues.get(i));
+        };
+    }
+
+    /**
+     * Matches samples by value. DSL syntactic sugar for sample predicates.
+     *
+     * @param valuePredicate the value predicate, eg <code>v -&gt; v &gt;= 0</code>.
+     * @return the predicate.
+     * @see #allSamplesSatisfy(Predicate)
+     */
+    public static Predicate<Collector.MetricFamilySamples.Sample> withValue(DoublePredicate valuePredicate) {
+        return sample -> valuePredicate.test(sample.value);
+    }
 }
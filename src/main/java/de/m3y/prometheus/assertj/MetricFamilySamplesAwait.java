@@ -0,0 +1,151 @@
+package de.m3y.prometheus.assertj;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+
+/**
+ * Polls a MFS until assertions pass, e.g. for metrics updated asynchronously after the call under test returns.
+ * <p>
+ * Each attempt re-collects only the MFS of given name via {@link MetricsSnapshot#of(CollectorRegistry, String...)},
+ * so that polling stays cheap for registries with many MFS or expensive collectors.
+ * Attempts back off exponentially, and only the failure of the last attempt is kept and reported.
+ * <p>
+ * Recommended usage:
+ * <pre>{@code
+ * MetricFamilySamplesAssert.eventually(CollectorRegistry.defaultRegistry, "my_counter", Duration.ofSeconds(5))
+ *     .untilAsserted(mfsAssert -> mfsAssert
+ *         .hasTypeOfCounter()
+ *         .hasSampleValue(labelValues("GET"), 10));
+ * }</pre>
+ */
+public class MetricFamilySamplesAwait {
+    /**
+     * Default delay before the second attempt.
+     */
+    public static final Duration DEFAULT_POLL_INTERVAL = Duration.ofMillis(10);
+    /**
+     * Default max delay between attempts.
+     */
+    public static final Duration DEFAULT_MAX_POLL_INTERVAL = Duration.ofMillis(500);
+    /**
+     * Default factor for increasing the delay after each attempt.
+     */
+    public static final double DEFAULT_BACKOFF_MULTIPLIER = 1.5;
+
+    private final CollectorRegistry collectorRegistry;
+    private final String name;
+    private final Duration timeout;
+    private Duration pollInterval = DEFAULT_POLL_INTERVAL;
+    private Duration maxPollInterval = DEFAULT_MAX_POLL_INTERVAL;
+    private double backoffMultiplier = DEFAULT_BACKOFF_MULTIPLIER;
+
+    /**
+     * Should not be directly instantiated.
+     * Use {@link MetricFamilySamplesAssert#eventually(CollectorRegistry, String, Duration)}.
+     *
+     * @param collectorRegistry the collector registry.
+     * @param name              the MFS name.
+     * @param timeout           the max duration of polling.
+     */
+    protected MetricFamilySamplesAwait(CollectorRegistry collectorRegistry, String name, Duration timeout) {
+        this.collectorRegistry = collectorRegistry;
+        this.name = name;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Sets the delay before the second attempt.
+     *
+     * @param pollInterval the delay.
+     * @return {@code this} await.
+     */
+    public MetricFamilySamplesAwait withPollInterval(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+        return this;
+    }
+
+    /**
+     * Sets the max delay between attempts.
+     *
+     * @param maxPollInterval the max delay.
+     * @return {@code this} await.
+     */
+    public MetricFamilySamplesAwait withMaxPollInterval(Duration maxPollInterval) {
+        this.maxPollInterval = maxPollInterval;
+        return this;
+    }
+
+    /**
+     * Sets the factor for increasing the delay after each attempt, such as 1 for a fixed delay.
+     *
+     * @param backoffMultiplier the factor, at least 1.
+     * @return {@code this} await.
+     */
+    public MetricFamilySamplesAwait withBackoffMultiplier(double backoffMultiplier) {
+        if (!(backoffMultiplier >= 1)) {
+            throw new IllegalArgumentException("Expected backoff multiplier of at least 1 but got " + backoffMultiplier);
+        }
+        this.backoffMultiplier = backoffMultiplier;
+        return this;
+    }
+
+    /**
+     * Re-collects the MFS and applies the assertions, until passing or timing out.
+     *
+     * @param assertions the assertions.
+     * @return the MFS satisfying the assertions.
+     * @throws AssertionError with the last failure, if not passing within the timeout.
+     */
+    public Collector.MetricFamilySamples untilAsserted(Consumer<MetricFamilySamplesAssert> assertions) {
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        long delayNanos = pollInterval.toNanos();
+        int attempts = 0;
+        Throwable lastFailure;
+        while (true) {
+            attempts++;
+            final MetricsSnapshot snapshot = MetricsSnapshot.of(collectorRegistry, name);
+            if (snapshot.contains(name)) {
+                final Collector.MetricFamilySamples mfs = snapshot.getMetricFamilySamples(name);
+                try {
+                    assertions.accept(MetricFamilySamplesAssert.assertThat(mfs));
+                    return mfs;
+                } catch (AssertionError e) {
+                    lastFailure = e;
+                }
+            } else {
+                lastFailure = null; // Not found, or filtered out as without any samples
+            }
+
+            final long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                break;
+            }
+            sleep(Math.min(delayNanos, remainingNanos));
+            delayNanos = Math.min(maxPollInterval.toNanos(), (long) (delayNanos * backoffMultiplier));
+        }
+
+        if (null == lastFailure) {
+            // Collect all once, for suggesting similar names
+            try {
+                MetricFamilySamplesUtils.getMetricFamilySamples(collectorRegistry, name);
+            } catch (IllegalArgumentException e) {
+                lastFailure = e;
+            }
+        }
+        throw new AssertionError("Expected MetricFamilySamples " + name + " to satisfy assertions within " + timeout
+                + ", but last of " + attempts + " attempts failed with: "
+                + (null == lastFailure ? "No samples" : lastFailure.getMessage()), lastFailure);
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError("Interrupted while polling", e);
+        }
+    }
+}
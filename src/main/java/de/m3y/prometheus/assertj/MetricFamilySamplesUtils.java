@@ -11,6 +11,11 @@ import java.util.List;
  * Helpers around MetricFamilySamples handling, such as for fetching MFS from {@link Collector} or {@link CollectorRegistry}.
  */
 public class MetricFamilySamplesUtils {
+    /**
+     * Max number of closest names suggested if a MFS is not found.
+     */
+    static final int MAX_SIMILAR_NAMES = 5;
+
     /**
      * Prevent instantiation.
      */
@@ -31,12 +36,21 @@ public class MetricFamilySamplesUtils {
 
     /**
      * Gets a copy of MetricFamilySamples by its name from the given collector registry.
+     * <p>
+     * Only collects the MFS of given name, and falls back to collecting all MFS if not found.
+     * For looking up many MFS, use a {@link MetricsSnapshot} instead.
      *
      * @param collectorRegistry the collector registry.
      * @param name              the name of the MFS.
      * @return the MFS found, or throws IllegalArgumentException if no MFS found.
+     * @see MetricsSnapshot#of(CollectorRegistry, String...)
      */
     public static Collector.MetricFamilySamples getMetricFamilySamples(CollectorRegistry collectorRegistry, String name) {
+        final MetricsSnapshot snapshot = MetricsSnapshot.of(collectorRegistry, name);
+        if (snapshot.contains(name)) {
+            return snapshot.getMetricFamilySamples(name);
+        }
+        // Not found, or filtered out as without any samples
         return getMetricFamilySamples(Collections.list(collectorRegistry.metricFamilySamples()), name);
     }
 
@@ -49,11 +63,18 @@ public class MetricFamilySamplesUtils {
      */
     public static Collector.MetricFamilySamples getMetricFamilySamples(
             List<Collector.MetricFamilySamples> metricFamilySamples, String name) {
-        final String[] similar = StringUtils.similar(name,
-                metricFamilySamples.stream().map(o -> o.name).toArray(String[]::new), 5);
-        return metricFamilySamples.stream().filter(mfs -> name.equals(mfs.name))
-                .findAny().orElseThrow(() -> new IllegalArgumentException(
-                        "No MetricFamilySamples found by name " + name +
-                                " , closest names are " + Arrays.toString(similar)));
+        for (Collector.MetricFamilySamples mfs : metricFamilySamples) {
+            if (name.equals(mfs.name)) {
+                return mfs;
+            }
+        }
+        // Only compute suggestions when failing
+        throw noMetricFamilySamplesFound(name, StringUtils.similar(name,
+                metricFamilySamples.stream().map(o -> o.name).toArray(String[]::new), MAX_SIMILAR_NAMES));
+    }
+
+    static IllegalArgumentException noMetricFamilySamplesFound(String name, String[] similarNames) {
+        return new IllegalArgumentException("No MetricFamilySamples found by name " + name +
+                " , closest names are " + Arrays.toString(similarNames));
     }
 }
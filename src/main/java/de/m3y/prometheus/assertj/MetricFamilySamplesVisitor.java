@@ -0,0 +1,30 @@
+package de.m3y.prometheus.assertj;
+
+import io.prometheus.client.Collector;
+
+/**
+ * Receives MFS and their samples one by one, e.g. while parsing an exposition,
+ * without requiring all samples to be held in memory.
+ *
+ * @see TextFormatParser#parse(java.io.InputStream, java.util.Set, MetricFamilySamplesVisitor)
+ * @see StreamingMetricsAssert
+ */
+public interface MetricFamilySamplesVisitor {
+    /**
+     * Visits an MFS, before visiting its samples.
+     * <p>
+     * Might be invoked more than once for same MFS, if its samples are not contiguous in the input.
+     *
+     * @param name the MFS name, such as <code>my_counter</code> for samples <code>my_counter_total</code>.
+     * @param type the MFS type.
+     * @param help the MFS help.
+     */
+    void visitMetricFamily(String name, Collector.Type type, String help);
+
+    /**
+     * Visits a sample of the MFS last visited.
+     *
+     * @param sample the sample.
+     */
+    void visitSample(Collector.MetricFamilySamples.Sample sample);
+}
@@ -0,0 +1,235 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+import io.prometheus.client.CollectorRegistry;
+
+/**
+ * Difference of two snapshots, e.g. for asserting what a workload added to a shared, long-lived registry.
+ * <p>
+ * Cumulative samples are subtracted per series, keeping the delta as sample value:
+ * <ul>
+ * <li>counter <code>_total</code> samples</li>
+ * <li>histogram <code>_bucket</code>, <code>_count</code> and <code>_sum</code> samples</li>
+ * <li>summary <code>_count</code> and <code>_sum</code> samples</li>
+ * </ul>
+ * All other samples, such as gauges, summary quantiles or <code>_created</code>, keep their value of the after snapshot.
+ * Series not existing before count from zero, and a decreasing count is considered as reset, also counting from zero.
+ * For histograms and summaries, a decreasing <code>_count</code> resets all samples of the series,
+ * including <code>_sum</code> and <code>_bucket</code> samples.
+ * <p>
+ * Recommended usage:
+ * <pre>{@code
+ * MetricsDelta delta = MetricsDelta.capture(CollectorRegistry.defaultRegistry,
+ *     () -> runWorkload(),
+ *     "requests", "request_duration_seconds");
+ * delta.assertThat("requests")
+ *     .hasTypeOfCounter()
+ *     .hasSampleValue(labelValues("500"), v -> v.isLessThanOrEqualTo(3));
+ * delta.assertThat("request_duration_seconds")
+ *     .hasTypeOfHistogram()
+ *     .hasSampleCountValue(10_000);
+ * }</pre>
+ */
+public class MetricsDelta extends MetricsSnapshot {
+    // Kinds of samples
+    private static final int NOT_CUMULATIVE = 0;
+    private static final int MONOTONIC = 1;
+    private static final int CUMULATIVE = 2; // Such as _sum, which can decrease for negative observations
+
+    private final MetricsSnapshot before;
+    private final MetricsSnapshot after;
+
+    /**
+     * Creates a delta of the given snapshots.
+     *
+     * @param before the snapshot before.
+     * @param after  the snapshot after.
+     */
+    protected MetricsDelta(MetricsSnapshot before, MetricsSnapshot after) {
+        super(subtract(before, after));
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * Computes the delta of the given snapshots.
+     *
+     * @param before the snapshot before.
+     * @param after  the snapshot after.
+     * @return the delta, containing the MFS of the after snapshot.
+     */
+    public static MetricsDelta of(MetricsSnapshot before, MetricsSnapshot after) {
+        return new MetricsDelta(before, after);
+    }
+
+    /**
+     * Captures the delta of the MFS of given names, caused by running the workload.
+     *
+     * @param collectorRegistry the collector registry.
+     * @param workload          the workload.
+     * @param names             the MFS names, or none for all MFS.
+     * @return the delta.
+     */
+    public static MetricsDelta capture(CollectorRegistry collectorRegistry, Runnable workload, String... names) {
+        final MetricsSnapshot before = snapshot(collectorRegistry, names);
+        workload.run();
+        return of(before, snapshot(collectorRegistry, names));
+    }
+
+    /**
+     * Captures the delta of the MFS of given names, caused by running the workload.
+     * <p>
+     * The result of the workload is discarded.
+     *
+     * @param collectorRegistry the collector registry.
+     * @param workload          the workload.
+     * @param names             the MFS names, or none for all MFS.
+     * @return the delta.
+     * @throws Exception if the workload fails.
+     */
+    public static MetricsDelta capture(CollectorRegistry collectorRegistry, Callable<?> workload, String... names)
+            throws Exception {
+        final MetricsSnapshot before = snapshot(collectorRegistry, names);
+        workload.call();
+        return of(before, snapshot(collectorRegistry, names));
+    }
+
+    private static MetricsSnapshot snapshot(CollectorRegistry collectorRegistry, String... names) {
+        return names.length == 0 ? MetricsSnapshot.of(collectorRegistry) : MetricsSnapshot.of(collectorRegistry, names);
+    }
+
+    /**
+     * Gets the snapshot before.
+     *
+     * @return the snapshot.
+     */
+    public MetricsSnapshot getBefore() {
+        return before;
+    }
+
+    /**
+     * Gets the snapshot after.
+     *
+     * @return the snapshot.
+     */
+    public MetricsSnapshot getAfter() {
+        return after;
+    }
+
+    private static List<Collector.MetricFamilySamples> subtract(MetricsSnapshot before, MetricsSnapshot after) {
+        final List<Collector.MetricFamilySamples> afterMfsList = after.getMetricFamilySamples();
+        final List<Collector.MetricFamilySamples> deltas = new ArrayList<>(afterMfsList.size());
+        for (Collector.MetricFamilySamples afterMfs : afterMfsList) {
+            deltas.add(subtract(before.contains(afterMfs.name) ? before.getMetricFamilySamples(afterMfs.name) : null,
+                    afterMfs));
+        }
+        return deltas;
+    }
+
+    /**
+     * Subtracts the cumulative samples per series.
+     *
+     * @param before the MFS before, or null if not existing.
+     * @param after  the MFS after.
+     * @return the delta MFS.
+     */
+    static Collector.MetricFamilySamples subtract(Collector.MetricFamilySamples before,
+                                                  Collector.MetricFamilySamples after) {
+        final List<Sample> afterSamples = after.samples;
+        final int size = afterSamples.size();
+
+        // Resolve values first, then create the samples
+        final double[] values = new double[size];
+        final SampleIndex beforeIndex = null != before && before.type == after.type
+                ? new SampleIndex(before.samples) : null;
+        final String countSampleName = after.name + "_count";
+        final Set<List<String>> resetSeries = new HashSet<>(); // By label values of _count
+        for (int i = 0; i < size; i++) {
+            final Sample sample = afterSamples.get(i);
+            values[i] = sample.value;
+            final int kind = cumulativeKind(after, sample.name);
+            if (kind != NOT_CUMULATIVE) {
+                final Sample beforeSample = null == beforeIndex ? null
+                        : beforeIndex.find(sample.name, sample.labelNames, sample.labelValues);
+                if (null != beforeSample) {
+                    final double delta = sample.value - beforeSample.value;
+                    // Decreasing count means reset, so value after is delta
+                    values[i] = kind == MONOTONIC && delta < 0 ? sample.value : delta;
+                    if (kind == MONOTONIC && delta < 0 && countSampleName.equals(sample.name)) {
+                        resetSeries.add(sample.labelValues);
+                    }
+                }
+            }
+        }
+        if (!resetSeries.isEmpty()) {
+            // Reset of _count applies to whole series, as e.g. _sum can not tell
+            for (int i = 0; i < size; i++) {
+                final Sample sample = afterSamples.get(i);
+                if (cumulativeKind(after, sample.name) != NOT_CUMULATIVE
+                        && resetSeries.contains(seriesLabelValues(after, sample))) {
+                    values[i] = sample.value;
+                }
+            }
+        }
+
+        final List<Sample> samples = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final Sample sample = afterSamples.get(i);
+            samples.add(new Sample(sample.name, sample.labelNames, sample.labelValues, values[i], sample.timestampMs));
+        }
+        return new Collector.MetricFamilySamples(after.name, after.unit, after.type, after.help, samples);
+    }
+
+    private static List<String> seriesLabelValues(Collector.MetricFamilySamples mfs, Sample sample) {
+        if (mfs.type == Collector.Type.HISTOGRAM && sample.name.endsWith("_bucket")) {
+            final int index = sample.labelNames.indexOf(HistogramBuckets.LE);
+            if (index >= 0) {
+                final List<String> labelValues = new ArrayList<>(sample.labelValues);
+                labelValues.remove(index);
+                return labelValues;
+            }
+        }
+        return sample.labelValues;
+    }
+
+    /**
+     * Checks if the sample never decreases, unless reset, such as counter <code>_total</code> or histogram <code>_count</code>.
+     *
+     * @param mfs        the MFS.
+     * @param sampleName the sample name.
+     * @return true, if monotonic.
+     */
+    static boolean isMonotonic(Collector.MetricFamilySamples mfs, String sampleName) {
+        return cumulativeKind(mfs, sampleName) == MONOTONIC;
+    }
+
+    private static int cumulativeKind(Collector.MetricFamilySamples mfs, String sampleName) {
+        if (!sampleName.startsWith(mfs.name)) {
+            return NOT_CUMULATIVE;
+        }
+        final String suffix = sampleName.substring(mfs.name.length());
+        switch (mfs.type) {
+            case COUNTER:
+                return "_total".equals(suffix) ? MONOTONIC : NOT_CUMULATIVE;
+            case HISTOGRAM:
+                if ("_bucket".equals(suffix) || "_count".equals(suffix)) {
+                    return MONOTONIC;
+                }
+                return "_sum".equals(suffix) ? CUMULATIVE : NOT_CUMULATIVE;
+            case SUMMARY:
+                if ("_count".equals(suffix)) {
+                    return MONOTONIC;
+                }
+                return "_sum".equals(suffix) ? CUMULATIVE : NOT_CUMULATIVE;
+            default:
+                return NOT_CUMULATIVE;
+        }
+    }
+}
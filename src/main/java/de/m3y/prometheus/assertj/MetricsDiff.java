@@ -0,0 +1,405 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+
+/**
+ * Structured diff of the series of two lists of MFS, such as before and after a deploy.
+ * <p>
+ * Canonicalizes every series key as sample name plus labels sorted by label name, sorts the series of both sides
+ * and merge-joins them in a single pass, for O(n log n) instead of nested loops:
+ * <ul>
+ * <li>added series, only existing after</li>
+ * <li>removed series, only existing before</li>
+ * <li>changed series, existing on both sides with a different value</li>
+ * <li>type changes of MFS existing on both sides</li>
+ * </ul>
+ * Recommended usage:
+ * <pre>{@code
+ * MetricsDiff diff = MetricsDiff.of(before, after);
+ * MetricsDiffAssert.assertThat(diff)
+ *     .hasNoRemovedSeries()
+ *     .hasNoTypeChanges()
+ *     .changedOnly("foo_total");
+ * }</pre>
+ *
+ * @see MetricsDiffAssert
+ */
+public class MetricsDiff {
+    private final List<SeriesDiff> added;
+    private final List<SeriesDiff> removed;
+    private final List<SeriesDiff> changed;
+    private final List<TypeChange> typeChanges;
+
+    /**
+     * Kind of difference of a series.
+     */
+    public enum Kind {
+        /**
+         * Only existing after.
+         */
+        ADDED,
+        /**
+         * Only existing before.
+         */
+        REMOVED,
+        /**
+         * Existing on both sides, with a different value.
+         */
+        CHANGED
+    }
+
+    /**
+     * Difference of a single series.
+     */
+    public static final class SeriesDiff {
+        private final Kind kind;
+        private final String familyName;
+        private final String sampleName;
+        private final List<String> labelNames;
+        private final List<String> labelValues;
+        private final double oldValue;
+        private final double newValue;
+
+        SeriesDiff(Kind kind, Series series, double oldValue, double newValue) {
+            this.kind = kind;
+            this.familyName = series.familyName;
+            this.sampleName = series.sampleName;
+            this.labelNames = Collections.unmodifiableList(Arrays.asList(series.labelNames));
+            this.labelValues = Collections.unmodifiableList(Arrays.asList(series.labelValues));
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        /**
+         * @return the kind of difference.
+         */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return the MFS name.
+         */
+        public String getFamilyName() {
+            return familyName;
+        }
+
+        /**
+         * @return the sample name, such as <code>my_counter_total</code>.
+         */
+        public String getSampleName() {
+            return sampleName;
+        }
+
+        /**
+         * @return the label names, sorted.
+         */
+        public List<String> getLabelNames() {
+            return labelNames;
+        }
+
+        /**
+         * @return the label values, in order of the sorted label names.
+         */
+        public List<String> getLabelValues() {
+            return labelValues;
+        }
+
+        /**
+         * @return the value before, or NaN if added.
+         */
+        public double getOldValue() {
+            return oldValue;
+        }
+
+        /**
+         * @return the value after, or NaN if removed.
+         */
+        public double getNewValue() {
+            return newValue;
+        }
+
+        @Override
+        public String toString() {
+            final String series = sampleName + "{"
+                    + AbstractMetricFamilySamplesAssert.joinLabelNamesAndValues(labelNames, labelValues) + "}";
+            switch (kind) {
+                case ADDED:
+                    return "+ " + series + " " + newValue;
+                case REMOVED:
+                    return "- " + series + " " + oldValue;
+                default:
+                    return "~ " + series + " " + oldValue + " -> " + newValue;
+            }
+        }
+    }
+
+    /**
+     * Type change of a MFS existing on both sides.
+     */
+    public static final class TypeChange {
+        private final String name;
+        private final Collector.Type oldType;
+        private final Collector.Type newType;
+
+        TypeChange(String name, Collector.Type oldType, Collector.Type newType) {
+            this.name = name;
+            this.oldType = oldType;
+            this.newType = newType;
+        }
+
+        /**
+         * @return the MFS name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the type before.
+         */
+        public Collector.Type getOldType() {
+            return oldType;
+        }
+
+        /**
+         * @return the type after.
+         */
+        public Collector.Type getNewType() {
+            return newType;
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + oldType + " -> " + newType;
+        }
+    }
+
+    /**
+     * Canonical series, with labels sorted by label name.
+     */
+    static final class Series {
+        final String familyName;
+        final String sampleName;
+        final String[] labelNames; // Shared by all series with same label names
+        final String[] labelValues;
+        final double value;
+
+        Series(String familyName, String sampleName, String[] labelNames, String[] labelValues, double value) {
+            this.familyName = familyName;
+            this.sampleName = sampleName;
+            this.labelNames = labelNames;
+            this.labelValues = labelValues;
+            this.value = value;
+        }
+
+        static int compare(Series a, Series b) {
+            int c = a.sampleName.compareTo(b.sampleName);
+            if (c != 0) {
+                return c;
+            }
+            final int n = Math.min(a.labelNames.length, b.labelNames.length);
+            for (int i = 0; i < n; i++) {
+                if (a.labelNames != b.labelNames) {
+                    c = a.labelNames[i].compareTo(b.labelNames[i]);
+                    if (c != 0) {
+                        return c;
+                    }
+                }
+                c = a.labelValues[i].compareTo(b.labelValues[i]);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return Integer.compare(a.labelNames.length, b.labelNames.length);
+        }
+    }
+
+    private MetricsDiff(List<SeriesDiff> added, List<SeriesDiff> removed, List<SeriesDiff> changed,
+                        List<TypeChange> typeChanges) {
+        this.added = Collections.unmodifiableList(added);
+        this.removed = Collections.unmodifiableList(removed);
+        this.changed = Collections.unmodifiableList(changed);
+        this.typeChanges = Collections.unmodifiableList(typeChanges);
+    }
+
+    /**
+     * Diffs two snapshots.
+     *
+     * @param before the snapshot before.
+     * @param after  the snapshot after.
+     * @return the diff.
+     */
+    public static MetricsDiff of(MetricsSnapshot before, MetricsSnapshot after) {
+        return of(before.getMetricFamilySamples(), after.getMetricFamilySamples());
+    }
+
+    /**
+     * Diffs two lists of MFS.
+     *
+     * @param before the MFS before.
+     * @param after  the MFS after.
+     * @return the diff.
+     */
+    public static MetricsDiff of(List<Collector.MetricFamilySamples> before, List<Collector.MetricFamilySamples> after) {
+        final List<TypeChange> typeChanges = new ArrayList<>();
+        final Map<String, Collector.Type> typesBefore = new HashMap<>();
+        for (Collector.MetricFamilySamples mfs : before) {
+            typesBefore.putIfAbsent(mfs.name, mfs.type);
+        }
+        for (Collector.MetricFamilySamples mfs : after) {
+            final Collector.Type type = typesBefore.remove(mfs.name); // Only report first MFS of same name
+            if (null != type && type != mfs.type) {
+                typeChanges.add(new TypeChange(mfs.name, type, mfs.type));
+            }
+        }
+
+        final Series[] seriesBefore = canonicalize(before);
+        final Series[] seriesAfter = canonicalize(after);
+
+        // Merge-join
+        final List<SeriesDiff> added = new ArrayList<>();
+        final List<SeriesDiff> removed = new ArrayList<>();
+        final List<SeriesDiff> changed = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < seriesBefore.length || j < seriesAfter.length) {
+            final int c = i == seriesBefore.length ? 1
+                    : j == seriesAfter.length ? -1 : Series.compare(seriesBefore[i], seriesAfter[j]);
+            if (c < 0) {
+                removed.add(new SeriesDiff(Kind.REMOVED, seriesBefore[i], seriesBefore[i].value, Double.NaN));
+                i++;
+            } else if (c > 0) {
+                added.add(new SeriesDiff(Kind.ADDED, seriesAfter[j], Double.NaN, seriesAfter[j].value));
+                j++;
+            } else {
+                if (!AbstractMetricFamilySamplesAssert.isEqual(seriesBefore[i].value, seriesAfter[j].value)) {
+                    changed.add(new SeriesDiff(Kind.CHANGED, seriesAfter[j], seriesBefore[i].value,
+                            seriesAfter[j].value));
+                }
+                i++;
+                j++;
+            }
+        }
+        return new MetricsDiff(added, removed, changed, typeChanges);
+    }
+
+    /**
+     * Canonicalizes and sorts all series, sorting the labels once per distinct label names.
+     */
+    static Series[] canonicalize(List<Collector.MetricFamilySamples> metricFamilySamples) {
+        int count = 0;
+        for (Collector.MetricFamilySamples mfs : metricFamilySamples) {
+            count += null == mfs.samples ? 0 : mfs.samples.size();
+        }
+        final Series[] series = new Series[count];
+        int pos = 0;
+        List<String> lastLabelNames = null;
+        String[] sortedLabelNames = null;
+        Integer[] order = null;
+        for (Collector.MetricFamilySamples mfs : metricFamilySamples) {
+            if (null == mfs.samples) {
+                continue;
+            }
+            for (Sample sample : mfs.samples) {
+                if (sample.labelNames != lastLabelNames) { // Usually shared by all samples of a MFS
+                    final List<String> labelNames = sample.labelNames;
+                    order = new Integer[labelNames.size()];
+                    for (int i = 0; i < order.length; i++) {
+                        order[i] = i;
+                    }
+                    Arrays.sort(order, (a, b) -> labelNames.get(a).compareTo(labelNames.get(b)));
+                    sortedLabelNames = new String[order.length];
+                    for (int i = 0; i < order.length; i++) {
+                        sortedLabelNames[i] = labelNames.get(order[i]);
+                    }
+                    lastLabelNames = labelNames;
+                }
+                final String[] labelValues = new String[order.length];
+                for (int i = 0; i < order.length; i++) {
+                    labelValues[i] = sample.labelValues.get(order[i]);
+                }
+                series[pos++] = new Series(mfs.name, sample.name, sortedLabelNames, labelValues, sample.value);
+            }
+        }
+        Arrays.sort(series, Series::compare);
+        return series;
+    }
+
+    /**
+     * @return the added series, sorted by series key.
+     */
+    public List<SeriesDiff> getAdded() {
+        return added;
+    }
+
+    /**
+     * @return the removed series, sorted by series key.
+     */
+    public List<SeriesDiff> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return the changed series, sorted by series key.
+     */
+    public List<SeriesDiff> getChanged() {
+        return changed;
+    }
+
+    /**
+     * @return the type changes of MFS existing on both sides.
+     */
+    public List<TypeChange> getTypeChanges() {
+        return typeChanges;
+    }
+
+    /**
+     * @return true, if no series or type differs.
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty() && typeChanges.isEmpty();
+    }
+
+    /**
+     * Renders the differences.
+     *
+     * @param limit the max number of rendered differences per kind.
+     * @return the rendered differences.
+     */
+    public String toString(int limit) {
+        final StringBuilder buf = new StringBuilder();
+        buf.append(added.size()).append(" added, ").append(removed.size()).append(" removed, ")
+                .append(changed.size()).append(" changed series and ").append(typeChanges.size())
+                .append(" type changes");
+        append(buf, typeChanges, limit);
+        append(buf, removed, limit);
+        append(buf, added, limit);
+        append(buf, changed, limit);
+        return buf.toString();
+    }
+
+    static void append(StringBuilder buf, List<?> diffs, int limit) {
+        final int rendered = Math.min(limit, diffs.size());
+        for (int i = 0; i < rendered; i++) {
+            buf.append("\n  ").append(diffs.get(i));
+        }
+        if (rendered < diffs.size()) {
+            buf.append("\n(showing first ").append(rendered).append(" of ").append(diffs.size())
+                    .append(", omitted ").append(diffs.size() - rendered).append(')');
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toString(AbstractMetricFamilySamplesAssert.DEFAULT_MAX_SAMPLES_IN_FAILURE_MESSAGE);
+    }
+}
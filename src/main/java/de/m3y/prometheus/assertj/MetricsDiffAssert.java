@@ -0,0 +1,162 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.assertj.core.api.AbstractAssert;
+
+/**
+ * AssertJ support for a {@link MetricsDiff} between two snapshots.
+ * <p>
+ * Recommended usage:
+ * <pre>{@code
+ * MetricsDiffAssert.assertThat(before, after)
+ *     .hasNoRemovedSeries()
+ *     .hasNoTypeChanges()
+ *     .changedOnly("foo_total");
+ * }</pre>
+ */
+public class MetricsDiffAssert extends AbstractAssert<MetricsDiffAssert, MetricsDiff> {
+    private int maxSeriesInFailureMessage = AbstractMetricFamilySamplesAssert.DEFAULT_MAX_SAMPLES_IN_FAILURE_MESSAGE;
+
+    /**
+     * Should not be directly instantiated. Use {@link #assertThat(MetricsDiff)}.
+     *
+     * @param diff the diff.
+     */
+    protected MetricsDiffAssert(MetricsDiff diff) {
+        super(diff, MetricsDiffAssert.class);
+    }
+
+    /**
+     * Creates a new instance of <code>{@link MetricsDiffAssert}</code>.
+     *
+     * @param diff the actual value.
+     * @return the created assertion object.
+     */
+    public static MetricsDiffAssert assertThat(MetricsDiff diff) {
+        return new MetricsDiffAssert(diff);
+    }
+
+    /**
+     * Creates a new instance of <code>{@link MetricsDiffAssert}</code>, diffing two snapshots.
+     *
+     * @param before the snapshot before.
+     * @param after  the snapshot after.
+     * @return the created assertion object.
+     */
+    public static MetricsDiffAssert assertThat(MetricsSnapshot before, MetricsSnapshot after) {
+        return new MetricsDiffAssert(MetricsDiff.of(before, after));
+    }
+
+    /**
+     * Limits the number of series rendered in failure messages.
+     *
+     * @param maxSeriesInFailureMessage the max number of rendered series.
+     * @return {@code this} assertion object.
+     */
+    public MetricsDiffAssert withMaxSeriesInFailureMessage(int maxSeriesInFailureMessage) {
+        if (maxSeriesInFailureMessage < 0) {
+            throw new IllegalArgumentException("Expected non negative max series but got " + maxSeriesInFailureMessage);
+        }
+        this.maxSeriesInFailureMessage = maxSeriesInFailureMessage;
+        return myself;
+    }
+
+    /**
+     * Verifies that no series or type differs.
+     *
+     * @return {@code this} assertion object.
+     */
+    public MetricsDiffAssert hasNoDifferences() {
+        isNotNull();
+        if (!actual.isEmpty()) {
+            failWithMessage("Expected no differences, but found %s", actual.toString(maxSeriesInFailureMessage));
+        }
+        return myself;
+    }
+
+    /**
+     * Verifies that no series appeared.
+     *
+     * @return {@code this} assertion object.
+     */
+    public MetricsDiffAssert hasNoAddedSeries() {
+        isNotNull();
+        return hasNone("added series", actual.getAdded());
+    }
+
+    /**
+     * Verifies that no series disappeared.
+     *
+     * @return {@code this} assertion object.
+     */
+    public MetricsDiffAssert hasNoRemovedSeries() {
+        isNotNull();
+        return hasNone("removed series", actual.getRemoved());
+    }
+
+    /**
+     * Verifies that no series changed value.
+     *
+     * @return {@code this} assertion object.
+     */
+    public MetricsDiffAssert hasNoChangedSeries() {
+        isNotNull();
+        return hasNone("changed series", actual.getChanged());
+    }
+
+    /**
+     * Verifies that no MFS changed type.
+     *
+     * @return {@code this} assertion object.
+     */
+    public MetricsDiffAssert hasNoTypeChanges() {
+        isNotNull();
+        return hasNone("type changes", actual.getTypeChanges());
+    }
+
+    /**
+     * Verifies that only series of the given MFS or sample names were added, removed or changed.
+     *
+     * @param names the MFS names such as <code>foo</code>, or sample names such as <code>foo_total</code>.
+     * @return {@code this} assertion object.
+     */
+    public MetricsDiffAssert changedOnly(String... names) {
+        isNotNull();
+        final Set<String> expected = new HashSet<>(Arrays.asList(names));
+        final List<Object> others = new ArrayList<>();
+        for (MetricsDiff.TypeChange typeChange : actual.getTypeChanges()) {
+            if (!expected.contains(typeChange.getName())) {
+                others.add(typeChange);
+            }
+        }
+        for (List<MetricsDiff.SeriesDiff> diffs : Arrays.asList(
+                actual.getRemoved(), actual.getAdded(), actual.getChanged())) {
+            for (MetricsDiff.SeriesDiff diff : diffs) {
+                if (!expected.contains(diff.getFamilyName()) && !expected.contains(diff.getSampleName())) {
+                    others.add(diff);
+                }
+            }
+        }
+        if (!others.isEmpty()) {
+            final StringBuilder buf = new StringBuilder();
+            MetricsDiff.append(buf, others, maxSeriesInFailureMessage);
+            failWithMessage("Expected only %s to differ, but found %s other differences:%s",
+                    Arrays.toString(names), others.size(), buf);
+        }
+        return myself;
+    }
+
+    private MetricsDiffAssert hasNone(String what, List<?> diffs) {
+        if (!diffs.isEmpty()) {
+            final StringBuilder buf = new StringBuilder();
+            MetricsDiff.append(buf, diffs, maxSeriesInFailureMessage);
+            failWithMessage("Expected no %s, but found %s:%s", what, diffs.size(), buf);
+        }
+        return myself;
+    }
+}
@@ -0,0 +1,200 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+
+/**
+ * Snapshot of MetricFamilySamples, collected once and indexed by name.
+ * <p>
+ * Collecting a {@link CollectorRegistry} scrapes every registered collector. A snapshot scrapes once
+ * and serves many MFS lookups, instead of scraping again per asserted MFS.
+ * <p>
+ * Recommended usage:
+ * <pre>{@code
+ * MetricsSnapshot snapshot = MetricsSnapshot.of(CollectorRegistry.defaultRegistry);
+ * snapshot.assertThat("my_counter")
+ *     .hasTypeOfCounter()
+ *     .hasSampleValue(...);
+ * snapshot.assertThat("my_histogram")
+ *     .hasTypeOfHistogram()
+ *     .hasSampleBucketValue(...);
+ *
+ * // Targeted, only collecting the given MFS
+ * MetricsSnapshot targeted = MetricsSnapshot.of(CollectorRegistry.defaultRegistry, "my_counter", "my_histogram");
+ * }</pre>
+ */
+public class MetricsSnapshot {
+    /**
+     * Sample name suffixes used by the Prometheus types, e.g. for counter, histogram or summary.
+     */
+    private static final String[] SAMPLE_NAME_SUFFIXES = {
+            "", "_total", "_created", "_count", "_sum", "_bucket", "_info", "_gcount", "_gsum"
+    };
+
+    /**
+     * Min number of MFS names for building a name index for suggesting closest names.
+     */
+    private static final int NAME_INDEX_THRESHOLD = 256;
+
+    private final Map<String, Collector.MetricFamilySamples> metricFamilySamplesByName;
+    private BkTree nameIndex;
+
+    /**
+     * Creates a snapshot for the given MFS.
+     *
+     * @param metricFamilySamples the MFS.
+     */
+    protected MetricsSnapshot(Collection<Collector.MetricFamilySamples> metricFamilySamples) {
+        metricFamilySamplesByName = new LinkedHashMap<>(Math.max(16, metricFamilySamples.size() * 4 / 3 + 1));
+        for (Collector.MetricFamilySamples mfs : metricFamilySamples) {
+            metricFamilySamplesByName.putIfAbsent(mfs.name, mfs);
+        }
+    }
+
+    /**
+     * Collects all MFS of the given registry once.
+     *
+     * @param collectorRegistry the collector registry.
+     * @return the snapshot.
+     */
+    public static MetricsSnapshot of(CollectorRegistry collectorRegistry) {
+        return of(collectorRegistry.metricFamilySamples());
+    }
+
+    /**
+     * Collects only the MFS of given names from the given registry.
+     * <p>
+     * Uses {@link CollectorRegistry#filteredMetricFamilySamples(Set)}, so that collectors describing
+     * other MFS are not collected at all.
+     * <p>
+     * Note: A MFS without any sample, such as a labeled counter without any child, is filtered out.
+     *
+     * @param collectorRegistry the collector registry.
+     * @param names             the MFS names, e.g. <code>my_counter</code> for samples <code>my_counter_total</code>.
+     * @return the snapshot.
+     * @see #toSampleNames(Collection)
+     */
+    public static MetricsSnapshot of(CollectorRegistry collectorRegistry, String... names) {
+        return of(collectorRegistry.filteredMetricFamilySamples(toSampleNames(Arrays.asList(names))));
+    }
+
+    /**
+     * Creates a snapshot of the given MFS, e.g. provided by a {@link Collector#collect()}
+     *
+     * @param metricFamilySamples a list of MFS.
+     * @return the snapshot.
+     */
+    public static MetricsSnapshot of(List<Collector.MetricFamilySamples> metricFamilySamples) {
+        return new MetricsSnapshot(metricFamilySamples);
+    }
+
+    private static MetricsSnapshot of(Enumeration<Collector.MetricFamilySamples> metricFamilySamples) {
+        return new MetricsSnapshot(Collections.list(metricFamilySamples));
+    }
+
+    /**
+     * Expands MFS names into all possible sample names, such as <code>_total</code>,
+     * <code>_count</code> or <code>_bucket</code> suffixed names.
+     *
+     * @param names the MFS names.
+     * @return the sample names.
+     */
+    public static Set<String> toSampleNames(Collection<String> names) {
+        Set<String> sampleNames = new HashSet<>(names.size() * SAMPLE_NAME_SUFFIXES.length * 2);
+        for (String name : names) {
+            for (String suffix : SAMPLE_NAME_SUFFIXES) {
+                sampleNames.add(name + suffix);
+            }
+        }
+        return sampleNames;
+    }
+
+    /**
+     * Checks if the snapshot contains a MFS by given name.
+     *
+     * @param name the MFS name.
+     * @return true, if contained.
+     */
+    public boolean contains(String name) {
+        return metricFamilySamplesByName.containsKey(name);
+    }
+
+    /**
+     * Gets the MetricFamilySamples by its name.
+     *
+     * @param name the name of the MFS.
+     * @return the MFS found, or throws IllegalArgumentException if no MFS found.
+     */
+    public Collector.MetricFamilySamples getMetricFamilySamples(String name) {
+        final Collector.MetricFamilySamples mfs = metricFamilySamplesByName.get(name);
+        if (null == mfs) {
+            throw MetricFamilySamplesUtils.noMetricFamilySamplesFound(name, similarNames(name));
+        }
+        return mfs;
+    }
+
+    /**
+     * Suggests names closest to the given name, for reporting a missing MFS.
+     *
+     * @param name the name of the missing MFS.
+     * @return the closest names.
+     */
+    String[] similarNames(String name) {
+        if (size() < NAME_INDEX_THRESHOLD) {
+            return StringUtils.similar(name, getNames().toArray(new String[0]), MetricFamilySamplesUtils.MAX_SIMILAR_NAMES);
+        }
+        // Index once, for fast subsequent misses on large snapshots
+        if (null == nameIndex) {
+            nameIndex = new BkTree(getNames());
+        }
+        return nameIndex.similar(name, MetricFamilySamplesUtils.MAX_SIMILAR_NAMES);
+    }
+
+    /**
+     * Gets all MetricFamilySamples of this snapshot, in collected order.
+     *
+     * @return an unmodifiable list of MFS.
+     */
+    public List<Collector.MetricFamilySamples> getMetricFamilySamples() {
+        return Collections.unmodifiableList(new ArrayList<>(metricFamilySamplesByName.values()));
+    }
+
+    /**
+     * Gets the names of all MetricFamilySamples of this snapshot, in collected order.
+     *
+     * @return an unmodifiable set of MFS names.
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(metricFamilySamplesByName.keySet());
+    }
+
+    /**
+     * Number of MFS in this snapshot.
+     *
+     * @return the number of MFS.
+     */
+    public int size() {
+        return metricFamilySamplesByName.size();
+    }
+
+    /**
+     * Creates a new assertion for the MFS of given name.
+     *
+     * @param name the MFS name.
+     * @return new instance, or throws IllegalArgumentException if no MFS found.
+     */
+    public MetricFamilySamplesAssert assertThat(String name) {
+        return MetricFamilySamplesAssert.assertThat(getMetricFamilySamples(name));
+    }
+}
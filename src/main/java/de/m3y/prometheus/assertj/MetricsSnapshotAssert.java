@@ -0,0 +1,266 @@
+package de.m3y.prometheus.assertj;
+
+import java.time.Duration;
+import java.util.Map;
+
+import io.prometheus.client.CollectorRegistry;
+import org.assertj.core.api.AbstractAssert;
+
+/**
+ * AssertJ support for registry wide assertions over all MFS of a {@link MetricsSnapshot}.
+ * <p>
+ * Recommended usage:
+ * <pre>{@code
+ * MetricsSnapshotAssert.assertThat(CollectorRegistry.defaultRegistry)
+ *     .hasTotalSeriesCountAtMost(10_000)
+ *     .hasSeriesCountAtMostPerFamily(1_000)
+ *     .hasLabelCardinalityAtMostPerFamily(200)
+ *     .hasNoUnboundedLabels()
+ *     .hasEstimatedFootprintAtMost(64 * 1024 * 1024)
+ *     .hasExpositionSizeAtMost(2 * 1024 * 1024)
+ *     .serializesWithin(Duration.ofMillis(50));
+ * }</pre>
+ */
+public class MetricsSnapshotAssert extends AbstractAssert<MetricsSnapshotAssert, MetricsSnapshot> {
+    private CardinalityReport cardinalityReport;
+    private ExpositionReport expositionReport;
+    private int maxFamiliesInFailureMessage = AbstractMetricFamilySamplesAssert.DEFAULT_MAX_SAMPLES_IN_FAILURE_MESSAGE;
+
+    /**
+     * Should not be directly instantiated. Use {@link #assertThat(MetricsSnapshot)}.
+     *
+     * @param snapshot the snapshot.
+     */
+    protected MetricsSnapshotAssert(MetricsSnapshot snapshot) {
+        super(snapshot, MetricsSnapshotAssert.class);
+    }
+
+    /**
+     * Creates a new instance of <code>{@link MetricsSnapshotAssert}</code>.
+     *
+     * @param snapshot the actual value.
+     * @return the created assertion object.
+     */
+    public static MetricsSnapshotAssert assertThat(MetricsSnapshot snapshot) {
+        return new MetricsSnapshotAssert(snapshot);
+    }
+
+    /**
+     * Creates a new instance of <code>{@link MetricsSnapshotAssert}</code>, collecting the registry once.
+     *
+     * @param collectorRegistry the collector registry.
+     * @return the created assertion object.
+     */
+    public static MetricsSnapshotAssert assertThat(CollectorRegistry collectorRegistry) {
+        return new MetricsSnapshotAssert(MetricsSnapshot.of(collectorRegistry));
+    }
+
+    /**
+     * Limits the number of MFS rendered in failure messages.
+     *
+     * @param maxFamiliesInFailureMessage the max number of rendered MFS.
+     * @return {@code this} assertion object.
+     */
+    public MetricsSnapshotAssert withMaxFamiliesInFailureMessage(int maxFamiliesInFailureMessage) {
+        if (maxFamiliesInFailureMessage < 0) {
+            throw new IllegalArgumentException("Expected non negative max families but got " + maxFamiliesInFailureMessage);
+        }
+        this.maxFamiliesInFailureMessage = maxFamiliesInFailureMessage;
+        return myself;
+    }
+
+    /**
+     * Verifies the series budget of all MFS, rendering the MFS contributing most series on failure.
+     *
+     * @param max the max number of series.
+     * @return {@code this} assertion object.
+     */
+    public MetricsSnapshotAssert hasTotalSeriesCountAtMost(long max) {
+        final CardinalityReport report = cardinalityReport();
+        if (report.getTotalSeriesCount() > max) {
+            failWithMessage("Expected at most %s series, but found %s", max, report.toString(maxFamiliesInFailureMessage));
+        }
+        return myself;
+    }
+
+    /**
+     * Verifies the series budget of each MFS, rendering all exceeding MFS on failure.
+     *
+     * @param max the max number of series per MFS.
+     * @return {@code this} assertion object.
+     */
+    public MetricsSnapshotAssert hasSeriesCountAtMostPerFamily(long max) {
+        final StringBuilder buf = new StringBuilder();
+        int exceeding = 0;
+        for (CardinalityReport.FamilyCardinality family : cardinalityReport().getFamilies()) {
+            if (family.getSeriesCount() > max) {
+                exceeding = appendLine(buf, exceeding, family.toString());
+            }
+        }
+        if (exceeding > 0) {
+            failWithMessage("Expected at most %s series per MFS, but found %s exceeding MFS:%s",
+                    max, exceeding, appendOmitted(buf, exceeding));
+        }
+        return myself;
+    }
+
+    /**
+     * Verifies the label cardinality budget of each label of each MFS, rendering all exceeding labels on failure.
+     *
+     * @param max the max number of distinct values per label.
+     * @return {@code this} assertion object.
+     */
+    public MetricsSnapshotAssert hasLabelCardinalityAtMostPerFamily(long max) {
+        final StringBuilder buf = new StringBuilder();
+        int exceeding = 0;
+        for (CardinalityReport.FamilyCardinality family : cardinalityReport().getFamilies()) {
+            for (Map.Entry<String, Long> entry : family.getLabelCardinalities().entrySet()) {
+                if (entry.getValue() > max) {
+                    exceeding = appendLine(buf, exceeding,
+                            family.getName() + " label " + entry.getKey() + " with " + entry.getValue() + " values");
+                }
+            }
+        }
+        if (exceeding > 0) {
+            failWithMessage("Expected at most %s distinct values per label, but found %s exceeding labels:%s",
+                    max, exceeding, appendOmitted(buf, exceeding));
+        }
+        return myself;
+    }
+
+    /**
+     * Verifies the memory budget of all MFS, rendering the MFS retaining most on failure.
+     *
+     * @param maxBytes the max number of estimated bytes.
+     * @return {@code this} assertion object.
+     * @see FootprintReport
+     */
+    public MetricsSnapshotAssert hasEstimatedFootprintAtMost(long maxBytes) {
+        isNotNull();
+        final FootprintReport report = FootprintReport.of(actual);
+        if (report.getTotalEstimatedBytes() > maxBytes) {
+            failWithMessage("Expected an estimated footprint of at most %s bytes, but found %s",
+                    maxBytes, report.toString(maxFamiliesInFailureMessage));
+        }
+        return myself;
+    }
+
+    /**
+     * Verifies the uncompressed size of the text format (0.0.4) exposition of all MFS,
+     * rendering the MFS dominating the bytes on failure.
+     *
+     * @param maxBytes the max number of bytes.
+     * @return {@code this} assertion object.
+     * @see ExpositionReport
+     */
+    public MetricsSnapshotAssert hasExpositionSizeAtMost(long maxBytes) {
+        final ExpositionReport report = expositionReport();
+        if (report.getTotalBytes() > maxBytes) {
+            failWithMessage("Expected an exposition size of at most %s bytes, but found %s",
+                    maxBytes, report.toString(maxFamiliesInFailureMessage));
+        }
+        return myself;
+    }
+
+    /**
+     * Verifies the gzip compressed size of the text format (0.0.4) exposition of all MFS.
+     *
+     * @param maxBytes the max number of compressed bytes.
+     * @return {@code this} assertion object.
+     * @see ExpositionReport
+     */
+    public MetricsSnapshotAssert hasGzipExpositionSizeAtMost(long maxBytes) {
+        final ExpositionReport report = expositionReport();
+        if (report.getGzipBytes() > maxBytes) {
+            failWithMessage("Expected a gzip exposition size of at most %s bytes, but found %s",
+                    maxBytes, report.toString(maxFamiliesInFailureMessage));
+        }
+        return myself;
+    }
+
+    /**
+     * Verifies the time for serializing the text format (0.0.4) exposition of all MFS.
+     *
+     * @param max the max serialization time.
+     * @return {@code this} assertion object.
+     * @see ExpositionReport#getSerializationTime()
+     */
+    public MetricsSnapshotAssert serializesWithin(Duration max) {
+        final ExpositionReport report = expositionReport();
+        if (report.getSerializationTime().compareTo(max) > 0) {
+            failWithMessage("Expected serializing within %s, but found %s",
+                    max, report.toString(maxFamiliesInFailureMessage));
+        }
+        return myself;
+    }
+
+    /**
+     * Verifies that no label of any MFS looks unbounded, using the default {@link UnboundedLabelDetector} heuristics.
+     *
+     * @return {@code this} assertion object.
+     * @see #hasNoUnboundedLabels(UnboundedLabelDetector)
+     */
+    public MetricsSnapshotAssert hasNoUnboundedLabels() {
+        return hasNoUnboundedLabels(new UnboundedLabelDetector());
+    }
+
+    /**
+     * Verifies that no label of any MFS looks unbounded, such as UUIDs, IP addresses, IDs or timestamps.
+     *
+     * @param detector the configured detector.
+     * @return {@code this} assertion object.
+     */
+    public MetricsSnapshotAssert hasNoUnboundedLabels(UnboundedLabelDetector detector) {
+        isNotNull();
+        final StringBuilder buf = new StringBuilder();
+        int count = 0;
+        for (UnboundedLabelDetector.Finding finding : detector.detect(actual.getMetricFamilySamples())) {
+            count = appendLine(buf, count, finding.toString());
+        }
+        if (count > 0) {
+            failWithMessage("Expected no unbounded labels, but found %s:%s", count, appendOmitted(buf, count));
+        }
+        return myself;
+    }
+
+    /**
+     * Gets the lazily counted cardinality report, created once for all cardinality assertions.
+     *
+     * @return the report.
+     */
+    CardinalityReport cardinalityReport() {
+        isNotNull();
+        if (null == cardinalityReport) {
+            cardinalityReport = CardinalityReport.of(actual);
+        }
+        return cardinalityReport;
+    }
+
+    /**
+     * Gets the lazily measured exposition report, created once for all exposition assertions.
+     *
+     * @return the report.
+     */
+    ExpositionReport expositionReport() {
+        isNotNull();
+        if (null == expositionReport) {
+            expositionReport = ExpositionReport.of(actual);
+        }
+        return expositionReport;
+    }
+
+    private int appendLine(StringBuilder buf, int count, String rendered) {
+        if (count < maxFamiliesInFailureMessage) {
+            buf.append("\n  ").append(rendered);
+        }
+        return count + 1;
+    }
+
+    private String appendOmitted(StringBuilder buf, int count) {
+        if (count > maxFamiliesInFailureMessage) {
+            buf.append("\n(showing first ").append(maxFamiliesInFailureMessage).append(" of ").append(count)
+                    .append(", omitted ").append(count - maxFamiliesInFailureMessage).append(')');
+        }
+        return buf.toString();
+    }
+}
@@ -0,0 +1,625 @@
+package de.m3y.prometheus.assertj;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+
+/**
+ * Parser for the delimited protobuf exposition format
+ * (<code>application/vnd.google.protobuf; proto=io.prometheus.client.MetricFamily; encoding=delimited</code>).
+ * <p>
+ * Decodes the length-delimited <code>MetricFamily</code> messages one by one, without requiring a protobuf library.
+ * Messages of MFS not of interest are skipped without buffering if the name comes first, as written by protobuf
+ * serializers. Otherwise only their name and type get decoded, so their samples never get materialized.
+ * <p>
+ * Recommended usage:
+ * <pre>{@code
+ * List<Collector.MetricFamilySamples> mfsList = ProtobufFormatParser.parse(Paths.get("metrics.pb"));
+ * MetricFamilySamplesAssert.assertThat(MetricFamilySamplesUtils.getMetricFamilySamples(mfsList, "my_metric"))
+ *     .hasTypeOfHistogram()
+ *     .hasSampleBucketValue(...);
+ * }</pre>
+ * <p>
+ * Samples are expanded like the ones collected from a {@link io.prometheus.client.CollectorRegistry}:
+ * <ul>
+ * <li>Counter MFS names have no <code>_total</code> suffix, and their samples are named <code>..._total</code></li>
+ * <li>Histograms expand into <code>_bucket</code> samples with label <code>le</code>, including the
+ * <code>+Inf</code> bucket, and <code>_count</code> and <code>_sum</code> samples</li>
+ * <li>Summaries expand into samples with label <code>quantile</code>, and <code>_count</code> and <code>_sum</code>
+ * samples</li>
+ * </ul>
+ */
+public class ProtobufFormatParser {
+    // Field numbers, see metrics.proto of io.prometheus.client
+    private static final int FAMILY_NAME = 1;
+    private static final int FAMILY_HELP = 2;
+    private static final int FAMILY_TYPE = 3;
+    private static final int FAMILY_METRIC = 4;
+    private static final int METRIC_LABEL = 1;
+    private static final int METRIC_GAUGE = 2;
+    private static final int METRIC_COUNTER = 3;
+    private static final int METRIC_SUMMARY = 4;
+    private static final int METRIC_UNTYPED = 5;
+    private static final int METRIC_TIMESTAMP_MS = 6;
+    private static final int METRIC_HISTOGRAM = 7;
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_FIXED32 = 5;
+
+    /**
+     * Max size of a single <code>MetricFamily</code> message, guarding against allocating for corrupt length prefixes.
+     */
+    static final int MAX_MESSAGE_SIZE = 64 * 1024 * 1024;
+    /**
+     * Size of the message prefix read for deciding about skipping the message.
+     */
+    static final int HEADER_PREFIX_SIZE = 4096;
+
+    private final Set<String> names;
+    private final MetricFamilySamplesVisitor visitor;
+    private long messageNumber;
+
+    // Current message
+    private byte[] buffer = new byte[HEADER_PREFIX_SIZE];
+    private int pos;
+    private int end;
+
+    // Current MFS
+    private String name;
+    private Collector.Type type;
+    private List<String> lastLabelNames = Collections.emptyList();
+    private List<String> lastExtendedLabelNames = Collections.emptyList();
+
+    // Current metric
+    private final List<String> labelNames = new ArrayList<>();
+    private final List<String> labelValues = new ArrayList<>();
+    private Long timestampMs;
+    private double value;
+    private double sampleCount;
+    private double sampleSum;
+    private int pointCount;
+    private double[] pointKeys = new double[16]; // Quantiles or upper bounds
+    private double[] pointValues = new double[16];
+
+    private ProtobufFormatParser(Set<String> names, MetricFamilySamplesVisitor visitor) {
+        this.names = names;
+        this.visitor = visitor;
+    }
+
+    /**
+     * Parses all MFS of the given file.
+     *
+     * @param path the file in delimited protobuf format.
+     * @return the list of MFS.
+     * @throws IOException on error reading or parsing.
+     */
+    public static List<Collector.MetricFamilySamples> parse(Path path) throws IOException {
+        return parse(path, null);
+    }
+
+    /**
+     * Parses the MFS of given names, skipping all other MFS.
+     *
+     * @param path  the file in delimited protobuf format.
+     * @param names the MFS names, e.g. <code>my_counter</code> for samples <code>my_counter_total</code>.
+     *              Null for parsing all MFS.
+     * @return the list of MFS.
+     * @throws IOException on error reading or parsing.
+     */
+    public static List<Collector.MetricFamilySamples> parse(Path path, Set<String> names) throws IOException {
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(path))) {
+            return parse(inputStream, names);
+        }
+    }
+
+    /**
+     * Parses the MFS of given names, skipping all other MFS.
+     *
+     * @param inputStream the input in delimited protobuf format, not closed.
+     * @param names       the MFS names, or null for parsing all MFS.
+     * @return the list of MFS.
+     * @throws IOException on error reading or parsing.
+     */
+    public static List<Collector.MetricFamilySamples> parse(InputStream inputStream, Set<String> names)
+            throws IOException {
+        final CollectingVisitor collectingVisitor = new CollectingVisitor();
+        parse(inputStream, names, collectingVisitor);
+        return collectingVisitor.getMetricFamilySamples();
+    }
+
+    /**
+     * Parses the MFS of given names, pushing each MFS and sample to the visitor without keeping parsed samples.
+     * <p>
+     * Memory is bounded by the largest <code>MetricFamily</code> message.
+     *
+     * @param inputStream the input in delimited protobuf format, not closed.
+     * @param names       the MFS names, or null for parsing all MFS.
+     * @param visitor     the visitor.
+     * @throws IOException on error reading or parsing.
+     */
+    public static void parse(InputStream inputStream, Set<String> names, MetricFamilySamplesVisitor visitor)
+            throws IOException {
+        final ProtobufFormatParser parser = new ProtobufFormatParser(names, visitor);
+        while (parser.readMessage(inputStream)) {
+            parser.parseMetricFamily();
+        }
+    }
+
+    /**
+     * Reads the next length-delimited message of interest into the buffer, skipping other messages.
+     * <p>
+     * A message is skipped without buffering it, if its name is the first field (as written by protobuf
+     * serializers) and not of interest.
+     *
+     * @return false, if at end of input.
+     */
+    private boolean readMessage(InputStream inputStream) throws IOException {
+        while (true) {
+            long length = 0;
+            for (int shift = 0; ; shift += 7) {
+                final int b = inputStream.read();
+                if (b < 0) {
+                    if (shift == 0) {
+                        return false;
+                    }
+                    throw parseError("Unexpected end of input");
+                }
+                if (shift > 28) {
+                    throw parseError("Invalid message length");
+                }
+                length |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+            }
+            messageNumber++;
+            if (length > MAX_MESSAGE_SIZE) {
+                throw parseError("Message length " + length + " exceeds max message size " + MAX_MESSAGE_SIZE
+                        + ", input is corrupt or not in delimited protobuf format");
+            }
+            final int size = (int) length;
+            final int prefixSize = Math.min(size, HEADER_PREFIX_SIZE);
+            readFully(inputStream, 0, prefixSize);
+            if (prefixSize < size && isSkipped(peekName(prefixSize))) {
+                skipFully(inputStream, size - prefixSize);
+                continue;
+            }
+            if (buffer.length < size) {
+                buffer = Arrays.copyOf(buffer, Math.min(MAX_MESSAGE_SIZE, Math.max(size, buffer.length * 2)));
+            }
+            readFully(inputStream, prefixSize, size - prefixSize);
+            pos = 0;
+            end = size;
+            return true;
+        }
+    }
+
+    private void readFully(InputStream inputStream, int offset, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            final int count = inputStream.read(buffer, offset + read, length - read);
+            if (count < 0) {
+                throw parseError("Unexpected end of input");
+            }
+            read += count;
+        }
+    }
+
+    private void skipFully(InputStream inputStream, long length) throws IOException {
+        long skipped = 0;
+        while (skipped < length) {
+            final long count = inputStream.skip(length - skipped);
+            if (count <= 0) {
+                // Skipping is allowed to stop early, so check for end of input by reading
+                if (inputStream.read() < 0) {
+                    throw parseError("Unexpected end of input");
+                }
+                skipped++;
+            } else {
+                skipped += count;
+            }
+        }
+    }
+
+    /**
+     * Decodes the name, if the first field within the message prefix.
+     *
+     * @return the name, or null if not the first field or not within the prefix.
+     */
+    private String peekName(int prefixEnd) {
+        if (prefixEnd < 1 || buffer[0] != (FAMILY_NAME << 3 | WIRE_LENGTH_DELIMITED)) {
+            return null;
+        }
+        int length = 0;
+        int p = 1;
+        for (int shift = 0; p < prefixEnd && shift <= 28; shift += 7) {
+            final byte b = buffer[p++];
+            length |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return length >= 0 && length <= prefixEnd - p
+                        ? new String(buffer, p, length, StandardCharsets.UTF_8) : null;
+            }
+        }
+        return null;
+    }
+
+    private boolean isSkipped(String name) {
+        // Conservative, as the type deciding about the _total suffix is not known yet
+        return null != names && null != name && !names.contains(name)
+                && !(name.endsWith("_total") && names.contains(name.substring(0, name.length() - "_total".length())));
+    }
+
+    private void parseMetricFamilyHeader() throws IOException {
+        name = null;
+        type = Collector.Type.COUNTER; // Protobuf default
+        // Name and type first, for skipping uninteresting MFS before decoding help or metrics
+        while (pos < end) {
+            final int tag = readTag();
+            final int field = tag >>> 3;
+            if (field == FAMILY_NAME && (tag & 7) == WIRE_LENGTH_DELIMITED) {
+                name = readString();
+            } else if (field == FAMILY_TYPE && (tag & 7) == WIRE_VARINT) {
+                type = toType(readVarint());
+            } else {
+                skipField(tag);
+            }
+        }
+        if (null == name) {
+            throw parseError("Missing MetricFamily name");
+        }
+        pos = 0;
+    }
+
+    private void parseMetricFamily() throws IOException {
+        parseMetricFamilyHeader();
+        final String mfsName = type == Collector.Type.COUNTER && name.endsWith("_total")
+                ? name.substring(0, name.length() - "_total".length()) : name;
+        if (null != names && !names.contains(mfsName) && !names.contains(name)) {
+            return; // Skipped
+        }
+        name = mfsName;
+        String help = "";
+        boolean visited = false;
+        while (pos < end) {
+            final int tag = readTag();
+            final int field = tag >>> 3;
+            if (field == FAMILY_HELP && (tag & 7) == WIRE_LENGTH_DELIMITED) {
+                help = readString();
+            } else if (field == FAMILY_METRIC && (tag & 7) == WIRE_LENGTH_DELIMITED) {
+                if (!visited) {
+                    visitor.visitMetricFamily(name, type, help);
+                    visited = true;
+                }
+                final int length = readLength();
+                parseMetric(pos + length);
+            } else {
+                skipField(tag);
+            }
+        }
+        if (!visited) {
+            visitor.visitMetricFamily(name, type, help);
+        }
+    }
+
+    private void parseMetric(int metricEnd) throws IOException {
+        labelNames.clear();
+        labelValues.clear();
+        timestampMs = null;
+        value = Double.NaN;
+        sampleCount = 0;
+        sampleSum = 0;
+        pointCount = 0;
+        while (pos < metricEnd) {
+            final int tag = readTag();
+            final int field = tag >>> 3;
+            if ((tag & 7) == WIRE_LENGTH_DELIMITED && field != METRIC_TIMESTAMP_MS) {
+                final int length = readLength();
+                final int fieldEnd = pos + length;
+                switch (field) {
+                    case METRIC_LABEL:
+                        parseLabelPair(fieldEnd);
+                        break;
+                    case METRIC_GAUGE:
+                    case METRIC_COUNTER:
+                    case METRIC_UNTYPED:
+                        parseValue(fieldEnd);
+                        break;
+                    case METRIC_SUMMARY:
+                        parseSummary(fieldEnd);
+                        break;
+                    case METRIC_HISTOGRAM:
+                        parseHistogram(fieldEnd);
+                        break;
+                    default:
+                        pos = fieldEnd;
+                }
+            } else if (field == METRIC_TIMESTAMP_MS && (tag & 7) == WIRE_VARINT) {
+                timestampMs = readVarint();
+            } else {
+                skipField(tag);
+            }
+        }
+        emitSamples();
+    }
+
+    private void parseLabelPair(int fieldEnd) throws IOException {
+        String labelName = "";
+        String labelValue = "";
+        while (pos < fieldEnd) {
+            final int tag = readTag();
+            if ((tag & 7) == WIRE_LENGTH_DELIMITED && (tag >>> 3) == 1) {
+                // Avoid decoding label names repeated for every metric
+                final int index = labelNames.size();
+                labelName = index < lastLabelNames.size() ? readString(lastLabelNames.get(index)) : readString();
+            } else if ((tag & 7) == WIRE_LENGTH_DELIMITED && (tag >>> 3) == 2) {
+                labelValue = readString();
+            } else {
+                skipField(tag);
+            }
+        }
+        labelNames.add(labelName);
+        labelValues.add(labelValue);
+    }
+
+    private void parseValue(int fieldEnd) throws IOException {
+        while (pos < fieldEnd) {
+            final int tag = readTag();
+            if ((tag & 7) == WIRE_FIXED64 && (tag >>> 3) == 1) {
+                value = readDouble();
+            } else {
+                skipField(tag);
+            }
+        }
+    }
+
+    private void parseSummary(int fieldEnd) throws IOException {
+        while (pos < fieldEnd) {
+            final int tag = readTag();
+            final int field = tag >>> 3;
+            if (field == 1 && (tag & 7) == WIRE_VARINT) {
+                sampleCount = toUnsignedDouble(readVarint());
+            } else if (field == 2 && (tag & 7) == WIRE_FIXED64) {
+                sampleSum = readDouble();
+            } else if (field == 3 && (tag & 7) == WIRE_LENGTH_DELIMITED) {
+                final int quantileEnd = pos + readLength();
+                double quantile = 0;
+                double quantileValue = 0;
+                while (pos < quantileEnd) {
+                    final int quantileTag = readTag();
+                    if ((quantileTag & 7) == WIRE_FIXED64 && (quantileTag >>> 3) == 1) {
+                        quantile = readDouble();
+                    } else if ((quantileTag & 7) == WIRE_FIXED64 && (quantileTag >>> 3) == 2) {
+                        quantileValue = readDouble();
+                    } else {
+                        skipField(quantileTag);
+                    }
+                }
+                addPoint(quantile, quantileValue);
+            } else {
+                skipField(tag);
+            }
+        }
+    }
+
+    private void parseHistogram(int fieldEnd) throws IOException {
+        while (pos < fieldEnd) {
+            final int tag = readTag();
+            final int field = tag >>> 3;
+            if (field == 1 && (tag & 7) == WIRE_VARINT) {
+                sampleCount = toUnsignedDouble(readVarint());
+            } else if (field == 4 && (tag & 7) == WIRE_FIXED64) {
+                sampleCount = readDouble(); // sample_count_float
+            } else if (field == 2 && (tag & 7) == WIRE_FIXED64) {
+                sampleSum = readDouble();
+            } else if (field == 3 && (tag & 7) == WIRE_LENGTH_DELIMITED) {
+                final int bucketEnd = pos + readLength();
+                double cumulativeCount = 0;
+                double upperBound = 0;
+                while (pos < bucketEnd) {
+                    final int bucketTag = readTag();
+                    final int bucketField = bucketTag >>> 3;
+                    if (bucketField == 1 && (bucketTag & 7) == WIRE_VARINT) {
+                        cumulativeCount = toUnsignedDouble(readVarint());
+                    } else if (bucketField == 4 && (bucketTag & 7) == WIRE_FIXED64) {
+                        cumulativeCount = readDouble(); // cumulative_count_float
+                    } else if (bucketField == 2 && (bucketTag & 7) == WIRE_FIXED64) {
+                        upperBound = readDouble();
+                    } else {
+                        skipField(bucketTag);
+                    }
+                }
+                addPoint(upperBound, cumulativeCount);
+            } else {
+                skipField(tag);
+            }
+        }
+    }
+
+    private void addPoint(double key, double pointValue) {
+        if (pointCount == pointKeys.length) {
+            pointKeys = Arrays.copyOf(pointKeys, pointCount * 2);
+            pointValues = Arrays.copyOf(pointValues, pointCount * 2);
+        }
+        pointKeys[pointCount] = key;
+        pointValues[pointCount] = pointValue;
+        pointCount++;
+    }
+
+    private void emitSamples() {
+        // Share same label names across samples of the MFS
+        if (!lastLabelNames.equals(labelNames)) {
+            lastLabelNames = Collections.unmodifiableList(new ArrayList<>(labelNames));
+            lastExtendedLabelNames = Collections.emptyList();
+        }
+        final List<String> sampleLabelValues = labelValues.isEmpty()
+                ? Collections.<String>emptyList() : new ArrayList<>(labelValues);
+        switch (type) {
+            case COUNTER:
+                emit(name + "_total", lastLabelNames, sampleLabelValues, value);
+                break;
+            case SUMMARY:
+                emitPoints(name, "quantile", sampleLabelValues);
+                emit(name + "_count", lastLabelNames, sampleLabelValues, sampleCount);
+                emit(name + "_sum", lastLabelNames, sampleLabelValues, sampleSum);
+                break;
+            case HISTOGRAM:
+            case GAUGE_HISTOGRAM:
+                // The +Inf bucket is implicit in protobuf, but explicit for the text format and collected MFS
+                if (pointCount == 0 || pointKeys[pointCount - 1] != Double.POSITIVE_INFINITY) {
+                    addPoint(Double.POSITIVE_INFINITY, sampleCount);
+                }
+                emitPoints(name + "_bucket", "le", sampleLabelValues);
+                final boolean isGauge = type == Collector.Type.GAUGE_HISTOGRAM;
+                emit(name + (isGauge ? "_gcount" : "_count"), lastLabelNames, sampleLabelValues, sampleCount);
+                emit(name + (isGauge ? "_gsum" : "_sum"), lastLabelNames, sampleLabelValues, sampleSum);
+                break;
+            default:
+                emit(name, lastLabelNames, sampleLabelValues, value);
+        }
+    }
+
+    private void emitPoints(String sampleName, String pointLabelName, List<String> sampleLabelValues) {
+        // Also shared across MFS, so check the point label name as well, e.g. quantile of a previous summary
+        if (lastExtendedLabelNames.size() != lastLabelNames.size() + 1
+                || !pointLabelName.equals(lastExtendedLabelNames.get(lastLabelNames.size()))) {
+            final List<String> extended = new ArrayList<>(lastLabelNames);
+            extended.add(pointLabelName);
+            lastExtendedLabelNames = Collections.unmodifiableList(extended);
+        }
+        for (int i = 0; i < pointCount; i++) {
+            final List<String> pointLabelValues = new ArrayList<>(sampleLabelValues.size() + 1);
+            pointLabelValues.addAll(sampleLabelValues);
+            pointLabelValues.add(Collector.doubleToGoString(pointKeys[i]));
+            emit(sampleName, lastExtendedLabelNames, pointLabelValues, pointValues[i]);
+        }
+    }
+
+    private void emit(String sampleName, List<String> sampleLabelNames, List<String> sampleLabelValues,
+                      double sampleValue) {
+        visitor.visitSample(new Sample(sampleName, sampleLabelNames, sampleLabelValues, sampleValue, timestampMs));
+    }
+
+    private static Collector.Type toType(long type) {
+        switch ((int) type) {
+            case 0:
+                return Collector.Type.COUNTER;
+            case 1:
+                return Collector.Type.GAUGE;
+            case 2:
+                return Collector.Type.SUMMARY;
+            case 4:
+                return Collector.Type.HISTOGRAM;
+            case 5:
+                return Collector.Type.GAUGE_HISTOGRAM;
+            default:
+                return Collector.Type.UNKNOWN;
+        }
+    }
+
+    private static double toUnsignedDouble(long value) {
+        return value >= 0 ? value : (double) (value >>> 1) * 2.0 + (value & 1);
+    }
+
+    private int readTag() throws IOException {
+        return (int) readVarint();
+    }
+
+    private long readVarint() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos >= end) {
+                throw parseError("Truncated varint");
+            }
+            final byte b = buffer[pos++];
+            result |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw parseError("Malformed varint");
+    }
+
+    private int readLength() throws IOException {
+        final long length = readVarint();
+        if (length < 0 || length > end - pos) {
+            throw parseError("Invalid field length " + length);
+        }
+        return (int) length;
+    }
+
+    private double readDouble() throws IOException {
+        if (end - pos < 8) {
+            throw parseError("Truncated double");
+        }
+        long bits = 0;
+        for (int i = 7; i >= 0; i--) {
+            bits = (bits << 8) | (buffer[pos + i] & 0xffL);
+        }
+        pos += 8;
+        return Double.longBitsToDouble(bits);
+    }
+
+    private String readString() throws IOException {
+        final int length = readLength();
+        final String value = new String(buffer, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+        return value;
+    }
+
+    /**
+     * Reads a string, returning the candidate instance if equal (assuming ASCII) for sharing.
+     */
+    private String readString(String candidate) throws IOException {
+        final int length = readLength();
+        boolean equal = candidate.length() == length;
+        for (int i = 0; equal && i < length; i++) {
+            equal = buffer[pos + i] == candidate.charAt(i);
+        }
+        final String value = equal ? candidate : new String(buffer, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+        return value;
+    }
+
+    private void skipField(int tag) throws IOException {
+        switch (tag & 7) {
+            case WIRE_VARINT:
+                readVarint();
+                break;
+            case WIRE_FIXED64:
+                skipBytes(8);
+                break;
+            case WIRE_LENGTH_DELIMITED:
+                skipBytes(readLength());
+                break;
+            case WIRE_FIXED32:
+                skipBytes(4);
+                break;
+            default:
+                throw parseError("Unsupported wire type " + (tag & 7));
+        }
+    }
+
+    private void skipBytes(int count) throws IOException {
+        if (end - pos < count) {
+            throw parseError("Truncated field");
+        }
+        pos += count;
+    }
+
+    private IOException parseError(String message) {
+        return new IOException(message + " in message " + messageNumber);
+    }
+}
@@ -0,0 +1,146 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+
+/**
+ * Hash index over the samples of a MetricFamilySamples, keyed by sample name plus label values.
+ * <p>
+ * Built once in a single pass, so that every lookup after construction is O(1)
+ * instead of a linear scan over all samples.
+ * <p>
+ * The index is an open addressing table of sample positions with precomputed key hashes,
+ * preserving the "first sample wins" semantics of a linear scan.
+ */
+final class SampleIndex {
+    private final List<Sample> samples;
+    private final int[] hashes;
+    private final int[] slots; // Sample position + 1, or 0 if empty
+    private final int mask;
+    private final Map<String, List<String>> labelNamesBySampleName = new HashMap<>();
+
+    SampleIndex(List<Sample> samples) {
+        this.samples = samples;
+        final int size = samples.size();
+        hashes = new int[size];
+        int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+        slots = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < size; i++) {
+            Sample sample = samples.get(i);
+            labelNamesBySampleName.putIfAbsent(sample.name, sample.labelNames);
+            int hash = hash(sample.name, sample.labelValues);
+            hashes[i] = hash;
+            int slot = spread(hash) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Gets the label names of the first sample with given name.
+     *
+     * @param sampleName the sample name.
+     * @return the label names, or null if no sample exists with given name.
+     */
+    List<String> getLabelNames(String sampleName) {
+        return labelNamesBySampleName.get(sampleName);
+    }
+
+    /**
+     * Finds the first sample matching name, label names and label values.
+     *
+     * @param sampleName  the sample name.
+     * @param labelNames  the label names.
+     * @param labelValues the label values, or null for any label values.
+     * @return the sample, or null if not found.
+     */
+    Sample find(String sampleName, List<String> labelNames, List<String> labelValues) {
+        return find(sampleName, labelNames, labelValues, null);
+    }
+
+    /**
+     * Finds the first sample matching name, label names and label values plus an additional last label value,
+     * without concatenating the label values.
+     *
+     * @param sampleName      the sample name.
+     * @param labelNames      the label names.
+     * @param labelValues     the label values, or null for any label values.
+     * @param extraLabelValue the additional last label value such as <code>le</code>, or null for none.
+     * @return the sample, or null if not found.
+     */
+    Sample find(String sampleName, List<String> labelNames, List<String> labelValues, String extraLabelValue) {
+        if (null == labelValues) {
+            return findFirst(sampleName, labelNames, extraLabelValue);
+        }
+        int h = hash(sampleName, labelValues);
+        if (null != extraLabelValue) {
+            h = 31 * h + extraLabelValue.hashCode();
+        }
+        final int hash = h;
+        int slot = spread(hash) & mask;
+        int pos;
+        while ((pos = slots[slot]) != 0) {
+            if (hashes[pos - 1] == hash) {
+                Sample sample = samples.get(pos - 1);
+                if (sampleName.equals(sample.name)
+                        && sample.labelNames.equals(labelNames)
+                        && labelValuesEqual(sample.labelValues, labelValues, extraLabelValue)) {
+                    return sample;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    // Linear scan, as not indexed by label names only
+    private Sample findFirst(String sampleName, List<String> labelNames, String extraLabelValue) {
+        for (Sample sample : samples) {
+            if (sampleName.equals(sample.name) && sample.labelNames.equals(labelNames)
+                    && (null == extraLabelValue || (!sample.labelValues.isEmpty()
+                    && extraLabelValue.equals(sample.labelValues.get(sample.labelValues.size() - 1))))) {
+                return sample;
+            }
+        }
+        return null;
+    }
+
+    private static boolean labelValuesEqual(List<String> actual, List<String> labelValues, String extraLabelValue) {
+        if (null == extraLabelValue) {
+            return actual.equals(labelValues);
+        }
+        final int size = labelValues.size();
+        if (actual.size() != size + 1 || !extraLabelValue.equals(actual.get(size))) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!Objects.equals(actual.get(i), labelValues.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int size() {
+        return samples.size();
+    }
+
+    private static int hash(String sampleName, List<String> labelValues) {
+        int h = sampleName.hashCode();
+        for (int i = 0; i < labelValues.size(); i++) {
+            h = 31 * h + Objects.hashCode(labelValues.get(i));
+        }
+        return h;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
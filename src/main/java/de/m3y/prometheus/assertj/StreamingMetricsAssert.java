@@ -0,0 +1,367 @@
+package de.m3y.prometheus.assertj;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+import org.assertj.core.api.DoubleAssert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * Assertions evaluated incrementally while MFS samples stream by, e.g. for exposition inputs too large
+ * for holding all samples in memory.
+ * <p>
+ * Memory is bounded by the number of assertions, not by the input size. Recommended usage:
+ * <pre>{@code
+ * StreamingMetricsAssert streamingAssert = new StreamingMetricsAssert();
+ * streamingAssert.expect("my_counter")
+ *     .hasType(Collector.Type.COUNTER)
+ *     .hasSampleLabelNames("method")
+ *     .hasSampleValue(labelValues("GET"), 10);
+ * streamingAssert.expect("my_gauge")
+ *     .hasSampleValue("my_gauge", labelValues(), v -> v.isPositive());
+ * streamingAssert.verify(inputStream); // Throws an AssertionError listing all failures
+ * }</pre>
+ * <p>
+ * As a {@link MetricFamilySamplesVisitor}, it can also be fed from any other source before invoking {@link #verify()}.
+ * Not thread safe.
+ */
+public class StreamingMetricsAssert implements MetricFamilySamplesVisitor {
+    private final Map<String, Expectation> expectations = new LinkedHashMap<>();
+    private final List<String> failures = new ArrayList<>();
+    private Expectation current;
+
+    /**
+     * Single sample value assertion.
+     */
+    private static final class ValueCheck {
+        final String sampleName; // Null for the main sample name derived from MFS type
+        final List<String> labelValues;
+        final UnaryOperator<? super DoubleAssert> valueAssert;
+        ValueCheck next; // Further check of same sample, if any
+        boolean found;
+
+        ValueCheck(String sampleName, List<String> labelValues, UnaryOperator<? super DoubleAssert> valueAssert) {
+            this.sampleName = sampleName;
+            this.labelValues = labelValues;
+            this.valueAssert = valueAssert;
+        }
+    }
+
+    /**
+     * Assertions of a single MFS, fluently configured via {@link StreamingMetricsAssert#expect(String)}.
+     */
+    public final class Expectation {
+        private final String name;
+        private Collector.Type expectedType;
+        private long expectedSampleSize = -1;
+        private String[] expectedLabelNames;
+        private final List<ValueCheck> valueChecks = new ArrayList<>();
+
+        // Streaming state
+        private Collector.Type type;
+        private long sampleSize;
+        private String mainSampleName;
+        private String labelNamesSampleName;
+        private List<String> labelNames;
+        private Map<String, Map<List<String>, ValueCheck>> valueChecksBySampleName;
+
+        private Expectation(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Verifies the MFS type.
+         *
+         * @param type the expected type.
+         * @return {@code this} expectation.
+         */
+        public Expectation hasType(Collector.Type type) {
+            expectedType = type;
+            return this;
+        }
+
+        /**
+         * Verifies the number of samples, including the <code>_created</code> samples.
+         *
+         * @param size the expected number of samples.
+         * @return {@code this} expectation.
+         */
+        public Expectation hasSampleSize(long size) {
+            expectedSampleSize = size;
+            return this;
+        }
+
+        /**
+         * Verifies the label names of the first sample, ignoring order.
+         * <p>
+         * Uses the <code>_count</code> sample for summary and histogram MFS.
+         *
+         * @param labelNames the expected label names.
+         * @return {@code this} expectation.
+         */
+        public Expectation hasSampleLabelNames(String... labelNames) {
+            expectedLabelNames = labelNames;
+            return this;
+        }
+
+        /**
+         * Verifies the value of the main sample, such as <code>my_counter_total</code> of a counter MFS.
+         *
+         * @param labelValues the label values.
+         * @param value       the expected value.
+         * @return {@code this} expectation.
+         */
+        public Expectation hasSampleValue(List<String> labelValues, double value) {
+            return addValueCheck(null, labelValues, value);
+        }
+
+        /**
+         * Verifies the value of the main sample, such as <code>my_counter_total</code> of a counter MFS.
+         *
+         * @param labelValues the label values.
+         * @param valueAssert the value assertion.
+         * @return {@code this} expectation.
+         */
+        public Expectation hasSampleValue(List<String> labelValues, UnaryOperator<? super DoubleAssert> valueAssert) {
+            return addValueCheck(null, labelValues, valueAssert);
+        }
+
+        /**
+         * Verifies the value of a sample, such as <code>my_histogram_bucket</code>.
+         *
+         * @param sampleName  the sample name.
+         * @param labelValues the label values.
+         * @param value       the expected value.
+         * @return {@code this} expectation.
+         */
+        public Expectation hasSampleValue(String sampleName, List<String> labelValues, double value) {
+            return addValueCheck(Objects.requireNonNull(sampleName), labelValues, value);
+        }
+
+        /**
+         * Verifies the value of a sample, such as <code>my_histogram_bucket</code>.
+         *
+         * @param sampleName  the sample name.
+         * @param labelValues the label values.
+         * @param valueAssert the value assertion.
+         * @return {@code this} expectation.
+         */
+        public Expectation hasSampleValue(String sampleName, List<String> labelValues,
+                                          UnaryOperator<? super DoubleAssert> valueAssert) {
+            return addValueCheck(Objects.requireNonNull(sampleName), labelValues, valueAssert);
+        }
+
+        private Expectation addValueCheck(String sampleName, List<String> labelValues, double value) {
+            return addValueCheck(sampleName, labelValues, da -> da.isEqualTo(value));
+        }
+
+        private Expectation addValueCheck(String sampleName, List<String> labelValues,
+                                          UnaryOperator<? super DoubleAssert> valueAssert) {
+            valueChecks.add(new ValueCheck(sampleName, labelValues, valueAssert));
+            return this;
+        }
+
+        private void reset() {
+            type = null;
+            sampleSize = 0;
+            mainSampleName = null;
+            labelNamesSampleName = null;
+            labelNames = null;
+            valueChecksBySampleName = null;
+            for (ValueCheck valueCheck : valueChecks) {
+                valueCheck.next = null;
+                valueCheck.found = false;
+            }
+        }
+
+        private void visit(Collector.Type visitedType) {
+            if (null != type) {
+                return; // Already visited
+            }
+            type = visitedType;
+            if (null != expectedType && expectedType != type) {
+                failures.add(String.format("Expected MFS %s of type %s but got %s", name, expectedType, type));
+            }
+
+            // Resolve sample names once type is known
+            if (type == Collector.Type.COUNTER) {
+                mainSampleName = name + "_total";
+            } else if (type == Collector.Type.INFO) {
+                mainSampleName = name + "_info";
+            } else {
+                mainSampleName = name;
+            }
+            labelNamesSampleName = type == Collector.Type.SUMMARY || type == Collector.Type.HISTOGRAM
+                    ? name + "_count" : mainSampleName;
+            // Keyed by sample name and label values, for a single lookup per sample
+            valueChecksBySampleName = new HashMap<>();
+            for (ValueCheck valueCheck : valueChecks) {
+                final Map<List<String>, ValueCheck> checks = valueChecksBySampleName.computeIfAbsent(
+                        sampleName(valueCheck), n -> new HashMap<>());
+                final ValueCheck previous = checks.putIfAbsent(valueCheck.labelValues, valueCheck);
+                if (null != previous) {
+                    ValueCheck last = previous;
+                    while (null != last.next) {
+                        last = last.next;
+                    }
+                    last.next = valueCheck;
+                }
+            }
+        }
+
+        private String sampleName(ValueCheck valueCheck) {
+            return null == valueCheck.sampleName ? mainSampleName : valueCheck.sampleName;
+        }
+
+        private void visitSample(Sample sample) {
+            sampleSize++;
+            if (null == labelNames && sample.name.equals(labelNamesSampleName)) {
+                labelNames = sample.labelNames;
+            }
+            final Map<List<String>, ValueCheck> checks = valueChecksBySampleName.get(sample.name);
+            if (null == checks) {
+                return;
+            }
+            for (ValueCheck valueCheck = checks.get(sample.labelValues); null != valueCheck;
+                 valueCheck = valueCheck.next) {
+                if (!valueCheck.found) {
+                    valueCheck.found = true;
+                    try {
+                        valueCheck.valueAssert.apply(new DoubleAssert(sample.value));
+                    } catch (AssertionError ae) {
+                        failures.add(String.format("Unexpected value for %s{%s} : %s", sample.name,
+                                AbstractMetricFamilySamplesAssert.joinLabelNamesAndValues(
+                                sample.labelNames, sample.labelValues), ae.getMessage()));
+                    }
+                }
+            }
+        }
+
+        private void verify() {
+            if (null == type) {
+                failures.add(String.format("Expected MFS %s, but not found", name));
+                return;
+            }
+            if (expectedSampleSize >= 0 && expectedSampleSize != sampleSize) {
+                failures.add(String.format("Expected MFS %s to have %s samples, but got %s",
+                        name, expectedSampleSize, sampleSize));
+            }
+            if (null != expectedLabelNames) {
+                if (null == labelNames) {
+                    failures.add(String.format("Expected MFS %s samples to have labels %s, but found no %s sample",
+                            name, Arrays.toString(expectedLabelNames), labelNamesSampleName));
+                } else if (labelNames.size() != expectedLabelNames.length
+                        || !new HashSet<>(labelNames).equals(new HashSet<>(Arrays.asList(expectedLabelNames)))) {
+                    failures.add(String.format("Expected MFS %s samples to have labels %s, but got %s",
+                            name, Arrays.toString(expectedLabelNames), labelNames));
+                }
+            }
+            for (ValueCheck valueCheck : valueChecks) {
+                if (!valueCheck.found) {
+                    failures.add(String.format("Expected %s sample with label values %s, but not found",
+                            sampleName(valueCheck), valueCheck.labelValues));
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets or creates the expectation for an MFS.
+     *
+     * @param name the MFS name, e.g. <code>my_counter</code> for samples <code>my_counter_total</code>.
+     * @return the expectation, for configuring its assertions.
+     */
+    public Expectation expect(String name) {
+        return expectations.computeIfAbsent(name, Expectation::new);
+    }
+
+    /**
+     * Parses the input in text format 0.0.4 and verifies all expectations.
+     * <p>
+     * Samples of MFS without expectation are skipped cheaply.
+     *
+     * @param inputStream the input stream, not closed.
+     * @throws IOException    on error reading or parsing.
+     * @throws AssertionError listing all failed assertions.
+     */
+    public void verify(InputStream inputStream) throws IOException {
+        reset();
+        TextFormatParser.parse(inputStream, expectations.keySet(), this);
+        verify();
+    }
+
+    /**
+     * Parses the file in text format 0.0.4 and verifies all expectations.
+     *
+     * @param path the file.
+     * @throws IOException    on error reading or parsing.
+     * @throws AssertionError listing all failed assertions.
+     * @see #verify(InputStream)
+     */
+    public void verify(Path path) throws IOException {
+        reset();
+        TextFormatParser.parse(path, expectations.keySet(), this);
+        verify();
+    }
+
+    /**
+     * Verifies all expectations, after all MFS and samples have been visited.
+     *
+     * @throws AssertionError listing all failed assertions.
+     */
+    public void verify() {
+        for (Expectation expectation : expectations.values()) {
+            expectation.verify();
+        }
+        if (!failures.isEmpty()) {
+            final StringBuilder buf = new StringBuilder("Expected streamed MFS to satisfy all assertions, but found ")
+                    .append(failures.size()).append(" failures:");
+            for (String failure : failures) {
+                buf.append("\n  - ").append(failure);
+            }
+            failures.clear();
+            throw new AssertionError(buf.toString());
+        }
+    }
+
+    @Override
+    public void visitMetricFamily(String name, Collector.Type type, String help) {
+        current = expectations.get(name);
+        if (null != current) {
+            current.visit(type);
+        } else if (type == Collector.Type.GAUGE && name.endsWith("_created")) {
+            // The text format exposes _created samples as separate gauge
+            final Expectation base = expectations.get(name.substring(0, name.length() - "_created".length()));
+            if (null != base && (base.type == Collector.Type.COUNTER
+                    || base.type == Collector.Type.SUMMARY || base.type == Collector.Type.HISTOGRAM)) {
+                current = base;
+            }
+        }
+    }
+
+    @Override
+    public void visitSample(Sample sample) {
+        if (null != current) {
+            current.visitSample(sample);
+        }
+    }
+
+    private void reset() {
+        current = null;
+        failures.clear();
+        for (Expectation expectation : expectations.values()) {
+            expectation.reset();
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+import io.prometheus.client.CollectorRegistry;
+
+/**
+ * Runs a workload concurrently across threads, for verifying that metric updates are not lost under contention.
+ * <p>
+ * Every thread runs a known number of iterations, all threads starting at once. While running, snapshots of the
+ * given MFS are collected concurrently, failing on any monotonic sample such as a counter total or histogram count
+ * decreasing between snapshots. The returned delta is then verified exactly with the existing assertions.
+ * <p>
+ * Recommended usage:
+ * <pre>{@code
+ * StressHarness.Result result = new StressHarness(registry)
+ *     .withThreads(8)
+ *     .withIterationsPerThread(100_000)
+ *     .run((thread, iteration) -> {
+ *         requests.inc();
+ *         latency.observe(1);
+ *     }, "requests", "latency");
+ * result.assertThat("requests").hasTypeOfCounter().hasSampleValue(result.getTotalIterations());
+ * result.assertThat("latency").hasTypeOfHistogram()
+ *     .hasSampleCountValue(result.getTotalIterations())
+ *     .hasSampleSumValue(result.getTotalIterations());
+ * }</pre>
+ * Virtual threads require JDK 21+, while this library itself targets Java 8.
+ */
+public class StressHarness {
+    /**
+     * Default number of threads.
+     */
+    public static final int DEFAULT_THREADS = 4;
+    /**
+     * Default number of iterations per thread.
+     */
+    public static final long DEFAULT_ITERATIONS_PER_THREAD = 10_000;
+    /**
+     * Max number of reported violations.
+     */
+    private static final int MAX_VIOLATIONS = AbstractMetricFamilySamplesAssert.DEFAULT_MAX_SAMPLES_IN_FAILURE_MESSAGE;
+
+    private final CollectorRegistry collectorRegistry;
+    private int threads = DEFAULT_THREADS;
+    private long iterationsPerThread = DEFAULT_ITERATIONS_PER_THREAD;
+    private boolean virtualThreads;
+    private boolean concurrentSnapshots = true;
+
+    /**
+     * A single iteration of the workload.
+     */
+    @FunctionalInterface
+    public interface Workload {
+        /**
+         * Runs the iteration.
+         *
+         * @param thread    the thread index, from 0 to threads - 1.
+         * @param iteration the iteration of the thread, from 0 to iterations per thread - 1.
+         * @throws Exception if the workload fails.
+         */
+        void run(int thread, long iteration) throws Exception;
+    }
+
+    /**
+     * Delta caused by the workload, with the number of iterations.
+     */
+    public static final class Result extends MetricsDelta {
+        private final long totalIterations;
+        private final int concurrentSnapshotCount;
+
+        Result(MetricsSnapshot before, MetricsSnapshot after, long totalIterations, int concurrentSnapshotCount) {
+            super(before, after);
+            this.totalIterations = totalIterations;
+            this.concurrentSnapshotCount = concurrentSnapshotCount;
+        }
+
+        /**
+         * @return the number of iterations of all threads.
+         */
+        public long getTotalIterations() {
+            return totalIterations;
+        }
+
+        /**
+         * @return the number of snapshots collected concurrently while running.
+         */
+        public int getConcurrentSnapshotCount() {
+            return concurrentSnapshotCount;
+        }
+    }
+
+    /**
+     * Creates a harness, collecting from the given registry.
+     *
+     * @param collectorRegistry the collector registry.
+     */
+    public StressHarness(CollectorRegistry collectorRegistry) {
+        this.collectorRegistry = collectorRegistry;
+    }
+
+    /**
+     * Sets the number of threads.
+     *
+     * @param threads the number of threads.
+     * @return {@code this} harness.
+     */
+    public StressHarness withThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Expected positive number of threads but got " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Sets the number of iterations per thread.
+     *
+     * @param iterationsPerThread the number of iterations.
+     * @return {@code this} harness.
+     */
+    public StressHarness withIterationsPerThread(long iterationsPerThread) {
+        if (iterationsPerThread < 0) {
+            throw new IllegalArgumentException("Expected non negative number of iterations but got " + iterationsPerThread);
+        }
+        this.iterationsPerThread = iterationsPerThread;
+        return this;
+    }
+
+    /**
+     * Runs the workload on virtual threads instead of platform threads.
+     *
+     * @param virtualThreads true, for virtual threads.
+     * @return {@code this} harness.
+     * @see #isVirtualThreadsSupported()
+     */
+    public StressHarness withVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    /**
+     * Enables or disables collecting snapshots concurrently while running. Enabled by default.
+     *
+     * @param concurrentSnapshots true, for collecting concurrently.
+     * @return {@code this} harness.
+     */
+    public StressHarness withConcurrentSnapshots(boolean concurrentSnapshots) {
+        this.concurrentSnapshots = concurrentSnapshots;
+        return this;
+    }
+
+    /**
+     * Checks if the JVM supports virtual threads, i.e. JDK 21+.
+     *
+     * @return true, if supported.
+     */
+    public static boolean isVirtualThreadsSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Runs the workload on all threads and captures the delta of the MFS of given names.
+     *
+     * @param workload the workload.
+     * @param names    the MFS names, or none for all MFS.
+     * @return the result.
+     * @throws AssertionError if the workload or a concurrent snapshot fails, or a monotonic sample decreased while
+     *                        running.
+     */
+    public Result run(Workload workload, String... names) {
+        final MetricsSnapshot before = snapshot(names);
+        final ExecutorService executor = newExecutor();
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final List<String> violations = Collections.synchronizedList(new ArrayList<>());
+        final int[] concurrentSnapshotCount = new int[1];
+        final AtomicReference<Throwable> snapshotFailure = new AtomicReference<>();
+        Thread snapshotThread = null;
+        try {
+            final List<Future<?>> futures = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (long i = 0; i < iterationsPerThread; i++) {
+                        workload.run(thread, i);
+                    }
+                    return null;
+                }));
+            }
+            if (concurrentSnapshots) {
+                snapshotThread = new Thread(() -> {
+                    try {
+                        concurrentSnapshotCount[0] = checkConcurrently(before, running, violations, names);
+                    } catch (Throwable t) {
+                        snapshotFailure.set(t);
+                    }
+                }, "stress-harness-snapshots");
+                snapshotThread.setDaemon(true);
+                snapshotThread.start();
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError("Interrupted while running workload", e);
+        } catch (ExecutionException e) {
+            throw new AssertionError("Expected workload to succeed, but failed with " + e.getCause(), e.getCause());
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+            joinQuietly(snapshotThread);
+        }
+
+        final Throwable failure = snapshotFailure.get();
+        if (null != failure) {
+            throw new AssertionError("Expected concurrent snapshots to succeed, but failed with " + failure, failure);
+        }
+        if (!violations.isEmpty()) {
+            throw new AssertionError("Expected monotonic samples not to decrease while running, but found "
+                    + violations.size() + (violations.size() == MAX_VIOLATIONS ? "+" : "") + " violations:\n  "
+                    + String.join("\n  ", violations));
+        }
+        return new Result(before, snapshot(names), threads * iterationsPerThread, concurrentSnapshotCount[0]);
+    }
+
+    private MetricsSnapshot snapshot(String... names) {
+        return names.length == 0 ? MetricsSnapshot.of(collectorRegistry) : MetricsSnapshot.of(collectorRegistry, names);
+    }
+
+    private ExecutorService newExecutor() {
+        if (virtualThreads) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Virtual threads require JDK 21+, but running on "
+                        + System.getProperty("java.version"), e);
+            }
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    private int checkConcurrently(MetricsSnapshot before, AtomicBoolean running, List<String> violations,
+                                  String... names) {
+        int count = 0;
+        MetricsSnapshot previous = before;
+        do { // At least once, even if the workload completes instantly
+            final MetricsSnapshot current = snapshot(names);
+            count++;
+            for (Collector.MetricFamilySamples mfs : current.getMetricFamilySamples()) {
+                if (previous.contains(mfs.name)) {
+                    checkMonotonic(previous.getMetricFamilySamples(mfs.name), mfs, violations);
+                }
+            }
+            previous = current;
+        } while (running.get() && violations.size() < MAX_VIOLATIONS);
+        return count;
+    }
+
+    private static void checkMonotonic(Collector.MetricFamilySamples previous, Collector.MetricFamilySamples current,
+                                       List<String> violations) {
+        if (previous.type != current.type) {
+            return;
+        }
+        final SampleIndex previousIndex = new SampleIndex(previous.samples);
+        for (Sample sample : current.samples) {
+            if (MetricsDelta.isMonotonic(current, sample.name)) {
+                final Sample previousSample = previousIndex.find(sample.name, sample.labelNames, sample.labelValues);
+                if (null != previousSample && sample.value < previousSample.value && violations.size() < MAX_VIOLATIONS) {
+                    violations.add(sample.name + "{" + AbstractMetricFamilySamplesAssert.joinLabelNamesAndValues(
+                            sample.labelNames, sample.labelValues) + "} decreased from "
+                            + previousSample.value + " to " + sample.value);
+                }
+            }
+        }
+    }
+
+    private static void joinQuietly(Thread thread) {
+        if (null != thread) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
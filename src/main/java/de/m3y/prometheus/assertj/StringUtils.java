@@ -1,9 +1,5 @@
 package de.m3y.prometheus.assertj;
 
-import java.util.Arrays;
-
-import org.apache.commons.text.similarity.LevenshteinDistance;
-
 /**
  * String helper such as for finding similar/the closest matching strings.
  */
@@ -12,29 +8,10 @@ public class StringUtils {
         // No instantiation
     }
 
-    /**
-     * Note: This class has a natural ordering that is inconsistent with equals.
-     */
-    private static class StringIntTupel implements Comparable<StringIntTupel> {
-        String content;
-        int distance;
-
-        @Override
-        public int compareTo(StringIntTupel o) {
-            return Integer.compare(distance, o.distance);
-        }
-
-        @Override
-        public String toString() {
-            return "{" +
-                    "content='" + content + '\'' +
-                    ", distance=" + distance +
-                    '}';
-        }
-    }
-
     /**
      * Finds the top N similar options for a given reference.
+     * <p>
+     * Options with same distance keep their original order.
      *
      * @param reference the reference value.
      * @param options   the available options.
@@ -42,20 +19,201 @@ public class StringUtils {
      * @return the top n the closest matching options.
      */
     public static String[] similar(String reference, String[] options, int n) {
-        LevenshteinDistance levenshteinDistance = new LevenshteinDistance();
-        StringIntTupel[] values = new StringIntTupel[options.length];
-        for (int i = 0; i < values.length; i++) {
-            String option = options[i];
-            final StringIntTupel tupel = new StringIntTupel();
-            tupel.content = option;
-            tupel.distance = levenshteinDistance.apply(reference, option);
-            values[i] = tupel;
-        }
-        Arrays.sort(values);
-        String[] candidates = new String[Math.min(options.length, n)];
+        final TopK topK = new TopK(Math.min(options.length, n));
+        if (topK.capacity() == 0) {
+            return new String[0];
+        }
+        final EditDistance editDistance = new EditDistance();
+        for (int i = 0; i < options.length; i++) {
+            // Once full, only strictly closer options can make it as ties keep original order
+            final int threshold = topK.isFull() ? topK.worstDistance() - 1 : Integer.MAX_VALUE;
+            if (threshold < 0) {
+                break; // All exact matches
+            }
+            final int distance = editDistance.apply(reference, options[i], threshold);
+            if (distance >= 0) {
+                topK.offer(i, distance);
+            }
+        }
+        final int[] indices = topK.toSortedIndices();
+        String[] candidates = new String[indices.length];
         for (int i = 0; i < candidates.length; i++) {
-            candidates[i] = values[i].content;
+            candidates[i] = options[indices[i]];
         }
         return candidates;
     }
+
+    /**
+     * Levenshtein distance, bounded by a threshold and reusing its row buffers across invocations.
+     * <p>
+     * Not thread safe.
+     */
+    static final class EditDistance {
+        private int[] previous = new int[0];
+        private int[] current = new int[0];
+
+        /**
+         * Computes the Levenshtein distance.
+         *
+         * @param left      the left string.
+         * @param right     the right string.
+         * @param threshold the max distance of interest.
+         * @return the distance, or -1 if the distance exceeds the threshold.
+         */
+        int apply(CharSequence left, CharSequence right, int threshold) {
+            int leftLength = left.length();
+            int rightLength = right.length();
+            if (Math.abs(leftLength - rightLength) > threshold) {
+                return -1;
+            }
+            // Iterate over the shorter string for smaller rows
+            if (leftLength > rightLength) {
+                CharSequence tmp = left;
+                left = right;
+                right = tmp;
+                leftLength = rightLength;
+                rightLength = right.length();
+            }
+            if (previous.length <= leftLength) {
+                previous = new int[leftLength + 1];
+                current = new int[leftLength + 1];
+            }
+            int[] p = previous;
+            int[] d = current;
+            for (int i = 0; i <= leftLength; i++) {
+                p[i] = i;
+            }
+            for (int j = 1; j <= rightLength; j++) {
+                final char rightChar = right.charAt(j - 1);
+                d[0] = j;
+                int rowMin = j;
+                for (int i = 1; i <= leftLength; i++) {
+                    final int cost = left.charAt(i - 1) == rightChar ? 0 : 1;
+                    final int value = Math.min(Math.min(d[i - 1] + 1, p[i] + 1), p[i - 1] + cost);
+                    d[i] = value;
+                    if (value < rowMin) {
+                        rowMin = value;
+                    }
+                }
+                if (rowMin > threshold) {
+                    return -1; // Distances never shrink with further rows
+                }
+                int[] tmp = p;
+                p = d;
+                d = tmp;
+            }
+            final int distance = p[leftLength];
+            return distance <= threshold ? distance : -1;
+        }
+    }
+
+    /**
+     * Bounded max-heap of (index, distance) pairs, keeping the k closest entries.
+     * <p>
+     * On same distance the lower index wins.
+     */
+    static final class TopK {
+        private final int[] indices;
+        private final int[] distances;
+        private int size;
+
+        TopK(int capacity) {
+            indices = new int[capacity];
+            distances = new int[capacity];
+        }
+
+        int capacity() {
+            return indices.length;
+        }
+
+        boolean isFull() {
+            return size == indices.length;
+        }
+
+        /**
+         * @return the distance of the worst entry, only valid if not empty.
+         */
+        int worstDistance() {
+            return distances[0];
+        }
+
+        /**
+         * Offers an entry.
+         *
+         * @param index    the entry index.
+         * @param distance the entry distance.
+         */
+        void offer(int index, int distance) {
+            if (size < indices.length) {
+                int i = size++;
+                indices[i] = index;
+                distances[i] = distance;
+                siftUp(i);
+            } else if (indices.length > 0 && isWorse(indices[0], distances[0], index, distance)) {
+                indices[0] = index;
+                distances[0] = distance;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * @return the entry indices, ordered from closest to worst.
+         */
+        int[] toSortedIndices() {
+            final int count = size;
+            final int[] sorted = new int[count];
+            // Drain max-heap, filling from the back
+            while (size > 0) {
+                sorted[size - 1] = indices[0];
+                size--;
+                indices[0] = indices[size];
+                distances[0] = distances[size];
+                siftDown(0);
+            }
+            return sorted;
+        }
+
+        private static boolean isWorse(int index, int distance, int otherIndex, int otherDistance) {
+            return distance > otherDistance || (distance == otherDistance && index > otherIndex);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!isWorse(indices[i], distances[i], indices[parent], distances[parent])) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) {
+                    return;
+                }
+                int worst = left;
+                int right = left + 1;
+                if (right < size && isWorse(indices[right], distances[right], indices[left], distances[left])) {
+                    worst = right;
+                }
+                if (!isWorse(indices[worst], distances[worst], indices[i], distances[i])) {
+                    return;
+                }
+                swap(i, worst);
+                i = worst;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int index = indices[i];
+            indices[i] = indices[j];
+            indices[j] = index;
+            int distance = distances[i];
+            distances[i] = distances[j];
+            distances[j] = distance;
+        }
+    }
 }
@@ -0,0 +1,582 @@
+package de.m3y.prometheus.assertj;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+
+/**
+ * Parser for the Prometheus text exposition format 0.0.4, e.g. for asserting captured <code>/metrics</code> dumps.
+ * <p>
+ * Parses directly from memory mapped file regions without decoding the whole input into a String,
+ * and optionally only parses the MFS of given names while skipping other MFS cheaply.
+ * <p>
+ * Recommended usage:
+ * <pre>{@code
+ * List<Collector.MetricFamilySamples> mfsList = TextFormatParser.parse(Paths.get("metrics.txt"));
+ * MetricFamilySamplesAssert.assertThat(MetricFamilySamplesUtils.getMetricFamilySamples(mfsList, "my_metric"))
+ *     .hasTypeOfCounter()
+ *     .hasSampleValue(...);
+ * }</pre>
+ * <p>
+ * For inputs too large to hold as MFS list, push the parsed samples to a {@link MetricFamilySamplesVisitor} instead,
+ * such as a {@link StreamingMetricsAssert}:
+ * <pre>{@code
+ * TextFormatParser.parse(inputStream, null, visitor);
+ * }</pre>
+ * <p>
+ * Note:
+ * <ul>
+ * <li>Counter MFS names have no <code>_total</code> suffix, as for MFS collected from a {@link io.prometheus.client.CollectorRegistry}</li>
+ * <li>The <code>_created</code> samples, written as a separate gauge by the text format, are merged back into their
+ * counter, summary or histogram MFS.</li>
+ * <li>Info MFS are written as gauge named <code>..._info</code> by the text format, so they are parsed and selected
+ * by that name</li>
+ * </ul>
+ */
+public class TextFormatParser {
+    /**
+     * Max size of a memory mapped file region.
+     */
+    static final long MAX_MAPPED_REGION_SIZE = 256L * 1024 * 1024;
+    /**
+     * Size of the read buffer when parsing from a stream or channel, limiting the max line length.
+     */
+    static final int STREAM_BUFFER_SIZE = 1024 * 1024;
+
+    private static final String CREATED_SUFFIX = "_created";
+    /**
+     * Suffixes of metadata names of a counter, or of the <code>_created</code> gauge, for a given MFS name.
+     */
+    private static final String[] INCLUDED_SUFFIXES = {"_total", CREATED_SUFFIX};
+
+    private final Set<String> names;
+    private final MetricFamilySamplesVisitor visitor;
+    private final Map<String, FamilyState> families = new LinkedHashMap<>();
+    private FamilyState current;
+    private FamilyState visited; // MFS last passed to visitor
+    private byte[] scratch = new byte[256];
+    private final List<String> labelNames = new ArrayList<>();
+    private final List<String> labelValues = new ArrayList<>();
+    private long lineNumber;
+
+    /**
+     * Parse state of an MFS.
+     */
+    private static final class FamilyState {
+        final String name; // Name as in # TYPE or # HELP
+        final byte[] nameBytes;
+        final boolean skipped;
+        Collector.Type type = Collector.Type.UNKNOWN;
+        String help = "";
+        boolean announced;
+        List<String> lastLabelNames = Collections.emptyList();
+
+        FamilyState(String name, boolean skipped) {
+            this.name = name;
+            this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            this.skipped = skipped;
+        }
+
+        /**
+         * @return the MFS name, without <code>_total</code> suffix for counters.
+         */
+        String mfsName() {
+            if (type == Collector.Type.COUNTER && name.endsWith("_total")) {
+                return name.substring(0, name.length() - "_total".length());
+            }
+            return name;
+        }
+    }
+
+    /**
+     * Creates a new parser.
+     *
+     * @param names   the MFS names to parse, or null for all MFS.
+     * @param visitor the visitor receiving the parsed MFS and samples.
+     */
+    TextFormatParser(Set<String> names, MetricFamilySamplesVisitor visitor) {
+        this.names = names;
+        this.visitor = visitor;
+    }
+
+    /**
+     * Parses all MFS of the given file.
+     *
+     * @param path the file in text format 0.0.4.
+     * @return the list of MFS.
+     * @throws IOException on error reading or parsing.
+     */
+    public static List<Collector.MetricFamilySamples> parse(Path path) throws IOException {
+        return parse(path, null);
+    }
+
+    /**
+     * Parses the MFS of given names, skipping all other MFS.
+     *
+     * @param path  the file in text format 0.0.4.
+     * @param names the MFS names, e.g. <code>my_counter</code> for samples <code>my_counter_total</code>.
+     *              Null for parsing all MFS.
+     * @return the list of MFS.
+     * @throws IOException on error reading or parsing.
+     */
+    public static List<Collector.MetricFamilySamples> parse(Path path, Set<String> names) throws IOException {
+        return parse(path, names, MAX_MAPPED_REGION_SIZE);
+    }
+
+    static List<Collector.MetricFamilySamples> parse(Path path, Set<String> names, long maxMappedRegionSize)
+            throws IOException {
+        final CollectingVisitor collectingVisitor = new CollectingVisitor();
+        parse(path, names, collectingVisitor, maxMappedRegionSize);
+        return collectingVisitor.getMetricFamilySamples();
+    }
+
+    /**
+     * Parses the MFS of given names, pushing each MFS and sample to the visitor without keeping parsed samples.
+     *
+     * @param path    the file in text format 0.0.4.
+     * @param names   the MFS names, or null for parsing all MFS.
+     * @param visitor the visitor.
+     * @throws IOException on error reading or parsing.
+     */
+    public static void parse(Path path, Set<String> names, MetricFamilySamplesVisitor visitor) throws IOException {
+        parse(path, names, visitor, MAX_MAPPED_REGION_SIZE);
+    }
+
+    /**
+     * Parses the MFS of given names, pushing each MFS and sample to the visitor without keeping parsed samples.
+     * <p>
+     * Reads through a fixed size buffer, so memory stays constant independent of the input size.
+     * Does not close the stream.
+     *
+     * @param inputStream the input in text format 0.0.4.
+     * @param names       the MFS names, or null for parsing all MFS.
+     * @param visitor     the visitor.
+     * @throws IOException on error reading or parsing.
+     */
+    public static void parse(InputStream inputStream, Set<String> names, MetricFamilySamplesVisitor visitor)
+            throws IOException {
+        parse(Channels.newChannel(inputStream), names, visitor);
+    }
+
+    /**
+     * Parses the MFS of given names, pushing each MFS and sample to the visitor without keeping parsed samples.
+     * <p>
+     * Reads through a fixed size buffer, so memory stays constant independent of the input size.
+     * Does not close the channel.
+     *
+     * @param channel the input in text format 0.0.4.
+     * @param names   the MFS names, or null for parsing all MFS.
+     * @param visitor the visitor.
+     * @throws IOException on error reading or parsing.
+     */
+    public static void parse(ReadableByteChannel channel, Set<String> names, MetricFamilySamplesVisitor visitor)
+            throws IOException {
+        parse(channel, names, visitor, STREAM_BUFFER_SIZE);
+    }
+
+    static void parse(ReadableByteChannel channel, Set<String> names, MetricFamilySamplesVisitor visitor,
+                      int bufferSize) throws IOException {
+        final TextFormatParser parser = new TextFormatParser(names, visitor);
+        final ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            endOfInput = channel.read(buffer) < 0;
+            buffer.flip();
+            final int consumed = parser.parse(buffer, endOfInput);
+            if (consumed == 0 && !endOfInput && buffer.limit() == buffer.capacity()) {
+                throw new IOException("Line " + (parser.lineNumber + 1) + " exceeds max length of "
+                        + bufferSize + " bytes");
+            }
+            buffer.position(buffer.position() + consumed);
+            buffer.compact();
+        }
+    }
+
+    static void parse(Path path, Set<String> names, MetricFamilySamplesVisitor visitor, long maxMappedRegionSize)
+            throws IOException {
+        final TextFormatParser parser = new TextFormatParser(names, visitor);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                final long length = Math.min(size - position, maxMappedRegionSize);
+                final boolean endOfInput = position + length == size;
+                final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                final int consumed = parser.parse(buffer, endOfInput);
+                if (consumed == 0 && !endOfInput) {
+                    throw new IOException("Line " + (parser.lineNumber + 1) + " exceeds max length of "
+                            + maxMappedRegionSize + " bytes");
+                }
+                position += consumed;
+            }
+        }
+    }
+
+    /**
+     * Parses all complete lines of the buffer, from its position to its limit.
+     *
+     * @param buffer     the buffer.
+     * @param endOfInput if true, the buffer contains the last line, which does not require a trailing newline.
+     *                   Also visits a trailing MFS without samples.
+     * @return the number of consumed bytes, up to the last complete line.
+     * @throws IOException on parse error.
+     */
+    int parse(ByteBuffer buffer, boolean endOfInput) throws IOException {
+        final int begin = buffer.position();
+        final int limit = buffer.limit();
+        int start = begin;
+        for (int i = begin; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                parseLine(buffer, start, i);
+                start = i + 1;
+            }
+        }
+        if (endOfInput) {
+            if (start < limit) {
+                parseLine(buffer, start, limit);
+                start = limit;
+            }
+            announceUnvisited();
+        }
+        return start - begin;
+    }
+
+    private boolean isIncluded(String name) {
+        if (null == names || names.contains(name)) {
+            return true;
+        }
+        // Metadata name of a counter, or _created gauge, for given MFS name
+        for (String suffix : INCLUDED_SUFFIXES) {
+            if (name.endsWith(suffix) && names.contains(name.substring(0, name.length() - suffix.length()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private FamilyState family(String name) {
+        return families.computeIfAbsent(name, n -> new FamilyState(n, !isIncluded(n)));
+    }
+
+    private void visit(FamilyState family) {
+        if (visited != family) {
+            visitor.visitMetricFamily(family.mfsName(), family.type, family.help);
+            family.announced = true;
+            visited = family;
+        }
+    }
+
+    /**
+     * Visits the current MFS if it has metadata, but no samples so far.
+     */
+    private void announceUnvisited() {
+        if (null != current && !current.skipped && !current.announced) {
+            visit(current);
+        }
+    }
+
+    private void parseLine(ByteBuffer buffer, int start, int end) throws IOException {
+        lineNumber++;
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        int pos = skipWhitespace(buffer, start, end);
+        if (pos == end) {
+            return; // Empty line
+        }
+        if (buffer.get(pos) == '#') {
+            parseComment(buffer, pos + 1, end);
+        } else {
+            parseSample(buffer, pos, end);
+        }
+    }
+
+    private void parseComment(ByteBuffer buffer, int pos, int end) throws IOException {
+        pos = skipWhitespace(buffer, pos, end);
+        final boolean isHelp = startsWith(buffer, pos, end, "HELP");
+        final boolean isType = !isHelp && startsWith(buffer, pos, end, "TYPE");
+        if (!isHelp && !isType) {
+            return; // Other comment
+        }
+        pos += 4;
+        if (pos == end || !isWhitespace(buffer.get(pos))) {
+            return; // Other comment, such as #HELPER
+        }
+        pos = skipWhitespace(buffer, pos, end);
+        final int nameEnd = tokenEnd(buffer, pos, end);
+        if (nameEnd == pos) {
+            throw parseError("Expected metric name");
+        }
+        final FamilyState family = family(decodeAscii(buffer, pos, nameEnd));
+        if (family != current) {
+            announceUnvisited();
+            current = family;
+        }
+        pos = skipWhitespace(buffer, nameEnd, end);
+        if (isType) {
+            // Also for skipped MFS, for cheaply skipping its samples
+            family.type = parseType(decodeAscii(buffer, pos, tokenEnd(buffer, pos, end)));
+        } else if (!family.skipped) {
+            family.help = decodeEscaped(buffer, pos, end, false);
+        }
+    }
+
+    private Collector.Type parseType(String type) throws IOException {
+        switch (type) {
+            case "counter":
+                return Collector.Type.COUNTER;
+            case "gauge":
+                return Collector.Type.GAUGE;
+            case "summary":
+                return Collector.Type.SUMMARY;
+            case "histogram":
+                return Collector.Type.HISTOGRAM;
+            case "untyped":
+                return Collector.Type.UNKNOWN;
+            default:
+                throw parseError("Unsupported type " + type);
+        }
+    }
+
+    private void parseSample(ByteBuffer buffer, int pos, int end) throws IOException {
+        int nameEnd = pos;
+        while (nameEnd < end && buffer.get(nameEnd) != '{' && !isWhitespace(buffer.get(nameEnd))) {
+            nameEnd++;
+        }
+
+        // Cheap skip of samples belonging to a skipped MFS
+        if (null != current && current.skipped && startsWith(buffer, pos, nameEnd, current.nameBytes)
+                && (nameEnd - pos == current.nameBytes.length || isFamilySuffix(
+                decodeAscii(buffer, pos + current.nameBytes.length, nameEnd), current.type))) {
+            return;
+        }
+
+        final String sampleName = decodeAscii(buffer, pos, nameEnd);
+        FamilyState family = current;
+        if (null == family || !belongsTo(sampleName, family)) {
+            family = family(sampleName);
+            announceUnvisited();
+            current = family;
+        }
+        if (family.skipped) {
+            return;
+        }
+
+        pos = nameEnd;
+        labelNames.clear();
+        labelValues.clear();
+        if (pos < end && buffer.get(pos) == '{') {
+            pos = parseLabels(buffer, pos + 1, end, family.lastLabelNames);
+        }
+
+        pos = skipWhitespace(buffer, pos, end);
+        final int valueEnd = tokenEnd(buffer, pos, end);
+        if (valueEnd == pos) {
+            throw parseError("Expected value for sample " + sampleName);
+        }
+        final double value = parseValue(decodeAscii(buffer, pos, valueEnd));
+        pos = skipWhitespace(buffer, valueEnd, end);
+        Long timestampMs = null;
+        if (pos < end) {
+            final String timestamp = decodeAscii(buffer, pos, tokenEnd(buffer, pos, end));
+            try {
+                timestampMs = Long.parseLong(timestamp);
+            } catch (NumberFormatException ex) {
+                throw parseError("Invalid timestamp " + timestamp);
+            }
+        }
+
+        // Share same label names across samples of the MFS
+        if (!family.lastLabelNames.equals(labelNames)) {
+            family.lastLabelNames = Collections.unmodifiableList(new ArrayList<>(labelNames));
+        }
+        visit(family);
+        visitor.visitSample(new Sample(sampleName, family.lastLabelNames,
+                labelValues.isEmpty() ? Collections.<String>emptyList() : new ArrayList<>(labelValues),
+                value, timestampMs));
+    }
+
+    private static boolean belongsTo(String sampleName, FamilyState family) {
+        return sampleName.startsWith(family.name)
+                && isFamilySuffix(sampleName.substring(family.name.length()), family.type);
+    }
+
+    private static boolean isFamilySuffix(String suffix, Collector.Type type) {
+        if (suffix.isEmpty()) {
+            return true;
+        }
+        switch (type) {
+            case COUNTER:
+                return "_total".equals(suffix) || CREATED_SUFFIX.equals(suffix);
+            case SUMMARY:
+                return "_count".equals(suffix) || "_sum".equals(suffix) || CREATED_SUFFIX.equals(suffix);
+            case HISTOGRAM:
+                return "_count".equals(suffix) || "_sum".equals(suffix) || "_bucket".equals(suffix)
+                        || CREATED_SUFFIX.equals(suffix);
+            default:
+                return false;
+        }
+    }
+
+    private int parseLabels(ByteBuffer buffer, int pos, int end, List<String> previousLabelNames) throws IOException {
+        while (true) {
+            pos = skipWhitespace(buffer, pos, end);
+            if (pos == end) {
+                throw parseError("Expected }");
+            }
+            if (buffer.get(pos) == '}') {
+                return pos + 1;
+            }
+            int nameEnd = pos;
+            while (nameEnd < end && buffer.get(nameEnd) != '=' && !isWhitespace(buffer.get(nameEnd))) {
+                nameEnd++;
+            }
+            // Avoid decoding label names repeated for every sample
+            final int index = labelNames.size();
+            if (index < previousLabelNames.size() && equalsAscii(buffer, pos, nameEnd, previousLabelNames.get(index))) {
+                labelNames.add(previousLabelNames.get(index));
+            } else {
+                labelNames.add(decodeAscii(buffer, pos, nameEnd));
+            }
+            pos = skipWhitespace(buffer, nameEnd, end);
+            if (pos == end || buffer.get(pos) != '=') {
+                throw parseError("Expected = after label name " + labelNames.get(index));
+            }
+            pos = skipWhitespace(buffer, pos + 1, end);
+            if (pos == end || buffer.get(pos) != '"') {
+                throw parseError("Expected \" for value of label " + labelNames.get(index));
+            }
+            pos++;
+            int valueEnd = pos;
+            while (valueEnd < end && buffer.get(valueEnd) != '"') {
+                valueEnd += buffer.get(valueEnd) == '\\' ? 2 : 1;
+            }
+            if (valueEnd >= end) {
+                throw parseError("Unterminated value of label " + labelNames.get(index));
+            }
+            labelValues.add(decodeEscaped(buffer, pos, valueEnd, true));
+            pos = skipWhitespace(buffer, valueEnd + 1, end);
+            if (pos < end && buffer.get(pos) == ',') {
+                pos++;
+            }
+        }
+    }
+
+    private double parseValue(String value) throws IOException {
+        switch (value) {
+            case "+Inf":
+            case "Inf":
+                return Double.POSITIVE_INFINITY;
+            case "-Inf":
+                return Double.NEGATIVE_INFINITY;
+            case "NaN":
+                return Double.NaN;
+            default:
+                try {
+                    return Double.parseDouble(value);
+                } catch (NumberFormatException ex) {
+                    throw parseError("Invalid value " + value);
+                }
+        }
+    }
+
+    private IOException parseError(String message) {
+        return new IOException(message + " in line " + lineNumber);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private static int skipWhitespace(ByteBuffer buffer, int pos, int end) {
+        while (pos < end && isWhitespace(buffer.get(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int tokenEnd(ByteBuffer buffer, int pos, int end) {
+        while (pos < end && !isWhitespace(buffer.get(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int pos, int end, String prefix) {
+        if (end - pos < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (buffer.get(pos + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int pos, int end, byte[] prefix) {
+        if (end - pos < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(pos + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsAscii(ByteBuffer buffer, int pos, int end, String value) {
+        return end - pos == value.length() && startsWith(buffer, pos, end, value);
+    }
+
+    private String decodeAscii(ByteBuffer buffer, int pos, int end) {
+        final byte[] bytes = scratch(end - pos);
+        for (int i = pos; i < end; i++) {
+            bytes[i - pos] = buffer.get(i);
+        }
+        return new String(bytes, 0, end - pos, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes UTF-8, unescaping <code>\\</code>, <code>\n</code> and optionally <code>\"</code>.
+     */
+    private String decodeEscaped(ByteBuffer buffer, int pos, int end, boolean unescapeQuote) {
+        final byte[] bytes = scratch(end - pos);
+        int length = 0;
+        for (int i = pos; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '\\' && i + 1 < end) {
+                final byte next = buffer.get(i + 1);
+                if (next == '\\' || next == 'n' || (unescapeQuote && next == '"')) {
+                    b = next == 'n' ? (byte) '\n' : next;
+                    i++;
+                }
+            }
+            bytes[length++] = b;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private byte[] scratch(int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        return scratch;
+    }
+}
@@ -0,0 +1,610 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+import io.prometheus.client.CollectorRegistry;
+
+/**
+ * Heuristically detects labels with values looking unbounded, such as UUIDs, IP addresses, numeric IDs,
+ * timestamps, long free text or values unique per series.
+ * <p>
+ * Analyzes all MFS in a single streaming pass. Per label, only a distinct value count and a bounded sample
+ * of values is kept, so that memory does not grow with the size of the registry.
+ * <p>
+ * A label is reported if it has at least {@link #withMinDistinctValues(int) min distinct values} and
+ * <ul>
+ * <li>most sampled values are of the same unbounded kind, or</li>
+ * <li>has a distinct value per series, for at least {@link #withMinSeriesForUniqueness(int) min series}
+ * and if other labels also define the series</li>
+ * </ul>
+ * The <code>le</code> and <code>quantile</code> labels of histograms and summaries are ignored.
+ * <p>
+ * Recommended usage:
+ * <pre>{@code
+ * List<UnboundedLabelDetector.Finding> findings = new UnboundedLabelDetector()
+ *     .withIgnoredLabels("pod")
+ *     .detect(CollectorRegistry.defaultRegistry);
+ *
+ * // Or streaming an exposition
+ * UnboundedLabelDetector.Analysis analysis = new UnboundedLabelDetector().analyze();
+ * TextFormatParser.parse(inputStream, null, analysis);
+ * findings = analysis.getFindings();
+ * }</pre>
+ *
+ * @see MetricsSnapshotAssert#hasNoUnboundedLabels()
+ * @see AbstractMetricFamilySamplesAssert#hasNoUnboundedLabels()
+ */
+public class UnboundedLabelDetector {
+    /**
+     * Default min number of distinct values, below which a label is never reported.
+     */
+    public static final int DEFAULT_MIN_DISTINCT_VALUES = 10;
+    /**
+     * Default min number of series, for reporting a label with a distinct value per series.
+     */
+    public static final int DEFAULT_MIN_SERIES_FOR_UNIQUENESS = 500;
+    /**
+     * Default max length of a label value, above which it is considered free text.
+     */
+    public static final int DEFAULT_MAX_VALUE_LENGTH = 64;
+    /**
+     * Default number of values sampled per label.
+     */
+    public static final int DEFAULT_SAMPLED_VALUES_PER_LABEL = 64;
+
+    private static final int EXACT_THRESHOLD = 1 << 12; // Estimate above, bounding memory per label
+    private static final double KIND_RATIO = 0.8; // Min ratio of sampled values of same kind
+    private static final int MAX_EXAMPLE_VALUES = 3;
+
+    private int minDistinctValues = DEFAULT_MIN_DISTINCT_VALUES;
+    private int minSeriesForUniqueness = DEFAULT_MIN_SERIES_FOR_UNIQUENESS;
+    private int maxValueLength = DEFAULT_MAX_VALUE_LENGTH;
+    private int sampledValuesPerLabel = DEFAULT_SAMPLED_VALUES_PER_LABEL;
+    private final Set<String> ignoredLabels = new HashSet<>(Arrays.asList(HistogramBuckets.LE, HistogramBuckets.QUANTILE));
+
+    /**
+     * Reason for considering a label unbounded.
+     */
+    public enum Reason {
+        /**
+         * Values look like UUIDs.
+         */
+        UUID,
+        /**
+         * Values look like IPv4 or IPv6 addresses.
+         */
+        IP_ADDRESS,
+        /**
+         * Values look like timestamps, as epoch numbers or ISO 8601 dates.
+         */
+        TIMESTAMP,
+        /**
+         * Values look like decimal or long hexadecimal IDs.
+         */
+        NUMERIC_ID,
+        /**
+         * Values are longer than the max value length.
+         */
+        LONG_TEXT,
+        /**
+         * Values are distinct per series, while other labels also define the series.
+         */
+        UNIQUE_PER_SERIES
+    }
+
+    /**
+     * A label considered unbounded.
+     */
+    public static final class Finding {
+        private final String familyName;
+        private final String labelName;
+        private final Reason reason;
+        private final long distinctValueCount;
+        private final boolean exact;
+        private final List<String> exampleValues;
+
+        Finding(String familyName, String labelName, Reason reason, long distinctValueCount, boolean exact,
+                List<String> exampleValues) {
+            this.familyName = familyName;
+            this.labelName = labelName;
+            this.reason = reason;
+            this.distinctValueCount = distinctValueCount;
+            this.exact = exact;
+            this.exampleValues = Collections.unmodifiableList(exampleValues);
+        }
+
+        /**
+         * @return the MFS name.
+         */
+        public String getFamilyName() {
+            return familyName;
+        }
+
+        /**
+         * @return the label name.
+         */
+        public String getLabelName() {
+            return labelName;
+        }
+
+        /**
+         * @return the reason.
+         */
+        public Reason getReason() {
+            return reason;
+        }
+
+        /**
+         * @return the number of distinct values.
+         */
+        public long getDistinctValueCount() {
+            return distinctValueCount;
+        }
+
+        /**
+         * @return true, if the distinct value count is exact and false if estimated.
+         */
+        public boolean isExact() {
+            return exact;
+        }
+
+        /**
+         * @return some of the sampled values.
+         */
+        public List<String> getExampleValues() {
+            return exampleValues;
+        }
+
+        @Override
+        public String toString() {
+            return familyName + " label " + labelName + " looks unbounded (" + reason + ") with "
+                    + distinctValueCount + (exact ? "" : " (estimated)") + " distinct values, e.g. " + exampleValues;
+        }
+    }
+
+    /**
+     * Sets the min number of distinct values, below which a label is never reported.
+     *
+     * @param minDistinctValues the min number of distinct values.
+     * @return {@code this} detector.
+     */
+    public UnboundedLabelDetector withMinDistinctValues(int minDistinctValues) {
+        this.minDistinctValues = minDistinctValues;
+        return this;
+    }
+
+    /**
+     * Sets the min number of series, for reporting a label with a distinct value per series.
+     *
+     * @param minSeriesForUniqueness the min number of series.
+     * @return {@code this} detector.
+     */
+    public UnboundedLabelDetector withMinSeriesForUniqueness(int minSeriesForUniqueness) {
+        this.minSeriesForUniqueness = minSeriesForUniqueness;
+        return this;
+    }
+
+    /**
+     * Sets the max length of a label value, above which it is considered free text.
+     *
+     * @param maxValueLength the max value length.
+     * @return {@code this} detector.
+     */
+    public UnboundedLabelDetector withMaxValueLength(int maxValueLength) {
+        this.maxValueLength = maxValueLength;
+        return this;
+    }
+
+    /**
+     * Sets the number of values sampled per label, for classifying the values.
+     *
+     * @param sampledValuesPerLabel the number of sampled values.
+     * @return {@code this} detector.
+     */
+    public UnboundedLabelDetector withSampledValuesPerLabel(int sampledValuesPerLabel) {
+        if (sampledValuesPerLabel < 1) {
+            throw new IllegalArgumentException("Expected positive number of sampled values but got " + sampledValuesPerLabel);
+        }
+        this.sampledValuesPerLabel = sampledValuesPerLabel;
+        return this;
+    }
+
+    /**
+     * Ignores the labels of given names, in addition to <code>le</code> and <code>quantile</code>.
+     *
+     * @param labelNames the label names.
+     * @return {@code this} detector.
+     */
+    public UnboundedLabelDetector withIgnoredLabels(String... labelNames) {
+        ignoredLabels.addAll(Arrays.asList(labelNames));
+        return this;
+    }
+
+    /**
+     * Detects unbounded labels, streaming the MFS of the registry.
+     *
+     * @param collectorRegistry the collector registry.
+     * @return the findings, highest distinct value count first.
+     */
+    public List<Finding> detect(CollectorRegistry collectorRegistry) {
+        final Analysis analysis = analyze();
+        final Enumeration<Collector.MetricFamilySamples> mfsEnumeration = collectorRegistry.metricFamilySamples();
+        while (mfsEnumeration.hasMoreElements()) {
+            analysis.visit(mfsEnumeration.nextElement());
+        }
+        return analysis.getFindings();
+    }
+
+    /**
+     * Detects unbounded labels of the MFS.
+     *
+     * @param metricFamilySamples the MFS.
+     * @return the findings, highest distinct value count first.
+     */
+    public List<Finding> detect(List<Collector.MetricFamilySamples> metricFamilySamples) {
+        final Analysis analysis = analyze();
+        for (Collector.MetricFamilySamples mfs : metricFamilySamples) {
+            analysis.visit(mfs);
+        }
+        return analysis.getFindings();
+    }
+
+    /**
+     * Detects unbounded labels of a single MFS.
+     *
+     * @param mfs the MFS.
+     * @return the findings, highest distinct value count first.
+     */
+    public List<Finding> detect(Collector.MetricFamilySamples mfs) {
+        return detect(Collections.singletonList(mfs));
+    }
+
+    /**
+     * Creates a new analysis, for feeding MFS samples from any source such as a parser.
+     *
+     * @return the analysis.
+     */
+    public Analysis analyze() {
+        return new Analysis();
+    }
+
+    /**
+     * Values of a single label.
+     */
+    private final class LabelState {
+        final CardinalityCounter distinctValues = new CardinalityCounter(EXACT_THRESHOLD);
+        final String[] sampledValues = new String[sampledValuesPerLabel];
+        long occurrences;
+    }
+
+    /**
+     * Labels and series of a single MFS.
+     */
+    private final class FamilyState {
+        final String name;
+        final Map<String, LabelState> labels = new LinkedHashMap<>();
+        final CardinalityCounter series = new CardinalityCounter(EXACT_THRESHOLD);
+        List<String> lastLabelNames;
+        LabelState[] lastLabels;
+
+        FamilyState(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Incremental analysis of MFS samples, reporting findings once all samples are visited.
+     * <p>
+     * Not thread safe.
+     */
+    public final class Analysis implements MetricFamilySamplesVisitor {
+        private final Map<String, FamilyState> families = new LinkedHashMap<>();
+        private FamilyState current;
+        private long random = 0x9e3779b97f4a7c15L; // Deterministic, for reproducible findings
+
+        private Analysis() {
+        }
+
+        void visit(Collector.MetricFamilySamples mfs) {
+            visitMetricFamily(mfs.name, mfs.type, mfs.help);
+            for (Sample sample : null == mfs.samples ? Collections.<Sample>emptyList() : mfs.samples) {
+                visitSample(sample);
+            }
+        }
+
+        @Override
+        public void visitMetricFamily(String name, Collector.Type type, String help) {
+            current = families.computeIfAbsent(name, FamilyState::new);
+        }
+
+        @Override
+        public void visitSample(Sample sample) {
+            final FamilyState family = current;
+            if (sample.labelNames != family.lastLabelNames) {
+                family.lastLabelNames = sample.labelNames;
+                family.lastLabels = new LabelState[sample.labelNames.size()];
+                for (int i = 0; i < family.lastLabels.length; i++) {
+                    final String labelName = sample.labelNames.get(i);
+                    if (!ignoredLabels.contains(labelName)) {
+                        family.lastLabels[i] = family.labels.computeIfAbsent(labelName, n -> new LabelState());
+                    }
+                }
+            }
+            // Series by label values only, so that e.g. _count and _sum count as same series
+            long seriesHash = 0;
+            final int size = Math.min(family.lastLabels.length, sample.labelValues.size());
+            for (int i = 0; i < size; i++) {
+                final LabelState label = family.lastLabels[i];
+                if (null != label) {
+                    final String value = sample.labelValues.get(i);
+                    final long valueHash = CardinalityCounter.hash(value);
+                    seriesHash = CardinalityCounter.combine(seriesHash, valueHash);
+                    label.distinctValues.addHash(valueHash);
+                    sample(label, value);
+                }
+            }
+            family.series.addHash(seriesHash);
+        }
+
+        // Reservoir sampling, keeping a uniform sample of all occurrences
+        private void sample(LabelState label, String value) {
+            final long occurrence = label.occurrences++;
+            if (occurrence < label.sampledValues.length) {
+                label.sampledValues[(int) occurrence] = value;
+            } else {
+                random ^= random << 13;
+                random ^= random >>> 7;
+                random ^= random << 17;
+                final long slot = (random >>> 1) % (occurrence + 1);
+                if (slot < label.sampledValues.length) {
+                    label.sampledValues[(int) slot] = value;
+                }
+            }
+        }
+
+        /**
+         * Gets the labels considered unbounded, of all visited samples.
+         *
+         * @return the findings, highest distinct value count first.
+         */
+        public List<Finding> getFindings() {
+            final List<Finding> findings = new ArrayList<>();
+            for (FamilyState family : families.values()) {
+                final long seriesCount = family.series.count();
+                for (Map.Entry<String, LabelState> entry : family.labels.entrySet()) {
+                    final Finding finding = evaluate(family, seriesCount, entry.getKey(), entry.getValue());
+                    if (null != finding) {
+                        findings.add(finding);
+                    }
+                }
+            }
+            findings.sort(Comparator.comparingLong(Finding::getDistinctValueCount).reversed());
+            return findings;
+        }
+
+        private Finding evaluate(FamilyState family, long seriesCount, String labelName, LabelState label) {
+            final long distinct = label.distinctValues.count();
+            if (distinct < minDistinctValues) {
+                return null;
+            }
+            final int sampled = (int) Math.min(label.occurrences, label.sampledValues.length);
+            final int[] kindCounts = new int[Reason.values().length];
+            for (int i = 0; i < sampled; i++) {
+                final Reason kind = classify(label.sampledValues[i], maxValueLength);
+                if (null != kind) {
+                    kindCounts[kind.ordinal()]++;
+                }
+            }
+            Reason reason = null;
+            for (Reason kind : Reason.values()) {
+                if (sampled > 0 && kindCounts[kind.ordinal()] >= sampled * KIND_RATIO
+                        && (null == reason || kindCounts[kind.ordinal()] > kindCounts[reason.ordinal()])) {
+                    reason = kind;
+                }
+            }
+            final boolean exact = label.distinctValues.isExact() && family.series.isExact();
+            // A single label trivially has a distinct value per series
+            if (null == reason && family.labels.size() > 1 && seriesCount >= minSeriesForUniqueness
+                    && (exact ? distinct >= seriesCount : distinct >= seriesCount * 0.95)) {
+                reason = Reason.UNIQUE_PER_SERIES;
+            }
+            if (null == reason) {
+                return null;
+            }
+            final Set<String> examples = new LinkedHashSet<>();
+            for (int i = 0; i < sampled && examples.size() < MAX_EXAMPLE_VALUES; i++) {
+                examples.add(label.sampledValues[i]);
+            }
+            return new Finding(family.name, labelName, reason, distinct, label.distinctValues.isExact(),
+                    new ArrayList<>(examples));
+        }
+    }
+
+    /**
+     * Classifies a single label value.
+     *
+     * @param value          the label value.
+     * @param maxValueLength the max value length, above which the value is considered free text.
+     * @return the unbounded kind, or null if the value looks bounded.
+     */
+    static Reason classify(String value, int maxValueLength) {
+        if (isUuid(value)) {
+            return Reason.UUID;
+        }
+        if (isIpAddress(value)) {
+            return Reason.IP_ADDRESS;
+        }
+        if (isTimestamp(value)) {
+            return Reason.TIMESTAMP;
+        }
+        if (isNumericId(value)) {
+            return Reason.NUMERIC_ID;
+        }
+        if (value.length() > maxValueLength) {
+            return Reason.LONG_TEXT;
+        }
+        return null;
+    }
+
+    private static boolean isUuid(String value) {
+        if (value.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            final char c = value.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!isHexDigit(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIpAddress(String value) {
+        return isIpV4Address(value) || isIpV6Address(value);
+    }
+
+    // Dotted quad, with optional port
+    private static boolean isIpV4Address(String value) {
+        int parts = 0;
+        int digits = 0;
+        int octet = 0;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (isDigit(c)) {
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3 || octet > 255) {
+                    return false;
+                }
+            } else if (c == '.' || c == ':') {
+                if (digits == 0) {
+                    return false;
+                }
+                parts++;
+                digits = 0;
+                octet = 0;
+                if (c == ':') {
+                    return parts == 4 && isDigits(value, i + 1, value.length());
+                }
+            } else {
+                return false;
+            }
+        }
+        return digits > 0 && parts == 3;
+    }
+
+    // Up to eight groups of 1-4 hex digits, at most one '::', optionally ending with a dotted quad
+    private static boolean isIpV6Address(String value) {
+        final int length = value.length();
+        final int compressed = value.indexOf("::");
+        if (compressed >= 0 && value.indexOf("::", compressed + 1) >= 0) {
+            return false;
+        }
+        int groups = 0;
+        int i = compressed == 0 ? 2 : 0;
+        while (i < length) {
+            int end = i;
+            while (end < length && value.charAt(end) != ':') {
+                end++;
+            }
+            if (end == length && value.indexOf('.', i) >= 0) {
+                if (!isIpV4Address(value.substring(i))) {
+                    return false;
+                }
+                groups += 2;
+            } else if (end - i > 4 || !isHexDigits(value, i, end)) {
+                return false;
+            } else {
+                groups++;
+            }
+            if (end == length) {
+                break;
+            }
+            if (end == compressed) {
+                i = end + 2;
+            } else if (end + 1 == length) {
+                return false; // Trailing single colon
+            } else {
+                i = end + 1;
+            }
+        }
+        return compressed >= 0 ? groups < 8 : groups == 8;
+    }
+
+    // Epoch seconds, millis, micros or nanos since 2001, or ISO 8601 date
+    private static boolean isTimestamp(String value) {
+        final int length = value.length();
+        if ((length == 10 || length == 13 || length == 16 || length == 19)
+                && value.charAt(0) == '1' && isDigits(value, 0, length)) {
+            return true;
+        }
+        return length >= 10 && isDigits(value, 0, 4) && value.charAt(4) == '-'
+                && isDigits(value, 5, 7) && value.charAt(7) == '-' && isDigits(value, 8, 10);
+    }
+
+    private static boolean isNumericId(String value) {
+        final int length = value.length();
+        if (length >= 4 && isDigits(value, 0, length)) {
+            return true;
+        }
+        if (length < 16) {
+            return false;
+        }
+        boolean digit = false;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (!isHexDigit(c)) {
+                return false;
+            }
+            digit |= isDigit(c);
+        }
+        return digit;
+    }
+
+    private static boolean isHexDigits(String value, int from, int to) {
+        if (from >= to) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (!isHexDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigits(String value, int from, int to) {
+        if (from >= to) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (!isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHexDigit(char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+}
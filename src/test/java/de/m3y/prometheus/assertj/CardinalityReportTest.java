@@ -0,0 +1,107 @@
+package de.m3y.prometheus.assertj;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.withinPercentage;
+
+public class CardinalityReportTest {
+    @Test
+    public void testCardinalityCounter() {
+        CardinalityCounter counter = new CardinalityCounter(1000);
+        for (int i = 0; i < 1000; i++) {
+            counter.add("value_" + i);
+            counter.add("value_" + i); // Duplicate
+        }
+        assertThat(counter.isExact()).isTrue();
+        assertThat(counter.count()).isEqualTo(1000);
+
+        // Switches to sketch
+        for (int i = 1000; i < 200_000; i++) {
+            counter.add("value_" + i);
+        }
+        assertThat(counter.isExact()).isFalse();
+        assertThat((double) counter.count()).isCloseTo(200_000, withinPercentage(3));
+
+        // Small range estimate, right above threshold
+        CardinalityCounter small = new CardinalityCounter(10);
+        for (int i = 0; i < 100; i++) {
+            small.add(Integer.toString(i));
+        }
+        assertThat(small.isExact()).isFalse();
+        assertThat((double) small.count()).isCloseTo(100, withinPercentage(5));
+    }
+
+    @Test
+    public void testReport() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Gauge gauge = Gauge.build().name("report_gauge").help("help")
+                .labelNames("tenant", "region")
+                .create().register(collectorRegistry);
+        for (int i = 0; i < 30; i++) {
+            gauge.labels("tenant_" + i, i % 2 == 0 ? "eu" : "us").set(i);
+        }
+        Gauge.build().name("report_single_gauge").help("help")
+                .register(collectorRegistry).set(1);
+
+        CardinalityReport report = CardinalityReport.of(collectorRegistry);
+        assertThat(report.getTotalSeriesCount()).isEqualTo(31);
+        assertThat(report.getFamilies()).extracting(CardinalityReport.FamilyCardinality::getName)
+                .containsExactly("report_gauge", "report_single_gauge");
+        CardinalityReport.FamilyCardinality family = report.getFamilies().get(0);
+        assertThat(family.getSeriesCount()).isEqualTo(30);
+        assertThat(family.isExact()).isTrue();
+        assertThat(family.getLabelCardinalities())
+                .containsEntry("tenant", 30L)
+                .containsEntry("region", 2L);
+        assertThat(report.toString(1)).isEqualTo("31 series in 2 MFS\n"
+                + "  report_gauge 30 series {tenant=30, region=2}\n"
+                + "(showing top 1 of 2 MFS, omitted 1)");
+
+        // Estimated above threshold
+        CardinalityReport.FamilyCardinality estimated = CardinalityReport.count(
+                MetricsSnapshot.of(collectorRegistry).getMetricFamilySamples("report_gauge"), 10);
+        assertThat(estimated.isExact()).isFalse();
+        assertThat(estimated.toString()).contains("(estimated)");
+    }
+
+    @Test
+    public void testMetricsSnapshotAssert() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Counter counter = Counter.build().name("requests").help("help")
+                .labelNames("path")
+                .create().register(collectorRegistry);
+        for (int i = 0; i < 5; i++) {
+            counter.labels("/item/" + i).inc();
+        }
+        Gauge.build().name("temperature").help("help")
+                .register(collectorRegistry).set(20);
+
+        MetricsSnapshotAssert.assertThat(collectorRegistry)
+                .hasTotalSeriesCountAtMost(11) // 5 _total, 5 _created and 1 gauge
+                .hasSeriesCountAtMostPerFamily(10)
+                .hasLabelCardinalityAtMostPerFamily(5);
+
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> MetricsSnapshotAssert.assertThat(collectorRegistry)
+                        .withMaxFamiliesInFailureMessage(1)
+                        .hasTotalSeriesCountAtMost(10))
+                .withMessage("Expected at most 10 series, but found 11 series in 2 MFS\n"
+                        + "  requests 10 series {path=5}\n"
+                        + "(showing top 1 of 2 MFS, omitted 1)");
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> MetricsSnapshotAssert.assertThat(collectorRegistry)
+                        .hasSeriesCountAtMostPerFamily(9))
+                .withMessage("Expected at most 9 series per MFS, but found 1 exceeding MFS:\n"
+                        + "  requests 10 series {path=5}");
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> MetricsSnapshotAssert.assertThat(collectorRegistry)
+                        .hasLabelCardinalityAtMostPerFamily(4))
+                .withMessage("Expected at most 4 distinct values per label, but found 1 exceeding labels:\n"
+                        + "  requests label path with 5 values");
+    }
+}
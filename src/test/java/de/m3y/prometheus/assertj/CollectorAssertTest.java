@@ -0,0 +1,123 @@
+package de.m3y.prometheus.assertj;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.GaugeMetricFamily;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.Assume.assumeTrue;
+
+public class CollectorAssertTest {
+    /**
+     * Collector allocating a buffer and optionally sleeping per collect() invocation.
+     */
+    static class SlowCollector extends Collector {
+        final int allocatedBytes;
+        final long sleepMillis;
+        byte[] buffer;
+
+        SlowCollector(int allocatedBytes, long sleepMillis) {
+            this.allocatedBytes = allocatedBytes;
+            this.sleepMillis = sleepMillis;
+        }
+
+        @Override
+        public List<MetricFamilySamples> collect() {
+            buffer = new byte[allocatedBytes];
+            if (sleepMillis > 0) {
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return Collections.singletonList(new GaugeMetricFamily("slow_metric", "help", buffer.length));
+        }
+    }
+
+    @Test
+    public void testMeasurement() {
+        CollectMeasurement measurement = CollectMeasurement.measure(new SlowCollector(16, 0), 10, 100,
+                Duration.ofSeconds(10));
+        assertThat(measurement.getIterations()).isEqualTo(100);
+        assertThat(measurement.getLatencyPercentile(0.5)).isLessThanOrEqualTo(measurement.getLatencyPercentile(0.99));
+        assertThat(measurement.getLatencyPercentile(0.99)).isLessThanOrEqualTo(measurement.getMaxLatency());
+        assertThat(measurement.toString()).startsWith("100 iterations with latency p50=");
+        if (measurement.isAllocationMeasured()) {
+            assertThat(measurement.getAllocatedBytesPerCollect()).isPositive();
+        } else {
+            assertThat(measurement.getAllocatedBytesPerCollect()).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    public void testCollectP99AtMost() {
+        CollectorAssert.assertThat(new SlowCollector(16, 0))
+                .collectP99AtMost(Duration.ofSeconds(1));
+
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> CollectorAssert.assertThat(new SlowCollector(16, 5))
+                        .withWarmupIterations(0)
+                        .withMeasuredIterations(3)
+                        .collectP99AtMost(Duration.ofMillis(1)))
+                .withMessageStartingWith("Expected collect() of " + SlowCollector.class.getName()
+                        + " to have latency percentile 0.99 of at most PT0.001S, but has ");
+    }
+
+    @Test
+    public void testAllocatesAtMostPerCollect() {
+        CollectorAssert collectorAssert = CollectorAssert.assertThat(new SlowCollector(1024 * 1024, 0))
+                .withMeasuredIterations(10);
+        assumeTrue(collectorAssert.measurement().isAllocationMeasured());
+
+        collectorAssert.allocatesAtMostPerCollect(2 * 1024 * 1024);
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> collectorAssert.allocatesAtMostPerCollect(1024))
+                .withMessageStartingWith("Expected collect() of " + SlowCollector.class.getName()
+                        + " to allocate at most 1024 bytes, but allocates ");
+    }
+
+    @Test
+    public void testHungCollector() {
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> CollectorAssert.assertThat(new SlowCollector(16, 10_000))
+                        .withWarmupIterations(1)
+                        .withMeasuredIterations(1)
+                        .withTimeout(Duration.ofMillis(100))
+                        .collectP99AtMost(Duration.ofSeconds(1)))
+                .withMessage("Expected collect() of " + SlowCollector.class.getName()
+                        + " to complete within PT0.1S, but hung in iteration 1 of 2");
+    }
+
+    @Test
+    public void testSlowCollectorExceedingTimeoutPerInvocation() {
+        // Progresses, but each invocation exceeds the timeout
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> CollectorAssert.assertThat(new SlowCollector(16, 150))
+                        .withWarmupIterations(3)
+                        .withMeasuredIterations(3)
+                        .withTimeout(Duration.ofMillis(100))
+                        .collectP99AtMost(Duration.ofSeconds(1)))
+                .withMessage("Expected collect() of " + SlowCollector.class.getName()
+                        + " to complete within PT0.1S, but hung in iteration 1 of 6");
+    }
+
+    @Test
+    public void testFailingCollector() {
+        Collector collector = new Collector() {
+            @Override
+            public List<MetricFamilySamples> collect() {
+                throw new IllegalStateException("Broken");
+            }
+        };
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> CollectorAssert.assertThat(collector).collectP99AtMost(Duration.ofSeconds(1)))
+                .withMessageEndingWith("to succeed, but failed with java.lang.IllegalStateException: Broken")
+                .withCauseInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,130 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.GaugeMetricFamily;
+import io.prometheus.client.Histogram;
+import org.junit.Test;
+
+import static de.m3y.prometheus.assertj.MetricFamilySamplesAssert.labelValues;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class CompactMetricsSnapshotTest {
+    @Test
+    public void testCompactSnapshot() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Counter counter = Counter.build().name("compact_counter").help("help")
+                .labelNames("method", "status")
+                .register(collectorRegistry);
+        counter.labels("GET", "200").inc(2);
+        counter.labels("POST", "200").inc(3);
+        Gauge gauge = Gauge.build().name("compact_gauge").help("help")
+                .labelNames("method")
+                .register(collectorRegistry);
+        gauge.labels("GET").set(5);
+        Histogram histogram = Histogram.build().name("compact_histogram").help("help")
+                .buckets(1, 5)
+                .register(collectorRegistry);
+        histogram.observe(3);
+
+        CompactMetricsSnapshot snapshot = CompactMetricsSnapshot.of(collectorRegistry);
+        assertThat(snapshot.size()).isEqualTo(3);
+        assertThat(snapshot.getNames()).containsExactlyInAnyOrder("compact_counter", "compact_gauge", "compact_histogram");
+        assertThat(snapshot.contains("compact_gauge")).isTrue();
+        assertThat(snapshot.contains("nonexistent")).isFalse();
+        // Label values GET, 200, POST and histogram le values are interned once
+        assertThat(snapshot.getDistinctLabelValueCount()).isEqualTo(3 + 3);
+
+        snapshot.assertThat("compact_counter")
+                .hasTypeOfCounter()
+                .hasSampleValue(labelValues("GET", "200"), 2)
+                .hasSampleValue(labelValues("POST", "200"), 3);
+        snapshot.assertThat("compact_gauge")
+                .hasTypeOfGauge()
+                .hasSampleValue(labelValues("GET"), 5)
+                .hasSampleLabelNames("method");
+        snapshot.assertThat("compact_histogram")
+                .hasTypeOfHistogram()
+                .hasSampleCountValue(1)
+                .hasSampleSumValue(3)
+                .hasSampleBucketValue(5, 1)
+                .hasSampleBucketValue(Double.POSITIVE_INFINITY, 1);
+
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> snapshot.getMetricFamilySamples("compact_gauges"))
+                .withMessageContaining("compact_gauge");
+    }
+
+    @Test
+    public void testViewsEqualCollected() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Gauge gauge = Gauge.build().name("compact_view_gauge").help("help")
+                .labelNames("a", "b")
+                .register(collectorRegistry);
+        for (int i = 0; i < 100; i++) {
+            gauge.labels("a" + i % 10, "b" + i).set(i);
+        }
+        Histogram.build().name("compact_view_histogram").help("help").register(collectorRegistry).observe(1);
+
+        MetricsSnapshot expected = MetricsSnapshot.of(collectorRegistry);
+        CompactMetricsSnapshot snapshot = CompactMetricsSnapshot.of(expected);
+        assertThat(snapshot.getSampleCount()).isEqualTo(100 + expected.getMetricFamilySamples("compact_view_histogram").samples.size());
+        assertThat(snapshot.getDistinctLabelValueCount()).isLessThan(100 * 2);
+
+        List<Collector.MetricFamilySamples> views = snapshot.getMetricFamilySamples();
+        assertThat(views).hasSameSizeAs(expected.getMetricFamilySamples());
+        for (Collector.MetricFamilySamples view : views) {
+            Collector.MetricFamilySamples mfs = expected.getMetricFamilySamples(view.name);
+            assertThat(view).isEqualTo(mfs);
+            assertThat(view.samples).containsExactlyElementsOf(mfs.samples);
+        }
+    }
+
+    @Test
+    public void testSuggestsSimilarNamesOfManyMfs() {
+        List<Collector.MetricFamilySamples> mfs = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            mfs.add(new GaugeMetricFamily("compact_many_gauge_" + i, "help", i));
+        }
+        CompactMetricsSnapshot snapshot = CompactMetricsSnapshot.of(mfs);
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> snapshot.getMetricFamilySamples("compact_many_gauge_x42"))
+                .withMessageContaining("compact_many_gauge_42");
+    }
+
+    @Test
+    public void testViewsAreReused() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Counter.build().name("compact_reuse_counter").help("help").register(collectorRegistry).inc();
+        Gauge.build().name("compact_reuse_gauge").help("help").register(collectorRegistry).set(1);
+        CompactMetricsSnapshot snapshot = CompactMetricsSnapshot.of(collectorRegistry);
+
+        for (String name : new String[]{"compact_reuse_counter", "compact_reuse_gauge"}) {
+            Collector.MetricFamilySamples view = snapshot.getMetricFamilySamples(name);
+            assertThat(snapshot.getMetricFamilySamples(name)).isSameAs(view);
+            assertThat(snapshot.getMetricFamilySamples()).anySatisfy(v -> assertThat(v).isSameAs(view));
+            assertThat(view.samples.get(0)).isSameAs(view.samples.get(0));
+        }
+    }
+
+    @Test
+    public void testDelta() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Counter counter = Counter.build().name("compact_delta_counter").help("help")
+                .register(collectorRegistry);
+        counter.inc();
+        CompactMetricsSnapshot before = CompactMetricsSnapshot.of(collectorRegistry, "compact_delta_counter");
+        counter.inc(2);
+        CompactMetricsSnapshot after = CompactMetricsSnapshot.of(collectorRegistry, "compact_delta_counter");
+
+        MetricsDelta.of(before, after).assertThat("compact_delta_counter")
+                .hasTypeOfCounter()
+                .hasSampleValue(2);
+    }
+}
@@ -0,0 +1,87 @@
+package de.m3y.prometheus.assertj;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.exporter.common.TextFormat;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class ExpositionReportTest {
+    private static long expositionBytes(Collector.MetricFamilySamples mfs) throws Exception {
+        StringWriter writer = new StringWriter();
+        TextFormat.write004(writer, Collections.enumeration(Collections.singletonList(mfs)));
+        return writer.toString().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static CollectorRegistry createRegistry() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Counter counter = Counter.build().name("requests").help("Requests with ümlaut help")
+                .labelNames("path")
+                .create().register(collectorRegistry);
+        for (int i = 0; i < 100; i++) {
+            counter.labels("/item/" + i).inc();
+        }
+        Gauge.build().name("temperature").help("help")
+                .register(collectorRegistry).set(20);
+        return collectorRegistry;
+    }
+
+    @Test
+    public void testReport() throws Exception {
+        MetricsSnapshot snapshot = MetricsSnapshot.of(createRegistry());
+        ExpositionReport report = ExpositionReport.of(snapshot);
+
+        long requestsBytes = expositionBytes(snapshot.getMetricFamilySamples("requests"));
+        long temperatureBytes = expositionBytes(snapshot.getMetricFamilySamples("temperature"));
+        assertThat(report.getFamilies()).extracting(ExpositionReport.FamilyExposition::getName)
+                .containsExactly("requests", "temperature");
+        assertThat(report.getFamilies().get(0).getBytes()).isEqualTo(requestsBytes);
+        assertThat(report.getFamilies().get(1).getBytes()).isEqualTo(temperatureBytes);
+        assertThat(report.getTotalBytes()).isEqualTo(requestsBytes + temperatureBytes);
+        assertThat(report.getGzipBytes()).isPositive().isLessThan(report.getTotalBytes() / 4);
+        assertThat(report.getSerializationTime()).isPositive();
+        assertThat(report.toString(1))
+                .startsWith(report.getTotalBytes() + " bytes (" + report.getGzipBytes() + " bytes gzip) serialized in ")
+                .endsWith(" for 2 MFS\n"
+                        + "  requests " + requestsBytes + " bytes\n"
+                        + "(showing top 1 of 2 MFS, omitted 1)");
+    }
+
+    @Test
+    public void testAssertions() throws Exception {
+        MetricsSnapshot snapshot = MetricsSnapshot.of(createRegistry());
+        ExpositionReport report = ExpositionReport.of(snapshot);
+        Collector.MetricFamilySamples mfs = snapshot.getMetricFamilySamples("requests");
+        long requestsBytes = expositionBytes(mfs);
+
+        MetricFamilySamplesAssert.assertThat(mfs).hasExpositionSizeAtMost(requestsBytes);
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> MetricFamilySamplesAssert.assertThat(mfs).hasExpositionSizeAtMost(100))
+                .withMessageStartingWith("Expected MetricFamilySamples requests to have an exposition size of at most 100 bytes, but has "
+                        + requestsBytes + " bytes (");
+
+        MetricsSnapshotAssert.assertThat(snapshot)
+                .hasExpositionSizeAtMost(report.getTotalBytes())
+                .hasGzipExpositionSizeAtMost(report.getGzipBytes())
+                .serializesWithin(Duration.ofSeconds(10));
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> MetricsSnapshotAssert.assertThat(snapshot).hasExpositionSizeAtMost(100))
+                .withMessageStartingWith("Expected an exposition size of at most 100 bytes, but found " + report.getTotalBytes())
+                .withMessageContaining("\n  requests " + requestsBytes + " bytes");
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> MetricsSnapshotAssert.assertThat(snapshot).hasGzipExpositionSizeAtMost(100))
+                .withMessageStartingWith("Expected a gzip exposition size of at most 100 bytes, but found ");
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> MetricsSnapshotAssert.assertThat(snapshot).serializesWithin(Duration.ZERO))
+                .withMessageStartingWith("Expected serializing within PT0S, but found ");
+    }
+}
@@ -0,0 +1,131 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.Arrays;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import io.prometheus.client.Summary;
+import org.junit.Test;
+
+import static de.m3y.prometheus.assertj.MetricFamilySamplesUtils.getMetricFamilySamples;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class FootprintReportTest {
+    @Test
+    public void testEstimate() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Gauge.build().name("gauge").help("help").register(collectorRegistry).set(1);
+        Counter.build().name("counter").help("help").labelNames("l")
+                .register(collectorRegistry).labels("a").inc();
+
+        FootprintReport.FamilyFootprint gauge =
+                FootprintReport.estimate(getMetricFamilySamples(collectorRegistry, "gauge"));
+        assertThat(gauge.getSeriesCount()).isEqualTo(1);
+        assertThat(gauge.getEstimatedBytes()).isEqualTo(FootprintReport.FAMILY_BYTES + FootprintReport.SERIES_BYTES
+                + FootprintReport.GAUGE_CHILD_BYTES + 16 /* Empty label values */);
+
+        FootprintReport.FamilyFootprint counter =
+                FootprintReport.estimate(getMetricFamilySamples(collectorRegistry, "counter"));
+        assertThat(counter.getSeriesCount()).isEqualTo(1); // _created belongs to series
+        assertThat(counter.getEstimatedBytes()).isEqualTo(FootprintReport.FAMILY_BYTES + FootprintReport.SERIES_BYTES
+                + FootprintReport.COUNTER_CHILD_BYTES + 24 /* Label values */ + FootprintReport.stringBytes("a"));
+        assertThat(FootprintReport.stringBytes("a")).isEqualTo(48);
+    }
+
+    @Test
+    public void testEstimateHistogramAndSummary() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Histogram.build().name("small_histogram").help("help").buckets(1)
+                .register(collectorRegistry).observe(1);
+        Histogram.build().name("large_histogram").help("help").buckets(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)
+                .register(collectorRegistry).observe(1);
+        Summary.build().name("summary").help("help")
+                .register(collectorRegistry).observe(1);
+        Summary.build().name("quantile_summary").help("help").quantile(0.5, 0.01).quantile(0.99, 0.001)
+                .register(collectorRegistry).observe(1);
+
+        FootprintReport.FamilyFootprint small =
+                FootprintReport.estimate(getMetricFamilySamples(collectorRegistry, "small_histogram"));
+        FootprintReport.FamilyFootprint large =
+                FootprintReport.estimate(getMetricFamilySamples(collectorRegistry, "large_histogram"));
+        assertThat(small.getSeriesCount()).isEqualTo(1);
+        assertThat(large.getEstimatedBytes() - small.getEstimatedBytes())
+                .isEqualTo(9 * FootprintReport.HISTOGRAM_BUCKET_BYTES);
+
+        FootprintReport.FamilyFootprint summary =
+                FootprintReport.estimate(getMetricFamilySamples(collectorRegistry, "summary"));
+        FootprintReport.FamilyFootprint quantileSummary =
+                FootprintReport.estimate(getMetricFamilySamples(collectorRegistry, "quantile_summary"));
+        assertThat(summary.getSeriesCount()).isEqualTo(1);
+        assertThat(quantileSummary.getEstimatedBytes() - summary.getEstimatedBytes())
+                .isEqualTo(FootprintReport.SUMMARY_QUANTILES_BYTES + 2 * FootprintReport.SUMMARY_QUANTILE_BYTES);
+
+        FootprintReport report = FootprintReport.of(collectorRegistry);
+        assertThat(report.getFamilies()).extracting(FootprintReport.FamilyFootprint::getName)
+                .containsExactly("quantile_summary", "large_histogram", "small_histogram", "summary");
+        assertThat(report.getTotalEstimatedBytes()).isEqualTo(small.getEstimatedBytes() + large.getEstimatedBytes()
+                + summary.getEstimatedBytes() + quantileSummary.getEstimatedBytes());
+        assertThat(report.toString(1)).isEqualTo(report.getTotalEstimatedBytes() + " bytes estimated for 4 MFS\n"
+                + "  quantile_summary " + quantileSummary.getEstimatedBytes() + " bytes for 1 series\n"
+                + "(showing top 1 of 4 MFS, omitted 3)");
+    }
+
+    @Test
+    public void testEstimateGaugeHistogram() {
+        List<String> labelNames = Arrays.asList("pool");
+        List<String> bucketLabelNames = Arrays.asList("pool", "le");
+        Collector.MetricFamilySamples gaugeHistogram = new Collector.MetricFamilySamples("queue_size",
+                Collector.Type.GAUGE_HISTOGRAM, "help", Arrays.asList(
+                new Sample("queue_size_bucket", bucketLabelNames, Arrays.asList("a", "1.0"), 1),
+                new Sample("queue_size_bucket", bucketLabelNames, Arrays.asList("a", "+Inf"), 2),
+                new Sample("queue_size_gcount", labelNames, Arrays.asList("a"), 2),
+                new Sample("queue_size_gsum", labelNames, Arrays.asList("a"), 3),
+                new Sample("queue_size_gcount", labelNames, Arrays.asList("b"), 0), // Series without buckets
+                new Sample("queue_size_gsum", labelNames, Arrays.asList("b"), 0)));
+
+        FootprintReport.FamilyFootprint footprint = FootprintReport.estimate(gaugeHistogram);
+        assertThat(footprint.getSeriesCount()).isEqualTo(2);
+        assertThat(footprint.getEstimatedBytes()).isEqualTo(FootprintReport.FAMILY_BYTES
+                + 2 * (FootprintReport.SERIES_BYTES + FootprintReport.HISTOGRAM_CHILD_BYTES
+                + 24 /* Label values */ + FootprintReport.stringBytes("a"))
+                + 2 * FootprintReport.HISTOGRAM_BUCKET_BYTES);
+
+        FootprintReport.FamilyFootprint noSamples = FootprintReport.estimate(
+                new Collector.MetricFamilySamples("no_samples", Collector.Type.GAUGE, "help", null));
+        assertThat(noSamples.getSeriesCount()).isZero();
+        assertThat(noSamples.getEstimatedBytes()).isEqualTo(FootprintReport.FAMILY_BYTES);
+    }
+
+    @Test
+    public void testAssertions() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Counter counter = Counter.build().name("requests").help("help").labelNames("path")
+                .create().register(collectorRegistry);
+        for (int i = 0; i < 100; i++) {
+            counter.labels("/item/" + i).inc();
+        }
+        MetricsSnapshot snapshot = MetricsSnapshot.of(collectorRegistry);
+        long estimatedBytes = FootprintReport.of(snapshot).getTotalEstimatedBytes();
+
+        MetricFamilySamplesAssert.assertThat(snapshot.getMetricFamilySamples("requests"))
+                .hasEstimatedFootprintAtMost(estimatedBytes);
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> MetricFamilySamplesAssert.assertThat(snapshot.getMetricFamilySamples("requests"))
+                        .hasEstimatedFootprintAtMost(1024))
+                .withMessage("Expected MetricFamilySamples requests to have an estimated footprint of at most 1024 bytes,"
+                        + " but has " + estimatedBytes + " bytes for 100 series");
+
+        MetricsSnapshotAssert.assertThat(snapshot).hasEstimatedFootprintAtMost(estimatedBytes);
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> MetricsSnapshotAssert.assertThat(snapshot).hasEstimatedFootprintAtMost(1024))
+                .withMessage("Expected an estimated footprint of at most 1024 bytes, but found "
+                        + estimatedBytes + " bytes estimated for 1 MFS\n"
+                        + "  requests " + estimatedBytes + " bytes for 100 series");
+    }
+}
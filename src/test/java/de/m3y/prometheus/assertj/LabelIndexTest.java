@@ -0,0 +1,94 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class LabelIndexTest {
+    private static final List<String> LABEL_NAMES = Arrays.asList("method", "path");
+
+    @Test
+    public void testParse() {
+        LabelMatcher matcher = LabelMatcher.parse("method=\"GET\"");
+        assertThat(matcher.labelName).isEqualTo("method");
+        assertThat(matcher.type).isEqualTo(LabelMatcher.Type.EQUAL);
+        assertThat(matcher.value).isEqualTo("GET");
+
+        assertThat(LabelMatcher.parse(" status != '200' ").type).isEqualTo(LabelMatcher.Type.NOT_EQUAL);
+        assertThat(LabelMatcher.parse("path=~\"/api/.*\"").type).isEqualTo(LabelMatcher.Type.REGEX);
+        assertThat(LabelMatcher.parse("path!~\"/api/.*\"").type).isEqualTo(LabelMatcher.Type.NOT_REGEX);
+        assertThat(LabelMatcher.parse("msg=\"a \\\"quoted\\\" value\"").value).isEqualTo("a \"quoted\" value");
+        assertThat(LabelMatcher.parse("code=~\"\\d+\"").matches("404")).isTrue();
+        assertThat(LabelMatcher.parse("msg=\"a\\\"b\"")).hasToString("msg=\"a\\\"b\"");
+
+        assertThatIllegalArgumentException().isThrownBy(() -> LabelMatcher.parse("=\"GET\""))
+                .withMessage("Invalid label matcher <=\"GET\"> : expected label name");
+        assertThatIllegalArgumentException().isThrownBy(() -> LabelMatcher.parse("method==\"GET\""))
+                .withMessage("Invalid label matcher <method==\"GET\"> : expected quoted label value");
+        assertThatIllegalArgumentException().isThrownBy(() -> LabelMatcher.parse("method<\"GET\""))
+                .withMessageContaining("expected one of =, !=, =~ or !~");
+        assertThatIllegalArgumentException().isThrownBy(() -> LabelMatcher.parse("method=\"GET"))
+                .withMessageContaining("unterminated label value");
+        assertThatIllegalArgumentException().isThrownBy(() -> LabelMatcher.parse("method=\"GET\" x"))
+                .withMessageContaining("unexpected trailing ' x'");
+        assertThatIllegalArgumentException().isThrownBy(() -> LabelMatcher.parse("path=~\"[\""))
+                .withMessageStartingWith("Invalid regex in label matcher path=~\"[\"");
+    }
+
+    @Test
+    public void testRegexIsAnchored() {
+        LabelMatcher matcher = LabelMatcher.parse("path=~\"/api\"");
+        assertThat(matcher.matches("/api")).isTrue();
+        assertThat(matcher.matches("/api/users")).isFalse();
+        assertThat(matcher.matches("/v1/api")).isFalse();
+    }
+
+    @Test
+    public void testSelect() {
+        List<Sample> samples = new ArrayList<>();
+        samples.add(sample("GET", "/api/users"));   // 0
+        samples.add(sample("GET", "/api/orders"));  // 1
+        samples.add(sample("POST", "/api/users"));  // 2
+        samples.add(sample("GET", "/health"));      // 3
+        samples.add(new Sample("other", LABEL_NAMES, Arrays.asList("GET", "/api/users"), 1)); // 4
+        samples.add(new Sample("requests", Collections.singletonList("method"), // 5, without path
+                Collections.singletonList("GET"), 1));
+        LabelIndex index = new LabelIndex(samples);
+
+        assertThat(select(index, "requests")).containsExactly(0, 1, 2, 3, 5);
+        assertThat(select(index, null, "path=\"/api/users\"")).containsExactly(0, 2, 4);
+        assertThat(select(index, "requests", "method=\"GET\"", "path=~\"/api/.*\"")).containsExactly(0, 1);
+        assertThat(select(index, "requests", "method!=\"GET\"")).containsExactly(2);
+        assertThat(select(index, "requests", "path!~\"/api/.*\"")).containsExactly(3, 5);
+        // Absent label matches as empty value
+        assertThat(select(index, "requests", "path=\"\"")).containsExactly(5);
+        assertThat(select(index, "requests", "path!=\"\"")).containsExactly(0, 1, 2, 3);
+        assertThat(select(index, "requests", "method=\"PUT\"")).isEmpty();
+        assertThat(select(index, "nonexistent")).isEmpty();
+    }
+
+    private static Sample sample(String method, String path) {
+        return new Sample("requests", LABEL_NAMES, Arrays.asList(method, path), 1);
+    }
+
+    private static List<Integer> select(LabelIndex index, String sampleName, String... matchers) {
+        List<LabelMatcher> parsed = new ArrayList<>();
+        for (String matcher : matchers) {
+            parsed.add(LabelMatcher.parse(matcher));
+        }
+        BitSet selected = index.select(sampleName, parsed);
+        List<Integer> positions = new ArrayList<>();
+        for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+            positions.add(i);
+        }
+        return positions;
+    }
+}
@@ -3,14 +3,24 @@ package de.m3y.prometheus.assertj;
 
 import io.prometheus.client.*;
 import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
 import org.assertj.core.api.ThrowableAssert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import static de.m3y.prometheus.assertj.MetricFamilySamplesAssert.assertThat;
 import static de.m3y.prometheus.assertj.MetricFamilySamplesAssert.labelValues;
+import static de.m3y.prometheus.assertj.MetricFamilySamplesAssert.labels;
+import static de.m3y.prometheus.assertj.MetricFamilySamplesAssert.withLabel;
+import static de.m3y.prometheus.assertj.MetricFamilySamplesAssert.withSampleName;
+import static de.m3y.prometheus.assertj.MetricFamilySamplesAssert.withValue;
 import static de.m3y.prometheus.assertj.MetricFamilySamplesUtils.getMetricFamilySamples;
 import static io.prometheus.client.Collector.Type.*;
 import static io.prometheus.client.CollectorRegistry.defaultRegistry;
@@ -294,6 +304,342 @@ public class MetricFamilySamplesAssertTest {
                 .hasTypeOfHistogram().hasSampleBucketValue(labelValues("foo"), 2, da -> da.isEqualTo(0)));
     }
 
+    @Test
+    public void testHasSampleValueWithManySeries() {
+        Gauge gauge = Gauge.build().name("testHasSampleValueWithManySeries").help("help")
+                .labelNames("label_a", "label_b")
+                .create().register();
+        for (int i = 0; i < 1000; i++) {
+            gauge.labels("a" + i, "b" + (i % 10)).set(i);
+        }
+
+        MetricFamilySamples mfs = getMetricFamilySamples("testHasSampleValueWithManySeries");
+        final MetricFamilySamplesCounterAndGaugeAssert gaugeAssert = assertThat(mfs).hasTypeOfGauge();
+        for (int i = 0; i < 1000; i++) {
+            gaugeAssert.hasSampleValue(labelValues("a" + i, "b" + (i % 10)), i);
+        }
+
+        // Should fail:
+        expectAssertionError(() -> gaugeAssert.hasSampleValue(labelValues("a1", "b2"), 1));
+        expectAssertionError(() -> gaugeAssert.hasSampleValue(labelValues("a1"), 1));
+        expectAssertionError(() -> gaugeAssert.hasSampleValue(labelValues("a1", "b1"), 2));
+    }
+
+    @Test
+    public void testHasSampleValueMatchingAndCloseTo() {
+        Gauge gauge = Gauge.build().name("testHasSampleValueMatchingAndCloseTo").help("help")
+                .labelNames("label")
+                .create().register();
+        gauge.labels("foo").set(1.5);
+        Histogram histogram = Histogram.build().name("testHasSampleValueMatchingAndCloseTo_histogram").help("help")
+                .labelNames("label")
+                .buckets(1, 5)
+                .create().register();
+        histogram.labels("foo").observe(3);
+        Summary summary = Summary.build().name("testHasSampleValueMatchingAndCloseTo_summary").help("help")
+                .quantile(0.5, 0.01)
+                .create().register();
+        summary.observe(3);
+
+        final MetricFamilySamplesCounterAndGaugeAssert gaugeAssert =
+                assertThat(getMetricFamilySamples("testHasSampleValueMatchingAndCloseTo")).hasTypeOfGauge()
+                        .hasSampleValueMatching(labelValues("foo"), v -> v > 1)
+                        .hasSampleValueCloseTo(labelValues("foo"), 1.4, 0.1)
+                        .hasSampleValueCloseTo(labelValues("foo"), 1.5, 0);
+        assertThat(getMetricFamilySamples("testHasSampleValueMatchingAndCloseTo_histogram")).hasTypeOfHistogram()
+                .hasSampleBucketValueMatching(labelValues("foo"), 5, v -> v == 1)
+                .hasSampleBucketValueCloseTo(labelValues("foo"), 1, 0, 0)
+                .hasSampleCountValueMatching(labelValues("foo"), v -> v > 0)
+                .hasSampleCountValueCloseTo(labelValues("foo"), 1, 0)
+                .hasSampleSumValueMatching(labelValues("foo"), v -> v < 5)
+                .hasSampleSumValueCloseTo(labelValues("foo"), 3.1, 0.2);
+        assertThat(getMetricFamilySamples("testHasSampleValueMatchingAndCloseTo_summary")).hasTypeOfSummary()
+                .hasSampleValueMatching(labelValues(), 0.5, v -> v > 2)
+                .hasSampleValueCloseTo(labelValues(), 0.5, 3, 0.5);
+
+        // Should fail, with the AssertJ message:
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> gaugeAssert.hasSampleValueMatching(labelValues("foo"), v -> v > 2))
+                .withMessageStartingWith("Unexpected value for testHasSampleValueMatchingAndCloseTo{label=foo} : ")
+                .withMessageContaining("to match given predicate");
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> gaugeAssert.hasSampleValueCloseTo(labelValues("foo"), 1, 0.1))
+                .withMessageStartingWith("Unexpected value for testHasSampleValueMatchingAndCloseTo{label=foo} : ")
+                .withMessageContaining("1.5");
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(getMetricFamilySamples("testHasSampleValueMatchingAndCloseTo_histogram"))
+                        .hasTypeOfHistogram().hasSampleBucketValueMatching(labelValues("foo"), 2, v -> true))
+                .withMessageStartingWith("Expected testHasSampleValueMatchingAndCloseTo_histogram_bucket{label=foo, le=2.0} sample");
+        expectAssertionError(() -> gaugeAssert.hasSampleValueMatching(labelValues("bar"), v -> true));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> gaugeAssert.hasSampleValueCloseTo(labelValues("foo"), 1.5, -1));
+    }
+
+    @Test
+    public void testHasSampleValueOfNegativeZero() {
+        final MetricFamilySamples gauge = new MetricFamilySamples("negative_zero_gauge", GAUGE, "help",
+                Collections.singletonList(new Sample("negative_zero_gauge", Collections.emptyList(),
+                        Collections.emptyList(), -0.0)));
+        assertThat(gauge).hasTypeOfGauge().hasSampleValue(0.0).hasSampleValue(-0.0);
+
+        final MetricFamilySamples summary = new MetricFamilySamples("negative_zero_summary", SUMMARY, "help",
+                Collections.singletonList(new Sample("negative_zero_summary", Collections.singletonList("quantile"),
+                        Collections.singletonList("0.5"), -0.0)));
+        assertThat(summary).hasTypeOfSummary().hasSampleValue(0.5, -0.0);
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(summary).hasTypeOfSummary().hasSampleValue(0.5, 0.0))
+                .withMessageStartingWith("Unexpected value for negative_zero_summary{quantile=0.5} : ");
+    }
+
+    @Test
+    public void testSelecting() {
+        Counter counter = Counter.build().name("testSelecting").help("help")
+                .labelNames("method", "path", "status")
+                .create().register();
+        counter.labels("GET", "/api/users", "200").inc(1);
+        counter.labels("GET", "/api/users", "500").inc(2);
+        counter.labels("GET", "/api/orders", "404").inc(3);
+        counter.labels("POST", "/api/users", "500").inc(4);
+        counter.labels("GET", "/health", "500").inc(5);
+
+        MetricFamilySamples mfs = getMetricFamilySamples("testSelecting");
+        final MetricFamilySamplesCounterAndGaugeAssert counterAssert = assertThat(mfs).hasTypeOfCounter();
+        counterAssert.selecting("testSelecting", "method=\"GET\"", "path=~\"/api/.*\"", "status!=\"200\"")
+                .hasSampleSize(2)
+                .hasTypeOfCounter()
+                .hasSampleValue(labelValues("GET", "/api/users", "500"), 2)
+                .hasSampleValue(labelValues("GET", "/api/orders", "404"), 3);
+        counterAssert.selecting("testSelecting", "status=\"500\"")
+                .allSamplesSatisfy(withValue(v -> v >= 2));
+        counterAssert.selecting("testSelecting", "method=\"PUT\"")
+                .hasSampleSize(0);
+        // Labels by name, in any order
+        counterAssert
+                .hasSampleValue(labels("status", "404", "method", "GET", "path", "/api/orders"), 3)
+                .hasSampleValue(labels("path", "/health", "status", "500", "method", "GET"), da -> da.isEqualTo(5));
+
+        // Should fail:
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> counterAssert.selecting("testSelecting", "status=~\"5..\"").hasSampleSize(1))
+                .withMessageContaining("3");
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> counterAssert.hasSampleValue(labels("method", "GET", "path", "/health"), 5))
+                .withMessage("Expected labels {method=GET, path=/health} to match label names [method, path, status]"
+                        + " of testSelecting_total samples");
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> counterAssert.selecting("testSelecting", "status"));
+    }
+
+    @Test
+    public void testAggregate() {
+        Counter counter = Counter.build().name("testAggregate").help("help")
+                .labelNames("pod", "status")
+                .create().register();
+        counter.labels("pod-1", "200").inc(1);
+        counter.labels("pod-2", "200").inc(2);
+        counter.labels("pod-1", "500").inc(3);
+        counter.labels("pod-2", "500").inc(Double.NaN);
+        Histogram histogram = Histogram.build().name("testAggregate_histogram").help("help")
+                .labelNames("pod")
+                .create().register();
+        histogram.labels("pod-1").observe(1);
+        histogram.labels("pod-2").observe(2);
+        histogram.labels("pod-2").observe(3);
+
+        final MetricFamilySamplesCounterAndGaugeAssert counterAssert =
+                assertThat(getMetricFamilySamples("testAggregate")).hasTypeOfCounter();
+        counterAssert.aggregate(Aggregation.SUM).by("status")
+                .hasSampleSize(2)
+                .hasSampleLabelNames("status")
+                .hasSampleValue(labelValues("200"), 3)
+                .hasSampleValue(labelValues("500"), da -> da.isNaN());
+        counterAssert.aggregate(Aggregation.MAX).by("status")
+                .hasSampleValue(labelValues("200"), 2)
+                .hasSampleValue(labelValues("500"), 3); // Ignores NaN
+        counterAssert.aggregate(Aggregation.MIN).without("status")
+                .hasSampleValue(labelValues("pod-1"), 1)
+                .hasSampleValue(labelValues("pod-2"), 2);
+        counterAssert.aggregate(Aggregation.COUNT).by()
+                .hasSampleValue(4);
+        counterAssert.aggregate(Aggregation.AVG).by("pod", "status")
+                .hasSampleValue(labelValues("pod-1", "500"), 3);
+        counterAssert.aggregate(Aggregation.SUM).by("nonexistent")
+                .hasSampleValue(labelValues(""), da -> da.isNaN());
+
+        assertThat(getMetricFamilySamples("testAggregate_histogram")).hasTypeOfHistogram()
+                .aggregate(Aggregation.SUM, "testAggregate_histogram_count").by()
+                .hasSampleValue(3);
+
+        // Should fail:
+        expectAssertionError(() -> counterAssert.aggregate(Aggregation.SUM).by("status")
+                .hasSampleValue(labelValues("200"), 4));
+    }
+
+    @Test
+    public void testAggregateManyGroups() {
+        Gauge gauge = Gauge.build().name("testAggregateManyGroups").help("help")
+                .labelNames("shard", "replica")
+                .create().register();
+        for (int i = 0; i < 10_000; i++) {
+            gauge.labels("shard-" + (i % 1000), "replica-" + (i / 1000)).set(i);
+        }
+
+        final MetricFamilySamplesCounterAndGaugeAssert byShard =
+                assertThat(getMetricFamilySamples("testAggregateManyGroups")).hasTypeOfGauge()
+                        .aggregate(Aggregation.MAX).by("shard")
+                        .hasSampleSize(1000);
+        for (int shard = 0; shard < 1000; shard++) {
+            byShard.hasSampleValue(labelValues("shard-" + shard), 9000 + shard);
+        }
+    }
+
+    @Test
+    public void testFailureMessageIsBounded() {
+        Gauge gauge = Gauge.build().name("testFailureMessageIsBounded").help("help")
+                .labelNames("label_a", "label_b")
+                .create().register();
+        for (int i = 0; i < 1000; i++) {
+            gauge.labels("a" + i, "b" + i).set(i);
+        }
+        MetricFamilySamples mfs = getMetricFamilySamples("testFailureMessageIsBounded");
+
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(mfs).hasTypeOfGauge().hasSampleValue(labelValues("a42", "x"), 42))
+                .withMessageStartingWith("Expected testFailureMessageIsBounded{label_a=a42, label_b=x} sample in samples :\n" +
+                        "[testFailureMessageIsBounded{label_a=a42, label_b=b42} 42.0,")
+                .withMessageEndingWith("(showing closest 20 of 1000 samples, omitted 980)");
+
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(mfs).withMaxSamplesInFailureMessage(2)
+                        .hasTypeOfGauge().hasSampleValue(labelValues("a4", "b42"), 42))
+                .withMessageEndingWith("[testFailureMessageIsBounded{label_a=a4, label_b=b4} 4.0,\n" +
+                        "testFailureMessageIsBounded{label_a=a42, label_b=b42} 42.0]\n" +
+                        "(showing closest 2 of 1000 samples, omitted 998)");
+
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(mfs).withMaxSamplesInFailureMessage(1).hasSampleSize(1))
+                .withMessageEndingWith("]\n(showing first 1 of 1000 samples, omitted 999)");
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> assertThat(mfs).withMaxSamplesInFailureMessage(-1));
+    }
+
+    @Test
+    public void testHasSampleValues() {
+        Counter counter = Counter.build().name("testHasSampleValues").help("help")
+                .labelNames("label_a", "label_b")
+                .create().register();
+        Map<List<String>, Double> expected = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            counter.labels("a" + i, "b" + i).inc(i);
+            expected.put(labelValues("a" + i, "b" + i), (double) i);
+        }
+
+        MetricFamilySamples mfs = getMetricFamilySamples("testHasSampleValues");
+        assertThat(mfs).hasTypeOfCounter().hasSampleValues(expected);
+
+        // Should fail, reporting all mismatching and missing samples:
+        expected.put(labelValues("a1", "b1"), 42d);
+        expected.put(labelValues("a2", "b2"), 43d);
+        expected.put(labelValues("x", "y"), 1d);
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(mfs).hasTypeOfCounter().hasSampleValues(expected))
+                .withMessageContaining("found 2 mismatching and 1 missing samples")
+                .withMessageContaining("testHasSampleValues_total{label_a=a1, label_b=b1} expected <42.0> but was <1.0>")
+                .withMessageContaining("testHasSampleValues_total{label_a=a2, label_b=b2} expected <43.0> but was <2.0>")
+                .withMessageContaining("testHasSampleValues_total{label_a=x, label_b=y}");
+    }
+
+    @Test
+    public void testHistogramHasSampleValues() {
+        Histogram histogram = Histogram.build().name("testHistogramHasSampleValues").help("help")
+                .labelNames("label")
+                .buckets(1, 5)
+                .create().register();
+        histogram.labels("a").observe(3);
+        histogram.labels("b").observe(0.5);
+        histogram.labels("b").observe(7);
+
+        Map<List<String>, Double> expectedCounts = new HashMap<>();
+        expectedCounts.put(labelValues("a"), 1d);
+        expectedCounts.put(labelValues("b"), 2d);
+        Map<List<String>, Double> expectedSums = new HashMap<>();
+        expectedSums.put(labelValues("a"), 3d);
+        expectedSums.put(labelValues("b"), 7.5d);
+        Map<List<String>, Double> expectedBuckets = new HashMap<>();
+        expectedBuckets.put(labelValues("a"), 1d);
+        expectedBuckets.put(labelValues("b"), 1d);
+
+        MetricFamilySamples mfs = getMetricFamilySamples("testHistogramHasSampleValues");
+        assertThat(mfs).hasTypeOfHistogram()
+                .hasSampleCountValues(expectedCounts)
+                .hasSampleSumValues(expectedSums)
+                .hasSampleBucketValues(5, expectedBuckets);
+
+        // Should fail:
+        expectAssertionError(() -> assertThat(mfs).hasTypeOfHistogram().hasSampleSumValues(expectedCounts));
+        expectAssertionError(() -> assertThat(mfs).hasTypeOfHistogram().hasSampleBucketValues(1, expectedBuckets));
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(mfs).hasTypeOfHistogram().hasSampleValues(expectedCounts))
+                .withMessage("Expected MetricFamilySamples testHistogramHasSampleValues to have " +
+                        "testHistogramHasSampleValues samples, but found none");
+        expectAssertionError(() -> assertThat((MetricFamilySamples) null).hasSampleValues(expectedCounts));
+    }
+
+    @Test
+    public void testSamplePredicates() {
+        Histogram histogram = Histogram.build().name("testSamplePredicates").help("help")
+                .labelNames("label")
+                .buckets(1, 5)
+                .create().register();
+        histogram.labels("a").observe(3);
+        histogram.labels("b").observe(-7);
+
+        MetricFamilySamples mfs = getMetricFamilySamples("testSamplePredicates");
+        assertThat(mfs)
+                .allSamplesSatisfy(withValue(v -> !Double.isNaN(v)))
+                .allSamplesSatisfy(withSampleName("testSamplePredicates_count"), withValue(v -> v == 1))
+                .anySampleMatches(withValue(v -> v < 0))
+                .anySampleMatches(withLabel("label", "a"), withValue(v -> v == 3))
+                .noSampleMatches(withValue(Double::isInfinite))
+                .noSampleMatches(withLabel("label", "a"), withValue(v -> v < 0));
+
+        // Should fail:
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(mfs).allSamplesSatisfy(withSampleName("testSamplePredicates_sum"),
+                        withValue(v -> v >= 0)))
+                .withMessageContaining("testSamplePredicates_sum{label=b} -7.0");
+        expectAssertionError(() -> assertThat(mfs).anySampleMatches(withLabel("label", "c"), withValue(v -> true)));
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(mfs).noSampleMatches(withValue(v -> v < 0)))
+                .withMessageContaining("testSamplePredicates_sum{label=b} -7.0");
+
+        final MetricFamilySamples noSamples = new MetricFamilySamples("no_samples", GAUGE, "help", null);
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(noSamples).anySampleMatches(withValue(v -> true)))
+                .withMessageStartingWith("Expected any MetricFamilySamples's no_samples sample to match condition, but none of the samples matched");
+    }
+
+    @Test
+    public void testSamplePredicatesInParallel() {
+        Gauge gauge = Gauge.build().name("testSamplePredicatesInParallel").help("help")
+                .labelNames("label")
+                .create().register();
+        for (int i = 0; i < AbstractMetricFamilySamplesAssert.PARALLEL_THRESHOLD * 2; i++) {
+            gauge.labels("v" + i).set(i);
+        }
+
+        MetricFamilySamples mfs = getMetricFamilySamples("testSamplePredicatesInParallel");
+        assertThat(mfs)
+                .allSamplesSatisfy(withValue(v -> v >= 0))
+                .anySampleMatches(withLabel("label", "v12345"), withValue(v -> v == 12345))
+                .noSampleMatches(withValue(v -> v < 0));
+
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(mfs).allSamplesSatisfy(withValue(v -> v < 10_000)))
+                .withMessageEndingWith("(showing first 20 of 10000 samples, omitted 9980)");
+    }
+
     @Test
     public void testInfo() {
         Info.build().name("testInfo").help("help")
@@ -480,6 +826,79 @@ public class MetricFamilySamplesAssertTest {
         ;
     }
 
+    @Test
+    public void testCardinalityBudget() {
+        Counter counter = Counter.build().name("cardinality_counter").help("help")
+                .labelNames("method", "path")
+                .create().register();
+        for (int i = 0; i < 10; i++) {
+            counter.labels("GET", "/item/" + i).inc();
+        }
+        counter.labels("POST", "/item").inc();
+
+        final MetricFamilySamples mfs = getMetricFamilySamples("cardinality_counter");
+        assertThat(mfs)
+                .hasSeriesCountAtMost(22) // 11 _total and 11 _created
+                .hasLabelCardinalityAtMost("method", 2)
+                .hasLabelCardinalityAtMost("path", 11);
+
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(mfs).hasSeriesCountAtMost(21))
+                .withMessageStartingWith("Expected MetricFamilySamples cardinality_counter to have at most 21 series, but has 22")
+                .withMessageContaining("path=11");
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(mfs).hasLabelCardinalityAtMost("path", 10))
+                .withMessage("Expected MetricFamilySamples cardinality_counter label path to have at most 10 distinct values, but has 11");
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(mfs).hasLabelCardinalityAtMost("user", 10))
+                .withMessage("Expected MetricFamilySamples cardinality_counter to have label user, but has labels [method, path]");
+    }
+
+    @Test
+    public void testSampleValueOfFirstSampleWithoutLabelValues() {
+        Counter counter = Counter.build().name("first_sample_counter").help("help")
+                .labelNames("method")
+                .create().register();
+        counter.labels("GET").inc(2);
+        counter.labels("POST").inc();
+
+        final MetricFamilySamples mfs = getMetricFamilySamples("first_sample_counter");
+        final double firstValue = mfs.samples.get(0).value;
+        assertThat(mfs).hasTypeOfCounter().hasSampleValue((List<String>) null, firstValue);
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(mfs).hasTypeOfCounter().hasSampleValue((List<String>) null, firstValue + 10))
+                .withMessageStartingWith("Unexpected value for first_sample_counter_total{method=");
+    }
+
+    @Test
+    public void testSampleValueOfNullLabelValue() {
+        final List<String> labelNames = Collections.singletonList("path");
+        final MetricFamilySamples gauge = new MetricFamilySamples("null_label_gauge", GAUGE, "help", Arrays.asList(
+                new Sample("null_label_gauge", labelNames, Collections.singletonList(null), 1),
+                new Sample("null_label_gauge", labelNames, Collections.singletonList("/a"), 2)));
+        assertThat(gauge).hasTypeOfGauge()
+                .hasSampleValue(labelValues((String) null), 1)
+                .hasSampleValue(labelValues("/a"), 2);
+
+        final List<String> bucketLabelNames = Arrays.asList("path", "le");
+        final MetricFamilySamples histogram = new MetricFamilySamples("null_label_histogram", HISTOGRAM, "help",
+                Arrays.asList(
+                        new Sample("null_label_histogram_bucket", bucketLabelNames, Arrays.asList(null, "1.0"), 1),
+                        new Sample("null_label_histogram_bucket", bucketLabelNames, Arrays.asList("/a", "1.0"), 2)));
+        assertThat(histogram).hasTypeOfHistogram()
+                .hasSampleBucketValue(labelValues((String) null), 1.0, 1)
+                .hasSampleBucketValue(labelValues("/a"), 1.0, 2);
+    }
+
+    @Test
+    public void testCardinalityBudgetWithoutSamples() {
+        final MetricFamilySamples mfs = new MetricFamilySamples("no_samples", GAUGE, "help", null);
+        assertThat(mfs).hasSeriesCountAtMost(0);
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(mfs).hasLabelCardinalityAtMost("path", 10))
+                .withMessage("Expected MetricFamilySamples no_samples to have label path, but has labels []");
+    }
+
     static void expectAssertionError(ThrowableAssert.ThrowingCallable throwingCallable) {
         assertThatExceptionOfType(AssertionError.class)
                 .isThrownBy(throwingCallable);
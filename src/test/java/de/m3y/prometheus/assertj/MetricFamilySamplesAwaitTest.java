@@ -0,0 +1,69 @@
+package de.m3y.prometheus.assertj;
+
+import java.time.Duration;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import org.junit.Test;
+
+import static de.m3y.prometheus.assertj.MetricFamilySamplesAssert.eventually;
+import static de.m3y.prometheus.assertj.MetricFamilySamplesAssert.labelValues;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class MetricFamilySamplesAwaitTest {
+    @Test
+    public void testEventually() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Counter counter = Counter.build().name("async_counter").help("help")
+                .labelNames("label")
+                .create().register(collectorRegistry);
+        MetricsSnapshotTest.CountingCollector expensiveCollector =
+                new MetricsSnapshotTest.CountingCollector().register(collectorRegistry);
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            counter.labels("a").inc(3);
+        }).start();
+
+        Collector.MetricFamilySamples mfs = eventually(collectorRegistry, "async_counter", Duration.ofSeconds(10))
+                .withPollInterval(Duration.ofMillis(5))
+                .untilAsserted(mfsAssert -> mfsAssert
+                        .hasTypeOfCounter()
+                        .hasSampleValue(labelValues("a"), 3));
+        assertThat(mfs.name).isEqualTo("async_counter");
+        assertThat(expensiveCollector.collectCount).hasValue(0); // Never collected while polling
+    }
+
+    @Test
+    public void testEventuallyTimesOut() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Counter.build().name("async_counter").help("help")
+                .register(collectorRegistry).inc();
+
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> eventually(collectorRegistry, "async_counter", Duration.ofMillis(100))
+                        .withBackoffMultiplier(1)
+                        .untilAsserted(mfsAssert -> mfsAssert.hasTypeOfCounter().hasSampleValue(2)))
+                .withMessageStartingWith("Expected MetricFamilySamples async_counter to satisfy assertions within PT0.1S,"
+                        + " but last of ")
+                .withMessageContaining(" attempts failed with: ")
+                .withCauseInstanceOf(AssertionError.class);
+
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> eventually(collectorRegistry, "async_countr", Duration.ofMillis(50))
+                        .untilAsserted(mfsAssert -> mfsAssert.hasTypeOfCounter()))
+                .withMessageContaining("No MetricFamilySamples found by name async_countr , closest names are [async_counter]")
+                .withCauseInstanceOf(IllegalArgumentException.class);
+
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> eventually(collectorRegistry, "async_counter", Duration.ofMillis(50))
+                        .withBackoffMultiplier(0.5));
+    }
+}
@@ -0,0 +1,166 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.Arrays;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.Histogram;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+
+import static de.m3y.prometheus.assertj.MetricFamilySamplesAssert.assertThat;
+import static de.m3y.prometheus.assertj.MetricFamilySamplesAssert.labelValues;
+import static de.m3y.prometheus.assertj.MetricFamilySamplesAssertTest.expectAssertionError;
+import static de.m3y.prometheus.assertj.MetricFamilySamplesUtils.getMetricFamilySamples;
+import static io.prometheus.client.CollectorRegistry.defaultRegistry;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.offset;
+
+public class MetricFamilySamplesHistogramAssertTest {
+    @Before
+    public void setUp() {
+        defaultRegistry.clear(); // Reset between tests
+    }
+
+    private static MetricFamilySamples createLatencyHistogram() {
+        Histogram histogram = Histogram.build().name("testHistogramQuantile").help("help")
+                .labelNames("path")
+                .buckets(0.1, 0.25, 0.5, 1)
+                .create().register();
+        for (int i = 0; i < 8; i++) {
+            histogram.labels("/a").observe(0.05);
+        }
+        histogram.labels("/a").observe(0.2);
+        histogram.labels("/a").observe(0.2);
+        for (int i = 0; i < 10; i++) {
+            histogram.labels("/b").observe(0.7);
+        }
+        return getMetricFamilySamples("testHistogramQuantile");
+    }
+
+    @Test
+    public void testHasQuantile() {
+        MetricFamilySamples mfs = createLatencyHistogram();
+        assertThat(mfs)
+                .hasTypeOfHistogram()
+                // Aggregated across label values
+                .hasQuantile(0.5, da -> da.isCloseTo(0.25, offset(1e-9)))
+                .hasQuantile(0.99, da -> da.isCloseTo(0.99, offset(1e-9)))
+                .hasQuantileAtMost(0.99, 1)
+                // Per series
+                .hasQuantile(labelValues("/a"), 0.5, da -> da.isCloseTo(0.0625, offset(1e-9)))
+                .hasQuantile(labelValues("/a"), 0.99, da -> da.isCloseTo(0.2425, offset(1e-9)))
+                .hasQuantileAtMost(labelValues("/a"), 0.99, 0.25)
+                .hasQuantile(labelValues("/b"), 0.99, da -> da.isCloseTo(0.995, offset(1e-9)))
+                .hasQuantileAtMostForEachSeries(0.99, 1);
+
+        // Should fail:
+        expectAssertionError(() -> assertThat(mfs).hasTypeOfHistogram().hasQuantileAtMost(0.99, 0.5));
+        expectAssertionError(() -> assertThat(mfs).hasTypeOfHistogram().hasQuantileAtMost(labelValues("/b"), 0.99, 0.5));
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(mfs).hasTypeOfHistogram().hasQuantileAtMost(labelValues("/c"), 0.99, 0.5))
+                .withMessage("Expected testHistogramQuantile_bucket{path=/c} samples, but found none");
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(mfs).hasTypeOfHistogram().hasQuantileAtMostForEachSeries(0.99, 0.25))
+                .withMessage("Expected MetricFamilySamples testHistogramQuantile quantile 0.99 of each series " +
+                        "to be at most 0.25, but found 1 of 2 series exceeding:\n  {path=/b} 0.995");
+    }
+
+    @Test
+    public void testHasQuantileWithoutObservations() {
+        Histogram.build().name("testHistogramQuantileEmpty").help("help").create().register();
+        MetricFamilySamples mfs = getMetricFamilySamples("testHistogramQuantileEmpty");
+        assertThat(mfs).hasTypeOfHistogram().hasQuantile(0.99, da -> da.isNaN());
+        expectAssertionError(() -> assertThat(mfs).hasTypeOfHistogram().hasQuantileAtMost(0.99, 1));
+    }
+
+    @Test
+    public void testQuantile() {
+        double[] upperBounds = {1, 2, Double.POSITIVE_INFINITY};
+        Assertions.assertThat(HistogramBuckets.quantile(0.5, upperBounds, new double[]{0, 10, 10}, 3)).isEqualTo(1.5);
+        // Falls into +Inf bucket
+        Assertions.assertThat(HistogramBuckets.quantile(0.99, upperBounds, new double[]{0, 0, 10}, 3)).isEqualTo(2);
+        Assertions.assertThat(HistogramBuckets.quantile(1.5, upperBounds, new double[]{0, 10, 10}, 3)).isInfinite();
+        Assertions.assertThat(HistogramBuckets.quantile(0.5, new double[]{1, 2}, new double[]{0, 10}, 2)).isNaN();
+        Assertions.assertThat(HistogramBuckets.quantile(0.5, upperBounds, new double[]{0, 0, 0}, 3)).isNaN();
+    }
+
+    @Test
+    public void testIsConsistent() {
+        assertThat(createLatencyHistogram()).hasTypeOfHistogram().isConsistent();
+
+        List<String> labelNames = Arrays.asList("path");
+        List<String> bucketLabelNames = Arrays.asList("path", "le");
+        MetricFamilySamples broken = new MetricFamilySamples("broken", Collector.Type.HISTOGRAM, "help", Arrays.asList(
+                // Consistent
+                new MetricFamilySamples.Sample("broken_bucket", bucketLabelNames, Arrays.asList("/a", "1.0"), 1),
+                new MetricFamilySamples.Sample("broken_bucket", bucketLabelNames, Arrays.asList("/a", "+Inf"), 2),
+                new MetricFamilySamples.Sample("broken_count", labelNames, Arrays.asList("/a"), 2),
+                new MetricFamilySamples.Sample("broken_sum", labelNames, Arrays.asList("/a"), 3),
+                // Not cumulative, +Inf differs from count
+                new MetricFamilySamples.Sample("broken_bucket", bucketLabelNames, Arrays.asList("/b", "1.0"), 5),
+                new MetricFamilySamples.Sample("broken_bucket", bucketLabelNames, Arrays.asList("/b", "+Inf"), 4),
+                new MetricFamilySamples.Sample("broken_count", labelNames, Arrays.asList("/b"), 6),
+                new MetricFamilySamples.Sample("broken_sum", labelNames, Arrays.asList("/b"), 3),
+                // Missing +Inf bucket, negative sum
+                new MetricFamilySamples.Sample("broken_bucket", bucketLabelNames, Arrays.asList("/c", "1.0"), 1),
+                new MetricFamilySamples.Sample("broken_count", labelNames, Arrays.asList("/c"), 1),
+                new MetricFamilySamples.Sample("broken_sum", labelNames, Arrays.asList("/c"), -1)));
+
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(broken).hasTypeOfHistogram().isConsistent())
+                .withMessage("Expected MetricFamilySamples broken to be consistent, but found 2 of 3 series inconsistent:\n" +
+                        "  {path=/b} non-cumulative bucket le=+Inf with 4.0 below 5.0, +Inf bucket 4.0 differs from _count 6.0\n" +
+                        "  {path=/c} negative _sum -1.0, missing +Inf bucket");
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(broken).hasTypeOfHistogram().withMaxSamplesInFailureMessage(1).isConsistent())
+                .withMessageEndingWith("\n(showing first 1 of 2 series, omitted 1)");
+    }
+
+    @Test
+    public void testQuantileOfSignedZeroUpperBounds() {
+        List<String> labelNames = Arrays.asList("path");
+        List<String> bucketLabelNames = Arrays.asList("path", "le");
+        MetricFamilySamples zeros = new MetricFamilySamples("zeros", Collector.Type.HISTOGRAM, "help", Arrays.asList(
+                new MetricFamilySamples.Sample("zeros_bucket", bucketLabelNames, Arrays.asList("/a", "-0.0"), 1),
+                new MetricFamilySamples.Sample("zeros_bucket", bucketLabelNames, Arrays.asList("/a", "1.0"), 2),
+                new MetricFamilySamples.Sample("zeros_bucket", bucketLabelNames, Arrays.asList("/a", "+Inf"), 2),
+                new MetricFamilySamples.Sample("zeros_count", labelNames, Arrays.asList("/a"), 2),
+                new MetricFamilySamples.Sample("zeros_bucket", bucketLabelNames, Arrays.asList("/b", "0.0"), 1),
+                new MetricFamilySamples.Sample("zeros_bucket", bucketLabelNames, Arrays.asList("/b", "1.0"), 2),
+                new MetricFamilySamples.Sample("zeros_bucket", bucketLabelNames, Arrays.asList("/b", "+Inf"), 2),
+                new MetricFamilySamples.Sample("zeros_count", labelNames, Arrays.asList("/b"), 2)));
+
+        // Summed per distinct upper bound, like sum without(le) of different le label values
+        assertThat(zeros).hasTypeOfHistogram()
+                .hasQuantileAtMost(0.5, 1.0)
+                .hasQuantile(1, v -> v.isEqualTo(1.0));
+    }
+
+    @Test
+    public void testQuantileOfInvalidUpperBound() {
+        List<String> labelNames = Arrays.asList("path");
+        List<String> bucketLabelNames = Arrays.asList("path", "le");
+        MetricFamilySamples invalid = new MetricFamilySamples("invalid", Collector.Type.HISTOGRAM, "help", Arrays.asList(
+                new MetricFamilySamples.Sample("invalid_bucket", bucketLabelNames, Arrays.asList("/a", "1.0"), 1),
+                new MetricFamilySamples.Sample("invalid_bucket", bucketLabelNames, Arrays.asList("/a", "abc"), 1),
+                new MetricFamilySamples.Sample("invalid_bucket", bucketLabelNames, Arrays.asList("/a", "+Inf"), 2),
+                new MetricFamilySamples.Sample("invalid_count", labelNames, Arrays.asList("/a"), 2),
+                new MetricFamilySamples.Sample("invalid_sum", labelNames, Arrays.asList("/a"), 3),
+                new MetricFamilySamples.Sample("invalid_bucket", bucketLabelNames, Arrays.asList("/b", "5.0"), 1),
+                new MetricFamilySamples.Sample("invalid_bucket", bucketLabelNames, Arrays.asList("/b", "+Inf"), 1),
+                new MetricFamilySamples.Sample("invalid_count", labelNames, Arrays.asList("/b"), 1),
+                new MetricFamilySamples.Sample("invalid_sum", labelNames, Arrays.asList("/b"), 3)));
+
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(invalid).hasTypeOfHistogram().hasQuantileAtMost(0.5, 10))
+                .withMessage("Expected MetricFamilySamples invalid to have numeric bucket upper bounds, " +
+                        "but found invalid_bucket{path=/a, le=abc}");
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(invalid).hasTypeOfHistogram().isConsistent())
+                .withMessage("Expected MetricFamilySamples invalid to be consistent, but found 1 of 2 series inconsistent:\n" +
+                        "  {path=/a} invalid le=abc");
+    }
+}
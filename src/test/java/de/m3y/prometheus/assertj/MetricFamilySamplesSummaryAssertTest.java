@@ -1,6 +1,10 @@
 package de.m3y.prometheus.assertj;
 
 
+import java.util.Arrays;
+import java.util.List;
+
+import io.prometheus.client.Collector;
 import io.prometheus.client.Collector.MetricFamilySamples;
 import io.prometheus.client.Summary;
 import org.junit.Before;
@@ -11,6 +15,7 @@ import static de.m3y.prometheus.assertj.MetricFamilySamplesAssert.assertThat;
 import static de.m3y.prometheus.assertj.MetricFamilySamplesAssert.labelValues;
 import static de.m3y.prometheus.assertj.MetricFamilySamplesAssertTest.expectAssertionError;
 import static io.prometheus.client.CollectorRegistry.defaultRegistry;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 public class MetricFamilySamplesSummaryAssertTest {
     @Before
@@ -94,4 +99,32 @@ public class MetricFamilySamplesSummaryAssertTest {
                 .hasSampleValue(labelValues("A"), 0.5, da -> da.isEqualTo(5)));
 
     }
+
+    @Test
+    public void testSummaryIsConsistent() {
+        Summary summary = Summary.build().name("testSummaryIsConsistent").help("help")
+                .labelNames("path")
+                .quantile(0.5, 0.05)
+                .quantile(0.99, 0.001)
+                .create().register();
+        summary.labels("/a").observe(1);
+        summary.labels("/a").observe(5);
+        summary.labels("/b"); // No observations, NaN quantiles
+        assertThat(getMetricFamilySamples("testSummaryIsConsistent")).hasTypeOfSummary().isConsistent();
+
+        List<String> labelNames = Arrays.asList("path");
+        List<String> quantileLabelNames = Arrays.asList("path", "quantile");
+        MetricFamilySamples broken = new MetricFamilySamples("broken", Collector.Type.SUMMARY, "help", Arrays.asList(
+                new MetricFamilySamples.Sample("broken", quantileLabelNames, Arrays.asList("/a", "0.5"), 10),
+                new MetricFamilySamples.Sample("broken", quantileLabelNames, Arrays.asList("/a", "0.99"), 5),
+                new MetricFamilySamples.Sample("broken", quantileLabelNames, Arrays.asList("/a", "1.5"), 20),
+                new MetricFamilySamples.Sample("broken_count", labelNames, Arrays.asList("/a"), 2),
+                new MetricFamilySamples.Sample("broken_sum", labelNames, Arrays.asList("/a"), 15),
+                new MetricFamilySamples.Sample("broken_sum", labelNames, Arrays.asList("/b"), 15)));
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> assertThat(broken).hasTypeOfSummary().isConsistent())
+                .withMessage("Expected MetricFamilySamples broken to be consistent, but found 2 of 2 series inconsistent:\n" +
+                        "  {path=/a} quantile 0.99 with 5.0 below quantile 0.5 with 10.0, quantile 1.5 out of range\n" +
+                        "  {path=/b} missing _count");
+    }
 }
@@ -0,0 +1,119 @@
+package de.m3y.prometheus.assertj;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import io.prometheus.client.Summary;
+import org.junit.Before;
+import org.junit.Test;
+
+import static de.m3y.prometheus.assertj.MetricFamilySamplesAssert.labelValues;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetricsDeltaTest {
+    private CollectorRegistry collectorRegistry;
+    private Counter counter;
+    private Gauge gauge;
+    private Histogram histogram;
+    private Summary summary;
+
+    @Before
+    public void setUp() {
+        collectorRegistry = new CollectorRegistry();
+        counter = Counter.build().name("delta_requests").help("help")
+                .labelNames("status")
+                .create().register(collectorRegistry);
+        gauge = Gauge.build().name("delta_gauge").help("help")
+                .create().register(collectorRegistry);
+        histogram = Histogram.build().name("delta_latency").help("help")
+                .buckets(1, 5)
+                .create().register(collectorRegistry);
+        summary = Summary.build().name("delta_summary").help("help")
+                .create().register(collectorRegistry);
+
+        // History of a long-lived registry
+        counter.labels("200").inc(100);
+        gauge.set(10);
+        histogram.observe(0.5);
+        histogram.observe(3);
+        summary.observe(7);
+    }
+
+    @Test
+    public void testCapture() {
+        MetricsDelta delta = MetricsDelta.capture(collectorRegistry, () -> {
+            counter.labels("200").inc(5);
+            counter.labels("500").inc(2);
+            gauge.set(3);
+            histogram.observe(4);
+            histogram.observe(10);
+            summary.observe(1);
+        });
+
+        delta.assertThat("delta_requests")
+                .hasTypeOfCounter()
+                .hasSampleValue(labelValues("200"), 5)
+                .hasSampleValue(labelValues("500"), v -> v.isLessThanOrEqualTo(3));
+        delta.assertThat("delta_gauge")
+                .hasTypeOfGauge()
+                .hasSampleValue(3); // Not subtracted
+        delta.assertThat("delta_latency")
+                .hasTypeOfHistogram()
+                .hasSampleBucketValue(1, 0)
+                .hasSampleBucketValue(5, 1)
+                .hasSampleBucketValue(Double.POSITIVE_INFINITY, 2)
+                .hasSampleCountValue(2)
+                .hasSampleSumValue(14)
+                .hasSampleCreatedValue(v -> v.isPositive()); // Not subtracted
+        delta.assertThat("delta_summary")
+                .hasTypeOfSummary()
+                .hasSampleCountValue(1)
+                .hasSampleSumValue(1);
+
+        assertThat(delta.getBefore().getNames()).containsExactlyInAnyOrderElementsOf(delta.getAfter().getNames());
+    }
+
+    @Test
+    public void testCaptureTargeted() throws Exception {
+        MetricsDelta delta = MetricsDelta.capture(collectorRegistry, () -> {
+            histogram.observe(2);
+            return null;
+        }, "delta_latency");
+
+        assertThat(delta.getNames()).containsExactly("delta_latency");
+        delta.assertThat("delta_latency")
+                .hasTypeOfHistogram()
+                .hasSampleBucketValue(1, 0)
+                .hasSampleBucketValue(5, 1)
+                .hasSampleCountValue(1);
+    }
+
+    @Test
+    public void testReset() {
+        MetricsSnapshot before = MetricsSnapshot.of(collectorRegistry, "delta_requests");
+        counter.clear();
+        counter.labels("200").inc(4);
+
+        MetricsDelta.of(before, MetricsSnapshot.of(collectorRegistry, "delta_requests"))
+                .assertThat("delta_requests")
+                .hasTypeOfCounter()
+                .hasSampleValue(labelValues("200"), 4);
+    }
+
+    @Test
+    public void testHistogramReset() {
+        MetricsSnapshot before = MetricsSnapshot.of(collectorRegistry, "delta_latency");
+        histogram.clear();
+        histogram.observe(4);
+
+        MetricsDelta.of(before, MetricsSnapshot.of(collectorRegistry, "delta_latency"))
+                .assertThat("delta_latency")
+                .hasTypeOfHistogram()
+                .hasSampleCountValue(1)
+                .hasSampleSumValue(4)
+                .hasSampleBucketValue(1, 0)
+                .hasSampleBucketValue(5, 1)
+                .hasSampleBucketValue(Double.POSITIVE_INFINITY, 1);
+    }
+}
@@ -0,0 +1,113 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class MetricsDiffTest {
+    @Test
+    public void testDiff() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Counter counter = Counter.build().name("diff_counter").help("help")
+                .labelNames("method", "status")
+                .register(collectorRegistry);
+        counter.labels("GET", "200").inc();
+        counter.labels("GET", "500").inc();
+        Gauge gauge = Gauge.build().name("diff_gauge").help("help")
+                .register(collectorRegistry);
+        gauge.set(1);
+        MetricsSnapshot before = MetricsSnapshot.of(collectorRegistry);
+
+        counter.labels("GET", "200").inc();
+        counter.remove("GET", "500");
+        counter.labels("POST", "200").inc();
+        MetricsSnapshot after = MetricsSnapshot.of(collectorRegistry);
+
+        MetricsDiff diff = MetricsDiff.of(before, after);
+        assertThat(diff.isEmpty()).isFalse();
+        assertThat(diff.getTypeChanges()).isEmpty();
+        assertThat(diff.getAdded()).extracting(Object::toString)
+                .containsExactly("+ diff_counter_created{method=POST, status=200} " + diff.getAdded().get(0).getNewValue(),
+                        "+ diff_counter_total{method=POST, status=200} 1.0");
+        assertThat(diff.getRemoved()).extracting(Object::toString)
+                .containsExactly("- diff_counter_created{method=GET, status=500} " + diff.getRemoved().get(0).getOldValue(),
+                        "- diff_counter_total{method=GET, status=500} 1.0");
+        assertThat(diff.getChanged()).extracting(Object::toString)
+                .containsExactly("~ diff_counter_total{method=GET, status=200} 1.0 -> 2.0");
+        assertThat(diff.getChanged().get(0).getKind()).isEqualTo(MetricsDiff.Kind.CHANGED);
+        assertThat(diff.getChanged().get(0).getFamilyName()).isEqualTo("diff_counter");
+
+        MetricsDiffAssert.assertThat(diff)
+                .hasNoTypeChanges()
+                .changedOnly("diff_counter");
+        MetricsDiffAssert.assertThat(before, before).hasNoDifferences();
+
+        // Should fail:
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> MetricsDiffAssert.assertThat(diff).hasNoRemovedSeries())
+                .withMessageStartingWith("Expected no removed series, but found 2:\n  - diff_counter_created{method=GET, status=500}");
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> MetricsDiffAssert.assertThat(diff).withMaxSeriesInFailureMessage(1).hasNoAddedSeries())
+                .withMessageEndingWith("\n(showing first 1 of 2, omitted 1)");
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> MetricsDiffAssert.assertThat(diff).changedOnly("diff_counter_total"))
+                .withMessageStartingWith("Expected only [diff_counter_total] to differ, but found 2 other differences:");
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> MetricsDiffAssert.assertThat(diff).hasNoChangedSeries())
+                .withMessage("Expected no changed series, but found 1:\n  ~ diff_counter_total{method=GET, status=200} 1.0 -> 2.0");
+    }
+
+    @Test
+    public void testCanonicalLabelOrderAndTypeChange() {
+        List<Collector.MetricFamilySamples> before = Collections.singletonList(new Collector.MetricFamilySamples(
+                "foo", Collector.Type.GAUGE, "help", Collections.singletonList(
+                new Sample("foo", Arrays.asList("b", "a"), Arrays.asList("2", "1"), 1))));
+        List<Collector.MetricFamilySamples> after = Collections.singletonList(new Collector.MetricFamilySamples(
+                "foo", Collector.Type.UNKNOWN, "help", Collections.singletonList(
+                new Sample("foo", Arrays.asList("a", "b"), Arrays.asList("1", "2"), 1))));
+
+        MetricsDiff diff = MetricsDiff.of(before, after);
+        assertThat(diff.getAdded()).isEmpty();
+        assertThat(diff.getRemoved()).isEmpty();
+        assertThat(diff.getChanged()).isEmpty();
+        assertThat(diff.getTypeChanges()).extracting(Object::toString).containsExactly("foo GAUGE -> UNKNOWN");
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> MetricsDiffAssert.assertThat(diff).hasNoTypeChanges())
+                .withMessage("Expected no type changes, but found 1:\n  foo GAUGE -> UNKNOWN");
+        MetricsDiffAssert.assertThat(diff).changedOnly("foo");
+    }
+
+    @Test
+    public void testManySeries() {
+        final int series = 200_000;
+        List<String> labelNames = Arrays.asList("pod", "path");
+        List<Sample> samplesBefore = new ArrayList<>(series);
+        List<Sample> samplesAfter = new ArrayList<>(series);
+        for (int i = 0; i < series; i++) {
+            List<String> labelValues = Arrays.asList("pod-" + (i % 100), "/path/" + i);
+            samplesBefore.add(new Sample("big", labelNames, labelValues, i));
+            if (i % 1000 != 0) { // Remove some
+                samplesAfter.add(new Sample("big", labelNames, labelValues, i % 500 == 1 ? i + 1 : i));
+            }
+        }
+        Collections.reverse(samplesAfter); // Order must not matter
+
+        MetricsDiff diff = MetricsDiff.of(
+                Collections.singletonList(new Collector.MetricFamilySamples("big", Collector.Type.GAUGE, "help", samplesBefore)),
+                Collections.singletonList(new Collector.MetricFamilySamples("big", Collector.Type.GAUGE, "help", samplesAfter)));
+        assertThat(diff.getRemoved()).hasSize(series / 1000);
+        assertThat(diff.getChanged()).hasSize(series / 500);
+        assertThat(diff.getAdded()).isEmpty();
+    }
+}
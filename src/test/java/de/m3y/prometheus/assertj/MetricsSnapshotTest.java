@@ -0,0 +1,103 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.GaugeMetricFamily;
+import io.prometheus.client.Histogram;
+import org.junit.Test;
+
+import static de.m3y.prometheus.assertj.MetricFamilySamplesAssert.labelValues;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class MetricsSnapshotTest {
+    /**
+     * Collector counting collect() invocations.
+     */
+    static class CountingCollector extends Collector implements Collector.Describable {
+        final AtomicInteger collectCount = new AtomicInteger();
+
+        @Override
+        public List<MetricFamilySamples> collect() {
+            collectCount.incrementAndGet();
+            return describe();
+        }
+
+        @Override
+        public List<MetricFamilySamples> describe() {
+            return Collections.singletonList(new GaugeMetricFamily("expensive_metric", "help", 1));
+        }
+    }
+
+    @Test
+    public void testSnapshot() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Counter counter = Counter.build().name("snapshot_counter").help("help")
+                .labelNames("label")
+                .create().register(collectorRegistry);
+        counter.labels("a").inc(2);
+        Histogram histogram = Histogram.build().name("snapshot_histogram").help("help")
+                .buckets(1, 5)
+                .create().register(collectorRegistry);
+        histogram.observe(3);
+        CountingCollector countingCollector = new CountingCollector().register(collectorRegistry);
+
+        MetricsSnapshot snapshot = MetricsSnapshot.of(collectorRegistry);
+        assertThat(countingCollector.collectCount).hasValue(1);
+        assertThat(snapshot.size()).isEqualTo(3);
+        assertThat(snapshot.getNames()).containsExactlyInAnyOrder("snapshot_counter", "snapshot_histogram", "expensive_metric");
+        assertThat(snapshot.contains("snapshot_counter")).isTrue();
+        assertThat(snapshot.contains("nonexistent")).isFalse();
+
+        snapshot.assertThat("snapshot_counter")
+                .hasTypeOfCounter()
+                .hasSampleValue(labelValues("a"), 2);
+        snapshot.assertThat("snapshot_histogram")
+                .hasTypeOfHistogram()
+                .hasSampleBucketValue(5, 1)
+                .hasSampleCountValue(1);
+        assertThat(countingCollector.collectCount).hasValue(1); // No further collecting
+
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> snapshot.getMetricFamilySamples("snapshot_countr"))
+                .withMessageContaining("closest names are [snapshot_counter");
+    }
+
+    @Test
+    public void testTargetedSnapshot() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Counter counter = Counter.build().name("snapshot_counter").help("help")
+                .create().register(collectorRegistry);
+        counter.inc();
+        Histogram histogram = Histogram.build().name("snapshot_histogram").help("help")
+                .buckets(1, 5)
+                .create().register(collectorRegistry);
+        histogram.observe(3);
+        CountingCollector countingCollector = new CountingCollector().register(collectorRegistry);
+
+        MetricsSnapshot snapshot = MetricsSnapshot.of(collectorRegistry, "snapshot_counter", "snapshot_histogram");
+        assertThat(countingCollector.collectCount).hasValue(0);
+        assertThat(snapshot.getNames()).containsExactlyInAnyOrder("snapshot_counter", "snapshot_histogram");
+        snapshot.assertThat("snapshot_counter")
+                .hasTypeOfCounter()
+                .hasSampleSize(2) // Including _created
+                .hasSampleValue(1);
+        snapshot.assertThat("snapshot_histogram")
+                .hasTypeOfHistogram()
+                .hasSampleSize(6) // Including _created
+                .hasSampleBucketValue(1, 0)
+                .hasSampleBucketValue(5, 1)
+                .hasSampleSumValue(3);
+    }
+
+    @Test
+    public void testToSampleNames() {
+        assertThat(MetricsSnapshot.toSampleNames(Collections.singletonList("foo")))
+                .contains("foo", "foo_total", "foo_created", "foo_count", "foo_sum", "foo_bucket", "foo_info");
+    }
+}
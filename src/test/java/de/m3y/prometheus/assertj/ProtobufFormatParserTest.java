@@ -0,0 +1,249 @@
+package de.m3y.prometheus.assertj;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import org.junit.Test;
+
+import static de.m3y.prometheus.assertj.MetricFamilySamplesAssert.labelValues;
+import static de.m3y.prometheus.assertj.MetricFamilySamplesUtils.getMetricFamilySamples;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class ProtobufFormatParserTest {
+    /**
+     * Minimal protobuf encoder for creating test input.
+     */
+    static class ProtoWriter {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ProtoWriter varint(long value) {
+            while ((value & ~0x7fL) != 0) {
+                out.write((int) (value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            out.write((int) value);
+            return this;
+        }
+
+        ProtoWriter tag(int field, int wireType) {
+            return varint((long) field << 3 | wireType);
+        }
+
+        ProtoWriter uint64(int field, long value) {
+            return tag(field, 0).varint(value);
+        }
+
+        ProtoWriter fixedDouble(int field, double value) {
+            tag(field, 1);
+            long bits = Double.doubleToLongBits(value);
+            for (int i = 0; i < 8; i++) {
+                out.write((int) (bits >>> (8 * i)) & 0xff);
+            }
+            return this;
+        }
+
+        ProtoWriter bytes(int field, byte[] value) {
+            tag(field, 2).varint(value.length);
+            out.write(value, 0, value.length);
+            return this;
+        }
+
+        ProtoWriter string(int field, String value) {
+            return bytes(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        ProtoWriter message(int field, ProtoWriter message) {
+            return bytes(field, message.toByteArray());
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    private static ProtoWriter label(String name, String value) {
+        return new ProtoWriter().string(1, name).string(2, value);
+    }
+
+    private static ProtoWriter family(String name, int type) {
+        return new ProtoWriter().string(1, name).string(2, "help").uint64(3, type);
+    }
+
+    private static byte[] delimited(ProtoWriter... families) {
+        ProtoWriter out = new ProtoWriter();
+        for (ProtoWriter family : families) {
+            byte[] bytes = family.toByteArray();
+            out.varint(bytes.length);
+            out.out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] createInput() {
+        ProtoWriter counter = family("proto_requests_total", 0)
+                .message(4, new ProtoWriter()
+                        .message(1, label("method", "GET"))
+                        .message(3, new ProtoWriter().fixedDouble(1, 3)))
+                .message(4, new ProtoWriter()
+                        .message(1, label("method", "POST"))
+                        .message(3, new ProtoWriter().fixedDouble(1, 1)));
+        ProtoWriter gauge = family("proto_gauge", 1)
+                .message(4, new ProtoWriter()
+                        .message(2, new ProtoWriter().fixedDouble(1, -2.5))
+                        .uint64(6, 1600000000000L));
+        ProtoWriter summary = family("proto_summary", 2)
+                .message(4, new ProtoWriter()
+                        .message(4, new ProtoWriter()
+                                .uint64(1, 2)
+                                .fixedDouble(2, 10)
+                                .message(3, new ProtoWriter().fixedDouble(1, 0.5).fixedDouble(2, 4))
+                                .message(3, new ProtoWriter().fixedDouble(1, 0.99).fixedDouble(2, 6))));
+        ProtoWriter histogram = family("proto_latency", 4)
+                .message(4, new ProtoWriter()
+                        .message(1, label("path", "/"))
+                        .message(7, new ProtoWriter()
+                                .uint64(1, 3)
+                                .fixedDouble(2, 1.5)
+                                .message(3, new ProtoWriter().uint64(1, 1).fixedDouble(2, 0.1))
+                                .message(3, new ProtoWriter().uint64(1, 3).fixedDouble(2, 1))));
+        return delimited(counter, gauge, summary, histogram);
+    }
+
+    @Test
+    public void testParse() throws IOException {
+        List<Collector.MetricFamilySamples> parsed =
+                ProtobufFormatParser.parse(new ByteArrayInputStream(createInput()), null);
+        assertThat(parsed).extracting(mfs -> mfs.name)
+                .containsExactly("proto_requests", "proto_gauge", "proto_summary", "proto_latency");
+
+        MetricFamilySamplesAssert.assertThat(getMetricFamilySamples(parsed, "proto_requests"))
+                .hasTypeOfCounter()
+                .hasSampleLabelNames("method")
+                .hasSampleValue(labelValues("GET"), 3)
+                .hasSampleValue(labelValues("POST"), 1);
+
+        Collector.MetricFamilySamples gauge = getMetricFamilySamples(parsed, "proto_gauge");
+        MetricFamilySamplesAssert.assertThat(gauge)
+                .hasTypeOfGauge()
+                .hasSampleValue(-2.5);
+        assertThat(gauge.samples.get(0).timestampMs).isEqualTo(1600000000000L);
+
+        MetricFamilySamplesAssert.assertThat(getMetricFamilySamples(parsed, "proto_summary"))
+                .hasTypeOfSummary()
+                .hasSampleSize(4)
+                .hasSampleValue(0.5, 4)
+                .hasSampleValue(0.99, 6)
+                .hasSampleCountValue(2)
+                .hasSampleSumValue(10);
+
+        MetricFamilySamplesAssert.assertThat(getMetricFamilySamples(parsed, "proto_latency"))
+                .hasTypeOfHistogram()
+                .hasSampleSize(5) // 2 buckets + implicit +Inf bucket + _count + _sum
+                .hasSampleLabelNames("path")
+                .hasSampleBucketValue(labelValues("/"), 0.1, 1)
+                .hasSampleBucketValue(labelValues("/"), 1, 3)
+                .hasSampleBucketValue(labelValues("/"), Double.POSITIVE_INFINITY, 3)
+                .hasSampleCountValue(labelValues("/"), 3)
+                .hasSampleSumValue(labelValues("/"), 1.5);
+    }
+
+    @Test
+    public void testParseSummaryFollowedByHistogram() throws IOException {
+        for (ProtoWriter[] labels : new ProtoWriter[][]{{}, {label("path", "/")}}) {
+            ProtoWriter summary = new ProtoWriter();
+            ProtoWriter histogram = new ProtoWriter();
+            for (ProtoWriter label : labels) {
+                summary.message(1, label);
+                histogram.message(1, label);
+            }
+            summary.message(4, new ProtoWriter()
+                    .uint64(1, 1)
+                    .fixedDouble(2, 2)
+                    .message(3, new ProtoWriter().fixedDouble(1, 0.5).fixedDouble(2, 2)));
+            histogram.message(7, new ProtoWriter()
+                    .uint64(1, 1)
+                    .fixedDouble(2, 2)
+                    .message(3, new ProtoWriter().uint64(1, 1).fixedDouble(2, 5)));
+            List<Collector.MetricFamilySamples> parsed = ProtobufFormatParser.parse(new ByteArrayInputStream(delimited(
+                    family("proto_summary", 2).message(4, summary),
+                    family("proto_histogram", 4).message(4, histogram))), null);
+
+            final List<String> pathLabelValues = labels.length == 0 ? labelValues() : labelValues("/");
+            MetricFamilySamplesAssert.assertThat(getMetricFamilySamples(parsed, "proto_summary"))
+                    .hasTypeOfSummary()
+                    .hasSampleValue(pathLabelValues, 0.5, 2);
+            Collector.MetricFamilySamples histogramMfs = getMetricFamilySamples(parsed, "proto_histogram");
+            MetricFamilySamplesAssert.assertThat(histogramMfs)
+                    .hasTypeOfHistogram()
+                    .hasSampleBucketValue(pathLabelValues, 5, 1)
+                    .hasSampleBucketValue(pathLabelValues, Double.POSITIVE_INFINITY, 1);
+            assertThat(histogramMfs.samples.get(0).labelNames)
+                    .containsExactlyElementsOf(labels.length == 0 ? labelValues("le") : labelValues("path", "le"));
+        }
+    }
+
+    @Test
+    public void testParseSelected() throws IOException {
+        List<Collector.MetricFamilySamples> parsed = ProtobufFormatParser.parse(
+                new ByteArrayInputStream(createInput()), Collections.singleton("proto_requests"));
+        assertThat(parsed).extracting(mfs -> mfs.name).containsExactly("proto_requests");
+
+        StreamingMetricsAssert streamingAssert = new StreamingMetricsAssert();
+        streamingAssert.expect("proto_latency")
+                .hasType(Collector.Type.HISTOGRAM)
+                .hasSampleValue("proto_latency_bucket", labelValues("/", "+Inf"), 3);
+        ProtobufFormatParser.parse(new ByteArrayInputStream(createInput()),
+                Collections.singleton("proto_latency"), streamingAssert);
+        streamingAssert.verify();
+    }
+
+    @Test
+    public void testParseError() {
+        byte[] input = createInput();
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> ProtobufFormatParser.parse(
+                        new ByteArrayInputStream(Arrays.copyOf(input, input.length - 3)), null))
+                .withMessage("Unexpected end of input in message 4");
+    }
+
+    @Test
+    public void testParseErrorOnExceedingMessageSize() {
+        byte[] input = new ProtoWriter().varint(ProtobufFormatParser.MAX_MESSAGE_SIZE + 1L).toByteArray();
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> ProtobufFormatParser.parse(new ByteArrayInputStream(input), null))
+                .withMessageStartingWith("Message length " + (ProtobufFormatParser.MAX_MESSAGE_SIZE + 1L)
+                        + " exceeds max message size " + ProtobufFormatParser.MAX_MESSAGE_SIZE);
+    }
+
+    @Test
+    public void testParseSelectedSkipsOtherMessages() throws IOException {
+        ProtoWriter large = family("proto_large", 1);
+        for (int i = 0; i < 1000; i++) {
+            large.message(4, new ProtoWriter()
+                    .message(1, label("id", "value_" + i))
+                    .message(2, new ProtoWriter().fixedDouble(1, i)));
+        }
+        final long[] skipped = new long[1];
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(delimited(large, family("proto_gauge", 1)
+                .message(4, new ProtoWriter().message(2, new ProtoWriter().fixedDouble(1, 2))))) {
+            @Override
+            public synchronized long skip(long n) {
+                final long count = super.skip(n);
+                skipped[0] += count;
+                return count;
+            }
+        };
+
+        List<Collector.MetricFamilySamples> parsed = ProtobufFormatParser.parse(inputStream,
+                Collections.singleton("proto_gauge"));
+        assertThat(parsed).extracting(mfs -> mfs.name).containsExactly("proto_gauge");
+        assertThat(skipped[0]).isEqualTo(large.toByteArray().length - (long) ProtobufFormatParser.HEADER_PREFIX_SIZE);
+    }
+}
@@ -0,0 +1,110 @@
+package de.m3y.prometheus.assertj;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import io.prometheus.client.exporter.common.TextFormat;
+import org.junit.Before;
+import org.junit.Test;
+
+import static de.m3y.prometheus.assertj.MetricFamilySamplesAssert.labelValues;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class StreamingMetricsAssertTest {
+    private CollectorRegistry collectorRegistry;
+
+    @Before
+    public void setUp() {
+        collectorRegistry = new CollectorRegistry();
+        Counter counter = Counter.build().name("streaming_counter").help("help")
+                .labelNames("label")
+                .create().register(collectorRegistry);
+        counter.labels("a").inc(2);
+        counter.labels("b").inc(3);
+        Gauge gauge = Gauge.build().name("streaming_gauge").help("help")
+                .create().register(collectorRegistry);
+        gauge.set(5);
+        Histogram histogram = Histogram.build().name("streaming_histogram").help("help")
+                .buckets(1, 5)
+                .create().register(collectorRegistry);
+        histogram.observe(3);
+    }
+
+    private InputStream expose() throws IOException {
+        StringWriter writer = new StringWriter();
+        TextFormat.write004(writer, collectorRegistry.metricFamilySamples());
+        return new ByteArrayInputStream(writer.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testVerify() throws IOException {
+        StreamingMetricsAssert streamingAssert = new StreamingMetricsAssert();
+        streamingAssert.expect("streaming_counter")
+                .hasType(Collector.Type.COUNTER)
+                .hasSampleSize(4) // Including _created
+                .hasSampleLabelNames("label")
+                .hasSampleValue(labelValues("a"), 2)
+                .hasSampleValue(labelValues("b"), v -> v.isGreaterThan(2));
+        streamingAssert.expect("streaming_gauge")
+                .hasType(Collector.Type.GAUGE)
+                .hasSampleLabelNames()
+                .hasSampleValue(labelValues(), 5);
+        streamingAssert.expect("streaming_histogram")
+                .hasType(Collector.Type.HISTOGRAM)
+                .hasSampleValue("streaming_histogram_bucket", labelValues("5.0"), 1)
+                .hasSampleValue("streaming_histogram_sum", labelValues(), 3);
+        streamingAssert.verify(expose());
+
+        // Reusable
+        streamingAssert.verify(expose());
+    }
+
+    @Test
+    public void testVerifyReportsAllFailures() throws IOException {
+        StreamingMetricsAssert streamingAssert = new StreamingMetricsAssert();
+        streamingAssert.expect("streaming_counter")
+                .hasType(Collector.Type.GAUGE)
+                .hasSampleSize(3)
+                .hasSampleLabelNames("other")
+                .hasSampleValue(labelValues("a"), 1)
+                .hasSampleValue(labelValues("c"), 1);
+        streamingAssert.expect("nonexistent");
+
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> streamingAssert.verify(expose()))
+                .withMessageStartingWith("Expected streamed MFS to satisfy all assertions, but found 6 failures:\n" +
+                        "  - Expected MFS streaming_counter of type GAUGE but got COUNTER\n" +
+                        "  - Unexpected value for streaming_counter_total{label=a} : ")
+                .withMessageEndingWith("\n" +
+                        "  - Expected MFS streaming_counter to have 3 samples, but got 4\n" +
+                        "  - Expected MFS streaming_counter samples to have labels [other], but got [label]\n" +
+                        "  - Expected streaming_counter_total sample with label values [c], but not found\n" +
+                        "  - Expected MFS nonexistent, but not found");
+    }
+
+    @Test
+    public void testVerifyManySeries() throws IOException {
+        Gauge gauge = Gauge.build().name("streaming_many_gauge").help("help")
+                .labelNames("label")
+                .create().register(collectorRegistry);
+        StreamingMetricsAssert streamingAssert = new StreamingMetricsAssert();
+        StreamingMetricsAssert.Expectation expectation = streamingAssert.expect("streaming_many_gauge");
+        for (int i = 0; i < 1000; i++) {
+            gauge.labels("v" + i).set(i);
+            expectation.hasSampleValue(labelValues("v" + i), i);
+        }
+        expectation.hasSampleValue(labelValues("v42"), v -> v.isLessThan(42)); // Same sample, checked again
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> streamingAssert.verify(expose()))
+                .withMessageStartingWith("Expected streamed MFS to satisfy all assertions, but found 1 failures:\n" +
+                        "  - Unexpected value for streaming_many_gauge{label=v42} : ");
+    }
+}
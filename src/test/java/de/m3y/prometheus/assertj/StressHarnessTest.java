@@ -0,0 +1,126 @@
+package de.m3y.prometheus.assertj;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.Histogram;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+public class StressHarnessTest {
+    @Test
+    public void testRun() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Counter requests = Counter.build().name("requests").help("help")
+                .labelNames("thread")
+                .create().register(collectorRegistry);
+        Histogram latency = Histogram.build().name("latency").help("help")
+                .buckets(1, 2)
+                .create().register(collectorRegistry);
+        requests.labels("0").inc(5); // Before, not part of delta
+
+        StressHarness.Result result = new StressHarness(collectorRegistry)
+                .withThreads(4)
+                .withIterationsPerThread(10_000)
+                .run((thread, iteration) -> {
+                    requests.labels(Integer.toString(thread % 2)).inc();
+                    latency.observe(iteration % 2 == 0 ? 0.5 : 1.5);
+                }, "requests", "latency");
+
+        assertThat(result.getTotalIterations()).isEqualTo(40_000);
+        assertThat(result.getConcurrentSnapshotCount()).isPositive();
+        result.assertThat("requests")
+                .hasTypeOfCounter()
+                .hasSampleValue(MetricFamilySamplesAssert.labelValues("0"), 20_000)
+                .hasSampleValue(MetricFamilySamplesAssert.labelValues("1"), 20_000);
+        result.assertThat("latency")
+                .hasTypeOfHistogram()
+                .hasSampleCountValue(40_000)
+                .hasSampleSumValue(40_000)
+                .hasSampleBucketValue(1, 20_000)
+                .hasSampleBucketValue(Double.POSITIVE_INFINITY, 40_000)
+                .isConsistent();
+    }
+
+    @Test
+    public void testDecreasingCounter() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        AtomicInteger collectCount = new AtomicInteger();
+        new Collector() {
+            @Override
+            public List<MetricFamilySamples> collect() {
+                return Collections.singletonList(
+                        new CounterMetricFamily("broken", "help", 1_000_000 - collectCount.incrementAndGet()));
+            }
+        }.register(collectorRegistry);
+
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> new StressHarness(collectorRegistry)
+                        .withThreads(1)
+                        .withIterationsPerThread(10)
+                        .run((thread, iteration) -> Thread.sleep(10), "broken"))
+                .withMessageStartingWith("Expected monotonic samples not to decrease while running, but found ")
+                .withMessageContaining("\n  broken_total{} decreased from ");
+    }
+
+    @Test
+    public void testFailingWorkload() {
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> new StressHarness(new CollectorRegistry())
+                        .withThreads(2)
+                        .run((thread, iteration) -> {
+                            throw new IllegalStateException("Broken");
+                        }))
+                .withMessage("Expected workload to succeed, but failed with java.lang.IllegalStateException: Broken")
+                .withCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testFailingConcurrentSnapshot() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        new Collector() {
+            @Override
+            public List<MetricFamilySamples> collect() {
+                if ("stress-harness-snapshots".equals(Thread.currentThread().getName())) {
+                    throw new IllegalStateException("Broken");
+                }
+                return Collections.singletonList(new CounterMetricFamily("requests", "help", 0));
+            }
+        }.register(collectorRegistry);
+
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> new StressHarness(collectorRegistry)
+                        .withThreads(1)
+                        .withIterationsPerThread(10)
+                        .run((thread, iteration) -> Thread.sleep(1), "requests"))
+                .withMessage("Expected concurrent snapshots to succeed, but failed with java.lang.IllegalStateException: Broken")
+                .withCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testVirtualThreads() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Counter requests = Counter.build().name("requests").help("help")
+                .create().register(collectorRegistry);
+        StressHarness harness = new StressHarness(collectorRegistry)
+                .withThreads(100)
+                .withIterationsPerThread(100)
+                .withVirtualThreads(true);
+        if (StressHarness.isVirtualThreadsSupported()) {
+            StressHarness.Result result = harness.run((thread, iteration) -> requests.inc(), "requests");
+            result.assertThat("requests").hasTypeOfCounter().hasSampleValue(10_000);
+        } else {
+            assertThatIllegalStateException()
+                    .isThrownBy(() -> harness.run((thread, iteration) -> requests.inc(), "requests"))
+                    .withMessageStartingWith("Virtual threads require JDK 21+");
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package de.m3y.prometheus.assertj;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -18,4 +23,42 @@ public class StringUtilsTest {
                 10);
         assertThat(candidates).containsExactly("afoo","afoob","foobar","afooba", "abcfooefg");
     }
+
+    @Test
+    public void testSimilarWithTies() {
+        String[] candidates = StringUtils.similar("abc",
+                new String[]{"xbc", "axc", "abx", "abc", "abcd"},
+                3);
+        assertThat(candidates).containsExactly("abc", "xbc", "axc");
+
+        assertThat(StringUtils.similar("abc", new String[0], 3)).isEmpty();
+        assertThat(StringUtils.similar("abc", new String[]{"abc"}, 0)).isEmpty();
+    }
+
+    @Test
+    public void testEditDistance() {
+        StringUtils.EditDistance editDistance = new StringUtils.EditDistance();
+        assertThat(editDistance.apply("kitten", "sitting", Integer.MAX_VALUE)).isEqualTo(3);
+        assertThat(editDistance.apply("sitting", "kitten", 3)).isEqualTo(3);
+        assertThat(editDistance.apply("kitten", "sitting", 2)).isEqualTo(-1);
+        assertThat(editDistance.apply("", "abc", 5)).isEqualTo(3);
+        assertThat(editDistance.apply("abc", "", 2)).isEqualTo(-1);
+        assertThat(editDistance.apply("abcdefgh", "abc", Integer.MAX_VALUE)).isEqualTo(5);
+    }
+
+    @Test
+    public void testBkTreeMatchesLinearSimilar() {
+        List<String> names = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            names.add("metric_" + Integer.toString(random.nextInt(100_000), 36) + (i % 3 == 0 ? "_total" : ""));
+        }
+        names = new ArrayList<>(new LinkedHashSet<>(names)); // Unique, as MFS names
+        BkTree bkTree = new BkTree(names);
+        String[] options = names.toArray(new String[0]);
+        for (String reference : new String[]{"metric_abc", "metric_1x_total", "foo", names.get(7)}) {
+            assertThat(bkTree.similar(reference, 5))
+                    .containsExactly(StringUtils.similar(reference, options, 5));
+        }
+    }
 }
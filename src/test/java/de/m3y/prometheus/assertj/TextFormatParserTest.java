@@ -0,0 +1,212 @@
+package de.m3y.prometheus.assertj;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import io.prometheus.client.Summary;
+import io.prometheus.client.exporter.common.TextFormat;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static de.m3y.prometheus.assertj.MetricFamilySamplesAssert.labelValues;
+import static de.m3y.prometheus.assertj.MetricFamilySamplesUtils.getMetricFamilySamples;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TextFormatParserTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private CollectorRegistry collectorRegistry;
+
+    @Before
+    public void setUp() {
+        collectorRegistry = new CollectorRegistry();
+        Counter counter = Counter.build().name("parser_counter").help("help with \\ and \n newline")
+                .labelNames("label_a", "label_b")
+                .create().register(collectorRegistry);
+        counter.labels("a", "b").inc(3);
+        counter.labels("with \"quotes\"", "with \\ and \n").inc();
+        Gauge gauge = Gauge.build().name("parser_gauge").help("help")
+                .create().register(collectorRegistry);
+        gauge.set(-1.5e-3);
+        Histogram histogram = Histogram.build().name("parser_histogram").help("help")
+                .labelNames("label")
+                .buckets(1, 5)
+                .create().register(collectorRegistry);
+        histogram.labels("x").observe(3);
+        histogram.labels("y").observe(7);
+        Summary summary = Summary.build().name("parser_summary").help("help")
+                .quantile(0.5, 0.05)
+                .create().register(collectorRegistry);
+        summary.observe(42);
+    }
+
+    private Path writeRegistry() throws IOException {
+        Path path = temporaryFolder.newFile("metrics.txt").toPath();
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            TextFormat.write004(writer, collectorRegistry.metricFamilySamples());
+        }
+        return path;
+    }
+
+    @Test
+    public void testParse() throws IOException {
+        List<Collector.MetricFamilySamples> parsed = TextFormatParser.parse(writeRegistry());
+
+        List<Collector.MetricFamilySamples> expected = Collections.list(collectorRegistry.metricFamilySamples());
+        assertThat(parsed).hasSameSizeAs(expected);
+        for (Collector.MetricFamilySamples expectedMfs : expected) {
+            Collector.MetricFamilySamples mfs = getMetricFamilySamples(parsed, expectedMfs.name);
+            assertThat(mfs.type).isEqualTo(expectedMfs.type);
+            assertThat(mfs.help).isEqualTo(expectedMfs.help);
+            assertThat(mfs.samples).containsExactlyInAnyOrderElementsOf(expectedMfs.samples);
+        }
+
+        MetricFamilySamplesAssert.assertThat(getMetricFamilySamples(parsed, "parser_counter"))
+                .hasTypeOfCounter()
+                .hasSampleLabelNames("label_a", "label_b")
+                .hasSampleValue(labelValues("a", "b"), 3)
+                .hasSampleValue(labelValues("with \"quotes\"", "with \\ and \n"), 1);
+        MetricFamilySamplesAssert.assertThat(getMetricFamilySamples(parsed, "parser_histogram"))
+                .hasTypeOfHistogram()
+                .hasSampleBucketValue(labelValues("x"), 5, 1)
+                .hasSampleBucketValue(labelValues("y"), Double.POSITIVE_INFINITY, 1)
+                .hasSampleSumValue(labelValues("y"), 7);
+    }
+
+    @Test
+    public void testParseSelected() throws IOException {
+        List<Collector.MetricFamilySamples> parsed = TextFormatParser.parse(writeRegistry(),
+                new HashSet<>(Arrays.asList("parser_counter", "parser_histogram")));
+        assertThat(parsed).extracting(mfs -> mfs.name)
+                .containsExactlyInAnyOrder("parser_counter", "parser_histogram");
+        MetricFamilySamplesAssert.assertThat(getMetricFamilySamples(parsed, "parser_histogram"))
+                .hasSampleSize(12) // 2 * (3 buckets + _count + _sum + _created)
+                .hasTypeOfHistogram()
+                .hasSampleCountValue(labelValues("x"), 1);
+    }
+
+    @Test
+    public void testParseSelectedInfo() throws IOException {
+        Path path = temporaryFolder.newFile("info.txt").toPath();
+        Files.write(path, ("# TYPE parser_build_info gauge\n" +
+                "parser_build_info{version=\"1.0\"} 1.0\n").getBytes(StandardCharsets.UTF_8));
+
+        assertThat(TextFormatParser.parse(path, Collections.singleton("parser_build"))).isEmpty();
+        List<Collector.MetricFamilySamples> parsed = TextFormatParser.parse(path,
+                Collections.singleton("parser_build_info"));
+        assertThat(parsed).extracting(mfs -> mfs.name).containsExactly("parser_build_info");
+        assertThat(parsed.get(0).type).isEqualTo(Collector.Type.GAUGE);
+    }
+
+    @Test
+    public void testParseUntypedAndTimestamps() throws IOException {
+        Path path = temporaryFolder.newFile("untyped.txt").toPath();
+        Files.write(path, ("# Some comment\r\n" +
+                "untyped_metric{a=\"1\",} NaN 1600000000000\n" +
+                "\n" +
+                "untyped_metric{a=\"2\"} +Inf\n" +
+                "other_metric -Inf").getBytes(StandardCharsets.UTF_8));
+
+        List<Collector.MetricFamilySamples> parsed = TextFormatParser.parse(path);
+        assertThat(parsed).extracting(mfs -> mfs.name).containsExactly("untyped_metric", "other_metric");
+        Collector.MetricFamilySamples untyped = getMetricFamilySamples(parsed, "untyped_metric");
+        assertThat(untyped.type).isEqualTo(Collector.Type.UNKNOWN);
+        assertThat(untyped.samples.get(0).timestampMs).isEqualTo(1600000000000L);
+        assertThat(untyped.samples.get(0).value).isNaN();
+        assertThat(untyped.samples.get(1).value).isEqualTo(Double.POSITIVE_INFINITY);
+        assertThat(getMetricFamilySamples(parsed, "other_metric").samples.get(0).value)
+                .isEqualTo(Double.NEGATIVE_INFINITY);
+    }
+
+    @Test
+    public void testParseError() throws IOException {
+        Path path = temporaryFolder.newFile("invalid.txt").toPath();
+        Files.write(path, "metric{a=\"1} 1\n".getBytes(StandardCharsets.UTF_8));
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> TextFormatParser.parse(path))
+                .withMessageContaining("line 1");
+
+        Files.write(path, "metric{a=\"1\"} abc\n".getBytes(StandardCharsets.UTF_8));
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> TextFormatParser.parse(path))
+                .withMessage("Invalid value abc in line 1");
+    }
+
+    @Test
+    public void testParseInSmallMappedRegions() throws IOException {
+        Path path = writeRegistry();
+        List<Collector.MetricFamilySamples> expected = TextFormatParser.parse(path);
+        assertThat(TextFormatParser.parse(path, null, 128)).isEqualTo(expected);
+
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> TextFormatParser.parse(path, null, 8))
+                .withMessageContaining("exceeds max length of 8 bytes");
+    }
+
+    @Test
+    public void testParseStreamToVisitor() throws IOException {
+        Path path = writeRegistry();
+        List<String> visited = new ArrayList<>();
+        MetricFamilySamplesVisitor visitor = new MetricFamilySamplesVisitor() {
+            @Override
+            public void visitMetricFamily(String name, Collector.Type type, String help) {
+                visited.add(name + ":" + type);
+            }
+
+            @Override
+            public void visitSample(Collector.MetricFamilySamples.Sample sample) {
+                visited.add(sample.name);
+            }
+        };
+        // Small buffer, forcing compaction of partial lines
+        TextFormatParser.parse(Channels.newChannel(Files.newInputStream(path)),
+                Collections.singleton("parser_counter"), visitor, 128);
+        assertThat(visited).containsExactly(
+                "parser_counter:COUNTER", "parser_counter_total", "parser_counter_total",
+                "parser_counter_created:GAUGE", "parser_counter_created", "parser_counter_created");
+
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> TextFormatParser.parse(Channels.newChannel(Files.newInputStream(path)),
+                        null, visitor, 8))
+                .withMessageContaining("exceeds max length of 8 bytes");
+    }
+
+    @Test
+    public void testParseStreamWithoutSamples() throws IOException {
+        List<String> visited = new ArrayList<>();
+        TextFormatParser.parse(new ByteArrayInputStream(("# HELP empty_gauge help\n" +
+                "# TYPE empty_gauge gauge\n" +
+                "# TYPE empty_counter_total counter").getBytes(StandardCharsets.UTF_8)), null,
+                new MetricFamilySamplesVisitor() {
+                    @Override
+                    public void visitMetricFamily(String name, Collector.Type type, String help) {
+                        visited.add(name + ":" + type + ":" + help);
+                    }
+
+                    @Override
+                    public void visitSample(Collector.MetricFamilySamples.Sample sample) {
+                        visited.add(sample.name);
+                    }
+                });
+        assertThat(visited).containsExactly("empty_gauge:GAUGE:help", "empty_counter:COUNTER:");
+    }
+}
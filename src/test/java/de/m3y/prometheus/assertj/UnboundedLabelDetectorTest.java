@@ -0,0 +1,179 @@
+package de.m3y.prometheus.assertj;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import org.junit.Test;
+
+import static de.m3y.prometheus.assertj.UnboundedLabelDetector.Reason.*;
+import static de.m3y.prometheus.assertj.UnboundedLabelDetector.classify;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class UnboundedLabelDetectorTest {
+    @Test
+    public void testClassify() {
+        assertThat(classify("123e4567-e89b-12d3-a456-426614174000", 64)).isEqualTo(UUID);
+        assertThat(classify("192.168.0.1", 64)).isEqualTo(IP_ADDRESS);
+        assertThat(classify("10.0.0.1:8080", 64)).isEqualTo(IP_ADDRESS);
+        assertThat(classify("fe80::1ff:fe23:4567:890a", 64)).isEqualTo(IP_ADDRESS);
+        assertThat(classify("2001:db8:85a3:0:0:8a2e:370:7334", 64)).isEqualTo(IP_ADDRESS);
+        assertThat(classify("::1", 64)).isEqualTo(IP_ADDRESS);
+        assertThat(classify("fe80::", 64)).isEqualTo(IP_ADDRESS);
+        assertThat(classify("::ffff:192.168.0.1", 64)).isEqualTo(IP_ADDRESS);
+        assertThat(classify("1700000000", 64)).isEqualTo(TIMESTAMP);
+        assertThat(classify("1700000000123", 64)).isEqualTo(TIMESTAMP);
+        assertThat(classify("2023-11-14T22:13:20Z", 64)).isEqualTo(TIMESTAMP);
+        assertThat(classify("48213", 64)).isEqualTo(NUMERIC_ID);
+        assertThat(classify("4bf92f3577b34da6a3ce929d0e0e4736", 64)).isEqualTo(NUMERIC_ID);
+        assertThat(classify("a very long free text message, such as an exception message", 32)).isEqualTo(LONG_TEXT);
+
+        // Bounded
+        assertThat(classify("GET", 64)).isNull();
+        assertThat(classify("200", 64)).isNull();
+        assertThat(classify("eu-west-1", 64)).isNull();
+        assertThat(classify("1.2.3", 64)).isNull();
+        assertThat(classify("256.1.1.1", 64)).isNull();
+        assertThat(classify("/api/items", 64)).isNull();
+        assertThat(classify("deadbeefdeadbeef", 64)).isNull(); // Hex word, no digits
+        assertThat(classify("12:30:00", 64)).isNull(); // Time of day
+        assertThat(classify("dead:beef:", 64)).isNull();
+        assertThat(classify("1:2:3:4:5:6:7", 64)).isNull();
+        assertThat(classify("1:2:3:4:5:6:7:8:9", 64)).isNull();
+        assertThat(classify("1::2::3", 64)).isNull();
+        assertThat(classify("fe80::12345", 64)).isNull();
+        assertThat(classify("::ffff:192.168.0", 64)).isNull();
+    }
+
+    @Test
+    public void testDetect() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Counter requests = Counter.build().name("requests").help("help")
+                .labelNames("method", "request_id")
+                .create().register(collectorRegistry);
+        for (int i = 0; i < 100; i++) {
+            requests.labels(i % 2 == 0 ? "GET" : "POST", java.util.UUID.randomUUID().toString()).inc();
+        }
+        Gauge sessions = Gauge.build().name("sessions").help("help")
+                .labelNames("client")
+                .create().register(collectorRegistry);
+        for (int i = 0; i < 20; i++) {
+            sessions.labels("10.0.0." + i).set(i);
+        }
+        Histogram latency = Histogram.build().name("latency").help("help")
+                .labelNames("status")
+                .buckets(0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9, 1.0, 2.0)
+                .create().register(collectorRegistry);
+        latency.labels("200").observe(0.1);
+        latency.labels("500").observe(0.1);
+
+        List<UnboundedLabelDetector.Finding> findings = new UnboundedLabelDetector().detect(collectorRegistry);
+        assertThat(findings).hasSize(2);
+        UnboundedLabelDetector.Finding finding = findings.get(0);
+        assertThat(finding.getFamilyName()).isEqualTo("requests");
+        assertThat(finding.getLabelName()).isEqualTo("request_id");
+        assertThat(finding.getReason()).isEqualTo(UUID);
+        assertThat(finding.getDistinctValueCount()).isEqualTo(100);
+        assertThat(finding.isExact()).isTrue();
+        assertThat(finding.getExampleValues()).hasSize(3);
+        finding = findings.get(1);
+        assertThat(finding.getFamilyName()).isEqualTo("sessions");
+        assertThat(finding.getLabelName()).isEqualTo("client");
+        assertThat(finding.getReason()).isEqualTo(IP_ADDRESS);
+        assertThat(finding.toString())
+                .startsWith("sessions label client looks unbounded (IP_ADDRESS) with 20 distinct values, e.g. [10.0.0.");
+
+        assertThat(new UnboundedLabelDetector().withMinDistinctValues(21).detect(collectorRegistry)).hasSize(1);
+        assertThat(new UnboundedLabelDetector().withIgnoredLabels("request_id", "client").detect(collectorRegistry))
+                .isEmpty();
+    }
+
+    @Test
+    public void testDetectUniquePerSeries() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Gauge gauge = Gauge.build().name("users").help("help")
+                .labelNames("region", "user")
+                .create().register(collectorRegistry);
+        for (int i = 0; i < 600; i++) {
+            gauge.labels(i % 2 == 0 ? "eu" : "us", "user_" + Integer.toString(i, 36)).set(i);
+        }
+        List<UnboundedLabelDetector.Finding> findings = new UnboundedLabelDetector().detect(collectorRegistry);
+        assertThat(findings).extracting(UnboundedLabelDetector.Finding::getLabelName).containsExactly("user");
+        assertThat(findings.get(0).getReason()).isEqualTo(UNIQUE_PER_SERIES);
+
+        assertThat(new UnboundedLabelDetector().withMinSeriesForUniqueness(601).detect(collectorRegistry)).isEmpty();
+    }
+
+    @Test
+    public void testDetectUniquePerSeriesIgnoresSingleLabel() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Histogram histogram = Histogram.build().name("request_latency").help("help")
+                .labelNames("path")
+                .create().register(collectorRegistry);
+        for (int i = 0; i < 600; i++) {
+            histogram.labels("/page_" + Integer.toString(i, 36)).observe(i);
+        }
+        assertThat(new UnboundedLabelDetector().detect(collectorRegistry)).isEmpty();
+    }
+
+    @Test
+    public void testDetectWithoutSamples() {
+        Collector.MetricFamilySamples mfs = new Collector.MetricFamilySamples("no_samples", Collector.Type.GAUGE,
+                "help", null);
+        assertThat(new UnboundedLabelDetector().detect(mfs)).isEmpty();
+    }
+
+    @Test
+    public void testDetectStreaming() throws Exception {
+        StringBuilder buf = new StringBuilder("# TYPE jobs gauge\n");
+        for (int i = 0; i < 1000; i++) {
+            buf.append("jobs{job_id=\"").append(10_000 + i).append("\"} 1\n");
+        }
+        UnboundedLabelDetector.Analysis analysis = new UnboundedLabelDetector()
+                .withSampledValuesPerLabel(8)
+                .analyze();
+        TextFormatParser.parse(new ByteArrayInputStream(buf.toString().getBytes(StandardCharsets.UTF_8)), null,
+                analysis);
+        List<UnboundedLabelDetector.Finding> findings = analysis.getFindings();
+        assertThat(findings).hasSize(1);
+        assertThat(findings.get(0).getReason()).isEqualTo(NUMERIC_ID);
+        assertThat(findings.get(0).getDistinctValueCount()).isEqualTo(1000);
+    }
+
+    @Test
+    public void testAssertions() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Gauge gauge = Gauge.build().name("jobs").help("help")
+                .labelNames("job_id")
+                .create().register(collectorRegistry);
+        for (int i = 0; i < 10; i++) {
+            gauge.labels(Integer.toString(1000 + i)).set(i);
+        }
+        Gauge.build().name("temperature").help("help")
+                .register(collectorRegistry).set(20);
+        MetricsSnapshot snapshot = MetricsSnapshot.of(collectorRegistry);
+        Collector.MetricFamilySamples mfs = snapshot.getMetricFamilySamples("jobs");
+
+        MetricFamilySamplesAssert.assertThat(snapshot.getMetricFamilySamples("temperature")).hasNoUnboundedLabels();
+        MetricFamilySamplesAssert.assertThat(mfs)
+                .hasNoUnboundedLabels(new UnboundedLabelDetector().withIgnoredLabels("job_id"));
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> MetricFamilySamplesAssert.assertThat(mfs).hasNoUnboundedLabels())
+                .withMessageStartingWith("Expected MetricFamilySamples jobs to have no unbounded labels, but found:\n"
+                        + "  jobs label job_id looks unbounded (NUMERIC_ID) with 10 distinct values, e.g. [100");
+
+        MetricsSnapshotAssert.assertThat(snapshot)
+                .hasNoUnboundedLabels(new UnboundedLabelDetector().withMinDistinctValues(11));
+        assertThatExceptionOfType(AssertionError.class)
+                .isThrownBy(() -> MetricsSnapshotAssert.assertThat(snapshot).hasNoUnboundedLabels())
+                .withMessageStartingWith("Expected no unbounded labels, but found 1:\n"
+                        + "  jobs label job_id looks unbounded (NUMERIC_ID) with 10 distinct values, e.g. [100");
+    }
+}